@@ -0,0 +1,429 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.benchmark;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+
+import org.simbrain.network.NetworkComponent;
+import org.simbrain.network.connections.ConnectNeurons;
+import org.simbrain.network.connections.Radial;
+import org.simbrain.network.connections.Sparse;
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.NeuronUpdateRule;
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.core.SynapseUpdateRule;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.groups.SynapseGroup;
+import org.simbrain.network.layouts.GridLayout;
+import org.simbrain.network.neuron_update_rules.IzhikevichRule;
+import org.simbrain.network.neuron_update_rules.LinearRule;
+import org.simbrain.network.neuron_update_rules.SigmoidalRule;
+import org.simbrain.network.synapse_update_rules.HebbianRule;
+import org.simbrain.network.synapse_update_rules.STDPRule;
+import org.simbrain.network.update_actions.ConcurrentBufferedUpdate;
+import org.simbrain.network.util.io_utilities.GroupDeserializer;
+import org.simbrain.network.util.io_utilities.GroupSerializer;
+import org.simbrain.network.util.io_utilities.GroupSerializer.Precision;
+import org.simbrain.util.SimbrainConstants.Polarity;
+import org.simbrain.util.benchmark.BenchmarkResult;
+import org.simbrain.util.benchmark.BenchmarkRunner;
+import org.simbrain.workspace.Coupling;
+import org.simbrain.workspace.CouplingManager;
+import org.simbrain.workspace.Workspace;
+
+/**
+ * <b>CoreBenchmarks</b> is the benchmark suite for the network core,
+ * couplings and serialization: buffered and concurrent network updates,
+ * connection building, synapse group plasticity, coupling throughput,
+ * network copying and saving and loading. Results are printed and can be
+ * written to a csv file and compared with an earlier run:
+ *
+ * <pre>
+ * CoreBenchmarks [-o results.csv] [-b baseline.csv] [-f regex] [-quick]
+ * </pre>
+ *
+ * With <code>-b</code> the process exits with status 1 if any benchmark is
+ * more than 10% slower than in the baseline. <code>-f</code> runs only the
+ * benchmarks whose name or parameters match a regular expression, e.g.
+ * <code>-f "update.*neurons=1000;"</code>, and <code>-quick</code> uses
+ * short iterations for a smoke test. The ant target <code>benchmark</code>
+ * runs the suite.
+ */
+public class CoreBenchmarks {
+
+    /** Group sizes used in the update benchmarks. */
+    private static final int[] UPDATE_SIZES = { 1000, 10000, 100000 };
+
+    /**
+     * Group sizes used in the connection building benchmarks. Connection
+     * builders visit every pair of neurons, so larger groups are impractical.
+     */
+    private static final int[] CONNECTION_SIZES = { 1000, 10000 };
+
+    /** Number of incoming synapses per neuron in the update benchmarks. */
+    private static final int FAN_IN = 10;
+
+    /** Allowed slowdown relative to a baseline. */
+    private static final double TOLERANCE = 0.1;
+
+    /** Seed for all random numbers, so runs build the same networks. */
+    private static final long SEED = 42;
+
+    /** The harness. */
+    private final BenchmarkRunner runner;
+
+    /**
+     * Construct the suite.
+     *
+     * @param runner the harness to run the benchmarks with
+     */
+    public CoreBenchmarks(final BenchmarkRunner runner) {
+        this.runner = runner;
+    }
+
+    /**
+     * Run all selected benchmarks.
+     *
+     * @throws Exception if a benchmark fails
+     */
+    public void runAll() throws Exception {
+        updateBenchmarks();
+        connectionBenchmarks();
+        plasticityBenchmarks();
+        couplingBenchmarks();
+        copyAndSerializationBenchmarks();
+    }
+
+    /**
+     * Buffered and concurrent update of recurrent linear, sigmoidal and
+     * Izhikevich groups.
+     *
+     * @throws Exception if a benchmark fails
+     */
+    private void updateBenchmarks() throws Exception {
+        String[] rules = { "Linear", "Sigmoidal", "Izhikevich" };
+        for (String rule : rules) {
+            for (int size : UPDATE_SIZES) {
+                for (boolean concurrent : new boolean[] { false, true }) {
+                    String params = "rule=" + rule + ";neurons=" + size
+                            + ";mode=" + (concurrent ? "concurrent"
+                                    : "buffered");
+                    if (!runner.isSelected("update", params)) {
+                        continue;
+                    }
+                    Network net = createRecurrentNetwork(createRule(rule),
+                            size);
+                    ConcurrentBufferedUpdate cbu = null;
+                    if (concurrent) {
+                        cbu = ConcurrentBufferedUpdate
+                                .createConcurrentBufferedUpdate(net);
+                        net.getUpdateManager().clear();
+                        net.getUpdateManager().addAction(cbu);
+                    }
+                    runner.run("update", params, () -> {
+                        net.update();
+                        return null;
+                    });
+                    if (cbu != null) {
+                        cbu.shutdown();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Building sparse and radial connections between two groups.
+     *
+     * @throws Exception if a benchmark fails
+     */
+    private void connectionBenchmarks() throws Exception {
+        for (int size : CONNECTION_SIZES) {
+            String params = "neurons=" + size;
+            if (runner.isSelected("connect.sparse", params)) {
+                Network net = new Network();
+                NeuronGroup source = new NeuronGroup(net, size);
+                NeuronGroup target = new NeuronGroup(net, size);
+                runner.run("connect.sparse", params,
+                        () -> SynapseGroup.createSynapseGroup(source, target,
+                                new Sparse((double) FAN_IN / size, true,
+                                        false)));
+            }
+            if (runner.isSelected("connect.radial", params)) {
+                Network net = new Network();
+                NeuronGroup source = new NeuronGroup(net, size);
+                NeuronGroup target = new NeuronGroup(net, size);
+                new GridLayout().layoutNeurons(source.getNeuronList());
+                new GridLayout().layoutNeurons(target.getNeuronList());
+                ConnectNeurons radial = new Radial(100);
+                runner.run("connect.radial", params,
+                        () -> SynapseGroup.createSynapseGroup(source, target,
+                                radial));
+            }
+        }
+    }
+
+    /**
+     * Updating a synapse group of 100,000 synapses with Hebbian and STDP
+     * learning.
+     *
+     * @throws Exception if a benchmark fails
+     */
+    private void plasticityBenchmarks() throws Exception {
+        SynapseUpdateRule[] rules = { new HebbianRule(), new STDPRule() };
+        for (SynapseUpdateRule rule : rules) {
+            String params = "rule=" + rule.getName() + ";synapses=100000";
+            if (!runner.isSelected("plasticity", params)) {
+                continue;
+            }
+            Network net = new Network();
+            NeuronGroup source = new NeuronGroup(net, 1000);
+            NeuronGroup target = new NeuronGroup(net, 1000);
+            net.addGroup(source);
+            net.addGroup(target);
+            SynapseGroup sg = SynapseGroup.createSynapseGroup(source, target,
+                    new Sparse(0.1, true, false));
+            net.addGroup(sg);
+            sg.setLearningRule(rule, Polarity.BOTH);
+            Random rand = new Random(SEED);
+            for (Neuron neuron : net.getFlatNeuronList()) {
+                neuron.forceSetActivation(rand.nextDouble());
+            }
+            for (NeuronGroup group : net.getFlatNeuronGroupList()) {
+                for (Neuron neuron : group.getNeuronList()) {
+                    neuron.forceSetActivation(rand.nextDouble());
+                }
+            }
+            runner.run("plasticity", params, () -> {
+                sg.update();
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Updating couplings from the neurons of one network component to the
+     * neurons of another.
+     *
+     * @throws Exception if a benchmark fails
+     */
+    @SuppressWarnings("unchecked")
+    private void couplingBenchmarks() throws Exception {
+        for (int size : new int[] { 100, 1000 }) {
+            String params = "couplings=" + size;
+            if (!runner.isSelected("couplings", params)) {
+                continue;
+            }
+            Workspace workspace = new Workspace();
+            NetworkComponent producer = createComponent("Producer", size);
+            NetworkComponent consumer = createComponent("Consumer", size);
+            workspace.addWorkspaceComponent(producer);
+            workspace.addWorkspaceComponent(consumer);
+            List<Neuron> sources = producer.getNetwork().getFlatNeuronList();
+            List<Neuron> targets = consumer.getNetwork().getFlatNeuronList();
+            CouplingManager couplings = workspace.getCouplingManager();
+            for (int i = 0; i < size; i++) {
+                couplings.addCoupling(new Coupling<Double>(
+                        producer.getAttributeManager().createPotentialProducer(
+                                sources.get(i), "getActivation",
+                                double.class),
+                        consumer.getAttributeManager().createPotentialConsumer(
+                                targets.get(i), "setInputValue",
+                                double.class)));
+            }
+            runner.run("couplings", params, () -> {
+                couplings.updateAllCouplings();
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Copying a network, saving and loading it with XStream, and
+     * compressing and reconstructing a synapse group with
+     * {@link GroupSerializer}.
+     *
+     * @throws Exception if a benchmark fails
+     */
+    private void copyAndSerializationBenchmarks() throws Exception {
+        String params = "neurons=1000;synapses=10000";
+        if (runner.isSelected("network.copy", params)
+                || runner.isSelected("xstream.save", params)
+                || runner.isSelected("xstream.load", params)) {
+            Network net = createRecurrentNetwork(new LinearRule(), 1000);
+            runner.run("network.copy", params, () -> net.copy());
+            runner.run("xstream.save", params,
+                    () -> Network.getXStream().toXML(net));
+            String xml = Network.getXStream().toXML(net);
+            runner.run("xstream.load", params,
+                    () -> Network.getXStream().fromXML(xml));
+        }
+
+        params = "neurons=2048;density=0.01";
+        if (runner.isSelected("groupserializer.save", params)
+                || runner.isSelected("groupserializer.load", params)) {
+            Network sparseNet = new Network();
+            NeuronGroup ng = new NeuronGroup(sparseNet, 2048);
+            sparseNet.addGroup(ng);
+            SynapseGroup sg = SynapseGroup.createSynapseGroup(ng, ng,
+                    new Sparse(0.01, true, false));
+            runner.run("groupserializer.save", params,
+                    () -> GroupSerializer.rowCompMat2CompByteArray(
+                            sg.getRowCompressedMatrixRepresentation(),
+                            Precision.FLOAT_32));
+            byte[] bytes = GroupSerializer.rowCompMat2CompByteArray(
+                    sg.getRowCompressedMatrixRepresentation(),
+                    Precision.FLOAT_32);
+            runner.run("groupserializer.load", params, () -> {
+                NeuronGroup copy = new NeuronGroup(sparseNet, 2048);
+                SynapseGroup sg2 = new SynapseGroup(copy, copy);
+                GroupDeserializer.reconstructCompressedSynapseStrengths(bytes,
+                        sg2);
+                return sg2;
+            });
+        }
+    }
+
+    /**
+     * Create a rule by name.
+     *
+     * @param name "Linear", "Sigmoidal" or "Izhikevich"
+     * @return the rule
+     */
+    private static NeuronUpdateRule createRule(final String name) {
+        switch (name) {
+        case "Linear":
+            return new LinearRule();
+        case "Sigmoidal":
+            return new SigmoidalRule();
+        default:
+            IzhikevichRule rule = new IzhikevichRule();
+            rule.setiBg(10);
+            return rule;
+        }
+    }
+
+    /**
+     * Create a network holding one recurrently connected group, where each
+     * neuron receives {@link #FAN_IN} synapses with small random weights.
+     * Synapses are created directly rather than with a connection builder,
+     * which would visit every pair of neurons.
+     *
+     * @param rule the neuron update rule
+     * @param size the number of neurons
+     * @return the network
+     */
+    private static Network createRecurrentNetwork(
+            final NeuronUpdateRule rule, final int size) {
+        Network net = new Network();
+        net.setFireUpdates(false);
+        NeuronGroup ng = new NeuronGroup(net, size);
+        ng.setNeuronType(rule);
+        net.addGroup(ng);
+        SynapseGroup sg = new SynapseGroup(ng, ng);
+        Random rand = new Random(SEED);
+        List<Neuron> neurons = ng.getNeuronList();
+        for (Neuron target : neurons) {
+            target.forceSetActivation(rand.nextDouble());
+            for (int i = 0; i < FAN_IN; i++) {
+                Synapse s = new Synapse(neurons.get(rand.nextInt(size)),
+                        target);
+                s.forceSetStrength(0.2 * rand.nextDouble() - 0.1);
+                sg.addNewSynapse(s);
+            }
+        }
+        net.addGroup(sg);
+        return net;
+    }
+
+    /**
+     * Create a network component holding loose neurons.
+     *
+     * @param name the component name
+     * @param size the number of neurons
+     * @return the component
+     */
+    private static NetworkComponent createComponent(final String name,
+            final int size) {
+        Network net = new Network();
+        net.setFireUpdates(false);
+        for (int i = 0; i < size; i++) {
+            Neuron neuron = new Neuron(net);
+            neuron.forceSetActivation(i);
+            net.addNeuron(neuron);
+        }
+        return new NetworkComponent(name, net);
+    }
+
+    /**
+     * Run the suite.
+     *
+     * @param args options; see the class comment
+     * @throws Exception if a benchmark fails or a file cannot be read or
+     *             written
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        File output = null;
+        File baseline = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-o":
+                output = new File(args[++i]);
+                break;
+            case "-b":
+                baseline = new File(args[++i]);
+                break;
+            case "-f":
+                runner.setFilter(args[++i]);
+                break;
+            case "-quick":
+                runner.setWarmupIterations(1);
+                runner.setMeasurementIterations(2);
+                runner.setIterationMillis(100);
+                break;
+            default:
+                System.err.println("Unknown option " + args[i]);
+                System.exit(2);
+            }
+        }
+        System.out.println(System.getProperty("java.vm.name") + " "
+                + System.getProperty("java.version") + ", "
+                + Runtime.getRuntime().availableProcessors() + " processors");
+        new CoreBenchmarks(runner).runAll();
+        if (output != null) {
+            runner.writeCsv(output);
+            System.out.println("Results written to " + output);
+        }
+        int status = 0;
+        if (baseline != null) {
+            List<BenchmarkResult> old = BenchmarkRunner.readCsv(baseline);
+            List<String> regressions = BenchmarkRunner.findRegressions(old,
+                    runner.getResults(), TOLERANCE);
+            for (String regression : regressions) {
+                System.out.println("REGRESSION " + regression);
+            }
+            status = regressions.isEmpty() ? 0 : 1;
+        }
+        System.exit(status);
+    }
+}
@@ -0,0 +1,227 @@
+package org.simbrain.custom_sims.helper_classes;
+
+import java.util.Arrays;
+
+/**
+ * A compact genome for neuroevolution: a node count and a list of connection
+ * genes stored in parallel primitive arrays. Nodes are indexed with inputs
+ * first, then outputs, then hidden nodes, so the topology of a genome is fully
+ * described by its hidden node count and its source and target arrays.
+ * <p>
+ * Structural mutations only append nodes and connections, so an offspring's
+ * topology is its parent's topology plus a delta at the end of the arrays.
+ * {@link GenomeNetwork} relies on this to re-express an offspring in an
+ * existing network by changing only the appended part.
+ *
+ * @see NeuroevolutionEngine
+ */
+public class Genome {
+
+    /** Initial capacity of the connection arrays. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Number of input nodes. */
+    private final int numInputs;
+
+    /** Number of output nodes. */
+    private final int numOutputs;
+
+    /** Number of hidden nodes. */
+    private int numHidden;
+
+    /** Source node of each connection. */
+    private int[] sources;
+
+    /** Target node of each connection. */
+    private int[] targets;
+
+    /** Weight of each connection. */
+    private double[] weights;
+
+    /** Number of connections in use. */
+    private int numConnections;
+
+    /** Fitness from the last evaluation. */
+    private double fitness;
+
+    /**
+     * Construct a genome with no hidden nodes and no connections.
+     *
+     * @param numInputs number of input nodes
+     * @param numOutputs number of output nodes
+     */
+    public Genome(int numInputs, int numOutputs) {
+        this.numInputs = numInputs;
+        this.numOutputs = numOutputs;
+        sources = new int[INITIAL_CAPACITY];
+        targets = new int[INITIAL_CAPACITY];
+        weights = new double[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param toCopy genome to copy
+     */
+    public Genome(Genome toCopy) {
+        numInputs = toCopy.numInputs;
+        numOutputs = toCopy.numOutputs;
+        numHidden = toCopy.numHidden;
+        numConnections = toCopy.numConnections;
+        sources = toCopy.sources.clone();
+        targets = toCopy.targets.clone();
+        weights = toCopy.weights.clone();
+        fitness = toCopy.fitness;
+    }
+
+    /**
+     * Returns a deep copy of this genome.
+     *
+     * @return the copy
+     */
+    public Genome copy() {
+        return new Genome(this);
+    }
+
+    /**
+     * Add a hidden node.
+     *
+     * @return the index of the new node
+     */
+    public int addHiddenNode() {
+        numHidden++;
+        return getNumNodes() - 1;
+    }
+
+    /**
+     * Add a connection gene.
+     *
+     * @param source source node index
+     * @param target target node index
+     * @param weight initial weight
+     * @return the index of the new connection
+     */
+    public int addConnection(int source, int target, double weight) {
+        if (numConnections == sources.length) {
+            int capacity = sources.length * 2;
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        sources[numConnections] = source;
+        targets[numConnections] = target;
+        weights[numConnections] = weight;
+        return numConnections++;
+    }
+
+    /**
+     * Returns true if a connection between the given nodes already exists.
+     *
+     * @param source source node index
+     * @param target target node index
+     * @return whether the connection exists
+     */
+    public boolean hasConnection(int source, int target) {
+        for (int i = 0; i < numConnections; i++) {
+            if (sources[i] == source && targets[i] == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of leading connection genes whose topology is shared
+     * with another genome.
+     *
+     * @param other the genome to compare to
+     * @return length of the common topology prefix
+     */
+    public int getSharedTopologyLength(Genome other) {
+        int n = Math.min(numConnections, other.numConnections);
+        for (int i = 0; i < n; i++) {
+            if (sources[i] != other.sources[i]
+                    || targets[i] != other.targets[i]) {
+                return i;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @return total number of nodes
+     */
+    public int getNumNodes() {
+        return numInputs + numOutputs + numHidden;
+    }
+
+    /**
+     * @return the number of input nodes
+     */
+    public int getNumInputs() {
+        return numInputs;
+    }
+
+    /**
+     * @return the number of output nodes
+     */
+    public int getNumOutputs() {
+        return numOutputs;
+    }
+
+    /**
+     * @return the number of hidden nodes
+     */
+    public int getNumHidden() {
+        return numHidden;
+    }
+
+    /**
+     * @return the number of connections
+     */
+    public int getNumConnections() {
+        return numConnections;
+    }
+
+    /**
+     * @param i connection index
+     * @return source node of the connection
+     */
+    public int getSource(int i) {
+        return sources[i];
+    }
+
+    /**
+     * @param i connection index
+     * @return target node of the connection
+     */
+    public int getTarget(int i) {
+        return targets[i];
+    }
+
+    /**
+     * Returns the weight array. Only the first
+     * {@link #getNumConnections()} entries are in use. Mutation operators may
+     * modify it in place.
+     *
+     * @return the weights
+     */
+    public double[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * @return the fitness from the last evaluation
+     */
+    public double getFitness() {
+        return fitness;
+    }
+
+    /**
+     * @param fitness the fitness to set
+     */
+    public void setFitness(double fitness) {
+        this.fitness = fitness;
+    }
+
+}
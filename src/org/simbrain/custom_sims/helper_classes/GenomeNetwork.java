@@ -0,0 +1,177 @@
+package org.simbrain.custom_sims.helper_classes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.NeuronUpdateRule;
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.neuron_update_rules.LinearRule;
+
+/**
+ * A network that expresses {@link Genome}s. It lives outside of any workspace
+ * and is meant to be owned by a single evaluation thread. Rather than building
+ * a new network for every genome, {@link #express(Genome)} changes only the
+ * part of the current topology that differs from the new genome and then
+ * overwrites the weights, and {@link #reset()} clears dynamic state between
+ * evaluations.
+ */
+public class GenomeNetwork {
+
+    /** The underlying network. */
+    private final Network network = new Network();
+
+    /** Nodes, in genome order: inputs, outputs, hidden. */
+    private final List<Neuron> nodes = new ArrayList<Neuron>();
+
+    /** Synapses, in genome connection order. */
+    private final List<Synapse> synapses = new ArrayList<Synapse>();
+
+    /** Rule copied to each output and hidden node. */
+    private final NeuronUpdateRule nodeRule;
+
+    /** Number of input nodes. */
+    private final int numInputs;
+
+    /** Number of output nodes. */
+    private final int numOutputs;
+
+    /** Output activations from the last call to {@link #activate}. */
+    private final double[] outputs;
+
+    /** Copy of the genome currently expressed, used to diff topologies. */
+    private Genome expressed;
+
+    /**
+     * Construct a genome network with linear output and hidden nodes.
+     *
+     * @param numInputs number of input nodes
+     * @param numOutputs number of output nodes
+     */
+    public GenomeNetwork(int numInputs, int numOutputs) {
+        this(numInputs, numOutputs, new LinearRule());
+    }
+
+    /**
+     * Construct a genome network.
+     *
+     * @param numInputs number of input nodes
+     * @param numOutputs number of output nodes
+     * @param nodeRule rule copied to each output and hidden node
+     */
+    public GenomeNetwork(int numInputs, int numOutputs,
+            NeuronUpdateRule nodeRule) {
+        this.numInputs = numInputs;
+        this.numOutputs = numOutputs;
+        this.nodeRule = nodeRule;
+        outputs = new double[numOutputs];
+        network.setFireUpdates(false);
+        for (int i = 0; i < numInputs; i++) {
+            addNode(new LinearRule());
+        }
+        for (int i = 0; i < numOutputs; i++) {
+            addNode(nodeRule.deepCopy());
+        }
+        expressed = new Genome(numInputs, numOutputs);
+    }
+
+    /**
+     * Add a node to the network.
+     *
+     * @param rule the node's update rule
+     */
+    private void addNode(NeuronUpdateRule rule) {
+        Neuron neuron = new Neuron(network, rule);
+        network.addNeuron(neuron);
+        nodes.add(neuron);
+    }
+
+    /**
+     * Make this network's topology and weights match a genome. Connections
+     * shared with the previously expressed genome are kept and only have their
+     * weights overwritten.
+     *
+     * @param genome the genome to express
+     */
+    public void express(Genome genome) {
+        if (genome.getNumInputs() != numInputs
+                || genome.getNumOutputs() != numOutputs) {
+            throw new IllegalArgumentException(
+                    "Genome inputs and outputs do not match this network");
+        }
+        int shared = expressed.getSharedTopologyLength(genome);
+
+        // Remove synapses past the shared prefix, then surplus hidden nodes
+        for (int i = synapses.size() - 1; i >= shared; i--) {
+            network.removeSynapse(synapses.remove(i));
+        }
+        for (int i = nodes.size() - 1; i >= genome.getNumNodes(); i--) {
+            network.removeNeuron(nodes.remove(i));
+        }
+
+        // Add new hidden nodes and connections
+        while (nodes.size() < genome.getNumNodes()) {
+            addNode(nodeRule.deepCopy());
+        }
+        for (int i = shared, n = genome.getNumConnections(); i < n; i++) {
+            Synapse synapse = new Synapse(nodes.get(genome.getSource(i)),
+                    nodes.get(genome.getTarget(i)), 0);
+            network.addSynapse(synapse);
+            synapses.add(synapse);
+        }
+
+        double[] weights = genome.getWeights();
+        for (int i = 0, n = synapses.size(); i < n; i++) {
+            synapses.get(i).forceSetStrength(weights[i]);
+        }
+        expressed = genome.copy();
+    }
+
+    /**
+     * Clear activations, inputs and time so that a new evaluation starts from
+     * the same state as a freshly built network.
+     */
+    public void reset() {
+        for (int i = 0, n = nodes.size(); i < n; i++) {
+            Neuron neuron = nodes.get(i);
+            neuron.clear();
+            neuron.setInputValue(0);
+        }
+        network.setTime(0);
+    }
+
+    /**
+     * Present an input vector, update the network once, and return the output
+     * activations. Updates are buffered, so a signal takes one call per layer
+     * of connections to reach the outputs.
+     *
+     * @param inputs input values, one per input node
+     * @return the output activations (a reused array)
+     */
+    public double[] activate(double[] inputs) {
+        for (int i = 0, n = Math.min(numInputs, inputs.length); i < n; i++) {
+            nodes.get(i).setInputValue(inputs[i]);
+        }
+        network.update();
+        for (int i = 0; i < numOutputs; i++) {
+            outputs[i] = nodes.get(numInputs + i).getActivation();
+        }
+        return outputs;
+    }
+
+    /**
+     * @return the underlying network
+     */
+    public Network getNetwork() {
+        return network;
+    }
+
+    /**
+     * @return nodes in genome order
+     */
+    public List<Neuron> getNodes() {
+        return nodes;
+    }
+
+}
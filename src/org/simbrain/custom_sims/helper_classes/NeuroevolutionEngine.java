@@ -0,0 +1,499 @@
+package org.simbrain.custom_sims.helper_classes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Evolves a population of {@link Genome}s, evaluating them concurrently.
+ * <p>
+ * Each worker thread owns one {@link GenomeNetwork} and one
+ * {@link FitnessFunction} (which in turn owns whatever world the network is
+ * evaluated in), created once from the supplied factories and reused across
+ * generations. No workspace, GUI components or couplings are involved, so
+ * generation time scales with the number of cores.
+ * <p>
+ * Selection and mutation are pluggable. Simple truncation and tournament
+ * selection and weight, connection and node mutations are provided as nested
+ * classes.
+ */
+public class NeuroevolutionEngine {
+
+    /**
+     * Evaluates a network and returns its fitness. Implementations are used
+     * by a single thread, so they may hold mutable state such as a world.
+     */
+    public interface FitnessFunction {
+
+        /**
+         * Evaluate a network, which has been reset before this call.
+         *
+         * @param network the network expressing the genome being evaluated
+         * @param rand random number generator seeded for this evaluation
+         * @return the fitness; higher is better
+         */
+        double evaluate(GenomeNetwork network, Random rand);
+    }
+
+    /**
+     * Chooses a parent from the evaluated population.
+     */
+    public interface Selection {
+
+        /**
+         * Select a parent.
+         *
+         * @param ranked the population, sorted by decreasing fitness
+         * @param rand random number generator
+         * @return the selected parent
+         */
+        Genome select(List<Genome> ranked, Random rand);
+    }
+
+    /**
+     * Modifies an offspring genome in place.
+     */
+    public interface Mutation {
+
+        /**
+         * Mutate a genome.
+         *
+         * @param genome the genome to mutate
+         * @param rand random number generator
+         */
+        void mutate(Genome genome, Random rand);
+    }
+
+    /**
+     * Notified each time a population has been evaluated, e.g. to report
+     * progress.
+     */
+    public interface GenerationListener {
+
+        /**
+         * Called on the thread that evaluated the population.
+         *
+         * @param generation the generation that was evaluated
+         * @param best the fittest genome of that generation
+         */
+        void generationEvaluated(int generation, Genome best);
+    }
+
+    /** Current population. */
+    private List<Genome> population;
+
+    /** Parent selection operator. */
+    private Selection selection = new TournamentSelection(3);
+
+    /** Mutation operators, applied to each offspring in order. */
+    private final List<Mutation> mutations = new ArrayList<Mutation>();
+
+    /** Listeners notified after each evaluation. */
+    private final List<GenerationListener> generationListeners =
+            new ArrayList<GenerationListener>();
+
+    /** Number of top genomes copied unchanged into the next generation. */
+    private int numElites = 1;
+
+    /** Number of worker threads. */
+    private final int numThreads;
+
+    /** Executor running the workers. */
+    private final ExecutorService executor;
+
+    /** One evaluation task per worker thread. */
+    private final List<Callable<Void>> workers;
+
+    /** Index of the next genome to evaluate. */
+    private final AtomicInteger nextGenome = new AtomicInteger();
+
+    /** Seed from which all evaluation seeds are derived. */
+    private final long seed;
+
+    /** Random number generator used for selection and mutation. */
+    private final Random rand;
+
+    /** Current generation. */
+    private int generation;
+
+    /** Orders genomes by decreasing fitness. */
+    private static final Comparator<Genome> BY_FITNESS = (g1, g2) -> Double
+            .compare(g2.getFitness(), g1.getFitness());
+
+    /**
+     * Construct an engine using all available processors.
+     *
+     * @param prototype genome copied to create the initial population
+     * @param populationSize number of genomes in the population
+     * @param networkFactory creates the network owned by each worker
+     * @param fitnessFactory creates the fitness function owned by each worker
+     * @param seed random seed
+     */
+    public NeuroevolutionEngine(Genome prototype, int populationSize,
+            Supplier<GenomeNetwork> networkFactory,
+            Supplier<FitnessFunction> fitnessFactory, long seed) {
+        this(prototype, populationSize, networkFactory, fitnessFactory, seed,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construct an engine.
+     *
+     * @param prototype genome copied to create the initial population
+     * @param populationSize number of genomes in the population
+     * @param networkFactory creates the network owned by each worker
+     * @param fitnessFactory creates the fitness function owned by each worker
+     * @param seed random seed
+     * @param numThreads number of worker threads
+     */
+    public NeuroevolutionEngine(Genome prototype, int populationSize,
+            Supplier<GenomeNetwork> networkFactory,
+            Supplier<FitnessFunction> fitnessFactory, long seed,
+            int numThreads) {
+        this.seed = seed;
+        this.rand = new Random(seed);
+        this.numThreads = Math.max(1, Math.min(numThreads, populationSize));
+        population = new ArrayList<Genome>(populationSize);
+        for (int i = 0; i < populationSize; i++) {
+            population.add(prototype.copy());
+        }
+        workers = new ArrayList<Callable<Void>>(this.numThreads);
+        for (int t = 0; t < this.numThreads; t++) {
+            final GenomeNetwork network = networkFactory.get();
+            final FitnessFunction fitness = fitnessFactory.get();
+            workers.add(() -> {
+                evaluateAll(network, fitness);
+                return null;
+            });
+        }
+        executor = Executors.newFixedThreadPool(this.numThreads, r -> {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Apply the mutation operators to every genome, e.g. to randomize the
+     * weights of the initial population.
+     */
+    public void mutatePopulation() {
+        for (Genome genome : population) {
+            mutate(genome);
+        }
+    }
+
+    /**
+     * Evaluate every genome in the current population, setting its fitness.
+     */
+    public void evaluate() {
+        nextGenome.set(0);
+        try {
+            for (Future<Void> future : executor.invokeAll(workers)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        if (!generationListeners.isEmpty()) {
+            Genome best = getBest();
+            for (GenerationListener listener : generationListeners) {
+                listener.generationEvaluated(generation, best);
+            }
+        }
+    }
+
+    /**
+     * Worker loop: evaluate genomes until the population is exhausted.
+     *
+     * @param network the worker's network
+     * @param fitness the worker's fitness function
+     */
+    private void evaluateAll(GenomeNetwork network, FitnessFunction fitness) {
+        int i;
+        while ((i = nextGenome.getAndIncrement()) < population.size()) {
+            Genome genome = population.get(i);
+            network.express(genome);
+            network.reset();
+            Random evalRand = new Random(
+                    seed + (long) generation * population.size() + i);
+            genome.setFitness(fitness.evaluate(network, evalRand));
+        }
+    }
+
+    /**
+     * Replace the population with the next generation. The current population
+     * must already have been evaluated.
+     */
+    public void nextGeneration() {
+        List<Genome> ranked = new ArrayList<Genome>(population);
+        Collections.sort(ranked, BY_FITNESS);
+        List<Genome> next = new ArrayList<Genome>(population.size());
+        for (int i = 0; i < numElites && i < ranked.size(); i++) {
+            next.add(ranked.get(i));
+        }
+        while (next.size() < population.size()) {
+            Genome child = selection.select(ranked, rand).copy();
+            mutate(child);
+            next.add(child);
+        }
+        population = next;
+        generation++;
+    }
+
+    /**
+     * Evaluate and reproduce for a number of generations, then evaluate the
+     * final population.
+     *
+     * @param generations number of generations to run
+     * @return the fittest genome of the final population
+     */
+    public Genome run(int generations) {
+        for (int i = 0; i < generations; i++) {
+            evaluate();
+            nextGeneration();
+        }
+        evaluate();
+        return getBest();
+    }
+
+    /**
+     * Apply each mutation operator to a genome.
+     *
+     * @param genome genome to mutate
+     */
+    private void mutate(Genome genome) {
+        for (int i = 0, n = mutations.size(); i < n; i++) {
+            mutations.get(i).mutate(genome, rand);
+        }
+    }
+
+    /**
+     * Returns the fittest genome in the current population, according to the
+     * last evaluation.
+     *
+     * @return the best genome
+     */
+    public Genome getBest() {
+        return Collections.min(population, BY_FITNESS);
+    }
+
+    /**
+     * Stop the worker threads.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Add a listener notified after each evaluation.
+     *
+     * @param listener the listener
+     */
+    public void addGenerationListener(GenerationListener listener) {
+        generationListeners.add(listener);
+    }
+
+    /**
+     * Add a mutation operator.
+     *
+     * @param mutation operator to add
+     */
+    public void addMutation(Mutation mutation) {
+        mutations.add(mutation);
+    }
+
+    /**
+     * @param selection the selection operator to use
+     */
+    public void setSelection(Selection selection) {
+        this.selection = selection;
+    }
+
+    /**
+     * @param numElites number of top genomes kept unchanged each generation
+     */
+    public void setNumElites(int numElites) {
+        this.numElites = numElites;
+    }
+
+    /**
+     * @return the current population
+     */
+    public List<Genome> getPopulation() {
+        return population;
+    }
+
+    /**
+     * @return the current generation
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the number of worker threads
+     */
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Selects uniformly from the top fraction of the population.
+     */
+    public static class TruncationSelection implements Selection {
+
+        /** Fraction of the population eligible to reproduce. */
+        private final double fraction;
+
+        /**
+         * @param fraction fraction of the population eligible to reproduce
+         */
+        public TruncationSelection(double fraction) {
+            this.fraction = fraction;
+        }
+
+        @Override
+        public Genome select(List<Genome> ranked, Random rand) {
+            int n = Math.max(1, (int) (ranked.size() * fraction));
+            return ranked.get(rand.nextInt(n));
+        }
+    }
+
+    /**
+     * Selects the fittest of a few randomly chosen genomes.
+     */
+    public static class TournamentSelection implements Selection {
+
+        /** Number of genomes per tournament. */
+        private final int size;
+
+        /**
+         * @param size number of genomes per tournament
+         */
+        public TournamentSelection(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Genome select(List<Genome> ranked, Random rand) {
+            // Ranked by fitness, so the lowest index drawn wins
+            int best = ranked.size();
+            for (int i = 0; i < size; i++) {
+                best = Math.min(best, rand.nextInt(ranked.size()));
+            }
+            return ranked.get(best);
+        }
+    }
+
+    /**
+     * Adds Gaussian noise to each weight with some probability.
+     */
+    public static class WeightMutation implements Mutation {
+
+        /** Probability that a given weight is perturbed. */
+        private final double probability;
+
+        /** Standard deviation of the perturbation. */
+        private final double stdev;
+
+        /**
+         * @param probability probability that a given weight is perturbed
+         * @param stdev standard deviation of the perturbation
+         */
+        public WeightMutation(double probability, double stdev) {
+            this.probability = probability;
+            this.stdev = stdev;
+        }
+
+        @Override
+        public void mutate(Genome genome, Random rand) {
+            double[] weights = genome.getWeights();
+            for (int i = 0, n = genome.getNumConnections(); i < n; i++) {
+                if (rand.nextDouble() < probability) {
+                    weights[i] += rand.nextGaussian() * stdev;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a connection between two previously unconnected nodes with some
+     * probability. Inputs are never targets.
+     */
+    public static class AddConnectionMutation implements Mutation {
+
+        /** Probability of adding a connection. */
+        private final double probability;
+
+        /** Standard deviation of the new connection's weight. */
+        private final double stdev;
+
+        /**
+         * @param probability probability of adding a connection
+         * @param stdev standard deviation of the new connection's weight
+         */
+        public AddConnectionMutation(double probability, double stdev) {
+            this.probability = probability;
+            this.stdev = stdev;
+        }
+
+        @Override
+        public void mutate(Genome genome, Random rand) {
+            if (rand.nextDouble() >= probability) {
+                return;
+            }
+            int numNodes = genome.getNumNodes();
+            int numInputs = genome.getNumInputs();
+            int source = rand.nextInt(numNodes);
+            int target = numInputs + rand.nextInt(numNodes - numInputs);
+            if (!genome.hasConnection(source, target)) {
+                genome.addConnection(source, target,
+                        rand.nextGaussian() * stdev);
+            }
+        }
+    }
+
+    /**
+     * Splits an existing connection with a new hidden node with some
+     * probability. The original connection is kept, so the genome's topology
+     * only grows.
+     */
+    public static class AddNodeMutation implements Mutation {
+
+        /** Probability of adding a node. */
+        private final double probability;
+
+        /**
+         * @param probability probability of adding a node
+         */
+        public AddNodeMutation(double probability) {
+            this.probability = probability;
+        }
+
+        @Override
+        public void mutate(Genome genome, Random rand) {
+            if (genome.getNumConnections() == 0
+                    || rand.nextDouble() >= probability) {
+                return;
+            }
+            int split = rand.nextInt(genome.getNumConnections());
+            int node = genome.addHiddenNode();
+            genome.addConnection(genome.getSource(split), node, 1);
+            genome.addConnection(node, genome.getTarget(split),
+                    genome.getWeights()[split]);
+        }
+    }
+
+}
@@ -0,0 +1,197 @@
+package org.simbrain.custom_sims.helper_classes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.simbrain.network.core.Network;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.world.odorworld.OdorWorldBatch;
+
+/**
+ * Runs a batch of networks against an {@link OdorWorldBatch}, one network per
+ * environment, without a workspace or couplings. On each iteration the
+ * observation row of each environment is written to the input group of the
+ * corresponding network as external input, the network is updated, and the
+ * activations of its output group are used as that environment's action
+ * vector.
+ * <p>
+ * Networks must not be shared between environments and should not be open in
+ * the workspace while the runner is iterating, since they may be updated from
+ * worker threads.
+ */
+public class OdorWorldBatchRunner implements AutoCloseable {
+
+    /** The environments. */
+    private final OdorWorldBatch worlds;
+
+    /** One network per environment. */
+    private final List<Network> networks;
+
+    /** Input group of each network. Receives observations. */
+    private final List<NeuronGroup> inputs;
+
+    /** Output group of each network. Its activations are the actions. */
+    private final List<NeuronGroup> outputs;
+
+    /** Reusable action buffers, one row per environment. */
+    private final double[][] actions;
+
+    /** Number of worker threads. */
+    private int numThreads = 1;
+
+    /** Executor used when more than one thread is requested. */
+    private ExecutorService executor;
+
+    /** Tasks that each iterate a contiguous block of environments. */
+    private List<Callable<Void>> tasks;
+
+    /**
+     * Construct a runner.
+     *
+     * @param worlds the batch of environments
+     * @param networks one network per environment
+     * @param inputs the input group of each network
+     * @param outputs the output group of each network
+     */
+    public OdorWorldBatchRunner(OdorWorldBatch worlds, List<Network> networks,
+            List<NeuronGroup> inputs, List<NeuronGroup> outputs) {
+        int n = worlds.getNumEnvironments();
+        if (networks.size() != n || inputs.size() != n
+                || outputs.size() != n) {
+            throw new IllegalArgumentException(
+                    "Need one network, input group and output group for each"
+                            + " of the " + n + " environments");
+        }
+        this.worlds = worlds;
+        this.networks = new ArrayList<Network>(networks);
+        this.inputs = new ArrayList<NeuronGroup>(inputs);
+        this.outputs = new ArrayList<NeuronGroup>(outputs);
+        actions = new double[n][worlds.getActionSize()];
+    }
+
+    /**
+     * Update every network and step every environment once.
+     */
+    public void iterate() {
+        if (numThreads <= 1) {
+            iterate(0, worlds.getNumEnvironments());
+            return;
+        }
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Iterate a given number of times.
+     *
+     * @param iterations number of iterations
+     */
+    public void iterate(int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            iterate();
+        }
+    }
+
+    /**
+     * Update the networks and environments in a contiguous block.
+     *
+     * @param start first environment (inclusive)
+     * @param end last environment (exclusive)
+     */
+    private void iterate(int start, int end) {
+        double[][] observations = worlds.getObservations();
+        for (int env = start; env < end; env++) {
+            inputs.get(env).setInputValues(observations[env]);
+            networks.get(env).update();
+            NeuronGroup output = outputs.get(env);
+            double[] action = actions[env];
+            for (int i = 0, n = Math.min(action.length, output.size()); i < n;
+                    i++) {
+                action[i] = output.getNeuronList().get(i).getActivation();
+            }
+        }
+        worlds.step(actions, start, end);
+    }
+
+    /**
+     * Set the number of worker threads. Each worker updates the networks of a
+     * block of environments and then steps those environments.
+     *
+     * @param threads number of threads to use
+     */
+    public void setNumThreads(int threads) {
+        shutdown();
+        int n = worlds.getNumEnvironments();
+        numThreads = Math.max(1, Math.min(threads, n));
+        if (numThreads > 1) {
+            executor = Executors.newFixedThreadPool(numThreads, r -> {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                return thread;
+            });
+            tasks = new ArrayList<Callable<Void>>(numThreads);
+            int share = n / numThreads;
+            int remainder = n % numThreads;
+            int start = 0;
+            for (int t = 0; t < numThreads; t++) {
+                final int from = start;
+                final int to = from + share + (t < remainder ? 1 : 0);
+                tasks.add(() -> {
+                    iterate(from, to);
+                    return null;
+                });
+                start = to;
+            }
+        }
+    }
+
+    /**
+     * Release worker threads.
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+            tasks = null;
+        }
+        numThreads = 1;
+    }
+
+    /**
+     * Same as {@link #shutdown()}, so that the runner can be used in a
+     * try-with-resources statement.
+     */
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    /**
+     * @return the environments
+     */
+    public OdorWorldBatch getWorlds() {
+        return worlds;
+    }
+
+    /**
+     * Returns the most recent actions, one row per environment.
+     *
+     * @return the action buffers (live array)
+     */
+    public double[][] getActions() {
+        return actions;
+    }
+
+}
@@ -95,6 +95,7 @@ public class AlvarezSquire extends CompetitiveGroup {
      */
     private void updateWeights(final Neuron neuron) {
         double lambda;
+        double averageInput = neuron.getAverageInput();
 
         for (Synapse synapse : neuron.getFanIn()) {
             if (synapse.getSource().getParentGroup() == hippo.hippocampus) {
@@ -107,7 +108,7 @@ public class AlvarezSquire extends CompetitiveGroup {
             }
             double deltaw = lambda * synapse.getTarget().getActivation()
                     * (synapse.getSource().getActivation()
-                            - synapse.getTarget().getAverageInput());
+                            - averageInput);
             synapse.setStrength(synapse.clip(synapse.getStrength() + deltaw));
 
         }
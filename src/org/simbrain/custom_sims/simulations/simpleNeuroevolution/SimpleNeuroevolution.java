@@ -2,11 +2,18 @@ package org.simbrain.custom_sims.simulations.simpleNeuroevolution;
 
 import org.simbrain.custom_sims.RegisteredSimulation;
 import org.simbrain.custom_sims.helper_classes.ControlPanel;
+import org.simbrain.custom_sims.helper_classes.Genome;
+import org.simbrain.custom_sims.helper_classes.GenomeNetwork;
 import org.simbrain.custom_sims.helper_classes.NetBuilder;
+import org.simbrain.custom_sims.helper_classes.NeuroevolutionEngine;
 import org.simbrain.custom_sims.helper_classes.OdorWorldBuilder;
 import org.simbrain.network.NetworkComponent;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.util.Utils;
 import org.simbrain.util.math.SimbrainMath;
 import org.simbrain.workspace.gui.SimbrainDesktop;
+import org.simbrain.world.odorworld.OdorWorldBatch;
+import org.simbrain.world.odorworld.OdorWorldComponent;
 import org.simbrain.world.odorworld.entities.OdorWorldEntity;
 import org.simbrain.world.odorworld.entities.RotatingEntity;
 import org.simbrain.world.odorworld.sensors.SmellSensor;
@@ -443,11 +450,145 @@ public class SimpleNeuroevolution extends RegisteredSimulation {
 //			sim.getWorkspace().stop();
 		});
 		
+		JTextField generationsTF = cp.addTextField("Headless generations", "50");
+		JLabel headlessProgressLabel = cp.addLabel("Headless progress", "");
+		cp.addButton("Evolve Headless", () -> {
+			int generations = Integer.parseInt(generationsTF.getText());
+			new Thread(() -> evolveHeadless(generations,
+					headlessProgressLabel)).start();
+		});
+		
 		currentMutationRateTF.setEnabled(!EvolveNet.autoMutationControl);
 		currentMutationRateTFBtn.setEnabled(!EvolveNet.autoMutationControl);
 	}
 
 
+	/**
+	 * Evolve a population of {@link EvolveNet#netSize} networks without
+	 * adding anything to the workspace. Each worker thread owns a genome
+	 * network and a single-environment {@link OdorWorldBatch} built from the
+	 * same cheese / poison layout used by {@link #addWorld}. The fittest
+	 * genome of the last generation is added to the workspace as a network.
+	 *
+	 * @param generations number of generations to run
+	 * @param progressLabel label showing the best fitness of each generation
+	 */
+	private void evolveHeadless(int generations, JLabel progressLabel) {
+		int inputs = 3 * EvolveNet.sensoryDimension;
+		int outputs = EvolveNet.outputSize;
+		// Start fully connected from inputs to outputs with zero weights;
+		// the initial weight mutation randomizes them.
+		Genome prototype = new Genome(inputs, outputs);
+		for (int i = 0; i < inputs; i++) {
+			for (int j = 0; j < outputs; j++) {
+				prototype.addConnection(i, inputs + j, 0);
+			}
+		}
+		NeuroevolutionEngine engine = new NeuroevolutionEngine(prototype,
+				EvolveNet.netSize, () -> new GenomeNetwork(inputs, outputs),
+				() -> makeHeadlessFitness(), seed);
+		// Rates are percentages, as in EvolveNet.mutateNetwork()
+		engine.addMutation(new NeuroevolutionEngine.AddConnectionMutation(
+				EvolveNet.newSynapseMutationRate / 100, 1));
+		engine.addMutation(new NeuroevolutionEngine.AddNodeMutation(
+				EvolveNet.newNeuronMutationRate / 100));
+		engine.addMutation(new NeuroevolutionEngine.WeightMutation(1,
+				EvolveNet.mutationRate / 10));
+		engine.setSelection(new NeuroevolutionEngine.TruncationSelection(
+				1 - EvolveNet.eliminationRate / 100.0));
+		engine.addGenerationListener((generation, fittest) -> {
+			String progress = "Generation " + generation + ": "
+					+ Utils.round(fittest.getFitness(), 2);
+			SwingUtilities.invokeLater(() -> progressLabel.setText(progress));
+		});
+		Genome best;
+		try {
+			engine.mutatePopulation();
+			for (int i = 0; i < generations; i++) {
+				engine.evaluate();
+				if (i < generations - 1) {
+					engine.nextGeneration();
+				}
+			}
+			best = engine.getBest();
+		} finally {
+			engine.shutdown();
+		}
+		SwingUtilities.invokeLater(() -> addGenomeNetwork(best));
+	}
+
+	/**
+	 * Express a genome as a network and add it to the workspace, with inputs
+	 * along the bottom, hidden nodes in the middle and outputs along the top.
+	 *
+	 * @param genome the genome to show
+	 */
+	private void addGenomeNetwork(Genome genome) {
+		GenomeNetwork expressed = new GenomeNetwork(genome.getNumInputs(),
+				genome.getNumOutputs());
+		expressed.express(genome);
+		List<Neuron> nodes = expressed.getNodes();
+		int outputStart = genome.getNumInputs();
+		int hiddenStart = outputStart + genome.getNumOutputs();
+		for (int i = 0; i < nodes.size(); i++) {
+			if (i < outputStart) {
+				nodes.get(i).setLocation(i * 50, 200);
+			} else if (i < hiddenStart) {
+				nodes.get(i).setLocation((i - outputStart) * 50, 0);
+			} else {
+				nodes.get(i).setLocation((i - hiddenStart) * 50, 100);
+			}
+		}
+		expressed.getNetwork().setFireUpdates(true);
+		sim.getWorkspace().addWorkspaceComponent(new NetworkComponent(
+				"Evolved network (fitness " + genome.getFitness() + ")",
+				expressed.getNetwork()));
+	}
+
+	/**
+	 * Create a fitness function with its own world, for use by one worker.
+	 * Fitness is the number of cheese pieces reached in 1000 steps, with the
+	 * cheese moved to a random location each time it is reached.
+	 *
+	 * @return the fitness function
+	 */
+	private NeuroevolutionEngine.FitnessFunction makeHeadlessFitness() {
+		OdorWorldBuilder template = new OdorWorldBuilder(
+				new OdorWorldComponent("Headless"));
+		int worldHeight = template.getWorld().getHeight();
+		int worldWidth  = template.getWorld().getWidth();
+		template.addEntity(worldWidth / 6 * 5 - (imageSize / 2),
+				worldHeight / 3 - (imageSize / 2), "Swiss.gif",
+				new double[] { 1, 0.1, 0.2 });
+		template.addEntity(worldWidth / 6 * 5 - (imageSize / 2),
+				worldHeight / 3 * 2 - (imageSize / 2), "Poison.gif",
+				new double[] { 0.2, 0, 1 });
+		RotatingEntity agent = template.addAgent(worldWidth / 6 - (imageSize / 2),
+				worldHeight / 2 - (imageSize / 2), "Mouse");
+		template.getWorld().setObjectsBlockMovement(false);
+		// Keep the whole cheese image inside the world
+		int cheeseRangeX = Math.max(1, worldWidth - imageSize);
+		int cheeseRangeY = Math.max(1, worldHeight - imageSize);
+		OdorWorldBatch world = new OdorWorldBatch(template.getWorld(), agent, 1);
+		double[][] actions = new double[1][world.getActionSize()];
+		return (network, rand) -> {
+			world.reset(0);
+			double fitness = 0;
+			for (int i = 0; i < 1000; i++) {
+				double[] out = network.activate(world.getObservations()[0]);
+				System.arraycopy(out, 0, actions[0], 0,
+						Math.min(out.length, actions[0].length));
+				world.step(actions);
+				if (world.getDistanceToSource(0, 0) < 16) {
+					fitness++;
+					world.setSourceLocation(0, 0, rand.nextInt(cheeseRangeX),
+							rand.nextInt(cheeseRangeY));
+				}
+			}
+			return fitness;
+		};
+	}
+
 	private void setUpDebugPanel() {
 		int y = cp.getHeight();
 		dp = ControlPanel.makePanel(sim, "Debug Panel", 0, y + borderSize + 24);
@@ -20,7 +20,12 @@ package org.simbrain.network;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 import org.simbrain.network.core.Network;
 import org.simbrain.network.core.Neuron;
@@ -34,6 +39,8 @@ import org.simbrain.network.listeners.NetworkEvent;
 import org.simbrain.network.listeners.NeuronListener;
 import org.simbrain.network.listeners.SynapseListener;
 import org.simbrain.workspace.AttributeType;
+import org.simbrain.workspace.PotentialAttribute;
+import org.simbrain.workspace.PotentialAttributeList;
 import org.simbrain.workspace.PotentialConsumer;
 import org.simbrain.workspace.PotentialProducer;
 import org.simbrain.workspace.Producer;
@@ -44,6 +51,15 @@ import org.simbrain.workspace.WorkspaceComponent;
  */
 public final class NetworkComponent extends WorkspaceComponent {
 
+    /** Search keys of a neuron: its id and label. */
+    private static final List<Function<Object, String>> NEURON_KEYS = Arrays
+            .asList(neuron -> ((Neuron) neuron).getId(),
+                    neuron -> ((Neuron) neuron).getLabel());
+
+    /** Search key of a synapse: its id. */
+    private static final List<Function<Object, String>> SYNAPSE_KEYS =
+            Collections.singletonList(synapse -> ((Synapse) synapse).getId());
+
     /** Reference to root network, the main model network. */
     private Network network = new Network();
 
@@ -231,43 +247,27 @@ public final class NetworkComponent extends WorkspaceComponent {
 
     @Override
     public List<PotentialConsumer> getPotentialConsumers() {
-        List<PotentialConsumer> returnList = new ArrayList<PotentialConsumer>();
-        for (AttributeType type : getVisibleConsumerTypes()) {
-            if (type.getTypeName().startsWith("Neuron ")) {
-                if (type.getTypeName().equalsIgnoreCase("Neuron Input Value")) {
-                    for (Neuron neuron : network.getFlatNeuronList()) {
-                        returnList.add(getNeuronConsumer(this, neuron,
-                                type.getMethodName()));
-                    }
-                } else {
-                    for (Neuron neuron : network.getFlatNeuronList()) {
-                        String description = type.getDescription(neuron.getId());
-                        PotentialConsumer consumer = getAttributeManager()
-                                .createPotentialConsumer(neuron, type); 
-                        consumer.setCustomDescription(description);
-                        returnList.add(consumer);
-                    }
-                }
-            } else if (type.getTypeName().equalsIgnoreCase("Synapse")) {
-                for (Synapse synapse : network.getFlatSynapseList()) {
-                    String description = type.getDescription(synapse.getId());
-                    PotentialConsumer consumer = getAttributeManager()
-                            .createPotentialConsumer(synapse, type);
-                    consumer.setCustomDescription(description);
-                    returnList.add(consumer);
-                }
-            } else if (type.getTypeName().equalsIgnoreCase("NeuronGroup")) {
+        PotentialAttributeList<PotentialConsumer> returnList =
+                new PotentialAttributeList<PotentialConsumer>();
+        List<AttributeType> types = getVisibleConsumerTypes();
+
+        // Group attributes first, so they are at the top of long lists
+        for (AttributeType type : types) {
+            if (type.getTypeName().equalsIgnoreCase("NeuronGroup")) {
                 // Handle NeuronGroup attributes
+                List<PotentialConsumer> groupConsumers =
+                        new ArrayList<PotentialConsumer>();
                 for (Group group : network.getFlatGroupList()) {
                     if (group instanceof NeuronGroup) {
-                        PotentialConsumer consumer = getNeuronGroupConsumer(
-                                this, (NeuronGroup) group, type.getMethodName());
-                        returnList.add(consumer);
-
+                        groupConsumers.add(getNeuronGroupConsumer(this,
+                                (NeuronGroup) group, type.getMethodName()));
                     }
                 }
+                returnList.addSection(type.getTypeName(), groupConsumers);
             } else if (type.getTypeName().equalsIgnoreCase("SynapseGroup")) {
                 // Handle SynapseGroup attributes
+                List<PotentialConsumer> groupConsumers =
+                        new ArrayList<PotentialConsumer>();
                 for (Group group : network.getFlatGroupList()) {
                     if (group instanceof SynapseGroup) {
                         PotentialConsumer consumer = getAttributeManager()
@@ -275,15 +275,97 @@ public final class NetworkComponent extends WorkspaceComponent {
                                         "setWeightVector", double[].class);
                         consumer.setCustomDescription("Synapse Group: "
                                 + group.getLabel());
-                        returnList.add(consumer);
+                        groupConsumers.add(consumer);
                     }
                 }
+                returnList.addSection(type.getTypeName(), groupConsumers);
             }
+        }
 
+        // Neuron and synapse attributes are created as they are needed
+        for (AttributeType type : types) {
+            if (type.getTypeName().startsWith("Neuron ")) {
+                if (type.getTypeName().equalsIgnoreCase("Neuron Input Value")) {
+                    addNeuronSections(returnList, type,
+                            neuron -> getNeuronConsumer(this, (Neuron) neuron,
+                                    type.getMethodName()));
+                } else {
+                    addNeuronSections(returnList, type, neuron -> {
+                        String description = type
+                                .getDescription(((Neuron) neuron).getId());
+                        PotentialConsumer consumer = getAttributeManager()
+                                .createPotentialConsumer(neuron, type);
+                        consumer.setCustomDescription(description);
+                        return consumer;
+                    });
+                }
+            } else if (type.getTypeName().equalsIgnoreCase("Synapse")) {
+                addSynapseSections(returnList, type, synapse -> {
+                    String description = type
+                            .getDescription(((Synapse) synapse).getId());
+                    PotentialConsumer consumer = getAttributeManager()
+                            .createPotentialConsumer(synapse, type);
+                    consumer.setCustomDescription(description);
+                    return consumer;
+                });
+            }
         }
         return returnList;
     }
 
+    /**
+     * Add one section of neuron attributes for the loose neurons and one for
+     * each neuron group. Neurons are searched by id and label.
+     *
+     * @param list the list to add to
+     * @param type the attribute type
+     * @param factory creates the attribute of a neuron
+     * @param <T> the type of potential attribute
+     */
+    private <T extends PotentialAttribute> void addNeuronSections(
+            final PotentialAttributeList<T> list, final AttributeType type,
+            final Function<Object, T> factory) {
+        list.addSection(type.getTypeName(), network.getNeuronList().size(),
+                () -> new ArrayList<Neuron>(network.getNeuronList()), factory,
+                NEURON_KEYS);
+        for (Group group : network.getFlatGroupList()) {
+            if (group instanceof NeuronGroup) {
+                final NeuronGroup neuronGroup = (NeuronGroup) group;
+                list.addSection(
+                        type.getTypeName() + " (" + group.getLabel() + ")",
+                        neuronGroup.size(),
+                        () -> new ArrayList<Neuron>(neuronGroup
+                                .getNeuronList()), factory, NEURON_KEYS);
+            }
+        }
+    }
+
+    /**
+     * Add one section of synapse attributes for the loose synapses and one for
+     * each synapse group. Synapses are searched by id.
+     *
+     * @param list the list to add to
+     * @param type the attribute type
+     * @param factory creates the attribute of a synapse
+     * @param <T> the type of potential attribute
+     */
+    private <T extends PotentialAttribute> void addSynapseSections(
+            final PotentialAttributeList<T> list, final AttributeType type,
+            final Function<Object, T> factory) {
+        list.addSection(type.getTypeName(), network.getSynapseList().size(),
+                () -> new ArrayList<Synapse>(network.getSynapseList()),
+                factory, SYNAPSE_KEYS);
+        for (Group group : network.getFlatGroupList()) {
+            if (group instanceof SynapseGroup) {
+                final SynapseGroup synapseGroup = (SynapseGroup) group;
+                list.addSection(
+                        type.getTypeName() + " (" + group.getLabel() + ")",
+                        synapseGroup.size(), synapseGroup::getAllSynapses,
+                        factory, SYNAPSE_KEYS);
+            }
+        }
+    }
+
     /**
      * Helper method for making neuron producers, since it happens in a few
      * different places and is important to be consistent about.
@@ -337,48 +419,28 @@ public final class NetworkComponent extends WorkspaceComponent {
 
     @Override
     public List<PotentialProducer> getPotentialProducers() {
-        List<PotentialProducer> returnList = new ArrayList<PotentialProducer>();
-        for (AttributeType type : getVisibleProducerTypes()) {
-            if (type.getTypeName().startsWith("Neuron ")) {
-                if (type.getTypeName().equalsIgnoreCase("Neuron Activation")) {
-                    for (Neuron neuron : network.getFlatNeuronList()) {
-                        returnList.add(getNeuronProducer(this, neuron,
-                                type.getMethodName()));
-                    }
-                } else {
-                    for (Neuron neuron : network.getFlatNeuronList()) {
-                        String description = type.getDescription(neuron.getId());
-                        PotentialProducer producer = getAttributeManager()
-                                .createPotentialProducer(neuron, type); 
-                        producer.setCustomDescription(description);
-                        returnList.add(producer);
-                    }
-                }
-            } else if (type.getTypeName().equalsIgnoreCase("Synapse")) {
-                for (Synapse synapse : network.getFlatSynapseList()) {
-                    String description = type.getDescription(synapse.getId());
-                    PotentialProducer producer = getAttributeManager()
-                            .createPotentialProducer(synapse, type);
-                    producer.setCustomDescription(description);
-                    returnList.add(producer);
-                }
-            } else if (type.getTypeName().equalsIgnoreCase(
-                    "NeuronGroupActivations")) {
+        PotentialAttributeList<PotentialProducer> returnList =
+                new PotentialAttributeList<PotentialProducer>();
+        List<AttributeType> types = getVisibleProducerTypes();
+
+        // Group attributes first, so they are at the top of long lists
+        for (AttributeType type : types) {
+            if (type.getTypeName().equalsIgnoreCase("NeuronGroupActivations")
+                    || type.getTypeName().equalsIgnoreCase(
+                            "NeuronGroupSpikes")) {
+                List<PotentialProducer> groupProducers =
+                        new ArrayList<PotentialProducer>();
                 for (Group group : network.getFlatGroupList()) {
                     if (group instanceof NeuronGroup) {
-                        returnList.add(getNeuronGroupProducer(this,
-                                (NeuronGroup) group, type.getMethodName()));
-                    }
-                }
-            } else if (type.getTypeName().equalsIgnoreCase("NeuronGroupSpikes")) {
-                for (Group group : network.getFlatGroupList()) {
-                    if (group instanceof NeuronGroup) {
-                        returnList.add(getNeuronGroupProducer(this,
+                        groupProducers.add(getNeuronGroupProducer(this,
                                 (NeuronGroup) group, type.getMethodName()));
                     }
                 }
+                returnList.addSection(type.getTypeName(), groupProducers);
             } else if (type.getTypeName().equalsIgnoreCase("SynapseGroup")) {
                 // Handle SynapseGroup attributes
+                List<PotentialProducer> groupProducers =
+                        new ArrayList<PotentialProducer>();
                 for (Group group : network.getFlatGroupList()) {
                     if (group instanceof SynapseGroup) {
                         PotentialProducer producer = getAttributeManager()
@@ -386,9 +448,39 @@ public final class NetworkComponent extends WorkspaceComponent {
                                         "getWeightVector", double[].class);
                         producer.setCustomDescription("Synapse Group: "
                                 + group.getLabel());
-                        returnList.add(producer);
+                        groupProducers.add(producer);
                     }
                 }
+                returnList.addSection(type.getTypeName(), groupProducers);
+            }
+        }
+
+        // Neuron and synapse attributes are created as they are needed
+        for (AttributeType type : types) {
+            if (type.getTypeName().startsWith("Neuron ")) {
+                if (type.getTypeName().equalsIgnoreCase("Neuron Activation")) {
+                    addNeuronSections(returnList, type,
+                            neuron -> getNeuronProducer(this, (Neuron) neuron,
+                                    type.getMethodName()));
+                } else {
+                    addNeuronSections(returnList, type, neuron -> {
+                        String description = type
+                                .getDescription(((Neuron) neuron).getId());
+                        PotentialProducer producer = getAttributeManager()
+                                .createPotentialProducer(neuron, type);
+                        producer.setCustomDescription(description);
+                        return producer;
+                    });
+                }
+            } else if (type.getTypeName().equalsIgnoreCase("Synapse")) {
+                addSynapseSections(returnList, type, synapse -> {
+                    String description = type
+                            .getDescription(((Synapse) synapse).getId());
+                    PotentialProducer producer = getAttributeManager()
+                            .createPotentialProducer(synapse, type);
+                    producer.setCustomDescription(description);
+                    return producer;
+                });
             }
         }
 
@@ -409,6 +501,47 @@ public final class NetworkComponent extends WorkspaceComponent {
         return null;
     }
 
+    /**
+     * Returns an index of neurons and groups by key. Synapses are indexed the
+     * first time a synapse key is looked up. Keys not in the index (e.g. ids
+     * that differ in case) are looked up with
+     * {@link #getObjectFromKey(String)}.
+     *
+     * @return function from object keys to objects
+     */
+    @Override
+    public Function<String, Object> createKeyIndex() {
+        final Map<String, Object> index = new HashMap<String, Object>();
+        for (Neuron neuron : network.getFlatNeuronList()) {
+            index.put(neuron.getId(), neuron);
+        }
+        for (Group group : network.getFlatGroupList()) {
+            String key = getKeyFromObject(group);
+            if (key != null) {
+                index.put(key, group);
+            }
+        }
+        return new Function<String, Object>() {
+
+            /** Whether synapses have been added to the index. */
+            private boolean synapsesIndexed;
+
+            @Override
+            public Object apply(final String key) {
+                Object object = index.get(key);
+                if (object == null && !synapsesIndexed
+                        && key.startsWith("Synapse_")) {
+                    for (Synapse synapse : network.getFlatSynapseList()) {
+                        index.put(synapse.getId(), synapse);
+                    }
+                    synapsesIndexed = true;
+                    object = index.get(key);
+                }
+                return object != null ? object : getObjectFromKey(key);
+            }
+        };
+    }
+
     @Override
     public String getKeyFromObject(Object object) {
         if (object instanceof Neuron) {
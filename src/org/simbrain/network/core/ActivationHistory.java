@@ -0,0 +1,128 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.core;
+
+import java.util.Arrays;
+
+/**
+ * <b>ActivationHistory</b> is a ring buffer of a neuron's recent activations,
+ * one entry per network update, shared by all of the neuron's delayed
+ * efferent synapses. Each synapse reads the entry its delay back instead of
+ * keeping a queue of its own, so memory grows with the number of neurons
+ * times the largest delay rather than with the number of synapses times their
+ * delays, and nothing is copied per synapse on each update.
+ * <p>
+ * The network records each history once at the start of every update, so
+ * reads are plain lookups and return the same value however often, or
+ * seldom, they are made. Updates from before the history was created read as
+ * zero, as did a newly created synapse delay queue.
+ */
+final class ActivationHistory {
+
+    /** Recorded activations, indexed by update count modulo the length. */
+    private final double[] values;
+
+    /** Update count of the first entry, or -1 if none. */
+    private long firstTick = -1;
+
+    /** Update count of the most recent entry, or -1 if none. */
+    private long lastTick = -1;
+
+    /**
+     * Construct an empty history.
+     *
+     * @param maxDelay the largest delay that can be read
+     */
+    ActivationHistory(final int maxDelay) {
+        values = new double[maxDelay + 1];
+    }
+
+    /**
+     * Construct a longer copy of a history.
+     *
+     * @param old the history to copy
+     * @param maxDelay the largest delay that can be read
+     */
+    ActivationHistory(final ActivationHistory old, final int maxDelay) {
+        this(maxDelay);
+        synchronized (old) {
+            long last = old.lastTick;
+            if (last >= 0) {
+                int n = old.values.length;
+                long from = Math.max(old.firstTick, last - n + 1);
+                for (long t = from; t <= last; t++) {
+                    values[(int) (t % values.length)] = old.values[(int) (t
+                            % n)];
+                }
+                firstTick = from;
+            }
+            lastTick = last;
+        }
+    }
+
+    /**
+     * Returns the neuron's activation a number of updates ago.
+     *
+     * @param tick the current update count
+     * @param delay the number of updates back, at most
+     *            {@link #getMaxDelay()}
+     * @return the delayed activation, or 0 if it was not recorded
+     */
+    synchronized double get(final long tick, final int delay) {
+        long t = Math.min(tick - delay, lastTick);
+        if (firstTick < 0 || t < firstTick) {
+            return 0;
+        }
+        return values[(int) (t % values.length)];
+    }
+
+    /**
+     * Record the neuron's activation for an update. Updates that were not
+     * recorded, which only happens when a network is updated without
+     * recording, are filled with the same value.
+     *
+     * @param activation the neuron's activation
+     * @param tick the update count
+     */
+    synchronized void record(final double activation, final long tick) {
+        long last = lastTick;
+        if (last > tick) {
+            // The update count went back; the history no longer applies
+            Arrays.fill(values, 0);
+            last = -1;
+            firstTick = -1;
+        }
+        long from = last < 0 || last == tick ? tick
+                : Math.max(last + 1, tick - values.length + 1);
+        for (long t = from; t <= tick; t++) {
+            values[(int) (t % values.length)] = activation;
+        }
+        if (firstTick < 0) {
+            firstTick = tick;
+        }
+        lastTick = tick;
+    }
+
+    /**
+     * @return the largest delay that can be read
+     */
+    int getMaxDelay() {
+        return values.length - 1;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.core;
+
+import java.util.List;
+
+/**
+ * <b>FanInStatistics</b> holds summary statistics of a neuron's fan-in,
+ * computed in a single pass: total and average presynaptic activation, summed
+ * excitatory and inhibitory weights, and the number of active inputs.
+ * <p>
+ * Synapse update rules that depend on such quantities (e.g. normalizing
+ * Hebbian rules) receive an instance in
+ * {@link SynapseUpdateRule#update(Synapse, FanInStatistics)}. Synapse groups
+ * update synapses grouped by target neuron and compute the statistics once per
+ * target, so the values reflect the fan-in as it was before that target's
+ * synapses were updated on the current iteration. Instances are mutable and
+ * meant to be reused.
+ */
+public class FanInStatistics {
+
+    /** The neuron whose fan-in was summarized. */
+    private Neuron target;
+
+    /** Number of incoming synapses. */
+    private int fanInSize;
+
+    /** Sum of presynaptic activations. */
+    private double totalInput;
+
+    /** Sum of non-negative weights. */
+    private double summedExcitatoryWeights;
+
+    /** Sum of negative weights. */
+    private double summedInhibitoryWeights;
+
+    /** Number of presynaptic neurons with activation greater than zero. */
+    private int numActiveInputs;
+
+    /**
+     * Construct empty statistics.
+     */
+    public FanInStatistics() {
+    }
+
+    /**
+     * Construct statistics for a neuron.
+     *
+     * @param target the neuron to summarize
+     */
+    public FanInStatistics(final Neuron target) {
+        compute(target);
+    }
+
+    /**
+     * Recompute the statistics for a neuron in one pass over its fan-in.
+     *
+     * @param neuron the neuron to summarize
+     * @return this object
+     */
+    public FanInStatistics compute(final Neuron neuron) {
+        target = neuron;
+        List<Synapse> fanIn = neuron.getFanIn();
+        fanInSize = fanIn.size();
+        totalInput = 0;
+        summedExcitatoryWeights = 0;
+        summedInhibitoryWeights = 0;
+        numActiveInputs = 0;
+        for (int i = 0; i < fanInSize; i++) {
+            Synapse s = fanIn.get(i);
+            double act = s.getSource().getActivation();
+            totalInput += act;
+            if (act > 0) {
+                numActiveInputs++;
+            }
+            double w = s.getStrength();
+            if (w >= 0) {
+                summedExcitatoryWeights += w;
+            } else {
+                summedInhibitoryWeights += w;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the neuron whose fan-in was summarized
+     */
+    public Neuron getTarget() {
+        return target;
+    }
+
+    /**
+     * @return the number of incoming synapses
+     */
+    public int getFanInSize() {
+        return fanInSize;
+    }
+
+    /**
+     * @return the total activation of neurons connecting to the target
+     */
+    public double getTotalInput() {
+        return totalInput;
+    }
+
+    /**
+     * @return the average activation of neurons connecting to the target
+     */
+    public double getAverageInput() {
+        return totalInput / fanInSize;
+    }
+
+    /**
+     * @return the sum of the non-negative incoming weights
+     */
+    public double getSummedExcitatoryWeights() {
+        return summedExcitatoryWeights;
+    }
+
+    /**
+     * @return the sum of the negative incoming weights
+     */
+    public double getSummedInhibitoryWeights() {
+        return summedInhibitoryWeights;
+    }
+
+    /**
+     * @return the sum of all incoming weights
+     */
+    public double getSummedWeights() {
+        return summedExcitatoryWeights + summedInhibitoryWeights;
+    }
+
+    /**
+     * @return the number of presynaptic neurons with activation above zero
+     */
+    public int getNumActiveInputs() {
+        return numActiveInputs;
+    }
+
+}
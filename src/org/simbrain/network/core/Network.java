@@ -26,6 +26,7 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.simbrain.network.NetworkComponent;
@@ -51,6 +52,7 @@ import org.simbrain.util.SimbrainPreferences.PropertyNotFoundException;
 import org.simbrain.util.SimpleId;
 import org.simbrain.util.Utils;
 import org.simbrain.util.math.SimbrainMath;
+import org.simbrain.util.profiling.Profiler;
 
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.io.xml.DomDriver;
@@ -91,6 +93,12 @@ public class Network {
     /** Time step. */
     private double timeStep = DEFAULT_TIME_STEP;
 
+    /**
+     * Factor applied to the time step while a group with its own time step
+     * multiplier is updating. See {@link NetworkUpdateManager}.
+     */
+    private transient double timeStepMultiplier = 1;
+
     /**
      * Two types of time used in simulations.
      */
@@ -170,6 +178,13 @@ public class Network {
     /** An optional name for the network that defaults to "Network[current_id]".*/
     private String name ="";
 
+    /**
+     * Neurons with an activation history, which is recorded at the start of
+     * each update.
+     */
+    private transient Set<Neuron> delayedSources =
+            new CopyOnWriteArraySet<Neuron>();
+
     /** Static initializer */
     {
         try {
@@ -198,9 +213,17 @@ public class Network {
         for (int i = 0, n = networkListeners.size(); i < n; i++) {
             networkListeners.get(i).setUpdateComplete(false);
         }
+        recordActivationHistories();
+
         // Perform update
         for (int i = 0, n = updateManager.getActionList().size(); i < n; i++) {
-            updateManager.getActionList().get(i).invoke();
+            NetworkUpdateAction action = updateManager.getActionList().get(i);
+            if (Profiler.isEnabled()) {
+                Profiler.time(Profiler.NETWORK_ACTIONS,
+                        action::getDescription, action::invoke);
+            } else {
+                action.invoke();
+            }
         }
 
         if (fireUpdates) {
@@ -219,6 +242,7 @@ public class Network {
         clearInputs();
         // Update Time
         updateTime();
+        updateManager.advanceTick();
         setUpdateCompleted(true);
     }
 
@@ -286,14 +310,36 @@ public class Network {
      */
     public void clearInputs() {
 
+        // Inputs to groups that did not update on this tick are held until
+        // they do
+        Set<Group> skipped = updateManager.getGroupsSkippedThisTick();
+
         // TODO: Is there a more efficient way to handle this?
         // i.e. a way to get a list of neurons that (1) are coupled or better,
         // (2) have input values which consume.
         for (Neuron neuron : this.getFlatNeuronList()) {
+            if (!skipped.isEmpty() && neuron.getParentGroup() != null
+                    && skipped.contains(
+                            getTopLevelGroup(neuron.getParentGroup()))) {
+                continue;
+            }
             neuron.setInputValue(0);
         }
     }
 
+    /**
+     * Returns the top level group containing a group.
+     *
+     * @param group the group
+     * @return the group's top level ancestor, or the group itself
+     */
+    private static Group getTopLevelGroup(Group group) {
+        while (group.hasParentGroup()) {
+            group = group.getParentGroup();
+        }
+        return group;
+    }
+
     /**
      * Return the list of synapses. These are "loose" neurons. For the full set
      * of neurons, including neurons inside of subnetworks and groups, use
@@ -535,6 +581,30 @@ public class Network {
         }
     }
 
+    /**
+     * Record the activation of each neuron read by a delayed synapse, once
+     * for this update.
+     */
+    private void recordActivationHistories() {
+        if (delayedSources.isEmpty()) {
+            return;
+        }
+        long tick = updateManager.getTick();
+        for (Neuron neuron : delayedSources) {
+            neuron.recordActivationHistory(tick);
+        }
+    }
+
+    /**
+     * Register a neuron whose activation history should be recorded on each
+     * update.
+     *
+     * @param neuron the neuron
+     */
+    void addDelayedSource(final Neuron neuron) {
+        delayedSources.add(neuron);
+    }
+
     /**
      * Deletes a neuron from the network.
      *
@@ -559,6 +629,7 @@ public class Network {
         } else {
             neuronList.remove(toDelete);
         }
+        delayedSources.remove(toDelete);
 
         // Notify listeners that this neuron has been deleted
         fireNeuronRemoved(toDelete);
@@ -821,6 +892,10 @@ public class Network {
         // Remove from the group list
         groupList.remove(toDelete);
 
+        if (toDelete instanceof NeuronGroup) {
+            delayedSources.removeAll(((NeuronGroup) toDelete).getNeuronList());
+        }
+
         // Call delete method on this group being deleted
         toDelete.delete();
 
@@ -951,7 +1026,18 @@ public class Network {
      * @return Returns the timeStep.
      */
     public double getTimeStep() {
-        return timeStep;
+        return timeStep * timeStepMultiplier;
+    }
+
+    /**
+     * Set the factor applied to the time step returned by
+     * {@link #getTimeStep()}. Used by the update manager while updating a
+     * group that runs at a multiple of the network time step.
+     *
+     * @param timeStepMultiplier the factor
+     */
+    void setTimeStepMultiplier(final double timeStepMultiplier) {
+        this.timeStepMultiplier = timeStepMultiplier;
     }
 
     /**
@@ -1062,6 +1148,7 @@ public class Network {
     private Object readResolve() {
 
     	fireUpdates = true;
+        timeStepMultiplier = 1;
 
         // Initialize listener lists
         networkListeners = new ArrayList<NetworkListener>();
@@ -1069,6 +1156,7 @@ public class Network {
         synapseListeners = new ArrayList<SynapseListener>();
         textListeners = new ArrayList<TextListener>();
         groupListeners = new ArrayList<GroupListener>();
+        delayedSources = new CopyOnWriteArraySet<Neuron>();
 
         // Initialize update manager
         updateManager.postUnmarshallingInit();
@@ -1269,7 +1357,14 @@ public class Network {
      */
     public void fireNeuronsUpdated(Collection<Neuron> neurons) {
     	for (int i = 0, n = networkListeners.size(); i < n; i++) {
-    		networkListeners.get(i).updateNeurons(neurons);
+    		NetworkListener listener = networkListeners.get(i);
+    		if (Profiler.isEnabled()) {
+    			Profiler.time(Profiler.LISTENERS, () -> listener.getClass()
+    					.getName() + ".updateNeurons",
+    					() -> listener.updateNeurons(neurons));
+    		} else {
+    			listener.updateNeurons(neurons);
+    		}
     	}
     }
 
@@ -1293,7 +1388,14 @@ public class Network {
      */
     public void fireSynapsesUpdated(Collection<Synapse> synapses) {
         for (int i = 0, n = networkListeners.size(); i < n; i++) {
-            networkListeners.get(i).updateSynapses(synapses);
+            NetworkListener listener = networkListeners.get(i);
+            if (Profiler.isEnabled()) {
+                Profiler.time(Profiler.LISTENERS, () -> listener.getClass()
+                        .getName() + ".updateSynapses",
+                        () -> listener.updateSynapses(synapses));
+            } else {
+                listener.updateSynapses(synapses);
+            }
         }
     }
 
@@ -1568,7 +1670,14 @@ public class Network {
      */
     public void fireGroupUpdated(final Group groups) {
         for (int i = 0, n = groupListeners.size(); i < n; i++) {
-            groupListeners.get(i).groupUpdated(groups);
+            GroupListener listener = groupListeners.get(i);
+            if (Profiler.isEnabled()) {
+                Profiler.time(Profiler.LISTENERS, () -> listener.getClass()
+                        .getName() + ".groupUpdated",
+                        () -> listener.groupUpdated(groups));
+            } else {
+                listener.groupUpdated(groups);
+            }
         }
     }
 
@@ -1649,6 +1758,16 @@ public class Network {
         neuronListeners.add(listener);
     }
 
+    /**
+     * Remove a neuron listener.
+     *
+     * @param listener
+     *            the observer to remove
+     */
+    public void removeNeuronListener(final NeuronListener listener) {
+        neuronListeners.remove(listener);
+    }
+
     /**
      * Register a synapse listener.
      *
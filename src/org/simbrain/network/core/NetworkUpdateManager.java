@@ -20,8 +20,10 @@ package org.simbrain.network.core;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import org.simbrain.network.groups.Group;
 import org.simbrain.network.listeners.GroupAdapter;
@@ -36,6 +38,15 @@ import org.simbrain.network.update_actions.UpdateGroup;
  * Manage network updates. Maintains a list of actions that are updated in the
  * order in which they appear in the list when the network is iterated once (in
  * the GUI, when the step button is clicked).
+ * <p>
+ * Groups can update at different rates. Each {@link UpdateGroup} action has an
+ * update period, so that its group is only updated every k ticks, and a time
+ * step multiplier applied to {@link Network#getTimeStep()} while the group
+ * updates. A slow group (e.g. a homeostatic or reinforcement module) can thus
+ * update every tenth tick with ten times the time step, and costs a tenth as
+ * much as a group updated every tick. Between its updates the group's
+ * activations are held, and external inputs to its neurons are held until it
+ * next updates rather than cleared each tick.
  *
  * @author Jeff Yoshimi
  */
@@ -57,6 +68,9 @@ public class NetworkUpdateManager {
     /** Reference to parent network. */
     private final Network network;
 
+    /** Number of completed network updates, used to schedule groups. */
+    private long tick;
+
     /**
      * Construct a new update manager.
      *
@@ -257,6 +271,113 @@ public class NetworkUpdateManager {
         void actionOrderChanged();
     }
 
+    /**
+     * @return the number of completed network updates, counted from when the
+     *         network was created
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Count a completed network update. Called at the end of
+     * {@link Network#update()}.
+     */
+    void advanceTick() {
+        tick++;
+    }
+
+    /**
+     * Returns true if an action with the given schedule runs on the current
+     * tick.
+     *
+     * @param period number of ticks between updates
+     * @param offset the tick within each period on which to update
+     * @return true if the action is due
+     */
+    public boolean isDue(final int period, final int offset) {
+        return period <= 1 || tick % period == offset % period;
+    }
+
+    /**
+     * Update a group with the network time step multiplied by a factor for
+     * the duration of the update.
+     *
+     * @param group the group to update
+     * @param timeStepMultiplier the factor
+     */
+    public void updateGroup(final Group group,
+            final double timeStepMultiplier) {
+        if (timeStepMultiplier == 1) {
+            group.update();
+            return;
+        }
+        network.setTimeStepMultiplier(timeStepMultiplier);
+        try {
+            group.update();
+        } finally {
+            network.setTimeStepMultiplier(1);
+        }
+    }
+
+    /**
+     * Returns the update action of a group, if it is in the action list.
+     *
+     * @param group the group
+     * @return the action, or null if there is none
+     */
+    public UpdateGroup getGroupAction(final Group group) {
+        for (NetworkUpdateAction action : actionList) {
+            if (action instanceof UpdateGroup
+                    && ((UpdateGroup) action).getGroup() == group) {
+                return (UpdateGroup) action;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Set how often a group updates and the factor by which its time step is
+     * multiplied. For the group to keep pace with network time, the
+     * multiplier should equal the period.
+     *
+     * @param group a top level group in the action list
+     * @param period number of ticks between updates of the group
+     * @param timeStepMultiplier factor applied to the network time step
+     *            while the group updates
+     */
+    public void setUpdateSchedule(final Group group, final int period,
+            final double timeStepMultiplier) {
+        UpdateGroup action = getGroupAction(group);
+        if (action == null) {
+            throw new IllegalArgumentException(
+                    group.getLabel() + " has no update action");
+        }
+        action.setPeriod(period);
+        action.setTimeStepMultiplier(timeStepMultiplier);
+    }
+
+    /**
+     * Returns the groups whose update actions did not run on the current
+     * tick.
+     *
+     * @return the skipped groups; empty if every group updates every tick
+     */
+    Set<Group> getGroupsSkippedThisTick() {
+        Set<Group> skipped = Collections.emptySet();
+        for (int i = 0, n = actionList.size(); i < n; i++) {
+            NetworkUpdateAction action = actionList.get(i);
+            if (action instanceof UpdateGroup
+                    && !((UpdateGroup) action).isDue()) {
+                if (skipped.isEmpty()) {
+                    skipped = new HashSet<Group>();
+                }
+                skipped.add(((UpdateGroup) action).getGroup());
+            }
+        }
+        return skipped;
+    }
+
     /**
      * Remove all actions completely.
      */
@@ -101,6 +101,12 @@ public class Neuron {
     /** Reference to network this neuron is part of. */
     private final Network parent;
 
+    /**
+     * Recent activations, read by delayed efferent synapses. Created by the
+     * first delayed read and grown to the largest delay read.
+     */
+    private transient volatile ActivationHistory activationHistory;
+
     /** List of synapses this neuron attaches to. */
     private Map<Neuron, Synapse> fanOut = new HashMap<Neuron, Synapse>(
             PRE_ALLOCATED_NUM_SYNAPSES);
@@ -615,6 +621,63 @@ public class Neuron {
         }
     }
 
+    /**
+     * Returns the activation of this neuron a number of network updates ago,
+     * for synapses with an axonal delay. All of a neuron's efferent synapses
+     * share one history, sized to the largest delay read and recorded by the
+     * network once per update.
+     *
+     * @param delay number of updates back
+     * @return the activation <code>delay</code> updates ago, or 0 if the
+     *         history does not go back that far
+     */
+    public double getDelayedActivation(final int delay) {
+        if (delay <= 0 || parent == null) {
+            return activation;
+        }
+        ActivationHistory history = activationHistory;
+        if (history == null || history.getMaxDelay() < delay) {
+            history = growActivationHistory(delay);
+        }
+        return history.get(parent.getUpdateManager().getTick(), delay);
+    }
+
+    /**
+     * Create or lengthen the activation history. A new history is registered
+     * with the network so that it is recorded on every update.
+     *
+     * @param delay the largest delay to be read
+     * @return the history
+     */
+    synchronized ActivationHistory growActivationHistory(final int delay) {
+        ActivationHistory history = activationHistory;
+        if (history == null) {
+            history = new ActivationHistory(delay);
+            if (parent != null) {
+                history.record(activation, parent.getUpdateManager()
+                        .getTick());
+                parent.addDelayedSource(this);
+            }
+        } else if (history.getMaxDelay() < delay) {
+            history = new ActivationHistory(history, delay);
+        }
+        activationHistory = history;
+        return history;
+    }
+
+    /**
+     * Record the current activation in the activation history, if there is
+     * one.
+     *
+     * @param tick the network's update count
+     */
+    void recordActivationHistory(final long tick) {
+        ActivationHistory history = activationHistory;
+        if (history != null) {
+            history.record(activation, tick);
+        }
+    }
+
     /**
      * Returns the root network this neuron is embedded in.
      *
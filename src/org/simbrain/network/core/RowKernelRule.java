@@ -0,0 +1,59 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.core;
+
+/**
+ * <b>RowKernelRule</b> is implemented by synapse update rules that can update
+ * a whole row of weights onto one target neuron from primitive arrays. Synapse
+ * groups governed by group level settings use the row kernel when the
+ * prototype rules implement this interface (see
+ * {@link SynapseUpdateRule#hasRowKernel()}), and update synapse by synapse
+ * otherwise.
+ */
+public interface RowKernelRule {
+
+    /**
+     * Apply the rule to a row of weights onto one target neuron, reading
+     * presynaptic activations from a primitive array rather than through
+     * synapse and neuron objects. The caller clips the results to the synapse
+     * bounds and the source polarity, as
+     * {@link Synapse#setStrength(double)} would. Rows may be updated
+     * concurrently, so implementations should not modify the rule's state.
+     *
+     * @param pre activation of each source neuron
+     * @param sources index in <code>pre</code> of the source of each weight
+     * @param post activation of the target neuron
+     * @param stats fan-in statistics of the target neuron if
+     *            {@link #usesFanInStatistics()} is true, null otherwise
+     * @param weights weights, updated in place
+     * @param from index of the first weight in the row (inclusive)
+     * @param to index of the last weight in the row (exclusive)
+     */
+    void updateRow(double[] pre, int[] sources, double post,
+            FanInStatistics stats, double[] weights, int from, int to);
+
+    /**
+     * Returns true if the row kernel needs fan-in statistics. See
+     * {@link SynapseUpdateRule#usesFanInStatistics()}.
+     *
+     * @return whether fan-in statistics are needed
+     */
+    boolean usesFanInStatistics();
+
+}
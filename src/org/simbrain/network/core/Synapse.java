@@ -96,7 +96,12 @@ public class Synapse {
     /** Lower limit of synapse. */
     private double lowerBound = DEFAULT_LOWER_BOUND;
 
-    /** Time to delay sending activation to target neuron. */
+    /**
+     * Time to delay sending activation to target neuron, in network updates.
+     * Weighted sums read the source neuron's shared activation history (see
+     * {@link Neuron#getDelayedActivation(int)}); spike responder output is
+     * delayed by {@link #delayManager}.
+     */
     private int delay;
 
     /** Parent group, if any (null if none). */
@@ -114,7 +119,10 @@ public class Synapse {
      */
     private boolean frozen;
 
-    /** Manages synaptic delay */
+    /**
+     * Queue of delayed spike responder values. Only used by synapses with a
+     * spike responder, and created on first use.
+     */
     private double[] delayManager;
 
     /**
@@ -322,6 +330,18 @@ public class Synapse {
         }
     }
 
+    /**
+     * Update this synapse using fan-in statistics of its target that have
+     * already been computed.
+     *
+     * @param stats fan-in statistics of the target neuron
+     */
+    public void update(final FanInStatistics stats) {
+        if (!isFrozen()) {
+            learningRule.update(this, stats);
+        }
+    }
+
     /**
      * For spiking source neurons, returns the spike-responder's value times the
      * synapse strength. For non-spiking neurons, returns the pre-synaptic
@@ -341,6 +361,10 @@ public class Synapse {
             if (delay == 0) {
                 return psr;
             } else {
+                if (delayManager == null || delayManager.length != delay) {
+                    delayManager = new double[delay];
+                    dlyPtr = 0;
+                }
                 dlyVal = dequeu();
                 enqueu(psr);
                 return dlyVal;
@@ -361,9 +385,7 @@ public class Synapse {
         } else {
             psr = source.getActivation() * strength;
             if (delay != 0) {
-                dlyVal = dequeu();
-                enqueu(psr);
-                return dlyVal;
+                return source.getDelayedActivation(delay) * strength;
             } else {
                 return psr;
             }
@@ -662,7 +684,9 @@ public class Synapse {
     }
 
     /**
-     * Delay manager.
+     * Set the delay. No memory is allocated here: weighted sums are read from
+     * the source neuron's activation history, and the spike responder queue
+     * is created when first used.
      *
      * @param dly Amount of delay
      */
@@ -671,19 +695,12 @@ public class Synapse {
             return;
         }
         delay = dly;
-
-        if (delay <= 0) {
-            delayManager = null;
-
-            return;
-        }
-
-        delayManager = new double[delay];
-
-        for (int i = 0; i < delay; i++) {
-            delayManager[i] = 0;
-        }
+        delayManager = null;
         dlyPtr = 0;
+        if (dly > 0 && source != null && source.getNetwork() != null) {
+            // Start recording the source's activations now
+            source.growActivationHistory(dly);
+        }
     }
 
     //
@@ -991,8 +1008,8 @@ public class Synapse {
         bBuf.putDouble(strength);
         bBuf.putDouble(psr);
         if (delay > 0) {
-            for (double d : delayManager) {
-                bBuf.putDouble(d);
+            for (int i = 0; i < delay; i++) {
+                bBuf.putDouble(delayManager == null ? 0 : delayManager[i]);
             }
         }
         bBuf.putInt(dlyPtr);
@@ -1009,8 +1026,14 @@ public class Synapse {
         setStrength(byteValues.getDouble());
         setPsr(byteValues.getDouble());
         if (delay > 0) {
+            double[] queued = new double[delay];
+            boolean used = false;
             for (int i = 0; i < delay; i++) {
-                delayManager[i] = byteValues.getDouble();
+                queued[i] = byteValues.getDouble();
+                used |= queued[i] != 0;
+            }
+            if (used) {
+                delayManager = queued;
             }
         }
         dlyPtr = byteValues.getInt();
@@ -1043,6 +1066,9 @@ public class Synapse {
                 System.out.println("Warning:" + getId() + " has null fanOut");
                 // removeSynapse(synapse);
             }
+            if (delay > 0 && getSource().getNetwork() != null) {
+                getSource().growActivationHistory(delay);
+            }
         }
 
     }
@@ -45,6 +45,42 @@ public abstract class SynapseUpdateRule {
      */
     public abstract void update(Synapse synapse);
 
+    /**
+     * Apply the update rule, given statistics of the target neuron's fan-in
+     * that were computed once for all of that neuron's synapses. Rules that
+     * need such statistics should override this and
+     * {@link #usesFanInStatistics()}; by default the statistics are ignored.
+     *
+     * @param synapse parent synapse
+     * @param stats fan-in statistics of the synapse's target, or null if they
+     *            were not computed
+     */
+    public void update(Synapse synapse, FanInStatistics stats) {
+        update(synapse);
+    }
+
+    /**
+     * Returns true if this rule uses fan-in statistics, in which case synapse
+     * groups compute them once per target neuron and pass them to
+     * {@link #update(Synapse, FanInStatistics)}.
+     *
+     * @return whether fan-in statistics are needed
+     */
+    public boolean usesFanInStatistics() {
+        return false;
+    }
+
+    /**
+     * Returns true if this rule is a {@link RowKernelRule}, so that synapse
+     * groups governed by group level settings can update all of a target
+     * neuron's incoming weights in one loop.
+     *
+     * @return whether the row kernel is implemented
+     */
+    public final boolean hasRowKernel() {
+        return this instanceof RowKernelRule;
+    }
+
     /**
      * Returns a deep copy of the update rule.
      *
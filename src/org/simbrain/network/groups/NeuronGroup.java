@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Scanner;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import org.apache.log4j.Logger;
 import org.simbrain.network.core.Network;
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.core.NeuronUpdateRule;
@@ -40,6 +41,7 @@ import org.simbrain.network.layouts.LineLayout;
 import org.simbrain.network.layouts.LineLayout.LineOrientation;
 import org.simbrain.network.neuron_update_rules.interfaces.BiasedUpdateRule;
 import org.simbrain.util.Utils;
+import org.simbrain.util.math.MappedDataMatrix;
 import org.simbrain.util.math.SimbrainMath;
 
 /**
@@ -54,6 +56,9 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
     //  Add group level polarity
     //  Fix isSpiking
 
+    /** Logger. */
+    private static final Logger LOGGER = Logger.getLogger(NeuronGroup.class);
+
     /**
      * The default for how often {@link #writeActsToFile()} should flush
      * the output stream when writing to a file.
@@ -105,6 +110,21 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
     /** Data (input vectors) for testing the network. */
     private double[][] testData;
 
+    /**
+     * Memory mapped input vectors. When set, input mode reads rows from it
+     * instead of from {@link #testData}.
+     */
+    private transient MappedDataMatrix inputSource;
+
+    /**
+     * File {@link #inputSource} was mapped from, saved so that the file can be
+     * mapped again when the network is opened.
+     */
+    private File inputSourceFile;
+
+    /** Row read from {@link #inputSource}. */
+    private transient double[] inputRow;
+
     /**
      * Whether or not {@link #writeActsToFile()} will write activations as a
      * state matrix or a spike train.
@@ -296,7 +316,7 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
     @Override
     public void update() {
         if (inputMode) {
-            if (testData == null) {
+            if (testData == null && inputSource == null) {
                 throw new NullPointerException("Test data variable is null,"
                         + " but neuron group " + getLabel() + " is in input"
                         + " mode.");
@@ -319,7 +339,7 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
      */
     public void readNextInputs() {
         if (inputMode) {
-            if (testData == null) {
+            if (testData == null && inputSource == null) {
                 throw new NullPointerException("Test data variable is null,"
                         + " but neuron group " + getLabel() + " is in input"
                         + " mode.");
@@ -345,16 +365,28 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
      *  input mode or if the input table is non-null. 
      */
     private void readNextInputUnsafe() {
-        if (inputIndex >= testData.length) {
-            inputIndex = 0;
+        double[] values;
+        if (inputSource != null) {
+            if (inputIndex >= inputSource.getNumRows()) {
+                inputIndex = 0;
+            }
+            if (inputRow == null || inputRow.length != size()) {
+                inputRow = new double[size()];
+            }
+            values = inputSource.getRow(inputIndex, inputRow);
+        } else {
+            if (inputIndex >= testData.length) {
+                inputIndex = 0;
+            }
+            values = testData[inputIndex];
         }
         if (isSpikingNeuronGroup()) {
-            setInputValues(testData[inputIndex]);
+            setInputValues(values);
             for (int i = 0; i < size(); i++) {
                 neuronList.get(i).setToBufferVals();
             }
         } else {
-            forceSetActivations(testData[inputIndex]);
+            forceSetActivations(values);
         }
         inputIndex++;
     }
@@ -1389,6 +1421,66 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
         }
         testAndSetIfSpiking();
         this.testData = testData;
+        this.inputSource = null;
+        this.inputSourceFile = null;
+    }
+
+    /**
+     * @return the memory mapped input data, or null
+     */
+    public MappedDataMatrix getInputSource() {
+        return inputSource;
+    }
+
+    /**
+     * Read input mode values from a memory mapped file rather than from
+     * {@link #testData}, one row per update, so the data need not fit in
+     * memory. Any test data previously set is discarded.
+     *
+     * @param inputSource the mapped data, with one column per neuron
+     * @throws IllegalArgumentException if the number of columns does not
+     *             match the number of neurons
+     */
+    public void setInputSource(MappedDataMatrix inputSource)
+            throws IllegalArgumentException {
+        if (inputSource != null && inputSource.getNumColumns() != size()) {
+            throw new IllegalArgumentException("Data Inconsistency:"
+                    + " Input data does not have a column number equal"
+                    + " to the number of neurons in the group.");
+        }
+        testAndSetIfSpiking();
+        this.inputSource = inputSource;
+        this.inputSourceFile = inputSource == null ? null
+                : inputSource.getFile();
+        this.testData = null;
+        inputIndex = 0;
+    }
+
+    /**
+     * Map the input file again after the network is opened. If the file can
+     * no longer be read, or no longer matches the group, input mode is turned
+     * off.
+     *
+     * @return this neuron group
+     */
+    private Object readResolve() {
+        if (inputSourceFile != null) {
+            try {
+                inputSource = new MappedDataMatrix(inputSourceFile);
+                if (inputSource.getNumColumns() != neuronList.size()) {
+                    inputSource.close();
+                    throw new IOException(inputSourceFile + " does not have"
+                            + " one column per neuron");
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Input mode turned off for " + getLabel() + ": "
+                        + e.getMessage());
+                inputSource = null;
+                inputSourceFile = null;
+                inputMode = false;
+            }
+        }
+        return this;
     }
 
     /**
@@ -1547,7 +1639,7 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
      */
     public void setInputMode(boolean inputMode)
             throws IllegalArgumentException {
-        if (testData == null && inputMode) {
+        if (testData == null && inputSource == null && inputMode) {
             throw new IllegalArgumentException("Cannot set input mode to true"
                     + " if there is no input data stored in NeuronGroup field:"
                     + " testData");
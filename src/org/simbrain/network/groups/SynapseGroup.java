@@ -26,6 +26,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.simbrain.network.connections.AllToAll;
 import org.simbrain.network.connections.ConnectNeurons;
@@ -33,11 +38,14 @@ import org.simbrain.network.connections.ConnectionUtilities;
 import org.simbrain.network.connections.ConnectionUtilities.SynapseParameterGetter;
 import org.simbrain.network.connections.ConnectionUtilities.SynapseParameterSetter;
 import org.simbrain.network.connections.Sparse;
+import org.simbrain.network.core.FanInStatistics;
 import org.simbrain.network.core.Network;
 import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.RowKernelRule;
 import org.simbrain.network.core.Synapse;
 import org.simbrain.network.core.SynapseUpdateRule;
 import org.simbrain.network.synapse_update_rules.StaticSynapseRule;
+import org.simbrain.network.synapse_update_rules.TraceSTDPRule;
 import org.simbrain.network.synapse_update_rules.spikeresponders.SpikeResponder;
 import org.simbrain.network.util.io_utilities.GroupDeserializer;
 import org.simbrain.network.util.io_utilities.GroupSerializer;
@@ -46,6 +54,7 @@ import org.simbrain.util.SimbrainConstants;
 import org.simbrain.util.SimbrainConstants.Polarity;
 import org.simbrain.util.Utils;
 import org.simbrain.util.randomizer.PolarizedRandomizer;
+import org.simbrain.util.randomizer.Randomizer;
 
 /**
  *
@@ -102,6 +111,97 @@ public class SynapseGroup extends Group {
      */
     private Set<Synapse> inTemp;
 
+    /**
+     * The synapses of the group ordered by target neuron, in the order of the
+     * target neuron group. Rebuilt from the synapse sets when
+     * {@link #targetIndexDirty} is set.
+     */
+    private transient Synapse[] synapsesByTarget;
+
+    /** Whether each entry of {@link #synapsesByTarget} is excitatory. */
+    private transient boolean[] excitatoryByTarget;
+
+    /**
+     * Start of each target's synapses in {@link #synapsesByTarget}, with one
+     * extra entry marking the end.
+     */
+    private transient int[] targetStarts;
+
+    /** Target neuron of each run of {@link #synapsesByTarget}. */
+    private transient Neuron[] targets;
+
+    /** Set when the synapse sets change, so the target index is rebuilt. */
+    private transient boolean targetIndexDirty = true;
+
+    /** Reused fan-in statistics for rules that need them. */
+    private transient FanInStatistics fanInStatistics;
+
+    /**
+     * End of each target's excitatory synapses in {@link #synapsesByTarget}.
+     * Within a target's run the excitatory synapses come first.
+     */
+    private transient int[] excitatoryEnds;
+
+    /** Source neurons of the group's synapses, in source group order. */
+    private transient Neuron[] sources;
+
+    /**
+     * Index in {@link #sources} of the source of each entry of
+     * {@link #synapsesByTarget}.
+     */
+    private transient int[] sourcesByTarget;
+
+    /** Activation of each source neuron, gathered before a row update. */
+    private transient double[] preActivations;
+
+    /** Lower limit implied by each source neuron's polarity. */
+    private transient double[] polarityLowerLimits;
+
+    /** Upper limit implied by each source neuron's polarity. */
+    private transient double[] polarityUpperLimits;
+
+    /** Strengths in {@link #synapsesByTarget} order, updated by row kernels. */
+    private transient double[] weightsByTarget;
+
+    /**
+     * Start of each source's entries in {@link #positionsBySource}, with one
+     * extra entry marking the end.
+     */
+    private transient int[] sourceStarts;
+
+    /** Positions in {@link #synapsesByTarget}, ordered by source neuron. */
+    private transient int[] positionsBySource;
+
+    /**
+     * Index in {@link #targets} of the target of each entry of
+     * {@link #synapsesByTarget}.
+     */
+    private transient int[] targetsByPosition;
+
+    /** Spike traces of source neurons, for excitatory trace STDP. */
+    private transient double[] exSourceTraces;
+
+    /** Spike traces of target neurons, for excitatory trace STDP. */
+    private transient double[] exTargetTraces;
+
+    /** Spike traces of source neurons, for inhibitory trace STDP. */
+    private transient double[] inSourceTraces;
+
+    /** Spike traces of target neurons, for inhibitory trace STDP. */
+    private transient double[] inTargetTraces;
+
+    /** Indices of the source neurons that spiked on this update. */
+    private transient int[] spikingSources;
+
+    /** Indices of the target neurons that spiked on this update. */
+    private transient int[] spikingTargets;
+
+    /** Number of threads rows are split across when row kernels are used. */
+    private transient int numLearningThreads = 1;
+
+    /** Executor for multi-threaded row updates, created on first use. */
+    private transient ExecutorService learningExecutor;
+
     /** Reference to source neuron group. */
     private final NeuronGroup sourceNeuronGroup;
 
@@ -408,6 +508,7 @@ public class SynapseGroup extends Group {
                 (int) (expectedNumSynapses * excitatoryRatio / 0.8));
         inSynapseSet = new HashSet<Synapse>(
                 (int) (expectedNumSynapses * (1 - excitatoryRatio) / 0.8));
+        targetIndexDirty = true;
     }
 
     /**
@@ -439,6 +540,7 @@ public class SynapseGroup extends Group {
         }
         exSynapseSet.addAll(inSwitches);
         inSynapseSet.addAll(exSwitches);
+        targetIndexDirty = true;
         excitatoryRatio = exSynapseSet.size() / (double) (size());
 
     }
@@ -448,46 +550,400 @@ public class SynapseGroup extends Group {
      * call super.update() some time during the custom update.
      */
     public void update() {
+        boolean updateEx = true;
+        boolean updateIn = true;
         if (useGroupLevelSettings) {
-            if (!exStatic) { // Only iterate if excitatory synapses aren't
-                             // static
-                // Assuming they're not static, only iterate if they aren't
-                // frozen.
-                if (!isFrozen(Polarity.EXCITATORY)) {
-                    updateExcitatorySynapses();
+            // Only iterate over synapses which aren't static or frozen
+            updateEx = !exStatic && !isFrozen(Polarity.EXCITATORY);
+            updateIn = !inStatic && !isFrozen(Polarity.INHIBITORY);
+        }
+        if (!updateEx && !updateIn) {
+            return;
+        }
+        if (useGroupLevelSettings
+                && (!updateEx || excitatoryPrototype.getLearningRule()
+                        .hasRowKernel())
+                && (!updateIn || inhibitoryPrototype.getLearningRule()
+                        .hasRowKernel())) {
+            updateRows(updateEx, updateIn);
+        } else if (useGroupLevelSettings
+                && (!updateEx || excitatoryPrototype
+                        .getLearningRule() instanceof TraceSTDPRule)
+                && (!updateIn || inhibitoryPrototype
+                        .getLearningRule() instanceof TraceSTDPRule)) {
+            updateSpikeTraces(updateEx, updateIn);
+        } else {
+            updateSynapsesByTarget(updateEx, updateIn);
+        }
+    }
+
+    /**
+     * Update synapses with trace based STDP, using the prototype rules. See
+     * {@link TraceSTDPRule}.
+     *
+     * @param updateEx whether to update excitatory synapses
+     * @param updateIn whether to update inhibitory synapses
+     */
+    private void updateSpikeTraces(final boolean updateEx,
+            final boolean updateIn) {
+        buildTargetIndex();
+        double timeStep = getParentNetwork().getTimeStep();
+        if (updateEx) {
+            updateSpikeTraces(
+                    (TraceSTDPRule) excitatoryPrototype.getLearningRule(),
+                    timeStep, true, exSourceTraces, exTargetTraces);
+        }
+        if (updateIn) {
+            updateSpikeTraces(
+                    (TraceSTDPRule) inhibitoryPrototype.getLearningRule(),
+                    timeStep, false, inSourceTraces, inTargetTraces);
+        }
+    }
+
+    /**
+     * Decay the traces of one polarity's rule, change the synapses of neurons
+     * that spiked, then reset the traces of those neurons.
+     *
+     * @param rule the rule
+     * @param timeStep the network time step
+     * @param excitatory whether to update excitatory or inhibitory synapses
+     * @param sourceTraces traces of the source neurons
+     * @param targetTraces traces of the target neurons
+     */
+    private void updateSpikeTraces(final TraceSTDPRule rule,
+            final double timeStep, final boolean excitatory,
+            final double[] sourceTraces, final double[] targetTraces) {
+        int numSpikingSources = 0;
+        double decay = rule.getSourceTraceDecay(timeStep);
+        for (int j = 0; j < sources.length; j++) {
+            sourceTraces[j] *= decay;
+            if (sources[j].isSpike()) {
+                spikingSources[numSpikingSources++] = j;
+            }
+        }
+        int numSpikingTargets = 0;
+        decay = rule.getTargetTraceDecay(timeStep);
+        for (int t = 0; t < targets.length; t++) {
+            targetTraces[t] *= decay;
+            if (targets[t].isSpike()) {
+                spikingTargets[numSpikingTargets++] = t;
+            }
+        }
+
+        // Fan-in of spiking targets, by the traces of their sources
+        double rate = rule.getTargetSpikeRate();
+        for (int k = 0; k < numSpikingTargets; k++) {
+            int t = spikingTargets[k];
+            int from = excitatory ? targetStarts[t] : excitatoryEnds[t];
+            int to = excitatory ? excitatoryEnds[t] : targetStarts[t + 1];
+            for (int i = from; i < to; i++) {
+                double trace = sourceTraces[sourcesByTarget[i]];
+                if (trace != 0) {
+                    TraceSTDPRule.applyChange(synapsesByTarget[i],
+                            rate * trace);
                 }
             }
+        }
 
-            if (!inStatic) { // Only iterate if inhibitory synapses aren't
-                             // static
-                // Assuming they're not static, only iterate if they aren't
-                // frozen.
-                if (!isFrozen(Polarity.INHIBITORY)) {
-                    updateInhibitorySynapses();
+        // Fan-out of spiking sources, by the traces of their targets
+        rate = rule.getSourceSpikeRate();
+        for (int k = 0; k < numSpikingSources; k++) {
+            int j = spikingSources[k];
+            for (int p = sourceStarts[j], end = sourceStarts[j + 1]; p < end;
+                    p++) {
+                int i = positionsBySource[p];
+                if (excitatoryByTarget[i] != excitatory) {
+                    continue;
+                }
+                double trace = targetTraces[targetsByPosition[i]];
+                if (trace != 0) {
+                    TraceSTDPRule.applyChange(synapsesByTarget[i],
+                            rate * trace);
                 }
             }
-        } else {
-            updateExcitatorySynapses();
-            updateInhibitorySynapses();
+        }
+
+        for (int k = 0; k < numSpikingSources; k++) {
+            sourceTraces[spikingSources[k]] = 1;
+        }
+        for (int k = 0; k < numSpikingTargets; k++) {
+            targetTraces[spikingTargets[k]] = 1;
         }
     }
 
     /**
+     * Update synapses with the row kernels of the prototype learning rules,
+     * which with group level settings apply to every synapse of their
+     * polarity. Source activations are gathered into an array once, then each
+     * target neuron's incoming weights are updated in one loop and clipped to
+     * the prototype bounds and the source polarities, as
+     * {@link Synapse#setStrength(double)} would.
      *
-     */
-    private void updateExcitatorySynapses() {
-        for (Synapse synapse : exSynapseSet) {
-            synapse.update();
+     * @param updateEx whether to update excitatory synapses
+     * @param updateIn whether to update inhibitory synapses
+     */
+    private void updateRows(final boolean updateEx, final boolean updateIn) {
+        buildTargetIndex();
+        for (int j = 0; j < sources.length; j++) {
+            Neuron source = sources[j];
+            preActivations[j] = source.getActivation();
+            Polarity polarity = source.getPolarity();
+            polarityLowerLimits[j] = Polarity.EXCITATORY == polarity ? 0
+                    : Double.NEGATIVE_INFINITY;
+            polarityUpperLimits[j] = Polarity.INHIBITORY == polarity ? 0
+                    : Double.POSITIVE_INFINITY;
+        }
+        final RowKernelRule exRule = updateEx
+                ? (RowKernelRule) excitatoryPrototype.getLearningRule() : null;
+        final RowKernelRule inRule = updateIn
+                ? (RowKernelRule) inhibitoryPrototype.getLearningRule() : null;
+        int threads = Math.min(numLearningThreads, targets.length);
+        if (threads <= 1) {
+            if (fanInStatistics == null) {
+                fanInStatistics = new FanInStatistics();
+            }
+            updateRows(0, targets.length, exRule, inRule, fanInStatistics);
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(threads);
+        for (int k = 0; k < threads; k++) {
+            final int from = (int) ((long) targets.length * k / threads);
+            final int to = (int) ((long) targets.length * (k + 1) / threads);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    updateRows(from, to, exRule, inRule,
+                            new FanInStatistics());
+                    return null;
+                }
+            });
+        }
+        if (learningExecutor == null) {
+            learningExecutor = Executors.newFixedThreadPool(numLearningThreads,
+                    r -> {
+                        Thread thread = new Thread(r);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        try {
+            for (Future<Void> future : learningExecutor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
         }
     }
 
     /**
+     * Update the rows of a range of target neurons. Rows are disjoint, so
+     * ranges can be updated concurrently.
      *
+     * @param fromTarget first target index (inclusive)
+     * @param toTarget last target index (exclusive)
+     * @param exRule rule for excitatory synapses, or null to skip them
+     * @param inRule rule for inhibitory synapses, or null to skip them
+     * @param stats fan-in statistics reused across targets
+     */
+    private void updateRows(final int fromTarget, final int toTarget,
+            final RowKernelRule exRule, final RowKernelRule inRule,
+            final FanInStatistics stats) {
+        double exUpper = excitatoryPrototype.getUpperBound();
+        double exLower = excitatoryPrototype.getLowerBound();
+        double inUpper = inhibitoryPrototype.getUpperBound();
+        double inLower = inhibitoryPrototype.getLowerBound();
+        for (int t = fromTarget; t < toTarget; t++) {
+            int start = exRule != null ? targetStarts[t] : excitatoryEnds[t];
+            int end = inRule != null ? targetStarts[t + 1] : excitatoryEnds[t];
+            if (start == end) {
+                continue;
+            }
+            for (int i = start; i < end; i++) {
+                weightsByTarget[i] = synapsesByTarget[i].getStrength();
+            }
+            // Statistics are taken before any of this target's weights change
+            Neuron target = targets[t];
+            boolean computed = false;
+            if ((exRule != null && exRule.usesFanInStatistics())
+                    || (inRule != null && inRule.usesFanInStatistics())) {
+                stats.compute(target);
+                computed = true;
+            }
+            double post = target.getActivation();
+            if (exRule != null) {
+                exRule.updateRow(preActivations, sourcesByTarget, post,
+                        computed ? stats : null, weightsByTarget,
+                        targetStarts[t], excitatoryEnds[t]);
+            }
+            if (inRule != null) {
+                inRule.updateRow(preActivations, sourcesByTarget, post,
+                        computed ? stats : null, weightsByTarget,
+                        excitatoryEnds[t], targetStarts[t + 1]);
+            }
+            for (int i = start; i < end; i++) {
+                Synapse synapse = synapsesByTarget[i];
+                if (synapse.isFrozen()) {
+                    continue;
+                }
+                int j = sourcesByTarget[i];
+                double w = weightsByTarget[i];
+                if (w < polarityLowerLimits[j]) {
+                    w = polarityLowerLimits[j];
+                } else if (w > polarityUpperLimits[j]) {
+                    w = polarityUpperLimits[j];
+                }
+                boolean excitatory = i < excitatoryEnds[t];
+                double upper = excitatory ? exUpper : inUpper;
+                double lower = excitatory ? exLower : inLower;
+                if (w > upper) {
+                    w = upper;
+                } else if (w < lower) {
+                    w = lower;
+                }
+                synapse.forceSetStrength(w);
+            }
+        }
+    }
+
+    /**
+     * Update synapses one target neuron at a time. When a synapse's learning
+     * rule uses fan-in statistics, they are computed once for its target,
+     * before any of that target's synapses are updated, and shared by all of
+     * them.
+     *
+     * @param updateEx whether to update excitatory synapses
+     * @param updateIn whether to update inhibitory synapses
+     */
+    private void updateSynapsesByTarget(final boolean updateEx,
+            final boolean updateIn) {
+        buildTargetIndex();
+        if (fanInStatistics == null) {
+            fanInStatistics = new FanInStatistics();
+        }
+        for (int t = 0; t < targets.length; t++) {
+            FanInStatistics stats = null;
+            for (int i = targetStarts[t], end = targetStarts[t + 1]; i < end;
+                    i++) {
+                if (excitatoryByTarget[i] ? !updateEx : !updateIn) {
+                    continue;
+                }
+                Synapse synapse = synapsesByTarget[i];
+                if (stats == null && synapse.getLearningRule()
+                        .usesFanInStatistics()) {
+                    stats = fanInStatistics.compute(targets[t]);
+                }
+                synapse.update(stats);
+            }
+        }
+    }
+
+    /**
+     * Rebuild the index of synapses by target neuron if the synapse sets have
+     * changed since it was last built.
      */
-    private void updateInhibitorySynapses() {
-        for (Synapse synapse : inSynapseSet) {
-            synapse.update();
+    private void buildTargetIndex() {
+        if (!targetIndexDirty && synapsesByTarget != null) {
+            return;
         }
+        Map<Neuron, Integer> targetIndex = new HashMap<Neuron, Integer>();
+        List<Neuron> targetList = new ArrayList<Neuron>(
+                targetNeuronGroup.getNeuronList());
+        for (int i = 0; i < targetList.size(); i++) {
+            targetIndex.put(targetList.get(i), i);
+        }
+        List<Synapse> all = new ArrayList<Synapse>(size());
+        all.addAll(exSynapseSet);
+        all.addAll(inSynapseSet);
+        int[] ofSynapse = new int[all.size()];
+        for (int i = 0; i < all.size(); i++) {
+            Neuron target = all.get(i).getTarget();
+            Integer t = targetIndex.get(target);
+            if (t == null) {
+                t = targetList.size();
+                targetIndex.put(target, t);
+                targetList.add(target);
+            }
+            ofSynapse[i] = t;
+        }
+        // Counting sort of the synapses by target
+        int[] starts = new int[targetList.size() + 1];
+        for (int t : ofSynapse) {
+            starts[t + 1]++;
+        }
+        for (int t = 0; t < targetList.size(); t++) {
+            starts[t + 1] += starts[t];
+        }
+        int[] next = Arrays.copyOf(starts, targetList.size());
+        Synapse[] sorted = new Synapse[all.size()];
+        boolean[] excitatory = new boolean[all.size()];
+        int numEx = exSynapseSet.size();
+        for (int i = 0; i < all.size(); i++) {
+            int pos = next[ofSynapse[i]]++;
+            sorted[pos] = all.get(i);
+            excitatory[pos] = i < numEx;
+        }
+        int[] exEnds = Arrays.copyOf(starts, targetList.size());
+        for (int i = 0; i < numEx; i++) {
+            exEnds[ofSynapse[i]]++;
+        }
+        // Index sources in source group order, for gathering activations
+        Map<Neuron, Integer> sourceIndex = new HashMap<Neuron, Integer>();
+        List<Neuron> sourceList = new ArrayList<Neuron>(
+                sourceNeuronGroup.getNeuronList());
+        for (int j = 0; j < sourceList.size(); j++) {
+            sourceIndex.put(sourceList.get(j), j);
+        }
+        int[] sourceOf = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            Neuron source = sorted[i].getSource();
+            Integer j = sourceIndex.get(source);
+            if (j == null) {
+                j = sourceList.size();
+                sourceIndex.put(source, j);
+                sourceList.add(source);
+            }
+            sourceOf[i] = j;
+        }
+        int[] byTarget = new int[sorted.length];
+        for (int t = 0; t < targetList.size(); t++) {
+            Arrays.fill(byTarget, starts[t], starts[t + 1], t);
+        }
+        // Counting sort of the positions by source
+        int[] srcStarts = new int[sourceList.size() + 1];
+        for (int j : sourceOf) {
+            srcStarts[j + 1]++;
+        }
+        for (int j = 0; j < sourceList.size(); j++) {
+            srcStarts[j + 1] += srcStarts[j];
+        }
+        next = Arrays.copyOf(srcStarts, sourceList.size());
+        int[] bySource = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            bySource[next[sourceOf[i]]++] = i;
+        }
+        synapsesByTarget = sorted;
+        excitatoryByTarget = excitatory;
+        targetStarts = starts;
+        excitatoryEnds = exEnds;
+        targets = targetList.toArray(new Neuron[targetList.size()]);
+        sourcesByTarget = sourceOf;
+        sources = sourceList.toArray(new Neuron[sourceList.size()]);
+        preActivations = new double[sources.length];
+        polarityLowerLimits = new double[sources.length];
+        polarityUpperLimits = new double[sources.length];
+        weightsByTarget = new double[sorted.length];
+        sourceStarts = srcStarts;
+        positionsBySource = bySource;
+        targetsByPosition = byTarget;
+        exSourceTraces = new double[sources.length];
+        exTargetTraces = new double[targets.length];
+        inSourceTraces = new double[sources.length];
+        inTargetTraces = new double[targets.length];
+        spikingSources = new int[sources.length];
+        spikingTargets = new int[targets.length];
+        targetIndexDirty = false;
     }
 
     /** {@inheritDoc} */
@@ -529,6 +985,7 @@ public class SynapseGroup extends Group {
         if (!sourceNeuronGroup.isMarkedForDeletion()) {
             sourceNeuronGroup.removeOutgoingSg(this);
         }
+        shutdownLearningThreads();
         Runtime.getRuntime().gc();
     }
 
@@ -594,6 +1051,7 @@ public class SynapseGroup extends Group {
     public Synapse removeSynapse(Synapse toDelete) {
         exSynapseSet.remove(toDelete);
         inSynapseSet.remove(toDelete);
+        targetIndexDirty = true;
         toDelete.getSource().removeEfferent(toDelete);
         toDelete.getTarget().removeAfferent(toDelete);
         this.excitatoryRatio = getExcitatoryRatioPrecise();
@@ -641,6 +1099,7 @@ public class SynapseGroup extends Group {
         }
         exSynapseSet.clear();
         inSynapseSet.clear();
+        targetIndexDirty = true;
     }
 
     /**
@@ -697,6 +1156,7 @@ public class SynapseGroup extends Group {
         synapse.setLowerBound(excitatoryPrototype.getLowerBound());
         synapse.setSpikeResponder(excitatoryPrototype.getSpikeResponder());
         exSynapseSet.add(synapse);
+        targetIndexDirty = true;
     }
 
     /**
@@ -724,6 +1184,7 @@ public class SynapseGroup extends Group {
         synapse.setLowerBound(inhibitoryPrototype.getLowerBound());
         synapse.setSpikeResponder(inhibitoryPrototype.getSpikeResponder());
         inSynapseSet.add(synapse);
+        targetIndexDirty = true;
     }
 
     /**
@@ -761,6 +1222,7 @@ public class SynapseGroup extends Group {
      */
     public void addExcitatorySynapseUnsafe(final Synapse synapse) {
         exSynapseSet.add(synapse);
+        targetIndexDirty = true;
         excitatoryRatio = exSynapseSet.size() / (double) size();
         if (getParentNetwork() != null) {
             synapse.setId(getParentNetwork().getSynapseIdGenerator().getId());
@@ -777,6 +1239,7 @@ public class SynapseGroup extends Group {
      */
     public void addInhibitorySynapseUnsafe(final Synapse synapse) {
         inSynapseSet.add(synapse);
+        targetIndexDirty = true;
         excitatoryRatio = exSynapseSet.size() / (double) size();
         if (getParentNetwork() != null) {
             synapse.setId(getParentNetwork().getSynapseIdGenerator().getId());
@@ -841,6 +1304,7 @@ public class SynapseGroup extends Group {
                     s.setSpikeResponder(
                             inhibitoryPrototype.getSpikeResponder());
                     inSynapseSet.add(s);
+                    targetIndexDirty = true;
                     numSwitch--;
                 }
             }
@@ -869,6 +1333,7 @@ public class SynapseGroup extends Group {
                     s.setSpikeResponder(
                             excitatoryPrototype.getSpikeResponder());
                     exSynapseSet.add(s);
+                    targetIndexDirty = true;
                     numSwitch--;
                 }
             }
@@ -901,8 +1366,8 @@ public class SynapseGroup extends Group {
      */
     public List<Synapse> getAllSynapses() {
         ArrayList<Synapse> flatList = new ArrayList<Synapse>(size());
-        flatList.addAll(getExcitatorySynapses());
-        flatList.addAll(getInhibitorySynapses());
+        flatList.addAll(exSynapseSet);
+        flatList.addAll(inSynapseSet);
         return flatList;
     }
 
@@ -1237,6 +1702,7 @@ public class SynapseGroup extends Group {
             if (newWeight < 0) {
                 exSynapseSet.remove(synapse);
                 inSynapseSet.add(synapse);
+                targetIndexDirty = true;
             }
             return true;
         }
@@ -1245,6 +1711,7 @@ public class SynapseGroup extends Group {
             if (newWeight > 0) {
                 inSynapseSet.remove(synapse);
                 exSynapseSet.add(synapse);
+                targetIndexDirty = true;
             }
             return true;
         }
@@ -1468,6 +1935,37 @@ public class SynapseGroup extends Group {
         return useGroupLevelSettings;
     }
 
+    /**
+     * @return the number of threads rows of synapses are split across when
+     *         they are updated with row kernels
+     */
+    public int getNumLearningThreads() {
+        return numLearningThreads;
+    }
+
+    /**
+     * Set the number of threads rows of synapses are split across when the
+     * learning rules support row kernels. Defaults to 1; more threads only pay
+     * off for large groups.
+     *
+     * @param numLearningThreads the number of threads
+     */
+    public void setNumLearningThreads(int numLearningThreads) {
+        shutdownLearningThreads();
+        this.numLearningThreads = Math.max(1, numLearningThreads);
+    }
+
+    /**
+     * Release the threads used for multi-threaded row updates. They are
+     * recreated if needed.
+     */
+    public void shutdownLearningThreads() {
+        if (learningExecutor != null) {
+            learningExecutor.shutdown();
+            learningExecutor = null;
+        }
+    }
+
     /**
      *
      * @param useGroupLevelSettings
@@ -1515,6 +2013,43 @@ public class SynapseGroup extends Group {
         setSynapses(setDelay, delay, polarity);
     }
 
+    /**
+     * Give each synapse of a polarity its own delay, drawn from a
+     * distribution and rounded to a whole number of updates. Negative draws
+     * give no delay. Delayed synapses read a history shared by their source
+     * neuron, so varied delays cost no more memory than one long delay per
+     * source neuron. The prototype synapses are not changed.
+     *
+     * @param distribution the distribution of delays
+     * @param polarity the synapses to change
+     */
+    public void setDelays(final Randomizer distribution,
+            final Polarity polarity) {
+        Collection<Synapse> synapses;
+        if (Polarity.EXCITATORY == polarity) {
+            synapses = exSynapseSet;
+        } else if (Polarity.INHIBITORY == polarity) {
+            synapses = inSynapseSet;
+        } else {
+            synapses = getAllSynapses();
+        }
+        for (Synapse s : synapses) {
+            s.setDelay((int) Math.max(0,
+                    Math.round(distribution.getRandom())));
+        }
+    }
+
+    /**
+     * @return the longest delay of any synapse in the group
+     */
+    public int getMaxDelay() {
+        int max = 0;
+        for (Synapse s : getAllSynapses()) {
+            max = Math.max(max, s.getDelay());
+        }
+        return max;
+    }
+
     /**
      * Enable / disable synapses for both polarities.
      *
@@ -1642,10 +2177,12 @@ public class SynapseGroup extends Group {
             if (strength > 0) {
                 exSynapseSet.addAll(inSynapseSet);
                 inSynapseSet.clear();
+                targetIndexDirty = true;
                 excitatoryRatio = 1;
             } else {
                 inSynapseSet.addAll(exSynapseSet);
                 exSynapseSet.clear();
+                targetIndexDirty = true;
                 excitatoryRatio = 0;
             }
         }
@@ -1898,6 +2435,7 @@ public class SynapseGroup extends Group {
             exTemp = exSynapseSet;
             inSynapseSet = null;
             exSynapseSet = null;
+            targetIndexDirty = true;
 
         } else {
             compressedMatrixRep = null;
@@ -1945,6 +2483,7 @@ public class SynapseGroup extends Group {
         exTemp = exSynapseSet;
         inSynapseSet = null;
         exSynapseSet = null;
+        targetIndexDirty = true;
     }
 
     /**
@@ -1956,6 +2495,7 @@ public class SynapseGroup extends Group {
         if (isUseGroupLevelSettings()) {
             inSynapseSet = inTemp;
             exSynapseSet = exTemp;
+            targetIndexDirty = true;
             inTemp = null;
             exTemp = null;
         }
@@ -1970,6 +2510,7 @@ public class SynapseGroup extends Group {
         if (this.isUseGroupLevelSettings() && compressedMatrixRep != null) {
             exSynapseSet = new HashSet<Synapse>();
             inSynapseSet = new HashSet<Synapse>();
+            targetIndexDirty = true;
             GroupDeserializer.reconstructCompressedSynapseStrengths(
                     this.compressedMatrixRep, this);
             this.compressedMatrixRep = null;
@@ -1978,6 +2519,7 @@ public class SynapseGroup extends Group {
         } else if (fullSynapseRep != null) {
             exSynapseSet = new HashSet<Synapse>();
             inSynapseSet = new HashSet<Synapse>();
+            targetIndexDirty = true;
             Map<Integer, Neuron> srcMap = new HashMap<Integer, Neuron>(
                     (int) (sourceNeuronGroup.size() / 0.75));
             Map<Integer, Neuron> tarMap = new HashMap<Integer, Neuron>(
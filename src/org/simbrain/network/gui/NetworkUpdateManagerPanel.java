@@ -27,12 +27,15 @@ import java.io.File;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.BorderFactory;
+import javax.swing.JCheckBox;
 import javax.swing.DefaultListModel;
 import javax.swing.DropMode;
 import javax.swing.JButton;
 import javax.swing.JComponent;
+import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JList;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.KeyStroke;
@@ -43,9 +46,12 @@ import org.simbrain.network.core.Network;
 import org.simbrain.network.core.NetworkUpdateAction;
 import org.simbrain.network.core.NetworkUpdateManager.UpdateManagerListener;
 import org.simbrain.network.update_actions.CustomUpdate;
+import org.simbrain.network.update_actions.UpdateGroup;
 import org.simbrain.resource.ResourceManager;
 import org.simbrain.util.StandardDialog;
 import org.simbrain.util.Utils;
+import org.simbrain.util.propertyeditor.gui.ReflectivePropertyEditor;
+import org.simbrain.util.profiling.ProfilerPanel;
 import org.simbrain.util.scripteditor.ScriptEditor;
 import org.simbrain.util.widgets.ShowHelpAction;
 
@@ -170,6 +176,12 @@ public class NetworkUpdateManagerPanel extends JPanel {
             }
         });
         buttonPanel.add(downFullButton);
+        JButton profileButton = new JButton("Profile...");
+        profileButton.setToolTipText(
+                "Show the time spent in each update action and listener");
+        profileButton.addActionListener(
+                e -> ProfilerPanel.showDialog(profileButton));
+        buttonPanel.add(profileButton);
 
         add(buttonPanel, BorderLayout.SOUTH);
 
@@ -242,13 +254,16 @@ public class NetworkUpdateManagerPanel extends JPanel {
             public void mouseClicked(MouseEvent e) {
                 if (e.getClickCount() == 2) {
 
-                    // When double clicking on custom actions open an editor
+                    // When double clicking on custom actions open an editor,
+                    // and on group actions edit their update schedule
                     NetworkUpdateAction action = (NetworkUpdateAction) currentActionJList
                             .getModel().getElementAt(
                                     currentActionJList.locationToIndex(e
                                             .getPoint()));
                     if (action instanceof CustomUpdate) {
                         openScriptEditorPanel((CustomUpdate) action);
+                    } else if (action instanceof UpdateGroup) {
+                        openScheduleEditor((UpdateGroup) action);
                     }
                 }
 
@@ -256,6 +271,24 @@ public class NetworkUpdateManagerPanel extends JPanel {
         });
     }
 
+    /**
+     * Edit the update period, offset and time step multiplier of a group
+     * update action.
+     *
+     * @param action the action
+     */
+    private void openScheduleEditor(UpdateGroup action) {
+        ReflectivePropertyEditor editor = new ReflectivePropertyEditor();
+        editor.setUseSuperclass(false);
+        editor.setObject(action);
+        JDialog dialog = editor.getDialog();
+        dialog.setTitle("Update " + action.getGroup().getLabel());
+        dialog.pack();
+        dialog.setLocationRelativeTo(null);
+        dialog.setVisible(true);
+        currentActionJList.repaint();
+    }
+
     /**
      * Open the script editor panel with appropriate defaults.
      *
@@ -265,16 +298,48 @@ public class NetworkUpdateManagerPanel extends JPanel {
         ScriptEditor panel = new ScriptEditor(
                 ((CustomUpdate) action).getScriptString(), SCRIPT_DIR);
         StandardDialog dialog = panel.getDialog(panel);
+        JCheckBox compileBox = addCompileOption(dialog, action.isCompiled());
         dialog.pack();
         dialog.setLocationRelativeTo(null);
         dialog.setVisible(true);
         if (!dialog.hasUserCancelled()) {
             ((CustomUpdate) action).setScriptString(panel.getTextArea()
                     .getText());
+            action.setCompiled(compileBox.isSelected());
             ((CustomUpdate) action).init();
+            showCompileErrors(action);
+        }
+    }
+
+    /**
+     * Tell the user why a script they asked to compile was not compiled.
+     *
+     * @param action the action whose script was just initialized
+     */
+    private void showCompileErrors(CustomUpdate action) {
+        if (action.getCompileErrors() != null) {
+            JOptionPane.showMessageDialog(this, action.getCompileErrors(),
+                    "Script not compiled", JOptionPane.WARNING_MESSAGE);
         }
     }
 
+    /**
+     * Add a check box to a script editor dialog for choosing whether the
+     * script is compiled.
+     *
+     * @param dialog the script editor dialog
+     * @param selected initial state of the check box
+     * @return the check box
+     */
+    private JCheckBox addCompileOption(StandardDialog dialog, boolean selected) {
+        JCheckBox compileBox = new JCheckBox("Compile as Java", selected);
+        compileBox.setToolTipText("<html>Compile the script so it runs faster."
+                + "<br>The script must be valid Java, and Simbrain must be run"
+                + " with a JDK.</html>");
+        dialog.getContentPane().add(compileBox, "South");
+        return compileBox;
+    }
+
     /** Action which deletes selected actions. */
     Action deleteActionsAction = new AbstractAction() {
         // Initialize
@@ -327,12 +392,14 @@ public class NetworkUpdateManagerPanel extends JPanel {
             // being saved. Forces "save as"
             // if save button pressed.
             panel.setScriptFile(null);
+            JCheckBox compileBox = addCompileOption(dialog, false);
             dialog.pack();
             dialog.setLocationRelativeTo(null);
             dialog.setVisible(true);
             if (!dialog.hasUserCancelled()) {
                 CustomUpdate updateAction = new CustomUpdate(network, panel
-                        .getTextArea().getText());
+                        .getTextArea().getText(), compileBox.isSelected());
+                showCompileErrors(updateAction);
                 network.getUpdateManager().addAction(updateAction);
             }
 
@@ -228,6 +228,18 @@ public class WeightMatrixViewer extends SimbrainJTableScrollPanel {
             return getValueAt(row, col+1);
         }
 
+        @Override
+        public void setLogicalDouble(int row, int column, double value,
+                boolean fireEvent) {
+            setValue(row, column + 1, value, fireEvent);
+        }
+
+        @Override
+        public double getLogicalDoubleAt(int row, int col) {
+            Double value = getValueAt(row, col + 1);
+            return value == null ? 0 : value;
+        }
+
 
 
     }
@@ -34,11 +34,13 @@ import javax.swing.JPanel;
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.core.NeuronUpdateRule;
 import org.simbrain.network.gui.NetworkUtils;
+import org.simbrain.network.neuron_update_rules.interfaces.IntegratedUpdateRule;
 import org.simbrain.network.neuron_update_rules.interfaces.NoisyUpdateRule;
 import org.simbrain.util.ParameterGetter;
 import org.simbrain.util.ParameterSetter;
 import org.simbrain.util.SimbrainConstants;
 import org.simbrain.util.Utils;
+import org.simbrain.util.math.ODEIntegrator;
 import org.simbrain.util.randomizer.Randomizer;
 import org.simbrain.util.widgets.ChoicesWithNull;
 import org.simbrain.util.widgets.YesNoNull;
@@ -75,6 +77,12 @@ public abstract class AbstractNeuronRulePanel extends JPanel {
     /** Drop-down to turn noise on, for noisy update rules. */
     private YesNoNull addNoise;
 
+    /** Integration method for rules integrating differential equations. */
+    private ChoicesWithNull integrator;
+
+    /** Adaptive integration error tolerance. */
+    private JFormattedTextField integrationTolerance;
+
     /**
      * A flag used to indicate whether this panel will be replacing neuron
      * update rules or simply writing to them.
@@ -538,4 +546,43 @@ public abstract class AbstractNeuronRulePanel extends JPanel {
         return addNoise;
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Get the drop-down for the integration method of a rule that implements
+     * {@link IntegratedUpdateRule}.
+     *
+     * @return the dropdown
+     */
+    public ChoicesWithNull getIntegrator() {
+        if (integrator == null) {
+            integrator = createDropDown(
+                    (r) -> ((IntegratedUpdateRule) r).getIntegrator()
+                            .ordinal(),
+                    (r, val) -> ((IntegratedUpdateRule) r).setIntegrator(
+                            ODEIntegrator.values()[val]));
+            String[] names = new String[ODEIntegrator.values().length];
+            for (ODEIntegrator method : ODEIntegrator.values()) {
+                names[method.ordinal()] = method.toString();
+            }
+            integrator.setItems(names);
+        }
+        return integrator;
+    }
+
+    /**
+     * Get the text field for the adaptive integration error tolerance of a
+     * rule that implements {@link IntegratedUpdateRule}.
+     *
+     * @return the text field
+     */
+    public JFormattedTextField getIntegrationTolerance() {
+        if (integrationTolerance == null) {
+            integrationTolerance = createTextField(
+                    (r) -> ((IntegratedUpdateRule) r)
+                            .getIntegrationTolerance(),
+                    (r, val) -> ((IntegratedUpdateRule) r)
+                            .setIntegrationTolerance(val));
+        }
+        return integrationTolerance;
+    }
+}
@@ -50,6 +50,9 @@ public abstract class AbstractSigmoidalRulePanel
     /** Slope field. */
     protected JTextField tfSlope;
 
+    /** Whether to use the approximate squashing functions. */
+    protected YesNoNull fastMath;
+
     /** Tabbed pane. */
     protected JTabbedPane tabbedPane = new JTabbedPane();
 
@@ -70,6 +73,9 @@ public abstract class AbstractSigmoidalRulePanel
                 (r, val) -> ((AbstractSigmoidalRule) r).setSlope((double) val));
         tfBias = createTextField((r) -> ((AbstractSigmoidalRule) r).getBias(),
                 (r, val) -> ((AbstractSigmoidalRule) r).setBias((double) val));
+        fastMath = createYesNoChoiceBox(
+                (r) -> ((AbstractSigmoidalRule) r).isFastMath(),
+                (r, val) -> ((AbstractSigmoidalRule) r).setFastMath(val));
     }
 
     /**
@@ -82,6 +82,8 @@ public class AdExIFRulePanel extends AbstractNeuronRulePanel {
         mainTab.addItem("Background Current (nA)", tfBgCurrent);
         mainTab.addItem("Slope Factor", tfSlopeFactor);
         mainTab.addItem("Add noise", this.getAddNoise());
+        mainTab.addItem("Integrator", getIntegrator());
+        mainTab.addItem("Integration tolerance", getIntegrationTolerance());
         currentTab.addItem("Leak Conductance (nS)", tfGL);
         currentTab.addItem("Max Ex. Conductance (nS)", tfGeBar);
         currentTab.addItem("Max In. Conductance (nS)", tfGiBar);
@@ -61,6 +61,7 @@ public class ContinuousSigmoidalRulePanel extends AbstractSigmoidalRulePanel {
         mainTab.addItem("Leak Constant", tfLeakConstant);
         mainTab.addItem("Bias", tfBias);
         mainTab.addItem("Slope", tfSlope);
+        mainTab.addItem("Fast Math", fastMath);
         mainTab.addItem("Add Noise", getAddNoise());
         tabbedPane.add(mainTab, "Main");
         tabbedPane.add(getNoisePanel(), "Noise");
@@ -45,6 +45,7 @@ public class DiscreteSigmoidalRulePanel extends AbstractSigmoidalRulePanel {
         mainTab.addItem("Implementation", cbImplementation);
         mainTab.addItem("Bias", tfBias);
         mainTab.addItem("Slope", tfSlope);
+        mainTab.addItem("Fast Math", fastMath);
         mainTab.addItem("Add Noise", getAddNoise());
         tabbedPane.add(mainTab, "Main");
         tabbedPane.add(getNoisePanel(), "Noise");
@@ -61,6 +61,8 @@ public class FitzhughNagumoRulePanel extends AbstractNeuronRulePanel {
         mainTab.addItem("Background Current (nA)", tfIbg);
         mainTab.addItem("Spike threshold", tfThreshold);
         mainTab.addItem("Add noise: ", getAddNoise());
+        mainTab.addItem("Integrator", getIntegrator());
+        mainTab.addItem("Integration tolerance", getIntegrationTolerance());
         tabbedPane.add(mainTab, "Properties");
         
         tabbedPane.add(this.getNoisePanel(), "Noise");
@@ -78,6 +78,8 @@ public class HodgkinHuxleyRulePanel extends AbstractNeuronRulePanel {
         mainTab.addItem("Sodium Equilibrium", getEna);
         mainTab.addItem("Potassium Equilibrium", getEk);
         mainTab.addItem("Add noise", getAddNoise());
+        mainTab.addItem("Integrator", getIntegrator());
+        mainTab.addItem("Integration tolerance", getIntegrationTolerance());
         tabbedPane.add(mainTab, "Main");
 
         tabbedPane.add(getNoisePanel(), "Noise");
@@ -64,6 +64,8 @@ public class IzhikevichRulePanel extends AbstractNeuronRulePanel {
         mainTab.addItem("D", tfD);
         mainTab.addItem("Ibg", tfIBg);
         mainTab.addItem("Add noise", getAddNoise());
+        mainTab.addItem("Integrator", getIntegrator());
+        mainTab.addItem("Integration tolerance", getIntegrationTolerance());
         tabbedPane.add(mainTab, "Main");
         tabbedPane.add(getNoisePanel(), "Noise");
         this.addBottomText("<html>For a list of useful parameter settings<p>"
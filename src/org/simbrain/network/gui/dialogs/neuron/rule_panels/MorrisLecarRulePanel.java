@@ -72,6 +72,8 @@ public class MorrisLecarRulePanel extends AbstractNeuronRulePanel {
         cellPanel.addItem("Threshold (mV)", tfThreshold);
         cellPanel.addItem("Background current (nA)", tfI_Bg);
         cellPanel.addItem("Add noise: ", getAddNoise());
+        cellPanel.addItem("Integrator", getIntegrator());
+        cellPanel.addItem("Integration tolerance", getIntegrationTolerance());
 
         JTextField tfG_Ca = createTextField(
                 (r) -> ((MorrisLecarRule) r).getG_Ca(),
@@ -45,6 +45,7 @@ import org.simbrain.network.synapse_update_rules.STDPRule;
 import org.simbrain.network.synapse_update_rules.ShortTermPlasticityRule;
 import org.simbrain.network.synapse_update_rules.StaticSynapseRule;
 import org.simbrain.network.synapse_update_rules.SubtractiveNormalizationRule;
+import org.simbrain.network.synapse_update_rules.TraceSTDPRule;
 import org.simbrain.util.LabelledItemPanel;
 
 /**
@@ -76,6 +77,8 @@ public abstract class AbstractSynapseRulePanel extends JPanel {
         //RULE_MAP.put(new ShortTermPlasticityRule().getDescription(),
         //    new ShortTermPlasticityRulePanel());
         RULE_MAP.put(new STDPRule().getName(), new STDPRulePanel());
+        RULE_MAP.put(new TraceSTDPRule().getName(),
+            new STDPRulePanel(new TraceSTDPRule()));
         RULE_MAP.put(new SubtractiveNormalizationRule().getName(),
             new SubtractiveNormalizationRulePanel());
     }
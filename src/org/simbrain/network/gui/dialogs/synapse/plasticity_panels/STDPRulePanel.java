@@ -53,12 +53,22 @@ public class STDPRulePanel extends AbstractSynapseRulePanel {
     private final JTextField tfLearningRate = new JTextField();
 
     /** Synapse reference. */
-    private static final STDPRule prototypeRule = new STDPRule();
+    private final STDPRule prototypeRule;
 
     /**
      * Creates a short term plasticity synapse panel.
      */
     public STDPRulePanel() {
+        this(new STDPRule());
+    }
+
+    /**
+     * Creates a panel for a variant of STDP with the same parameters.
+     *
+     * @param prototypeRule the rule copied into synapses this panel edits
+     */
+    public STDPRulePanel(final STDPRule prototypeRule) {
+        this.prototypeRule = prototypeRule;
         this.addItem("Tau minus", tfTauMinus);
         this.addItem("Tau plus", tfTauPlus);
         this.addItem("W+", tfWPlus);
@@ -71,7 +81,7 @@ public class STDPRulePanel extends AbstractSynapseRulePanel {
      */
     @Override
     public STDPRulePanel deepCopy() {
-        STDPRulePanel copy = new STDPRulePanel();
+        STDPRulePanel copy = new STDPRulePanel(prototypeRule);
         copy.tfTauMinus.setText(tfTauMinus.getText());
         copy.tfTauPlus.setText(tfTauPlus.getText());
         copy.tfWMinus.setText(tfWMinus.getText());
@@ -148,7 +158,8 @@ public class STDPRulePanel extends AbstractSynapseRulePanel {
     @Override
     public void commitChanges(final Synapse synapse) {
 
-        if (!(synapse.getLearningRule() instanceof STDPRule)) {
+        if (synapse.getLearningRule().getClass() != prototypeRule
+            .getClass()) {
             synapse.setLearningRule(prototypeRule.deepCopy());
         }
 
@@ -23,6 +23,7 @@ import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -52,6 +53,7 @@ import org.simbrain.resource.ResourceManager;
 import org.simbrain.util.SFileChooser;
 import org.simbrain.util.StandardDialog;
 import org.simbrain.util.Utils;
+import org.simbrain.util.math.MappedDataMatrix;
 import org.simbrain.util.math.NumericMatrix;
 import org.simbrain.util.math.SimbrainMath;
 
@@ -411,6 +413,28 @@ public class NeuronGroupNode extends PNode implements GroupNode, PropertyChangeL
 		};
 		menu.add(recordingAction);
 
+		Action streamInputsAction = new AbstractAction(
+				"Stream Inputs From File...") {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				SFileChooser chooser = new SFileChooser(".",
+						"binary data (sbmd)", "sbmd");
+				chooser.addExtension("comma-separated-values (csv)", "csv");
+				File theFile = chooser.showOpenDialog();
+				if (theFile == null) {
+					return;
+				}
+				try {
+					neuronGroup.setInputSource(MappedDataMatrix.open(theFile));
+					neuronGroup.setInputMode(true);
+				} catch (IOException | IllegalArgumentException ex) {
+					JOptionPane.showMessageDialog(null, ex.getMessage(),
+							"Could not read inputs", JOptionPane.ERROR_MESSAGE);
+				}
+			}
+		};
+		menu.add(streamInputsAction);
+
 		// Add the menu
 		return menu;
 	}
@@ -33,6 +33,7 @@ import org.simbrain.network.gui.trainer.IterativeTrainingPanel;
 import org.simbrain.network.gui.trainer.TrainerGuiActions;
 import org.simbrain.network.subnetworks.BPTTNetwork;
 import org.simbrain.network.trainers.BPTTTrainer;
+import org.simbrain.network.trainers.TruncatedBPTTTrainer;
 import org.simbrain.resource.ResourceManager;
 
 /**
@@ -63,6 +64,7 @@ public class BPTTNode extends SubnetworkNode {
         JPopupMenu menu = super.getDefaultContextMenu();
         menu.addSeparator();
         menu.add(new JMenuItem(trainAction));
+        menu.add(new JMenuItem(truncatedTrainAction));
         menu.addSeparator();
         JMenu dataActions = new JMenu("View / Edit Data");
         dataActions.add(TrainerGuiActions.getEditCombinedDataAction(
@@ -102,4 +104,29 @@ public class BPTTNode extends SubnetworkNode {
         }
     };
 
-}
\ No newline at end of file
+    /**
+     * Action to train with truncated backprop through time.
+     */
+    private Action truncatedTrainAction = new AbstractAction() {
+
+        // Initialize
+        {
+            putValue(SMALL_ICON, ResourceManager.getImageIcon("Trainer.png"));
+            putValue(NAME, "Train using truncated backprop through time...");
+            putValue(SHORT_DESCRIPTION,
+                "Train using truncated backprop through time on arrays "
+                    + "(fast, for long sequences)...");
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent arg0) {
+            BPTTNetwork network = (BPTTNetwork) getSubnetwork();
+            IterativeTrainingPanel trainingPanel = new IterativeTrainingPanel(
+                getNetworkPanel(), new TruncatedBPTTTrainer(network));
+            JDialog frame = getNetworkPanel().displayPanelInWindow(
+                trainingPanel, "Trainer");
+            trainingPanel.setFrame(frame);
+        }
+    };
+
+}
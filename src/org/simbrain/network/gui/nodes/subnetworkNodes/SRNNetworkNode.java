@@ -33,6 +33,7 @@ import org.simbrain.network.gui.trainer.IterativeTrainingPanel;
 import org.simbrain.network.gui.trainer.TrainerGuiActions;
 import org.simbrain.network.subnetworks.SimpleRecurrentNetwork;
 import org.simbrain.network.trainers.SRNTrainer;
+import org.simbrain.network.trainers.TruncatedBPTTTrainer;
 import org.simbrain.resource.ResourceManager;
 import org.simbrain.util.StandardDialog;
 
@@ -73,6 +74,8 @@ public class SRNNetworkNode extends SubnetworkNode {
         menu.addSeparator();
         menu.add(clearAction);
         menu.addSeparator();
+        menu.add(truncatedTrainAction);
+        menu.addSeparator();
         final SimpleRecurrentNetwork network =
             (SimpleRecurrentNetwork) getSubnetwork();
         JMenu dataActions = new JMenu("View / Edit Data");
@@ -137,4 +140,31 @@ public class SRNNetworkNode extends SubnetworkNode {
         }
     };
 
-}
\ No newline at end of file
+    /**
+     * Action to train with truncated backprop through time.
+     */
+    private Action truncatedTrainAction = new AbstractAction() {
+
+        // Initialize
+        {
+            putValue(SMALL_ICON, ResourceManager.getImageIcon("Trainer.png"));
+            putValue(NAME, "Train using truncated backprop through time...");
+            putValue(SHORT_DESCRIPTION,
+                "Train using truncated backprop through time on arrays "
+                    + "(fast, for long sequences)...");
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent arg0) {
+            SimpleRecurrentNetwork network =
+                (SimpleRecurrentNetwork) getSubnetwork();
+            IterativeTrainingPanel trainingPanel = new IterativeTrainingPanel(
+                getNetworkPanel(), new TruncatedBPTTTrainer(network));
+            JDialog frame =
+                getNetworkPanel().displayPanelInWindow(trainingPanel,
+                    "Trainer");
+            trainingPanel.setFrame(frame);
+        }
+    };
+
+}
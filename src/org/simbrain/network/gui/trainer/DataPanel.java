@@ -186,6 +186,15 @@ public class DataPanel extends JPanel implements EditablePanel {
         this.parentFrame = parentFrame;
     }
 
+    /**
+     * Add a toolbar after the panel's own toolbars.
+     *
+     * @param toolbar the toolbar to add
+     */
+    public void addToolbar(JToolBar toolbar) {
+        toolbars.add(toolbar);
+    }
+
     /**
      * @return the scroller
      */
@@ -33,6 +33,7 @@ import javax.swing.JPanel;
 import javax.swing.JProgressBar;
 import javax.swing.JSeparator;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 
 import org.simbrain.network.gui.NetworkPanel;
 import org.simbrain.network.trainers.ErrorListener;
@@ -70,7 +71,7 @@ public class IterativeControlsPanel extends JPanel {
     private JProgressBar errorBar;
 
     /** Validation progress bar. */
-    // private JProgressBar validationBar;
+    private JProgressBar validationBar;
 
     /** Number of "ticks" in progress bars. */
     private int numTicks = 1000;
@@ -145,9 +146,10 @@ public class IterativeControlsPanel extends JPanel {
         errorBar.setStringPainted(true);
         // errorBar.setMinimumSize(new Dimension(200,100));
         labelPanel.addItem("Error:", errorBar);
-        // validationBar = new JProgressBar(0, numTicks);
-        // validationBar.setStringPainted(true);
-        // labelPanel.addItem("Validation Error:", validationBar);
+        validationBar = new JProgressBar(0, numTicks);
+        validationBar.setStringPainted(true);
+        validationBar.setString("---");
+        labelPanel.addItem("Validation Error:", validationBar);
         propsBox.add(labelPanel);
 
         // Separator
@@ -189,9 +191,17 @@ public class IterativeControlsPanel extends JPanel {
      */
     private void updateError() {
         errorBar.setValue((int) (numTicks * trainer.getError()));
-        // validationBar.setValue((int) (numTicks * trainer.getError()));
         errorBar.setString("" + Utils.round(trainer.getError(), 4));
-        // validationBar.setString("" + Utils.round(trainer.getError(), 4));
+        double validationError = trainer.getValidationError();
+        if (Double.isNaN(validationError)) {
+            validationBar.setValue(0);
+            validationBar.setString("---");
+        } else {
+            validationBar.setValue((int) (numTicks * validationError));
+            validationBar.setString("" + Utils.round(validationError, 4)
+                    + " (best " + Utils.round(
+                            trainer.getBestValidationError(), 4) + ")");
+        }
     }
 
     /**
@@ -260,6 +270,10 @@ public class IterativeControlsPanel extends JPanel {
                                     JOptionPane.WARNING_MESSAGE, null, null,
                                     null);
                         }
+                        // Training may stop itself, e.g. early stopping
+                        trainer.revalidateSynapseGroups();
+                        SwingUtilities.invokeLater(() -> putValue(SMALL_ICON,
+                                ResourceManager.getImageIcon("Play.png")));
                     }
                 });
             } else {
@@ -328,6 +342,7 @@ public class IterativeControlsPanel extends JPanel {
             initTrainer(true);
             if (trainer != null) {
                 trainer.randomize();
+                trainer.resetValidation();
                 panel.getNetwork().fireGroupUpdated(
                         trainer.getTrainableNetwork().getNetwork());
             }
@@ -358,7 +373,8 @@ public class IterativeControlsPanel extends JPanel {
             // TODO: un-exclude once those features are implemented!
             editor.setExcludeList(new String[] { "iteration",
                     "updateCompleted", "stoppingCond", "stoppingCondition",
-                    "iterationsBeforeStopping", "errorThreshold" });
+                    "iterationsBeforeStopping", "errorThreshold",
+                    "validationErrorThreshold" });
             editor.setObject(trainer);
             JDialog dialog = editor.getDialog();
             dialog.setModal(true);
@@ -15,6 +15,7 @@ package org.simbrain.network.gui.trainer;
 
 import java.awt.event.ActionEvent;
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 import javax.swing.AbstractAction;
@@ -32,6 +33,7 @@ import org.simbrain.resource.ResourceManager;
 import org.simbrain.util.SFileChooser;
 import org.simbrain.util.SimbrainPreferences;
 import org.simbrain.util.SimbrainPreferences.PropertyNotFoundException;
+import org.simbrain.util.math.MappedDataMatrix;
 import org.simbrain.util.math.NumericMatrix;
 import org.simbrain.util.propertyeditor.gui.ReflectivePropertyEditor;
 import org.simbrain.util.table.NumericTable;
@@ -118,6 +120,67 @@ public class TrainerGuiActions {
         };
     }
 
+    /**
+     * Action for streaming a trainable object's input or target data from a
+     * file. The file is memory mapped rather than read into the data table, so
+     * it need not fit in memory. Csv files are first converted to the binary
+     * format, next to the original.
+     *
+     * @param trainable the trainable object whose training set is streamed
+     * @param inputs true to stream input data, false to stream target data
+     * @return the action
+     */
+    public static Action getStreamDataAction(final Trainable trainable,
+        final boolean inputs) {
+        return new AbstractAction() {
+
+            // Initialize
+            {
+                putValue(SMALL_ICON, ResourceManager.getImageIcon("Open.png"));
+                putValue(NAME, "Stream data from file (.sbmd, .csv)");
+                putValue(SHORT_DESCRIPTION, "Stream data from file...");
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            public void actionPerformed(ActionEvent arg0) {
+                SFileChooser chooser = new SFileChooser(getDataDirectory(),
+                    "binary data (sbmd)", "sbmd");
+                chooser.addExtension("comma-separated-values (csv)", "csv");
+                File theFile = chooser.showOpenDialog();
+                if (theFile == null) {
+                    return;
+                }
+                setDataDirectory(chooser.getCurrentLocation());
+                List<Neuron> neurons = inputs ? trainable.getInputNeurons()
+                    : trainable.getOutputNeurons();
+                try {
+                    MappedDataMatrix data = MappedDataMatrix.open(theFile);
+                    if (data.getNumColumns() != neurons.size()) {
+                        data.close();
+                        throw new IOException(theFile.getName() + " has "
+                            + data.getNumColumns() + " columns, expected "
+                            + neurons.size());
+                    }
+                    if (inputs) {
+                        trainable.getTrainingSet().setInputSource(data);
+                    } else {
+                        trainable.getTrainingSet().setTargetSource(data);
+                    }
+                    JOptionPane.showMessageDialog(null, "Streaming "
+                        + data.getNumRows() + " rows from "
+                        + data.getFile().getName(), "Data streamed",
+                        JOptionPane.INFORMATION_MESSAGE);
+                } catch (IOException e) {
+                    JOptionPane.showMessageDialog(null, e.getMessage(),
+                        "Could not read data", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+
+        };
+    }
+
     /**
      * Sets the current data directory in user preferences (memory for file
      * chooser).
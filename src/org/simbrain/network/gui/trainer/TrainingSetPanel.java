@@ -22,9 +22,12 @@ import java.util.List;
 import javax.swing.BorderFactory;
 import javax.swing.JPanel;
 import javax.swing.JSplitPane;
+import javax.swing.JToolBar;
 
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.trainers.Trainable;
+import org.simbrain.network.trainers.TrainingSet;
+import org.simbrain.util.math.MappedDataMatrix;
 import org.simbrain.util.math.NumericMatrix;
 import org.simbrain.util.widgets.EditablePanel;
 
@@ -62,6 +65,27 @@ public class TrainingSetPanel extends JPanel implements EditablePanel {
             numVisibleColumnsPerTable, "Target data");
         init();
 
+        // Streamed data is only previewed, so say how much there is
+        TrainingSet trainingSet = trainable.getTrainingSet();
+        if (trainingSet.getInputSource() != null) {
+            inputPanel.setBorder(BorderFactory.createTitledBorder(getTitle(
+                "Input data", trainingSet.getInputSource())));
+        }
+        if (trainingSet.getTargetSource() != null) {
+            targetPanel.setBorder(BorderFactory.createTitledBorder(getTitle(
+                "Target data", trainingSet.getTargetSource())));
+        }
+
+        // Large data sets can be streamed from files instead of the tables
+        JToolBar inputStreamToolBar = new JToolBar();
+        inputStreamToolBar.add(TrainerGuiActions.getStreamDataAction(
+            trainable, true));
+        inputPanel.addToolbar(inputStreamToolBar);
+        JToolBar targetStreamToolBar = new JToolBar();
+        targetStreamToolBar.add(TrainerGuiActions.getStreamDataAction(
+            trainable, false));
+        targetPanel.addToolbar(targetStreamToolBar);
+
     }
 
     /**
@@ -86,6 +110,20 @@ public class TrainingSetPanel extends JPanel implements EditablePanel {
         init();
     }
 
+    /**
+     * Returns a panel title summarizing streamed data.
+     *
+     * @param name the name of the data
+     * @param source the mapped data
+     * @return the title
+     */
+    private static String getTitle(String name, MappedDataMatrix source) {
+        return name + " (first "
+            + Math.min(TrainingSet.PREVIEW_ROWS, source.getNumRows()) + " of "
+            + source.getNumRows() + " rows from " + source.getFile().getName()
+            + ")";
+    }
+
     /**
      * Initialize the panel.
      */
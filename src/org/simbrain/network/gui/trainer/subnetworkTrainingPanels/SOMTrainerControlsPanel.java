@@ -25,6 +25,7 @@ import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.Box;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
@@ -99,6 +100,15 @@ public class SOMTrainerControlsPanel extends JPanel {
         runTools.add(randomizeButton);
         propsBox.add(runTools);
 
+        // Training algorithm
+        final JCheckBox batchBox = new JCheckBox("Batch SOM");
+        batchBox.setToolTipText("Run batch-SOM epochs over the whole data set"
+                + " instead of online updates");
+        batchBox.setSelected(trainer.isBatchMode());
+        batchBox.addActionListener(e -> trainer.setBatchMode(batchBox
+                .isSelected()));
+        propsBox.add(batchBox);
+
         // Separator
         JSeparator separator = new JSeparator(SwingConstants.HORIZONTAL);
         propsBox.add(separator);
@@ -76,6 +76,12 @@ public abstract class AbstractSigmoidalRule extends NeuronUpdateRule implements
     /** The lower bound of the activity if clipping is used. */
     protected double lowerBound = DEFAULT_LOWER_BOUND;
 
+    /**
+     * Whether to use the approximate squashing functions (see
+     * {@link SquashingFunction#fastValueOf(double, double, double, double)}).
+     */
+    protected boolean fastMath;
+
     /**
      * 
      */
@@ -178,6 +184,24 @@ public abstract class AbstractSigmoidalRule extends NeuronUpdateRule implements
         this.addNoise = addNoise;
     }
 
+    /**
+     * @return whether the approximate squashing functions are used
+     */
+    public boolean isFastMath() {
+        return fastMath;
+    }
+
+    /**
+     * Use approximations of the squashing function and its derivative, which
+     * avoid calls to exp, tanh and atan and are accurate to about 1e-8 of the
+     * output range.
+     *
+     * @param fastMath whether to use the approximate squashing functions
+     */
+    public void setFastMath(final boolean fastMath) {
+        this.fastMath = fastMath;
+    }
+
     /**
      * Copy the overlapping bits of the rule for subclasses.
      * 
@@ -190,6 +214,7 @@ public abstract class AbstractSigmoidalRule extends NeuronUpdateRule implements
         sr.setSquashFunctionType(getSquashFunctionType());
         sr.setSlope(getSlope());
         sr.setAddNoise(getAddNoise());
+        sr.setFastMath(isFastMath());
         sr.noiseGenerator = new Randomizer(noiseGenerator);
         return sr;
     }
@@ -22,7 +22,10 @@ import org.simbrain.network.core.Neuron;
 import org.simbrain.network.core.NeuronUpdateRule;
 import org.simbrain.network.core.SpikingNeuronUpdateRule;
 import org.simbrain.network.core.Network.TimeType;
+import org.simbrain.network.neuron_update_rules.interfaces.IntegratedUpdateRule;
 import org.simbrain.network.neuron_update_rules.interfaces.NoisyUpdateRule;
+import org.simbrain.util.math.ODEIntegrator;
+import org.simbrain.util.math.ODESystem;
 import org.simbrain.util.randomizer.Randomizer;
 
 /**
@@ -37,7 +40,7 @@ import org.simbrain.util.randomizer.Randomizer;
  *
  */
 public class AdExIFRule extends SpikingNeuronUpdateRule implements
-		NoisyUpdateRule {
+		NoisyUpdateRule, IntegratedUpdateRule {
 
     /**
      * A converter from pA to nA, since most other sims in Simbrain use
@@ -120,6 +123,15 @@ public class AdExIFRule extends SpikingNeuronUpdateRule implements
 	 */
 	private double refractoryPeriod = 1.0;
 
+	/** Method used to integrate membrane potential and adaptation. */
+	private ODEIntegrator integrator = ODEIntegrator.EULER;
+
+	/** Error tolerance for adaptive integration. */
+	private double integrationTolerance = ODEIntegrator.DEFAULT_TOLERANCE;
+
+	/** The equations, created on first update. */
+	private transient Equations equations;
+
 	@Override
 	public void update(Neuron neuron) {
 		if (v_mem >= v_Peak) {
@@ -143,37 +155,27 @@ public class AdExIFRule extends SpikingNeuronUpdateRule implements
 		// Retrieve incoming ex/in currents or proportion of open channels
 		double[] ei = inputType.getSeparatedInput(neuron);
 
-		// Calculate incoming excitatory and inhibitory voltage changes
-		double iSyn_ex = g_e_bar * ei[0] * (exReversal - v_mem);
-		double iSyn_in = -g_i_bar * ei[1] * (inReversal - v_mem);
-
-		// Calculate voltage changes due to leak
-		double i_leak = g_L * (leakReversal - v_mem);
 		double ibg = i_bg;
-		
-		
+
         // Add noise if there is any to be added
         if (addNoise) {
             ibg += noiseGenerator.getRandom();
         }
-		
-        // Calc dV/dt for membrane potential
-        double dVdt = (g_L * slopeFactor * Math.exp((v_mem - v_Th)
-                / slopeFactor))
-                + i_leak + iSyn_ex + iSyn_in + ibg - w;
 
-
-
-		// Factor in membane capacitance...
-		dVdt /= memCapacitance;
-
-		// Calculate adaptation change
-		double dwdt = (a * (v_mem - leakReversal) - w) / tauW;
-
-		// Integrate membrane potential and adaptation parameter using
-		// Euler integration
-		v_mem += (dVdt * dt);
-		w += (dwdt * dt);
+		// Integrate membrane potential and adaptation parameter, holding
+		// the synaptic conductances and background current for the step
+		if (equations == null) {
+			equations = new Equations();
+		}
+		equations.g_ex = g_e_bar * ei[0];
+		equations.g_in = g_i_bar * ei[1];
+		equations.i_in = ibg;
+		equations.state[0] = v_mem;
+		equations.state[1] = w;
+		getIntegrator().integrate(equations, equations.state, dt,
+				getIntegrationTolerance(), equations.workspace);
+		v_mem = equations.state[0];
+		w = equations.state[1];
 
 		// Spike?
 		if (v_mem >= v_Peak) {
@@ -214,6 +216,8 @@ public class AdExIFRule extends SpikingNeuronUpdateRule implements
 		cpy.v_Reset = this.v_Reset;
 		cpy.v_Th = this.v_Th;
 		cpy.w = this.w;
+		cpy.setIntegrator(getIntegrator());
+		cpy.setIntegrationTolerance(getIntegrationTolerance());
 		return cpy;
 	}
 
@@ -399,4 +403,83 @@ public class AdExIFRule extends SpikingNeuronUpdateRule implements
         this.refractoryPeriod = refractoryPeriod;
     }
 
+	@Override
+	public ODEIntegrator getIntegrator() {
+		// Null in networks saved before integrators could be chosen
+		return integrator == null ? ODEIntegrator.EULER : integrator;
+	}
+
+	@Override
+	public void setIntegrator(ODEIntegrator integrator) {
+		this.integrator = integrator;
+	}
+
+	@Override
+	public double getIntegrationTolerance() {
+		return integrationTolerance > 0 ? integrationTolerance
+				: ODEIntegrator.DEFAULT_TOLERANCE;
+	}
+
+	@Override
+	public void setIntegrationTolerance(double integrationTolerance) {
+		this.integrationTolerance = integrationTolerance;
+	}
+
+	/**
+	 * The AdEx equations in membrane potential and adaptation, with synaptic
+	 * conductances and injected current held constant over a time step.
+	 */
+	private class Equations implements ODESystem {
+
+		/** Excitatory conductance (nS). */
+		private double g_ex;
+
+		/** Inhibitory conductance (nS). */
+		private double g_in;
+
+		/** Background and noise current. */
+		private double i_in;
+
+		/** Membrane potential and adaptation. */
+		private final double[] state = new double[2];
+
+		/** Integrator scratch space. */
+		private final ODEIntegrator.Workspace workspace =
+				new ODEIntegrator.Workspace();
+
+		@Override
+		public int getDimension() {
+			return 2;
+		}
+
+		@Override
+		public void computeDerivatives(double[] y, double[] dydt) {
+			double v = y[0];
+			double iSyn_ex = g_ex * (exReversal - v);
+			double iSyn_in = -g_in * (inReversal - v);
+			double i_leak = g_L * (leakReversal - v);
+			// The exponential is capped at the peak so that intermediate
+			// stages past a spike stay finite
+			double dVdt = (g_L * slopeFactor * Math.exp((Math.min(v, v_Peak)
+					- v_Th) / slopeFactor))
+					+ i_leak + iSyn_ex + iSyn_in + i_in - y[1];
+			dydt[0] = dVdt / memCapacitance;
+			dydt[1] = (a * (v - leakReversal) - y[1]) / tauW;
+		}
+
+		@Override
+		public void computeRelaxation(double[] y, double[] steadyState,
+				double[] timeConstant) {
+			steadyState[0] = 0;
+			timeConstant[0] = 0;
+			steadyState[1] = a * (y[0] - leakReversal);
+			timeConstant[1] = tauW;
+		}
+
+		@Override
+		public boolean isEventTriggered(double[] y) {
+			return y[0] >= v_Peak;
+		}
+	}
+
 }
@@ -124,8 +124,14 @@ public class ContinuousSigmoidalRule extends AbstractSigmoidalRule {
 
         netActivation = netActivation * (1 - (leak * dt / tau)) + inputTerm;
 
-        double output = sFunction.valueOf(netActivation, getUpperBound(),
-            getLowerBound(), getSlope());
+        double output;
+        if (fastMath) {
+            output = sFunction.fastValueOf(netActivation, getUpperBound(),
+                getLowerBound(), getSlope());
+        } else {
+            output = sFunction.valueOf(netActivation, getUpperBound(),
+                getLowerBound(), getSlope());
+        }
 
         neuron.setBuffer(output);
 
@@ -173,6 +179,9 @@ public class ContinuousSigmoidalRule extends AbstractSigmoidalRule {
         double up = getUpperBound();
         double lw = getLowerBound();
         double diff = up - lw;
+        if (fastMath) {
+            return sFunction.fastDerivVal(val, up, lw, diff);
+        }
         return sFunction.derivVal(val, up, lw, diff);
     }
 
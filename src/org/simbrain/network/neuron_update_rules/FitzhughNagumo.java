@@ -20,12 +20,15 @@ package org.simbrain.network.neuron_update_rules;
 
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.core.SpikingNeuronUpdateRule;
+import org.simbrain.network.neuron_update_rules.interfaces.IntegratedUpdateRule;
 import org.simbrain.network.neuron_update_rules.interfaces.NoisyUpdateRule;
+import org.simbrain.util.math.ODEIntegrator;
+import org.simbrain.util.math.ODESystem;
 import org.simbrain.util.randomizer.Randomizer;
 
 
 public class FitzhughNagumo extends SpikingNeuronUpdateRule implements
-    NoisyUpdateRule {
+    NoisyUpdateRule, IntegratedUpdateRule {
 
     /** W. - recovery variable */
     private double w;
@@ -54,6 +57,18 @@ public class FitzhughNagumo extends SpikingNeuronUpdateRule implements
     /** Recovery self-dependence. */
     private double c = 0.8;
 
+    /**
+     * Integration method. Euler is the original semi-implicit step, in which
+     * the updated recovery is used to update the membrane potential.
+     */
+    private ODEIntegrator integrator = ODEIntegrator.EULER;
+
+    /** Error tolerance for adaptive integration. */
+    private double integrationTolerance = ODEIntegrator.DEFAULT_TOLERANCE;
+
+    /** The equations, used by integrators other than Euler. */
+    private transient Equations equations;
+
     @Override
     public FitzhughNagumo deepCopy() {
         FitzhughNagumo in = new FitzhughNagumo();
@@ -65,6 +80,8 @@ public class FitzhughNagumo extends SpikingNeuronUpdateRule implements
         in.setThreshold(getThreshold());
         in.setAddNoise(getAddNoise());
         in.setNoiseGenerator(new Randomizer(noiseGenerator)); //TODO: think
+        in.setIntegrator(getIntegrator());
+        in.setIntegrationTolerance(getIntegrationTolerance());
 
         return in;
     }
@@ -83,9 +100,22 @@ public class FitzhughNagumo extends SpikingNeuronUpdateRule implements
         }
         inputs += iBg;
         v = neuron.getActivation();
-        w += (timeStep * (a*(b*v+0.7-(c*w))));
+        if (getIntegrator() == ODEIntegrator.EULER) {
+            w += (timeStep * (a*(b*v+0.7-(c*w))));
 
-        v += timeStep * (v - (v*v*v)/3 - w + inputs);
+            v += timeStep * (v - (v*v*v)/3 - w + inputs);
+        } else {
+            if (equations == null) {
+                equations = new Equations();
+            }
+            equations.input = inputs;
+            equations.state[0] = v;
+            equations.state[1] = w;
+            getIntegrator().integrate(equations, equations.state, timeStep,
+                getIntegrationTolerance(), equations.workspace);
+            v = equations.state[0];
+            w = equations.state[1];
+        }
         
        // v = activation + (timeStep * (activation - (Math.pow(activation, 3)/3) - w + inputs) );
         // You want this
@@ -210,4 +240,76 @@ public class FitzhughNagumo extends SpikingNeuronUpdateRule implements
     public void setC(double c) {
         this.c = c;
     }
-}
\ No newline at end of file
+
+    @Override
+    public ODEIntegrator getIntegrator() {
+        // Null in networks saved before integrators could be chosen
+        return integrator == null ? ODEIntegrator.EULER : integrator;
+    }
+
+    @Override
+    public void setIntegrator(ODEIntegrator integrator) {
+        this.integrator = integrator;
+    }
+
+    @Override
+    public double getIntegrationTolerance() {
+        return integrationTolerance > 0 ? integrationTolerance
+            : ODEIntegrator.DEFAULT_TOLERANCE;
+    }
+
+    @Override
+    public void setIntegrationTolerance(double integrationTolerance) {
+        this.integrationTolerance = integrationTolerance;
+    }
+
+    /**
+     * The Fitzhugh-Nagumo equations in membrane potential and recovery, with
+     * the input held constant over a time step.
+     */
+    private class Equations implements ODESystem {
+
+        /** Total input for the current time step. */
+        private double input;
+
+        /** Membrane potential and recovery. */
+        private final double[] state = new double[2];
+
+        /** Integrator scratch space. */
+        private final ODEIntegrator.Workspace workspace =
+            new ODEIntegrator.Workspace();
+
+        @Override
+        public int getDimension() {
+            return 2;
+        }
+
+        @Override
+        public void computeDerivatives(double[] y, double[] dydt) {
+            double v = y[0];
+            dydt[0] = v - (v * v * v) / 3 - y[1] + input;
+            dydt[1] = a * (b * v + 0.7 - (c * y[1]));
+        }
+
+        @Override
+        public void computeRelaxation(double[] y, double[] steadyState,
+            double[] timeConstant) {
+            steadyState[0] = 0;
+            timeConstant[0] = 0;
+            if (a * c > 0) {
+                steadyState[1] = (b * y[0] + 0.7) / c;
+                timeConstant[1] = 1 / (a * c);
+            } else {
+                steadyState[1] = 0;
+                timeConstant[1] = 0;
+            }
+        }
+
+        @Override
+        public boolean isEventTriggered(double[] y) {
+            // No reset, so no reason to stop early
+            return false;
+        }
+    }
+
+}
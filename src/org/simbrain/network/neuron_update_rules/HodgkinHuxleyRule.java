@@ -21,7 +21,10 @@ package org.simbrain.network.neuron_update_rules;
 import org.simbrain.network.core.Network.TimeType;
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.core.NeuronUpdateRule;
+import org.simbrain.network.neuron_update_rules.interfaces.IntegratedUpdateRule;
 import org.simbrain.network.neuron_update_rules.interfaces.NoisyUpdateRule;
+import org.simbrain.util.math.ODEIntegrator;
+import org.simbrain.util.math.ODESystem;
 import org.simbrain.util.randomizer.Randomizer;
 
 /**
@@ -31,7 +34,7 @@ import org.simbrain.util.randomizer.Randomizer;
  * Vickrey.
  */
 public class HodgkinHuxleyRule extends NeuronUpdateRule
-        implements NoisyUpdateRule {
+        implements NoisyUpdateRule, IntegratedUpdateRule {
 
     /** Sodium Channels */
     private float perNaChannels = 100f;
@@ -90,21 +93,32 @@ public class HodgkinHuxleyRule extends NeuronUpdateRule
     /** Add noise to the neuron. */
     private boolean addNoise = false;
 
+    /**
+     * Method used to integrate the gating variables. Since the rate
+     * constants only depend on the voltage, which is held for the time step,
+     * exponential Euler integrates them exactly.
+     */
+    private ODEIntegrator integrator = ODEIntegrator.EULER;
+
+    /** Error tolerance for adaptive integration. */
+    private double integrationTolerance = ODEIntegrator.DEFAULT_TOLERANCE;
+
+    /** The gating equations, created on first update. */
+    private transient GatingEquations equations;
+
     @Override
     public void update(Neuron neuron) {
 
         // Advances the model by dt and returns the new voltage
 
         double v = inputType.getInput(neuron);
+        double timeStep = neuron.getNetwork().getTimeStep();
         bh = 1 / (Math.exp((v + 30) / 10) + 1);
         ah = 0.07 * Math.exp(v / 20);
-        dh = (ah * (1 - h) - bh * h) * neuron.getNetwork().getTimeStep();
         bm = 4 * Math.exp(v / 18);
         am = 0.1 * (v + 25) / (Math.exp((v + 25) / 10) - 1);
         bn = 0.125 * Math.exp(v / 80);
         an = 0.01 * (v + 10) / (Math.exp((v + 10) / 10) - 1);
-        dm = (am * (1 - m) - bm * m) * neuron.getNetwork().getTimeStep();
-        dn = (an * (1 - n) - bn * n) * neuron.getNetwork().getTimeStep();
 
         n4 = n * n * n * n;
         m3h = m * m * m * h;
@@ -112,13 +126,26 @@ public class HodgkinHuxleyRule extends NeuronUpdateRule
         na_current = gna * m3h * (v - vna);
         k_current = gk * n4 * (v - vk);
 
-        dv = -1 * neuron.getNetwork().getTimeStep()
+        dv = -1 * timeStep
                 * (k_current + na_current + gl * (v - vl)) / cm;
 
         neuron.setBuffer(-1 * (v + dv + resting_v));
-        h += dh;
-        m += dm;
-        n += dn;
+
+        if (equations == null) {
+            equations = new GatingEquations();
+        }
+        double[] gating = equations.state;
+        gating[0] = n;
+        gating[1] = m;
+        gating[2] = h;
+        getIntegrator().integrate(equations, gating, timeStep,
+                getIntegrationTolerance(), equations.workspace);
+        dn = gating[0] - n;
+        dm = gating[1] - m;
+        dh = gating[2] - h;
+        n = gating[0];
+        m = gating[1];
+        h = gating[2];
 
         // if (vClampOn)
         // v = vClampValue;
@@ -297,6 +324,8 @@ public class HodgkinHuxleyRule extends NeuronUpdateRule
         hhr.setPerNaChannels(this.getPerNaChannels());
         hhr.setTemp(this.getTemp());
         hhr.setVClampOn(this.getVClampOn());
+        hhr.setIntegrator(this.getIntegrator());
+        hhr.setIntegrationTolerance(this.getIntegrationTolerance());
         return hhr;
     }
 
@@ -325,4 +354,68 @@ public class HodgkinHuxleyRule extends NeuronUpdateRule
         this.addNoise = noise;
     }
 
+    @Override
+    public ODEIntegrator getIntegrator() {
+        // Null in networks saved before integrators could be chosen
+        return integrator == null ? ODEIntegrator.EULER : integrator;
+    }
+
+    @Override
+    public void setIntegrator(ODEIntegrator integrator) {
+        this.integrator = integrator;
+    }
+
+    @Override
+    public double getIntegrationTolerance() {
+        return integrationTolerance > 0 ? integrationTolerance
+                : ODEIntegrator.DEFAULT_TOLERANCE;
+    }
+
+    @Override
+    public void setIntegrationTolerance(double integrationTolerance) {
+        this.integrationTolerance = integrationTolerance;
+    }
+
+    /**
+     * The gating equations in n, m and h, using the rate constants computed
+     * for the current voltage.
+     */
+    private class GatingEquations implements ODESystem {
+
+        /** The gating variables n, m and h. */
+        private final double[] state = new double[3];
+
+        /** Integrator scratch space. */
+        private final ODEIntegrator.Workspace workspace =
+                new ODEIntegrator.Workspace();
+
+        @Override
+        public int getDimension() {
+            return 3;
+        }
+
+        @Override
+        public void computeDerivatives(double[] y, double[] dydt) {
+            dydt[0] = an * (1 - y[0]) - bn * y[0];
+            dydt[1] = am * (1 - y[1]) - bm * y[1];
+            dydt[2] = ah * (1 - y[2]) - bh * y[2];
+        }
+
+        @Override
+        public void computeRelaxation(double[] y, double[] steadyState,
+                double[] timeConstant) {
+            steadyState[0] = an / (an + bn);
+            timeConstant[0] = 1 / (an + bn);
+            steadyState[1] = am / (am + bm);
+            timeConstant[1] = 1 / (am + bm);
+            steadyState[2] = ah / (ah + bh);
+            timeConstant[2] = 1 / (ah + bh);
+        }
+
+        @Override
+        public boolean isEventTriggered(double[] y) {
+            return false;
+        }
+    }
+
 }
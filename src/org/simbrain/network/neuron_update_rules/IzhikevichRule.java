@@ -20,7 +20,10 @@ package org.simbrain.network.neuron_update_rules;
 
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.core.SpikingNeuronUpdateRule;
+import org.simbrain.network.neuron_update_rules.interfaces.IntegratedUpdateRule;
 import org.simbrain.network.neuron_update_rules.interfaces.NoisyUpdateRule;
+import org.simbrain.util.math.ODEIntegrator;
+import org.simbrain.util.math.ODESystem;
 import org.simbrain.util.randomizer.Randomizer;
 
 /**
@@ -30,7 +33,7 @@ import org.simbrain.util.randomizer.Randomizer;
  * faster/cooler. Just a thought.
  */
 public class IzhikevichRule extends SpikingNeuronUpdateRule implements
-    NoisyUpdateRule {
+    NoisyUpdateRule, IntegratedUpdateRule {
 
     /** Recovery. */
     private double recovery;
@@ -69,6 +72,18 @@ public class IzhikevichRule extends SpikingNeuronUpdateRule implements
      */
     private double refractoryPeriod = 0.0; //ms
 
+    /**
+     * Integration method. Euler is the original semi-implicit step, in which
+     * the updated recovery is used to update the membrane potential.
+     */
+    private ODEIntegrator integrator = ODEIntegrator.EULER;
+
+    /** Error tolerance for adaptive integration. */
+    private double integrationTolerance = ODEIntegrator.DEFAULT_TOLERANCE;
+
+    /** The equations, used by integrators other than Euler. */
+    private transient Equations equations;
+
     //TODO
     private double timeStep;
     private double val;
@@ -85,6 +100,8 @@ public class IzhikevichRule extends SpikingNeuronUpdateRule implements
         in.setiBg(getiBg());
         in.setAddNoise(getAddNoise());
         in.noiseGenerator = new Randomizer(noiseGenerator);
+        in.setIntegrator(getIntegrator());
+        in.setIntegrationTolerance(getIntegrationTolerance());
         return in;
     }
     /**
@@ -100,12 +117,24 @@ public class IzhikevichRule extends SpikingNeuronUpdateRule implements
             inputs += noiseGenerator.getRandom();
         }
         inputs += iBg;
-        recovery += (timeStep * (a * ((b * activation) - recovery)));
-
-        val = activation
-            + (timeStep * (((.04 * (activation * activation))
-                + (5 * activation) + 140)
-                - recovery + inputs));
+        if (getIntegrator() == ODEIntegrator.EULER) {
+            recovery += (timeStep * (a * ((b * activation) - recovery)));
+            val = activation
+                + (timeStep * (((.04 * (activation * activation))
+                    + (5 * activation) + 140)
+                    - recovery + inputs));
+        } else {
+            if (equations == null) {
+                equations = new Equations();
+            }
+            equations.input = inputs;
+            equations.state[0] = activation;
+            equations.state[1] = recovery;
+            getIntegrator().integrate(equations, equations.state, timeStep,
+                getIntegrationTolerance(), equations.workspace);
+            val = equations.state[0];
+            recovery = equations.state[1];
+        }
 
         if (val >= threshold) {
             val = c;
@@ -243,4 +272,69 @@ public class IzhikevichRule extends SpikingNeuronUpdateRule implements
         this.refractoryPeriod = refractoryPeriod;
     }
 
+    @Override
+    public ODEIntegrator getIntegrator() {
+        // Null in networks saved before integrators could be chosen
+        return integrator == null ? ODEIntegrator.EULER : integrator;
+    }
+
+    @Override
+    public void setIntegrator(ODEIntegrator integrator) {
+        this.integrator = integrator;
+    }
+
+    @Override
+    public double getIntegrationTolerance() {
+        return integrationTolerance > 0 ? integrationTolerance
+            : ODEIntegrator.DEFAULT_TOLERANCE;
+    }
+
+    @Override
+    public void setIntegrationTolerance(double integrationTolerance) {
+        this.integrationTolerance = integrationTolerance;
+    }
+
+    /**
+     * The Izhikevich equations in membrane potential and recovery, with the
+     * input held constant over a time step.
+     */
+    private class Equations implements ODESystem {
+
+        /** Total input for the current time step. */
+        private double input;
+
+        /** Membrane potential and recovery. */
+        private final double[] state = new double[2];
+
+        /** Integrator scratch space. */
+        private final ODEIntegrator.Workspace workspace =
+            new ODEIntegrator.Workspace();
+
+        @Override
+        public int getDimension() {
+            return 2;
+        }
+
+        @Override
+        public void computeDerivatives(double[] y, double[] dydt) {
+            double v = y[0];
+            dydt[0] = (.04 * (v * v)) + (5 * v) + 140 - y[1] + input;
+            dydt[1] = a * ((b * v) - y[1]);
+        }
+
+        @Override
+        public void computeRelaxation(double[] y, double[] steadyState,
+            double[] timeConstant) {
+            steadyState[0] = 0;
+            timeConstant[0] = 0;
+            steadyState[1] = b * y[0];
+            timeConstant[1] = a > 0 ? 1 / a : 0;
+        }
+
+        @Override
+        public boolean isEventTriggered(double[] y) {
+            return y[0] >= threshold;
+        }
+    }
+
 }
@@ -7,12 +7,15 @@ package org.simbrain.network.neuron_update_rules;
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.core.NeuronUpdateRule;
 import org.simbrain.network.core.SpikingNeuronUpdateRule;
+import org.simbrain.network.neuron_update_rules.interfaces.IntegratedUpdateRule;
 import org.simbrain.network.neuron_update_rules.interfaces.NoisyUpdateRule;
+import org.simbrain.util.math.ODEIntegrator;
+import org.simbrain.util.math.ODESystem;
 import org.simbrain.util.math.ProbDistribution;
 import org.simbrain.util.randomizer.Randomizer;
 
 public class MorrisLecarRule extends SpikingNeuronUpdateRule
-	implements NoisyUpdateRule {
+	implements NoisyUpdateRule, IntegratedUpdateRule {
 
 	/** Calcium channel conductance (micro Siemens/cm^2). */
 	private double g_Ca = 4.0;
@@ -64,6 +67,15 @@ public class MorrisLecarRule extends SpikingNeuronUpdateRule
 
 	/** A source of noise (nA). */
 	private Randomizer noiseGenerator = new Randomizer();
+
+	/** Method used to integrate membrane potential and potassium channels. */
+	private ODEIntegrator integrator = ODEIntegrator.RK2;
+
+	/** Error tolerance for adaptive integration. */
+	private double integrationTolerance = ODEIntegrator.DEFAULT_TOLERANCE;
+
+	/** The equations, created on first update. */
+	private transient Equations equations;
 	
 	{
 		noiseGenerator.setPdf(ProbDistribution.NORMAL);
@@ -73,43 +85,27 @@ public class MorrisLecarRule extends SpikingNeuronUpdateRule
 	@Override
 	public void update(Neuron neuron) {
 		double dt = neuron.getNetwork().getTimeStep();
-		double i_syn = inputType.getInput(neuron);
+		if (equations == null) {
+			equations = new Equations();
+		}
+		equations.i_syn = inputType.getInput(neuron);
+		// Noise is sampled once per time step and held, like the input
+		equations.i_noise = getAddNoise() ? noiseGenerator.getRandom() : 0;
 		// Under normal circumstances this will cause no change.
-		double vMembrane = neuron.getActivation();
-		
-		double dVdt = dVdt(vMembrane, i_syn);
-		double dWdt = dWdt(vMembrane, w_K);
-		
-		double vmFut = vMembrane + dt * dVdt;
-		double wKFut = w_K + dt * dWdt;
-		vMembrane = vMembrane + (dt/2) * ((dVdt) + dVdt(vmFut, i_syn));
-		w_K = w_K + (dt/2) * ((dWdt) + dWdt(vMembrane, wKFut));
-		
+		equations.state[0] = neuron.getActivation();
+		equations.state[1] = w_K;
+		getIntegrator().integrate(equations, equations.state, dt,
+				getIntegrationTolerance(), equations.workspace);
+		double vMembrane = equations.state[0];
+		w_K = equations.state[1];
+
 		neuron.setSpkBuffer(vMembrane > threshold);
 		setHasSpiked(vMembrane > threshold, neuron);
 
 		neuron.setBuffer(vMembrane);
-		
-	}
-	
-	private double dVdt(double vMembrane, double i_syn) {
-		double i_Ca = g_Ca * membraneFunction(vMembrane)
-				* (vMembrane - vRest_Ca);
-		double i_K = g_K * w_K * (vMembrane - vRest_k);
-		double i_L = g_L * (vMembrane - vRest_L);
-		double i_ion = i_Ca + i_K + i_L;
-		double i_noise = 0;
-		if (getAddNoise()) {
-		    i_noise = noiseGenerator.getRandom();
-		}
-		return ((i_bg - i_ion + i_syn + i_noise) / cMembrane);
-	}
-	
-	private double dWdt(double vMembrane, double w_K) {
-		return phi * lambdaFunction(vMembrane)
-				* (k_fractionFunction(vMembrane) - w_K);
+
 	}
-	
+
 	private double membraneFunction(double vMembrane) {
 		return 0.5 * (1 + Math.tanh((vMembrane - v_m1) / v_m2));
 	}
@@ -142,6 +138,8 @@ public class MorrisLecarRule extends SpikingNeuronUpdateRule
 		cpy.vRest_L = this.vRest_L;
 		cpy.w_K = this.w_K;
 		cpy.noiseGenerator = new Randomizer(this.noiseGenerator);
+		cpy.setIntegrator(getIntegrator());
+		cpy.setIntegrationTolerance(getIntegrationTolerance());
 
 		return cpy;
 	}
@@ -287,4 +285,80 @@ public class MorrisLecarRule extends SpikingNeuronUpdateRule
 		this.threshold = threshold;
 	}
 
+	@Override
+	public ODEIntegrator getIntegrator() {
+		// Null in networks saved before integrators could be chosen
+		return integrator == null ? ODEIntegrator.RK2 : integrator;
+	}
+
+	@Override
+	public void setIntegrator(ODEIntegrator integrator) {
+		this.integrator = integrator;
+	}
+
+	@Override
+	public double getIntegrationTolerance() {
+		return integrationTolerance > 0 ? integrationTolerance
+				: ODEIntegrator.DEFAULT_TOLERANCE;
+	}
+
+	@Override
+	public void setIntegrationTolerance(double integrationTolerance) {
+		this.integrationTolerance = integrationTolerance;
+	}
+
+	/**
+	 * The Morris-Lecar equations in membrane potential and fraction of open
+	 * potassium channels, with synaptic and noise currents held constant over
+	 * a time step.
+	 */
+	private class Equations implements ODESystem {
+
+		/** Synaptic current. */
+		private double i_syn;
+
+		/** Noise current. */
+		private double i_noise;
+
+		/** Membrane potential and fraction of open potassium channels. */
+		private final double[] state = new double[2];
+
+		/** Integrator scratch space. */
+		private final ODEIntegrator.Workspace workspace =
+				new ODEIntegrator.Workspace();
+
+		@Override
+		public int getDimension() {
+			return 2;
+		}
+
+		@Override
+		public void computeDerivatives(double[] y, double[] dydt) {
+			double vMembrane = y[0];
+			double i_Ca = g_Ca * membraneFunction(vMembrane)
+					* (vMembrane - vRest_Ca);
+			double i_K = g_K * y[1] * (vMembrane - vRest_k);
+			double i_L = g_L * (vMembrane - vRest_L);
+			double i_ion = i_Ca + i_K + i_L;
+			dydt[0] = (i_bg - i_ion + i_syn + i_noise) / cMembrane;
+			dydt[1] = phi * lambdaFunction(vMembrane)
+					* (k_fractionFunction(vMembrane) - y[1]);
+		}
+
+		@Override
+		public void computeRelaxation(double[] y, double[] steadyState,
+				double[] timeConstant) {
+			steadyState[0] = 0;
+			timeConstant[0] = 0;
+			steadyState[1] = k_fractionFunction(y[0]);
+			timeConstant[1] = 1 / (phi * lambdaFunction(y[0]));
+		}
+
+		@Override
+		public boolean isEventTriggered(double[] y) {
+			// No reset, so no reason to stop early
+			return false;
+		}
+	}
+
 }
@@ -60,6 +60,13 @@ public class PointNeuronRule extends NeuronUpdateRule implements
     /** Current inhibitory conductance. */
     private double inhibitoryConductance;
 
+    /**
+     * Inhibitory conductance imposed by a layer-level inhibition function such
+     * as k-winners-take-all (p. 100). Added to the synaptic inhibitory
+     * conductance rather than averaged with it.
+     */
+    private double layerInhibitoryConductance;
+
     /** Maximal inhibitory conductance. */
     private double inhibitoryMaxConductance = 1;
 
@@ -263,6 +270,7 @@ public class PointNeuronRule extends NeuronUpdateRule implements
         neuron.setBuffer(0);
         excitatoryConductance = 0;
         inhibitoryConductance = 0;
+        layerInhibitoryConductance = 0;
         leakConductance = 0;
         excitatoryCurrent = 0;
         leakCurrent = 0;
@@ -290,7 +298,8 @@ public class PointNeuronRule extends NeuronUpdateRule implements
                 + netTimeConstant * (getInhibitoryInputs());
 
         // Calculate the inhibitory current.
-        inhibitoryCurrent = inhibitoryConductance * inhibitoryMaxConductance
+        inhibitoryCurrent = (inhibitoryConductance + layerInhibitoryConductance)
+                * inhibitoryMaxConductance
                 * (membranePotential - inhibitoryReversal);
 
         // Calculate the leak current (p. 37 eq. 2.5)
@@ -703,6 +712,24 @@ public class PointNeuronRule extends NeuronUpdateRule implements
         this.inhibitoryConductance = inhibitoryConductance;
     }
 
+    /**
+     * @return the layer-level inhibitory conductance
+     */
+    public double getLayerInhibitoryConductance() {
+        return layerInhibitoryConductance;
+    }
+
+    /**
+     * Set the inhibitory conductance imposed on this neuron by its layer,
+     * e.g. by a k-winners-take-all group.
+     *
+     * @param layerInhibitoryConductance the conductance to set
+     */
+    public void setLayerInhibitoryConductance(
+            double layerInhibitoryConductance) {
+        this.layerInhibitoryConductance = layerInhibitoryConductance;
+    }
+
     /**
      * @return the inhibitoryMaxConductance
      */
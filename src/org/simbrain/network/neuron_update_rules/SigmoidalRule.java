@@ -65,9 +65,13 @@ public class SigmoidalRule extends AbstractSigmoidalRule {
             val += noiseGenerator.getRandom();
         }
 
-        val =
-            sFunction
-                .valueOf(val, getUpperBound(), getLowerBound(), getSlope());
+        if (fastMath) {
+            val = sFunction.fastValueOf(val, getUpperBound(), getLowerBound(),
+                getSlope());
+        } else {
+            val = sFunction.valueOf(val, getUpperBound(), getLowerBound(),
+                getSlope());
+        }
 
         neuron.setBuffer(val);
     }
@@ -108,6 +112,9 @@ public class SigmoidalRule extends AbstractSigmoidalRule {
         double up = getUpperBound();
         double lw = getLowerBound();
         double diff = up - lw;
+        if (fastMath) {
+            return sFunction.fastDerivVal(val, up, lw, diff);
+        }
         return sFunction.derivVal(val, up, lw, diff);
     }
 
@@ -118,6 +125,7 @@ public class SigmoidalRule extends AbstractSigmoidalRule {
         sn.setSquashFunctionType(getSquashFunctionType());
         sn.setSlope(getSlope());
         sn.setAddNoise(getAddNoise());
+        sn.setFastMath(isFastMath());
         sn.noiseGenerator = new Randomizer(noiseGenerator);
         return sn;
     }
@@ -19,6 +19,7 @@
 package org.simbrain.network.subnetworks;
 
 import java.util.Iterator;
+import java.util.List;
 
 import org.simbrain.network.connections.ConnectNeurons;
 import org.simbrain.network.core.Network;
@@ -27,6 +28,7 @@ import org.simbrain.network.core.Synapse;
 import org.simbrain.network.groups.NeuronGroup;
 import org.simbrain.network.groups.SynapseGroup;
 import org.simbrain.network.neuron_update_rules.LinearRule;
+import org.simbrain.util.math.WinnerSelection;
 
 /**
  * <b>Competitive</b> implements a simple competitive network.
@@ -150,19 +152,15 @@ public class CompetitiveGroup extends NeuronGroup {
 
         super.update();
 
-        max = 0;
-        winner = 0;
-
-        // Determine Winner
-        for (int i = 0; i < getNeuronList().size(); i++) {
-            Neuron n = getNeuronList().get(i);
-            if (!n.isClamped()) {
-                n.update();
-            }
-            if (n.getActivation() > max) {
-                max = n.getActivation();
-                winner = i;
-            }
+        // Determine Winner. Neurons were already updated above, so just scan
+        // activations. If none is positive the first neuron wins.
+        List<Neuron> neurons = getNeuronList();
+        winner = Math.max(0, WinnerSelection.argMax(neurons.size(),
+                i -> neurons.get(i).getActivation()));
+        max = neurons.isEmpty() ? 0
+                : Math.max(0, neurons.get(winner).getActivation());
+        if (max == 0) {
+            winner = 0;
         }
 
         // Update weights on winning neuron
@@ -198,10 +196,11 @@ public class CompetitiveGroup extends NeuronGroup {
      * @param neuron winning neuron.
      */
     private void squireAlvarezWeightUpdate(final Neuron neuron) {
+        double averageInput = neuron.getAverageInput();
         for (Synapse synapse : neuron.getFanIn()) {
             double deltaw = learningRate * synapse.getTarget().getActivation()
                     * (synapse.getSource().getActivation()
-                            - synapse.getTarget().getAverageInput());
+                            - averageInput);
             synapse.setStrength(synapse.clip(synapse.getStrength() + deltaw));
         }
     }
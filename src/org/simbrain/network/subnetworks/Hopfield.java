@@ -21,6 +21,7 @@ package org.simbrain.network.subnetworks;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 
 import org.simbrain.network.connections.AllToAll;
 import org.simbrain.network.core.Network;
@@ -68,6 +69,15 @@ public class Hopfield extends Subnetwork implements Trainable {
      */
     private final TrainingSet trainingSet = new TrainingSet();
 
+    /**
+     * Array based copy of the network that updates are run on, rebuilt when
+     * the neurons or synapses change.
+     */
+    private transient HopfieldMemory memory;
+
+    /** Source of random update orders. */
+    private static final Random RANDOM = new Random();
+
     /**
      * Creates a new Hopfield network.
      *
@@ -139,8 +149,23 @@ public class Hopfield extends Subnetwork implements Trainable {
         getParentNetwork().fireGroupUpdated(this.getSynapseGroup());
     }
 
+    /**
+     * Updates the network. Unless the update follows neuron priorities, it is
+     * run on an array based {@link HopfieldMemory}, falling back to updating
+     * the neurons directly when they can't be modeled that way.
+     */
     @Override
     public void update() {
+        if (updateFunc != HopfieldUpdate.SEQ || !byPriority) {
+            if (memory == null || !memory.matches(this)) {
+                memory = new HopfieldMemory(this);
+            }
+            if (memory.readNeurons()) {
+                updateFunc.update(memory);
+                memory.writeNeurons();
+                return;
+            }
+        }
         updateFunc.update(this);
     }
 
@@ -269,6 +294,12 @@ public class Hopfield extends Subnetwork implements Trainable {
                 }
             }
 
+            @Override
+            public void update(HopfieldMemory memory) {
+                memory.shufflePermutation(RANDOM);
+                memory.updateAsynchronous();
+            }
+
             @Override
             public String getDescription() {
                 return "Randomly ordered sequential update (different every"
@@ -308,6 +339,12 @@ public class Hopfield extends Subnetwork implements Trainable {
 
             }
 
+            @Override
+            public void update(HopfieldMemory memory) {
+                memory.resetPermutation();
+                memory.updateAsynchronous();
+            }
+
             @Override
             public String getDescription() {
                 return "Sequential update of neurons (same seqence every time)";
@@ -332,6 +369,11 @@ public class Hopfield extends Subnetwork implements Trainable {
                 }
             }
 
+            @Override
+            public void update(HopfieldMemory memory) {
+                memory.updateSynchronous();
+            }
+
             @Override
             public String getDescription() {
                 return "Synchronous update of neurons";
@@ -364,6 +406,13 @@ public class Hopfield extends Subnetwork implements Trainable {
 
         public abstract void update(Hopfield hop);
 
+        /**
+         * Update an array based copy of the network in the same way.
+         *
+         * @param memory the memory to update
+         */
+        public abstract void update(HopfieldMemory memory);
+
         public abstract String getDescription();
 
         public abstract String getName();
@@ -0,0 +1,745 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.subnetworks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.NeuronUpdateRule;
+import org.simbrain.network.core.NeuronUpdateRule.InputType;
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.neuron_update_rules.BinaryRule;
+
+/**
+ * <b>HopfieldMemory</b> is an array based discrete Hopfield network, for
+ * associative memory experiments too large to run through neurons and
+ * synapses. States are stored as packed bit vectors (a set bit is an active
+ * unit), and the symmetric weight matrix is stored once, as the lower triangle
+ * of a single primitive array.
+ * <p>
+ * Units behave like the {@link BinaryRule} neurons of a {@link Hopfield}
+ * network: a unit becomes active when the weighted sum of the activations of
+ * the other units exceeds its threshold. Weights and states can be copied from
+ * a Hopfield network with {@link #HopfieldMemory(Hopfield)} and back with
+ * {@link #writeTo(Hopfield)}. A memory copied from a network can also re-read
+ * and write back the states of that network's neurons, which is how
+ * {@link Hopfield} runs its updates.
+ * <p>
+ * Training accumulates the bipolar outer products of any number of patterns
+ * at once, using the popcount of the XOR of packed columns. Synchronous
+ * updates are split across threads; asynchronous updates visit the units in a
+ * precomputed permutation and maintain the local fields incrementally, so a
+ * sweep costs a row of the weight matrix only for units that change.
+ */
+public class HopfieldMemory {
+
+    /** Number of units. */
+    private final int numUnits;
+
+    /**
+     * Lower triangle of the weight matrix. The weight between units i and j,
+     * with i > j, is at <code>i * (i - 1) / 2 + j</code>.
+     */
+    private final double[] weights;
+
+    /** Current state, one bit per unit. */
+    private final long[] state;
+
+    /** Threshold of each unit (threshold minus bias). */
+    private final double[] thresholds;
+
+    /** Activation of an active unit. */
+    private double onValue = 1;
+
+    /** Activation of an inactive unit. */
+    private double offValue = 0;
+
+    /** Unit order used by asynchronous updates. */
+    private final int[] permutation;
+
+    /** Activation of each unit, unpacked from the state for updating. */
+    private final double[] activations;
+
+    /** Local field of each unit. */
+    private final double[] fields;
+
+    /** Number of worker threads. */
+    private int numThreads = 1;
+
+    /** Executor used when more than one thread is requested. */
+    private ExecutorService executor;
+
+    /** Per thread partial fields for synchronous updates. */
+    private double[][] partialFields;
+
+    /** Field tasks, each covering rows with about equal numbers of weights. */
+    private List<Callable<Void>> fieldTasks;
+
+    /** Neurons the units were copied from, or null. */
+    private Neuron[] neurons;
+
+    /** For each weight, the synapse from the higher to the lower unit. */
+    private Synapse[] lowerSynapses;
+
+    /** For each weight, the synapse from the lower to the higher unit. */
+    private Synapse[] upperSynapses;
+
+    /** Number of synapses between the units when copied. */
+    private int numSynapses;
+
+    /** Total fan-in of the neurons when copied. */
+    private int fanIn;
+
+    /**
+     * Construct a memory with zero weights and all units inactive.
+     *
+     * @param numUnits number of units
+     */
+    public HopfieldMemory(final int numUnits) {
+        if ((long) numUnits * (numUnits - 1) / 2 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many units: " + numUnits);
+        }
+        this.numUnits = numUnits;
+        weights = new double[tri(numUnits)];
+        state = new long[words(numUnits)];
+        thresholds = new double[numUnits];
+        permutation = new int[numUnits];
+        for (int i = 0; i < numUnits; i++) {
+            permutation[i] = i;
+        }
+        activations = new double[numUnits];
+        fields = new double[numUnits];
+    }
+
+    /**
+     * Construct a memory with the weights, thresholds and activations of a
+     * Hopfield network. Units are in the order of the network's neuron group.
+     *
+     * @param hop the network to copy
+     */
+    public HopfieldMemory(final Hopfield hop) {
+        this(hop.getNeuronGroup().size());
+        List<Neuron> neurons = hop.getNeuronGroup().getNeuronList();
+        Map<Neuron, Integer> index = indexMap(neurons);
+        this.neurons = neurons.toArray(new Neuron[numUnits]);
+        lowerSynapses = new Synapse[weights.length];
+        upperSynapses = new Synapse[weights.length];
+        for (Synapse s : hop.getSynapseGroup().getAllSynapses()) {
+            int i = index.get(s.getSource());
+            int j = index.get(s.getTarget());
+            if (i > j) {
+                weights[tri(i) + j] = s.getStrength();
+                lowerSynapses[tri(i) + j] = s;
+                numSynapses++;
+            } else if (j > i) {
+                upperSynapses[tri(j) + i] = s;
+                numSynapses++;
+            }
+        }
+        for (Neuron neuron : neurons) {
+            fanIn += neuron.getFanIn().size();
+        }
+        for (int i = 0; i < numUnits; i++) {
+            Neuron neuron = neurons.get(i);
+            NeuronUpdateRule rule = neuron.getUpdateRule();
+            if (rule instanceof BinaryRule) {
+                BinaryRule binary = (BinaryRule) rule;
+                thresholds[i] = binary.getThreshold() - binary.getBias();
+                onValue = binary.getUpperBound();
+                offValue = binary.getLowerBound();
+            }
+        }
+        for (int i = 0; i < numUnits; i++) {
+            setActive(i, neurons.get(i).getActivation() > offValue);
+        }
+    }
+
+    /**
+     * Copy the weights and activations back to a Hopfield network of the same
+     * size. Weights are clipped to the bounds of their synapses.
+     *
+     * @param hop the network to write to
+     */
+    public void writeTo(final Hopfield hop) {
+        List<Neuron> neurons = hop.getNeuronGroup().getNeuronList();
+        Map<Neuron, Integer> index = indexMap(neurons);
+        for (Synapse s : hop.getSynapseGroup().getAllSynapses()) {
+            s.setStrength(getWeight(index.get(s.getSource()),
+                    index.get(s.getTarget())));
+        }
+        for (int i = 0; i < numUnits; i++) {
+            neurons.get(i).forceSetActivation(isActive(i) ? onValue
+                    : offValue);
+        }
+        hop.getParentNetwork().fireGroupUpdated(hop);
+    }
+
+    /**
+     * Returns true if a network still has the neurons this memory was copied
+     * from, with the same number of synapses.
+     *
+     * @param hop the network to check
+     * @return true if the memory was copied from the network's current neurons
+     */
+    public boolean matches(final Hopfield hop) {
+        List<Neuron> list = hop.getNeuronGroup().getNeuronList();
+        if (neurons == null || list.size() != numUnits) {
+            return false;
+        }
+        int total = 0;
+        for (int i = 0; i < numUnits; i++) {
+            if (list.get(i) != neurons[i]) {
+                return false;
+            }
+            total += neurons[i].getFanIn().size();
+        }
+        return total == fanIn;
+    }
+
+    /**
+     * Re-read the weights, thresholds and states of the neurons and synapses
+     * this memory was copied from, so that updating the memory gives the same
+     * result as updating the neurons. Returns false if the neurons can't be
+     * modeled this way: a neuron is clamped, is not binary, does not take
+     * weighted inputs or has an activation other than its bounds, a synapse
+     * has a delay or comes from outside the network, or the weights are not
+     * symmetric. The memory should not be used after a false return.
+     *
+     * @return true if the memory now models the neurons
+     */
+    public boolean readNeurons() {
+        if (neurons == null) {
+            throw new IllegalStateException(
+                    "Memory was not copied from a network");
+        }
+        if (fanIn != numSynapses) {
+            return false;
+        }
+        for (int i = 0; i < numUnits; i++) {
+            Neuron neuron = neurons[i];
+            NeuronUpdateRule rule = neuron.getUpdateRule();
+            if (neuron.isClamped() || !(rule instanceof BinaryRule)
+                    || rule.getInputType() != InputType.WEIGHTED) {
+                return false;
+            }
+            BinaryRule binary = (BinaryRule) rule;
+            if (i == 0) {
+                onValue = binary.getUpperBound();
+                offValue = binary.getLowerBound();
+            } else if (binary.getUpperBound() != onValue
+                    || binary.getLowerBound() != offValue) {
+                return false;
+            }
+            thresholds[i] = binary.getThreshold() - binary.getBias()
+                    - neuron.getInputValue();
+            double activation = neuron.getActivation();
+            if (activation != onValue && activation != offValue) {
+                return false;
+            }
+            setActive(i, activation == onValue);
+        }
+        for (int k = 0; k < weights.length; k++) {
+            Synapse lower = lowerSynapses[k];
+            Synapse upper = upperSynapses[k];
+            if ((lower != null && lower.getDelay() != 0)
+                    || (upper != null && upper.getDelay() != 0)) {
+                return false;
+            }
+            double weight = effectiveStrength(lower);
+            if (weight != effectiveStrength(upper)) {
+                return false;
+            }
+            weights[k] = weight;
+        }
+        return true;
+    }
+
+    /**
+     * Write the state to the buffers and activations of the neurons this
+     * memory was copied from.
+     */
+    public void writeNeurons() {
+        for (int i = 0; i < numUnits; i++) {
+            double activation = isActive(i) ? onValue : offValue;
+            neurons[i].setBuffer(activation);
+            neurons[i].setActivation(activation);
+        }
+    }
+
+    /**
+     * Strength a synapse contributes to its target's weighted input.
+     *
+     * @param s the synapse, or null
+     * @return the strength, or zero if there is no enabled synapse
+     */
+    private static double effectiveStrength(final Synapse s) {
+        if (s == null || !s.isEnabled()) {
+            return 0;
+        }
+        return s.getStrength();
+    }
+
+    /**
+     * Map each neuron to its index.
+     *
+     * @param neurons the neurons
+     * @return neuron to index map
+     */
+    private Map<Neuron, Integer> indexMap(final List<Neuron> neurons) {
+        Map<Neuron, Integer> index = new HashMap<Neuron, Integer>();
+        for (int i = 0; i < neurons.size(); i++) {
+            index.put(neurons.get(i), i);
+        }
+        return index;
+    }
+
+    /**
+     * Number of longs needed to hold a number of bits.
+     *
+     * @param bits number of bits
+     * @return number of words
+     */
+    private static int words(final int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    /**
+     * Offset of row i in the triangular weight array.
+     *
+     * @param i row, at least 1
+     * @return the offset
+     */
+    private static int tri(final int i) {
+        // Unsigned shift, since the product can overflow a signed int
+        return (i * (i - 1)) >>> 1;
+    }
+
+    /**
+     * Pack a pattern into bits. Entries greater than zero are active.
+     *
+     * @param pattern the pattern
+     * @return the packed pattern
+     */
+    public static long[] pack(final double[] pattern) {
+        long[] bits = new long[words(pattern.length)];
+        for (int i = 0; i < pattern.length; i++) {
+            if (pattern[i] > 0) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Set all weights to zero.
+     */
+    public void clearWeights() {
+        Arrays.fill(weights, 0);
+    }
+
+    /**
+     * Add the Hebbian outer products of a set of patterns to the weights. Each
+     * weight w_ij increases by the number of patterns in which units i and j
+     * agree minus the number in which they differ, which is computed for all
+     * patterns at once from bit columns.
+     *
+     * @param patterns patterns, one per row; entries greater than zero are
+     *            active
+     */
+    public void train(final double[][] patterns) {
+        int numPatterns = patterns.length;
+        int patternWords = words(numPatterns);
+        // Transpose into one bit column per unit
+        final long[][] columns = new long[numUnits][patternWords];
+        for (int p = 0; p < numPatterns; p++) {
+            double[] pattern = patterns[p];
+            long bit = 1L << p;
+            for (int i = 0; i < numUnits; i++) {
+                if (pattern[i] > 0) {
+                    columns[i][p >>> 6] |= bit;
+                }
+            }
+        }
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        int threads = Math.min(numThreads, Math.max(1, numUnits - 1));
+        for (int t = 0; t < threads; t++) {
+            final int from = rowBoundary(t, threads);
+            final int to = rowBoundary(t + 1, threads);
+            tasks.add(() -> {
+                for (int i = from; i < to; i++) {
+                    long[] ci = columns[i];
+                    int base = tri(i);
+                    for (int j = 0; j < i; j++) {
+                        long[] cj = columns[j];
+                        int differ = 0;
+                        for (int w = 0; w < patternWords; w++) {
+                            differ += Long.bitCount(ci[w] ^ cj[w]);
+                        }
+                        weights[base + j] += numPatterns - 2 * differ;
+                    }
+                }
+                return null;
+            });
+        }
+        run(tasks);
+    }
+
+    /**
+     * First row of a block of rows holding about 1 / blocks of the weights.
+     *
+     * @param block block index, from 0 to blocks
+     * @param blocks number of blocks
+     * @return first row of the block
+     */
+    private int rowBoundary(final int block, final int blocks) {
+        if (block >= blocks) {
+            return numUnits;
+        }
+        return (int) Math.round(numUnits * Math.sqrt((double) block / blocks));
+    }
+
+    /**
+     * Update all units at once from the current state.
+     *
+     * @return true if any unit changed
+     */
+    public boolean updateSynchronous() {
+        computeFields();
+        boolean changed = false;
+        for (int i = 0; i < numUnits; i++) {
+            boolean active = fields[i] > thresholds[i];
+            if (active != isActive(i)) {
+                setActive(i, active);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Update units one at a time in the order of the current permutation, so
+     * each unit sees the changes made before it.
+     *
+     * @return true if any unit changed
+     */
+    public boolean updateAsynchronous() {
+        computeFields();
+        boolean changed = false;
+        for (int k = 0; k < numUnits; k++) {
+            int i = permutation[k];
+            boolean active = fields[i] > thresholds[i];
+            if (active == isActive(i)) {
+                continue;
+            }
+            setActive(i, active);
+            changed = true;
+            double delta = active ? onValue - offValue : offValue - onValue;
+            int base = tri(i);
+            for (int j = 0; j < i; j++) {
+                fields[j] += weights[base + j] * delta;
+            }
+            for (int j = i + 1; j < numUnits; j++) {
+                fields[j] += weights[tri(j) + i] * delta;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Compute the local field of every unit from the current state, in one
+     * pass over the triangular weights per thread.
+     */
+    private void computeFields() {
+        for (int i = 0; i < numUnits; i++) {
+            activations[i] = isActive(i) ? onValue : offValue;
+        }
+        if (numThreads <= 1) {
+            Arrays.fill(fields, 0);
+            accumulateFields(0, numUnits, fields);
+            return;
+        }
+        run(fieldTasks);
+        System.arraycopy(partialFields[0], 0, fields, 0, numUnits);
+        for (int t = 1; t < partialFields.length; t++) {
+            double[] partial = partialFields[t];
+            for (int i = 0; i < numUnits; i++) {
+                fields[i] += partial[i];
+            }
+        }
+    }
+
+    /**
+     * Add the contributions of the weights in a block of rows to the fields.
+     * Each weight is read once and contributes to both of its units.
+     *
+     * @param from first row (inclusive)
+     * @param to last row (exclusive)
+     * @param out fields to add to
+     */
+    private void accumulateFields(final int from, final int to,
+            final double[] out) {
+        for (int i = Math.max(1, from); i < to; i++) {
+            int base = tri(i);
+            double ai = activations[i];
+            double sum = 0;
+            for (int j = 0; j < i; j++) {
+                double w = weights[base + j];
+                sum += w * activations[j];
+                out[j] += w * ai;
+            }
+            out[i] += sum;
+        }
+    }
+
+    /**
+     * Run tasks, on the executor if there is more than one.
+     *
+     * @param tasks the tasks
+     */
+    private void run(final List<Callable<Void>> tasks) {
+        try {
+            if (tasks.size() == 1 || executor == null) {
+                for (Callable<Void> task : tasks) {
+                    task.call();
+                }
+                return;
+            }
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Set the number of worker threads used for training and synchronous
+     * updates.
+     *
+     * @param threads number of threads to use
+     */
+    public void setNumThreads(final int threads) {
+        shutdown();
+        numThreads = Math.max(1, Math.min(threads, Math.max(1, numUnits - 1)));
+        if (numThreads > 1) {
+            executor = Executors.newFixedThreadPool(numThreads);
+            partialFields = new double[numThreads][numUnits];
+            fieldTasks = new ArrayList<Callable<Void>>(numThreads);
+            for (int t = 0; t < numThreads; t++) {
+                final int from = rowBoundary(t, numThreads);
+                final int to = rowBoundary(t + 1, numThreads);
+                final double[] out = partialFields[t];
+                fieldTasks.add(() -> {
+                    Arrays.fill(out, 0);
+                    accumulateFields(from, to, out);
+                    return null;
+                });
+            }
+        }
+    }
+
+    /**
+     * Release worker threads.
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+            partialFields = null;
+            fieldTasks = null;
+        }
+        numThreads = 1;
+    }
+
+    /**
+     * Shuffle the order used by asynchronous updates.
+     *
+     * @param rand random number generator
+     */
+    public void shufflePermutation(final Random rand) {
+        for (int i = numUnits - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            int tmp = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = tmp;
+        }
+    }
+
+    /**
+     * Reset the order used by asynchronous updates to the unit order.
+     */
+    public void resetPermutation() {
+        for (int i = 0; i < numUnits; i++) {
+            permutation[i] = i;
+        }
+    }
+
+    /**
+     * Set the order used by asynchronous updates.
+     *
+     * @param order a permutation of the unit indices
+     */
+    public void setPermutation(final int[] order) {
+        if (order.length != numUnits) {
+            throw new IllegalArgumentException("Permutation must have "
+                    + numUnits + " entries");
+        }
+        System.arraycopy(order, 0, permutation, 0, numUnits);
+    }
+
+    /**
+     * @param i unit index
+     * @return true if the unit is active
+     */
+    public boolean isActive(final int i) {
+        return (state[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * @param i unit index
+     * @param active whether the unit is active
+     */
+    public void setActive(final int i, final boolean active) {
+        if (active) {
+            state[i >>> 6] |= 1L << i;
+        } else {
+            state[i >>> 6] &= ~(1L << i);
+        }
+    }
+
+    /**
+     * Set the state from a pattern. Entries greater than zero are active.
+     *
+     * @param pattern the pattern
+     */
+    public void setState(final double[] pattern) {
+        Arrays.fill(state, 0);
+        for (int i = 0; i < numUnits; i++) {
+            if (pattern[i] > 0) {
+                state[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Set the state from a packed pattern.
+     *
+     * @param bits the packed pattern
+     */
+    public void setState(final long[] bits) {
+        System.arraycopy(bits, 0, state, 0, state.length);
+    }
+
+    /**
+     * Returns the packed state. Bits past the last unit are zero.
+     *
+     * @return the state (live array)
+     */
+    public long[] getState() {
+        return state;
+    }
+
+    /**
+     * Returns the number of units whose state differs from a packed pattern.
+     *
+     * @param bits the packed pattern
+     * @return the Hamming distance
+     */
+    public int hammingDistance(final long[] bits) {
+        int ret = 0;
+        for (int w = 0; w < state.length; w++) {
+            ret += Long.bitCount(state[w] ^ bits[w]);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the weight between two units (zero from a unit to itself).
+     *
+     * @param i first unit
+     * @param j second unit
+     * @return the weight
+     */
+    public double getWeight(final int i, final int j) {
+        if (i == j) {
+            return 0;
+        }
+        return i > j ? weights[tri(i) + j] : weights[tri(j) + i];
+    }
+
+    /**
+     * Set the (symmetric) weight between two units.
+     *
+     * @param i first unit
+     * @param j second unit, not equal to i
+     * @param weight the weight
+     */
+    public void setWeight(final int i, final int j, final double weight) {
+        if (i > j) {
+            weights[tri(i) + j] = weight;
+        } else if (j > i) {
+            weights[tri(j) + i] = weight;
+        }
+    }
+
+    /**
+     * @param i unit index
+     * @return the unit's threshold
+     */
+    public double getThreshold(final int i) {
+        return thresholds[i];
+    }
+
+    /**
+     * @param i unit index
+     * @param threshold the unit's threshold
+     */
+    public void setThreshold(final int i, final double threshold) {
+        thresholds[i] = threshold;
+    }
+
+    /**
+     * @return the number of units
+     */
+    public int getNumUnits() {
+        return numUnits;
+    }
+
+    /**
+     * @return the number of worker threads
+     */
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+}
@@ -18,12 +18,13 @@
  */
 package org.simbrain.network.subnetworks;
 
-import java.util.Comparator;
+import java.util.List;
 
 import org.simbrain.network.core.Network;
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.groups.NeuronGroup;
 import org.simbrain.network.neuron_update_rules.PointNeuronRule;
+import org.simbrain.util.math.WinnerSelection;
 
 /**
  * <b>KwtaNetwork</b> implements a k Winner Take All network. The k neurons
@@ -33,14 +34,50 @@ import org.simbrain.network.neuron_update_rules.PointNeuronRule;
  * Computational Explorations in Cognitive Neuroscience, p. 110. All page
  * references below are are to this book.
  *
- * TODO: This has been temporarilty disabled. When re-enabled, it's name should
- * reflect its' connection to the Leabra framework, since generic kwta is
- * possible and is slated to be implemented in a regular WTA network.
+ * The threshold conductances are gathered into a primitive array and the k-th
+ * and (k+1)-th largest are found with {@link WinnerSelection}, so an update is
+ * linear in the number of neurons rather than requiring a sort.
+ *
+ * TODO: When re-enabled in the GUI, it's name should reflect its' connection to
+ * the Leabra framework, since generic kwta is possible and is slated to be
+ * implemented in a regular WTA network.
  */
 public class KWTA extends NeuronGroup {
 
-    // TODO: Make q settable
-    // Add average based version
+    /**
+     * Ways of placing the layer inhibition between the k-th and (k+1)-th
+     * neurons.
+     */
+    public enum InhibitionType {
+
+        /**
+         * Between the threshold conductances of the k-th and (k+1)-th most
+         * excited neurons (p. 101, equation 3.3).
+         */
+        BASIC {
+            @Override
+            public String toString() {
+                return "Basic k-WTA";
+            }
+        },
+
+        /**
+         * Between the average threshold conductance of the top k neurons and
+         * the average of the remaining neurons (p. 103).
+         */
+        AVERAGE {
+            @Override
+            public String toString() {
+                return "Average-based k-WTA";
+            }
+        }
+    }
+
+    /** Default q for basic k-WTA (p. 101). */
+    public static final double DEFAULT_BASIC_Q = 0.25;
+
+    /** Default q for average-based k-WTA (p. 103). */
+    public static final double DEFAULT_AVERAGE_Q = 0.6;
 
     /** k, that is, number of neurons to win a competition. */
     private int k = 1;
@@ -49,7 +86,10 @@ public class KWTA extends NeuronGroup {
      * Determines the relative contribution of the k and k+1 node to the
      * threshold conductance.
      */
-    private double q = 0.25;
+    private double q = DEFAULT_BASIC_Q;
+
+    /** How the inhibitory conductance is computed. */
+    private InhibitionType inhibitionType = InhibitionType.BASIC;
 
     /**
      * Current inhibitory conductance to be applied to all neurons in the
@@ -57,15 +97,18 @@ public class KWTA extends NeuronGroup {
      */
     private double inhibitoryConductance;
 
+    /** Scratch array of threshold conductances, reused across updates. */
+    private transient double[] thresholds;
+
     /**
      * Default constructor.
      *
-     * @param k for the number of Neurons in the Kwta Network.
+     * @param numNeurons the number of Neurons in the Kwta Network.
      * @param root reference to Network.
      */
-    public KWTA(final Network root, final int k) {
+    public KWTA(final Network root, final int numNeurons) {
         super(root);
-        for (int i = 0; i < k; i++) {
+        for (int i = 0; i < numNeurons; i++) {
             addNeuron(new Neuron(getParentNetwork(), new PointNeuronRule()));
         }
         setLabel("K-Winner Take All");
@@ -73,53 +116,47 @@ public class KWTA extends NeuronGroup {
 
     @Override
     public void update() {
-        sortNeurons();
+        setCurrentThresholdCurrent();
         super.update();
     }
 
     /**
-     * See p. 101, equation 3.3. TODO: Unused, use or delete
+     * Compute the layer inhibitory conductance from the threshold conductances
+     * of the neurons, which reflect excitation from the previous update, and
+     * apply it to every neuron. See p. 101, equation 3.3 and p. 103.
      */
     private void setCurrentThresholdCurrent() {
-
-        double highest = ((PointNeuronRule) getNeuronList().get(k)
-                .getUpdateRule()).getInhibitoryThresholdConductance();
-        double secondHighest = ((PointNeuronRule) getNeuronList().get(k - 1)
-                .getUpdateRule()).getInhibitoryThresholdConductance();
-
-        inhibitoryConductance = secondHighest + q * (highest - secondHighest);
-
-        // System.out.println("highest " + highest + "  secondHighest "
-        // + secondHighest + " inhibitoryCondctance" + inhibitoryConductance);
-
-        // Set inhibitory conductances in the layer
-        for (Neuron neuron : getNeuronList()) {
-            ((PointNeuronRule) neuron.getUpdateRule())
-                    .setInhibitoryConductance(inhibitoryConductance);
+        List<Neuron> neurons = getNeuronList();
+        int n = neurons.size();
+        if (n < 2) {
+            return;
         }
-    }
-
-    /**
-     * Sort neurons by their excitatory conductance. See p. 101.
-     */
-    private void sortNeurons() {
-        // REDO
-        // Collections.sort(this.getNeuronList(), new PointNeuronComparator());
-    }
-
-    /**
-     * Used to sort PointNeurons by excitatory conductance.
-     */
-    class PointNeuronComparator implements Comparator<Neuron> {
+        if (thresholds == null || thresholds.length < n) {
+            thresholds = new double[n];
+        }
+        for (int i = 0; i < n; i++) {
+            thresholds[i] = ((PointNeuronRule) neurons.get(i).getUpdateRule())
+                    .getInhibitoryThresholdConductance();
+        }
+        int winners = Math.max(1, Math.min(k, n - 1));
+
+        // After selection the top k are in [0, k) and the rest in [k, n)
+        double kth = WinnerSelection.selectKthLargest(thresholds, n, winners);
+        double upper;
+        double lower;
+        if (inhibitionType == InhibitionType.AVERAGE) {
+            upper = WinnerSelection.mean(thresholds, 0, winners);
+            lower = WinnerSelection.mean(thresholds, winners, n);
+        } else {
+            upper = kth;
+            lower = WinnerSelection.max(thresholds, winners, n);
+        }
+        inhibitoryConductance = lower + q * (upper - lower);
 
-        /**
-         * {@inheritDoc}
-         */
-        public int compare(Neuron neuron1, Neuron neuron2) {
-            return (int) ((PointNeuronRule) neuron1.getUpdateRule())
-                    .getExcitatoryConductance()
-                    - (int) ((PointNeuronRule) neuron1.getUpdateRule())
-                            .getExcitatoryConductance();
+        // Set inhibitory conductances in the layer
+        for (int i = 0; i < n; i++) {
+            ((PointNeuronRule) neurons.get(i).getUpdateRule())
+                    .setLayerInhibitoryConductance(inhibitoryConductance);
         }
     }
 
@@ -144,4 +181,43 @@ public class KWTA extends NeuronGroup {
             this.k = k;
         }
     }
+
+    /**
+     * @return the q
+     */
+    public double getQ() {
+        return q;
+    }
+
+    /**
+     * @param q the q to set
+     */
+    public void setQ(final double q) {
+        this.q = q;
+    }
+
+    /**
+     * @return the inhibitionType
+     */
+    public InhibitionType getInhibitionType() {
+        return inhibitionType;
+    }
+
+    /**
+     * Set the inhibition type. Also resets q to the default for that type.
+     *
+     * @param inhibitionType the inhibitionType to set
+     */
+    public void setInhibitionType(final InhibitionType inhibitionType) {
+        this.inhibitionType = inhibitionType;
+        q = inhibitionType == InhibitionType.AVERAGE ? DEFAULT_AVERAGE_Q
+                : DEFAULT_BASIC_Q;
+    }
+
+    /**
+     * @return the current layer inhibitory conductance
+     */
+    public double getInhibitoryConductance() {
+        return inhibitoryConductance;
+    }
 }
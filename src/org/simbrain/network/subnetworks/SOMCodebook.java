@@ -0,0 +1,628 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.subnetworks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.Synapse;
+
+/**
+ * <b>SOMCodebook</b> is an array based copy of the weights of an
+ * {@link SOMGroup}, used to train the map without going through neurons and
+ * synapses. Each unit's weight vector is a row of a contiguous
+ * <code>double[units][dim]</code>, best matching units are found with an
+ * early-abandoning search (during batch epochs, over units sorted along their
+ * dimension of greatest spread), and the units within the largest neighborhood
+ * radius of each unit are precomputed from the lattice positions, sorted by
+ * distance. Weights are read from the synapses with {@link #pull()} and written
+ * back with {@link #push()}.
+ * <p>
+ * Two training algorithms are provided. Online training reproduces
+ * {@link SOMGroup#update()} one sample at a time. Batch training is the
+ * classic batch-SOM: each epoch finds the winner of every sample (in parallel),
+ * then sets each unit to the mean of the samples won by units in its
+ * neighborhood.
+ */
+public class SOMCodebook {
+
+    /** The map whose weights this codebook holds. */
+    private final SOMGroup som;
+
+    /** Input neurons, in the order of the columns of the training data. */
+    private final List<Neuron> inputs;
+
+    /** Number of units. */
+    private final int numUnits;
+
+    /** Input dimension. */
+    private final int dim;
+
+    /** Weight vector of each unit. */
+    private final double[][] weights;
+
+    /** Synapse corresponding to each weight. */
+    private final Synapse[][] synapses;
+
+    /** Lattice x position of each unit, from the neuron's location. */
+    private final double[] xPos;
+
+    /** Lattice y position of each unit, from the neuron's location. */
+    private final double[] yPos;
+
+    /** Radius up to which the neighborhood table was built. */
+    private double tableRadius = -1;
+
+    /** Start of each unit's neighbors in {@link #neighbors}. */
+    private int[] neighborStart;
+
+    /** Neighbors of each unit (including itself), nearest first. */
+    private int[] neighbors;
+
+    /** Lattice distance to each entry of {@link #neighbors}. */
+    private double[] neighborDistances;
+
+    /** Units sorted by their weight along {@link #sortDim}. */
+    private int[] sortedUnits;
+
+    /** Weight along {@link #sortDim} of each entry of {@link #sortedUnits}. */
+    private double[] sortedKeys;
+
+    /** Input dimension along which the units are sorted. */
+    private int sortDim;
+
+    /** Number of worker threads used by batch training. */
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+
+    /** Executor for batch training, created on first use. */
+    private ExecutorService executor;
+
+    /**
+     * Construct a codebook for an SOM group and read in its weights. Every
+     * unit must have exactly one incoming synapse from each input neuron.
+     *
+     * @param som the map
+     * @param inputs input neurons, in the order of the training data columns
+     */
+    public SOMCodebook(final SOMGroup som, final List<Neuron> inputs) {
+        this.som = som;
+        this.inputs = new ArrayList<Neuron>(inputs);
+        numUnits = som.size();
+        dim = inputs.size();
+        weights = new double[numUnits][dim];
+        synapses = new Synapse[numUnits][dim];
+        xPos = new double[numUnits];
+        yPos = new double[numUnits];
+        Map<Neuron, Integer> columns = new HashMap<Neuron, Integer>();
+        for (int i = 0; i < dim; i++) {
+            columns.put(inputs.get(i), i);
+        }
+        for (int u = 0; u < numUnits; u++) {
+            Neuron unit = som.getNeuronList().get(u);
+            for (Synapse incoming : unit.getFanIn()) {
+                Integer col = columns.get(incoming.getSource());
+                if (col != null) {
+                    synapses[u][col] = incoming;
+                }
+            }
+            for (int i = 0; i < dim; i++) {
+                if (synapses[u][i] == null) {
+                    throw new IllegalArgumentException("SOM neuron " + u
+                            + " is not connected to input " + i);
+                }
+            }
+        }
+        pull();
+    }
+
+    /**
+     * Read the weights from the synapses and the lattice positions from the
+     * neurons. The neighborhood table is rebuilt if any unit has moved.
+     */
+    public void pull() {
+        for (int u = 0; u < numUnits; u++) {
+            Synapse[] row = synapses[u];
+            double[] w = weights[u];
+            for (int i = 0; i < dim; i++) {
+                w[i] = row[i].getStrength();
+            }
+            Neuron unit = som.getNeuronList().get(u);
+            if (unit.getX() != xPos[u] || unit.getY() != yPos[u]) {
+                xPos[u] = unit.getX();
+                yPos[u] = unit.getY();
+                tableRadius = -1;
+            }
+        }
+    }
+
+    /**
+     * Write the weights back to the synapses.
+     */
+    public void push() {
+        for (int u = 0; u < numUnits; u++) {
+            Synapse[] row = synapses[u];
+            double[] w = weights[u];
+            for (int i = 0; i < dim; i++) {
+                row[i].setStrength(w[i]);
+            }
+        }
+    }
+
+    /**
+     * Make sure the neighborhood table covers a given radius. Neighborhoods
+     * only shrink during training, so the table is built once for the initial
+     * radius and then reused.
+     *
+     * @param radius the radius to cover
+     */
+    private void ensureNeighborhoodTable(final double radius) {
+        if (radius <= tableRadius) {
+            return;
+        }
+        double r2 = radius * radius;
+        int[] start = new int[numUnits + 1];
+        int[] ids = new int[numUnits];
+        double[] dists = new double[numUnits];
+        Integer[] order = new Integer[numUnits];
+        int[] nbrs = new int[numUnits * 4];
+        double[] nbrDists = new double[numUnits * 4];
+        int count = 0;
+        for (int u = 0; u < numUnits; u++) {
+            start[u] = count;
+            int n = 0;
+            for (int v = 0; v < numUnits; v++) {
+                double dx = xPos[v] - xPos[u];
+                double dy = yPos[v] - yPos[u];
+                double d2 = dx * dx + dy * dy;
+                if (d2 <= r2) {
+                    ids[n] = v;
+                    dists[n] = Math.sqrt(d2);
+                    order[n] = n;
+                    n++;
+                }
+            }
+            Arrays.sort(order, 0, n,
+                    (a, b) -> Double.compare(dists[a], dists[b]));
+            if (count + n > nbrs.length) {
+                int capacity = Math.max(nbrs.length * 2, count + n);
+                nbrs = Arrays.copyOf(nbrs, capacity);
+                nbrDists = Arrays.copyOf(nbrDists, capacity);
+            }
+            for (int k = 0; k < n; k++) {
+                nbrs[count] = ids[order[k]];
+                nbrDists[count] = dists[order[k]];
+                count++;
+            }
+        }
+        start[numUnits] = count;
+        neighborStart = start;
+        neighbors = nbrs;
+        neighborDistances = nbrDists;
+        tableRadius = radius;
+    }
+
+    /**
+     * Find the unit whose weight vector is closest to an input vector. The
+     * distance to a unit stops being summed as soon as it exceeds the best
+     * distance found so far.
+     *
+     * @param input the input vector
+     * @return index of the best matching unit
+     */
+    public int findBestMatchingUnit(final double[] input) {
+        int best = 0;
+        double bestDist = Double.POSITIVE_INFINITY;
+        for (int u = 0; u < numUnits; u++) {
+            double d = distance(u, input, bestDist);
+            if (d < bestDist) {
+                bestDist = d;
+                best = u;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Sort the units along the dimension in which their weights vary most, so
+     * that {@link #findBestMatchingUnitSorted(double[])} can be used until the
+     * weights next change.
+     */
+    private void sortUnits() {
+        double bestVar = -1;
+        for (int i = 0; i < dim; i++) {
+            double sum = 0;
+            double sumSq = 0;
+            for (int u = 0; u < numUnits; u++) {
+                double w = weights[u][i];
+                sum += w;
+                sumSq += w * w;
+            }
+            double var = sumSq - sum * sum / numUnits;
+            if (var > bestVar) {
+                bestVar = var;
+                sortDim = i;
+            }
+        }
+        Integer[] order = new Integer[numUnits];
+        for (int u = 0; u < numUnits; u++) {
+            order[u] = u;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(weights[a][sortDim],
+                weights[b][sortDim]));
+        if (sortedUnits == null || sortedUnits.length != numUnits) {
+            sortedUnits = new int[numUnits];
+            sortedKeys = new double[numUnits];
+        }
+        for (int k = 0; k < numUnits; k++) {
+            sortedUnits[k] = order[k];
+            sortedKeys[k] = weights[order[k]][sortDim];
+        }
+    }
+
+    /**
+     * Find the best matching unit using the sorted units. The search starts
+     * from the units nearest the input along the sorted dimension and moves
+     * outward in both directions, stopping in each direction once the
+     * distance along that dimension alone exceeds the best distance found.
+     * Gives the same unit as {@link #findBestMatchingUnit(double[])} up to
+     * ties.
+     *
+     * @param input the input vector
+     * @param hint a unit likely to be close to the input, such as its previous
+     *            best matching unit, used to bound the search; or -1
+     * @return index of the best matching unit
+     */
+    private int findBestMatchingUnitSorted(final double[] input,
+            final int hint) {
+        double key = input[sortDim];
+        int hi = Arrays.binarySearch(sortedKeys, key);
+        if (hi < 0) {
+            hi = -hi - 1;
+        }
+        int lo = hi - 1;
+        int best = 0;
+        double bestDist = Double.POSITIVE_INFINITY;
+        if (hint >= 0) {
+            best = hint;
+            bestDist = distance(hint, input, bestDist);
+        }
+        while (lo >= 0 || hi < numUnits) {
+            if (hi < numUnits) {
+                double dk = sortedKeys[hi] - key;
+                if (dk * dk >= bestDist) {
+                    hi = numUnits;
+                } else {
+                    int u = sortedUnits[hi++];
+                    double d = distance(u, input, bestDist);
+                    if (d < bestDist) {
+                        bestDist = d;
+                        best = u;
+                    }
+                }
+            }
+            if (lo >= 0) {
+                double dk = key - sortedKeys[lo];
+                if (dk * dk >= bestDist) {
+                    lo = -1;
+                } else {
+                    int u = sortedUnits[lo--];
+                    double d = distance(u, input, bestDist);
+                    if (d < bestDist) {
+                        bestDist = d;
+                        best = u;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Squared distance between a unit's weights and an input, abandoned once
+     * it reaches a bound.
+     *
+     * @param unit the unit
+     * @param input the input vector
+     * @param bound distance beyond which the exact value is not needed
+     * @return the squared distance, or a value of at least bound
+     */
+    private double distance(final int unit, final double[] input,
+            final double bound) {
+        double[] w = weights[unit];
+        double d = 0;
+        for (int i = 0; i < dim; i++) {
+            double diff = w[i] - input[i];
+            d += diff * diff;
+            if (d >= bound) {
+                break;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Train on each row of a data set in turn, exactly as repeated calls to
+     * {@link SOMGroup#update()} would: the best matching unit and every unit
+     * within the neighborhood radius of it move toward the input by the
+     * learning rate, with each step limited by the synapse's bounds, polarity
+     * and frozen state, and then the learning rate and radius decay. The
+     * group's learning rate and neighborhood size are updated accordingly.
+     *
+     * @param data training data, one row per sample
+     * @return index of the best matching unit for the last row, or -1 if
+     *         there are no rows
+     */
+    public int trainOnline(final double[][] data) {
+        double alpha = som.getAlpha();
+        double radius = som.getNeighborhoodSize();
+        double alphaDecayRate = som.getAlphaDecayRate();
+        double decayAmount = som.getNeighborhoodDecayAmount();
+        ensureNeighborhoodTable(radius);
+        int bmu = -1;
+        for (double[] input : data) {
+            bmu = findBestMatchingUnit(input);
+            for (int k = neighborStart[bmu], end = neighborStart[bmu + 1];
+                    k < end && neighborDistances[k] <= radius; k++) {
+                double[] w = weights[neighbors[k]];
+                Synapse[] row = synapses[neighbors[k]];
+                for (int i = 0; i < dim; i++) {
+                    w[i] = constrain(row[i], w[i],
+                            w[i] + alpha * (input[i] - w[i]));
+                }
+            }
+            alpha -= alpha * alphaDecayRate;
+            if (radius - decayAmount > 0) {
+                radius -= decayAmount;
+            } else {
+                radius = 0;
+            }
+        }
+        som.setTrainingState(alpha, radius);
+        return bmu;
+    }
+
+    /**
+     * Returns a weight limited as {@link Synapse#setStrength(double)} would
+     * limit it.
+     *
+     * @param synapse the synapse the weight belongs to
+     * @param old the current weight
+     * @param value the new weight
+     * @return the weight the synapse would take
+     */
+    private static double constrain(final Synapse synapse, final double old,
+            final double value) {
+        if (synapse.isFrozen()) {
+            return old;
+        }
+        return synapse.clip(synapse.getSource().getPolarity().clip(value));
+    }
+
+    /**
+     * Run a number of batch-SOM epochs over a data set. The neighborhood
+     * radius shrinks linearly from the group's current neighborhood size to
+     * zero over the epochs, so the last epoch only moves each unit to the
+     * mean of the samples it wins. The learning rate is not used.
+     *
+     * @param data training data, one row per sample
+     * @param epochs number of epochs
+     * @return index of the best matching unit for the last row, or -1 if
+     *         there are no rows
+     */
+    public int trainBatch(final double[][] data, final int epochs) {
+        double initRadius = som.getNeighborhoodSize();
+        ensureNeighborhoodTable(initRadius);
+        int threads = Math.max(1, Math.min(numThreads, data.length));
+        double[][][] sums = new double[threads][numUnits][dim];
+        int[][] counts = new int[threads][numUnits];
+        final int[] bmus = new int[data.length];
+        Arrays.fill(bmus, -1);
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(threads);
+        int share = data.length / threads;
+        int remainder = data.length % threads;
+        int start = 0;
+        for (int t = 0; t < threads; t++) {
+            final int from = start;
+            final int to = from + share + (t < remainder ? 1 : 0);
+            final double[][] sum = sums[t];
+            final int[] count = counts[t];
+            tasks.add(() -> {
+                accumulate(data, from, to, sum, count, bmus);
+                return null;
+            });
+            start = to;
+        }
+
+        double[] num = new double[dim];
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            double radius = epochs == 1 ? 0
+                    : initRadius * (epochs - 1 - epoch) / (epochs - 1);
+            for (int t = 0; t < threads; t++) {
+                for (double[] row : sums[t]) {
+                    Arrays.fill(row, 0);
+                }
+                Arrays.fill(counts[t], 0);
+            }
+            sortUnits();
+            if (threads == 1) {
+                accumulate(data, 0, data.length, sums[0], counts[0], bmus);
+            } else {
+                invokeAll(tasks);
+            }
+            // Reduce per thread sums into the first thread's arrays
+            for (int t = 1; t < threads; t++) {
+                for (int u = 0; u < numUnits; u++) {
+                    counts[0][u] += counts[t][u];
+                    double[] to = sums[0][u];
+                    double[] from = sums[t][u];
+                    for (int i = 0; i < dim; i++) {
+                        to[i] += from[i];
+                    }
+                }
+            }
+            // Each unit becomes the mean of the samples won in its
+            // neighborhood. Units with no such samples keep their weights.
+            for (int u = 0; u < numUnits; u++) {
+                Arrays.fill(num, 0);
+                int den = 0;
+                for (int k = neighborStart[u], end = neighborStart[u + 1];
+                        k < end && neighborDistances[k] <= radius; k++) {
+                    int v = neighbors[k];
+                    if (counts[0][v] > 0) {
+                        den += counts[0][v];
+                        double[] s = sums[0][v];
+                        for (int i = 0; i < dim; i++) {
+                            num[i] += s[i];
+                        }
+                    }
+                }
+                if (den > 0) {
+                    double[] w = weights[u];
+                    for (int i = 0; i < dim; i++) {
+                        w[i] = num[i] / den;
+                    }
+                }
+            }
+        }
+        som.setTrainingState(som.getAlpha(), 0);
+        return data.length == 0 ? -1
+                : findBestMatchingUnit(data[data.length - 1]);
+    }
+
+    /**
+     * Add each row in a range to the sum and count of its best matching unit.
+     *
+     * @param data training data
+     * @param from first row (inclusive)
+     * @param to last row (exclusive)
+     * @param sum per unit sums of the rows it wins
+     * @param count per unit number of rows won
+     * @param bmus best matching unit of each row in the previous epoch (or -1),
+     *            updated to the current epoch
+     */
+    private void accumulate(final double[][] data, final int from,
+            final int to, final double[][] sum, final int[] count,
+            final int[] bmus) {
+        for (int r = from; r < to; r++) {
+            double[] input = data[r];
+            int bmu = findBestMatchingUnitSorted(input, bmus[r]);
+            bmus[r] = bmu;
+            count[bmu]++;
+            double[] s = sum[bmu];
+            for (int i = 0; i < dim; i++) {
+                s[i] += input[i];
+            }
+        }
+    }
+
+    /**
+     * Run tasks on the executor and wait for them to finish.
+     *
+     * @param tasks the tasks
+     */
+    private void invokeAll(final List<Callable<Void>> tasks) {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(numThreads, r -> {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Release worker threads. They are recreated if batch training is run
+     * again.
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Returns true if this codebook still matches the map's units and the
+     * given inputs.
+     *
+     * @param inputs input neurons
+     * @return whether the codebook can be reused
+     */
+    boolean matches(final List<Neuron> inputs) {
+        return som.size() == numUnits && this.inputs.equals(inputs);
+    }
+
+    /**
+     * Returns the weight vectors. Changes take effect on the synapses after
+     * {@link #push()}.
+     *
+     * @return the weights (live array)
+     */
+    public double[][] getWeights() {
+        return weights;
+    }
+
+    /**
+     * @return the number of units
+     */
+    public int getNumUnits() {
+        return numUnits;
+    }
+
+    /**
+     * @return the input dimension
+     */
+    public int getDimension() {
+        return dim;
+    }
+
+    /**
+     * @return the number of threads used for batch training
+     */
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * @param numThreads the number of threads to use for batch training
+     */
+    public void setNumThreads(final int numThreads) {
+        shutdown();
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+}
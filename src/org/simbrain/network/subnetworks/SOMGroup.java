@@ -28,6 +28,7 @@ import org.simbrain.network.groups.NeuronGroup;
 import org.simbrain.network.layouts.HexagonalGridLayout;
 import org.simbrain.network.layouts.Layout;
 import org.simbrain.network.neuron_update_rules.LinearRule;
+import org.simbrain.util.math.WinnerSelection;
 
 /**
  * <b>SOM</b> implements a Self-Organizing Map network.
@@ -86,6 +87,9 @@ public class SOMGroup extends NeuronGroup {
     /** The number of epochs run in a given batch. */
     private int batchSize = DEFAULT_BATCH_SIZE;
 
+    /** Array copy of the weights used by array based training. */
+    private transient SOMCodebook codebook;
+
     /** The rate at which the learning rate decays. */
     private double alphaDecayRate = DEFAULT_DECAY_RATE;
 
@@ -246,22 +250,109 @@ public class SOMGroup extends NeuronGroup {
         }
     }
 
+    /**
+     * Train the map online on each row of a data set, with the same result as
+     * setting the inputs to each row and calling {@link #update()}, but
+     * working on an array copy of the weights. The weights are written back
+     * to the synapses at the end and the winner for the last row is
+     * activated.
+     *
+     * @param inputs input neurons, in the order of the data columns
+     * @param data training data, one row per sample
+     */
+    public void trainOnline(final List<Neuron> inputs, final double[][] data) {
+        SOMCodebook book = getCodebook(inputs);
+        setWinner(book.trainOnline(data));
+        book.push();
+    }
+
+    /**
+     * Train the map with {@link #getBatchSize()} epochs of the batch-SOM
+     * algorithm over a data set, during which the neighborhood shrinks from
+     * its current size to zero. The weights are written back to the synapses
+     * at the end and the winner for the last row is activated.
+     *
+     * @param inputs input neurons, in the order of the data columns
+     * @param data training data, one row per sample
+     */
+    public void trainBatch(final List<Neuron> inputs, final double[][] data) {
+        SOMCodebook book = getCodebook(inputs);
+        setWinner(book.trainBatch(data, batchSize));
+        book.push();
+    }
+
+    /**
+     * Returns an array copy of the weights from the given inputs, reusing the
+     * previous copy (and its neighborhood table) when the inputs are the same.
+     *
+     * @param inputs input neurons, in the order of the data columns
+     * @return the codebook, with weights freshly read from the synapses
+     */
+    public SOMCodebook getCodebook(final List<Neuron> inputs) {
+        if (codebook == null || !codebook.matches(inputs)) {
+            if (codebook != null) {
+                codebook.shutdown();
+            }
+            codebook = new SOMCodebook(this, inputs);
+        } else {
+            codebook.pull();
+        }
+        return codebook;
+    }
+
+    /**
+     * Also releases the codebook's batch training threads.
+     */
+    @Override
+    public void delete() {
+        super.delete();
+        if (codebook != null) {
+            codebook.shutdown();
+            codebook = null;
+        }
+    }
+
+    /**
+     * Activate the neuron at a given index and silence the rest.
+     *
+     * @param index index of the winning neuron, or -1 for none
+     */
+    private void setWinner(final int index) {
+        if (index < 0) {
+            return;
+        }
+        winner = getNeuronList().get(index);
+        for (Neuron n : getNeuronList()) {
+            n.setActivation(n == winner ? 1 : 0);
+        }
+    }
+
+    /**
+     * Set the learning rate and neighborhood size reached by training done
+     * outside of {@link #update()}.
+     *
+     * @param alpha the current learning rate
+     * @param neighborhoodSize the current neighborhood size
+     */
+    void setTrainingState(final double alpha, final double neighborhoodSize) {
+        this.alpha = alpha;
+        this.neighborhoodSize = neighborhoodSize;
+    }
+
     /**
      * Find the SOM neuron which is closest to the input vector.
      *
      * @return winner
      */
     private Neuron calculateWinner() {
-        Neuron winner = null;
-        for (int i = 0; i < getNeuronList().size(); i++) {
-            Neuron n = getNeuronList().get(i);
-            distance = findDistance(n);
-            if (distance < winDistance) {
-                winDistance = distance;
-                winner = n;
-            }
+        List<Neuron> neurons = getNeuronList();
+        int index = WinnerSelection.argMin(neurons.size(),
+                i -> findDistance(neurons.get(i)));
+        if (index < 0) {
+            return null;
         }
-        return winner;
+        winDistance = findDistance(neurons.get(index));
+        return neurons.get(index);
     }
 
     /**
@@ -274,8 +365,9 @@ public class SOMGroup extends NeuronGroup {
     private double findDistance(final Neuron n) {
         double ret = 0;
         for (Synapse incoming : n.getFanIn()) {
-            ret += Math.pow(incoming.getStrength()
-                    - incoming.getSource().getActivation(), 2);
+            double diff = incoming.getStrength()
+                    - incoming.getSource().getActivation();
+            ret += diff * diff;
         }
         return ret;
     }
@@ -20,12 +20,12 @@ package org.simbrain.network.subnetworks;
 
 import java.util.List;
 import java.util.Random;
-import java.util.ArrayList;
 
 import org.simbrain.network.core.Network;
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.groups.NeuronGroup;
 import org.simbrain.network.neuron_update_rules.LinearRule;
+import org.simbrain.util.math.WinnerSelection;
 
 /**
  * <b>WinnerTakeAll</b>.The neuron with the highest weighted input in a
@@ -143,35 +143,19 @@ public class WinnerTakeAll extends NeuronGroup {
      *            determine winner
      * @return the neuron with the highest net input
      */
-    public static Neuron getWinner(List<Neuron> neuronList,
-            boolean useActivations) {
+    public static Neuron getWinner(final List<Neuron> neuronList,
+            final boolean useActivations) {
 
         if (neuronList.isEmpty()) {
             return null;
         }
 
-        List<Neuron> winners = new ArrayList<Neuron>();
-        Neuron winner = neuronList.get(0);
-        winners.add(winner);
-        for (Neuron n : neuronList) {
-            double winnerVal = useActivations ? winner.getActivation()
-                    : winner.getWeightedInputs();
-            double val = useActivations ? n.getActivation()
-                    : n.getWeightedInputs();
-            if (val == winnerVal) {
-                winners.add(n);
-            } else if (val > winnerVal) {
-                winners.clear();
-                winner = n;
-                winners.add(n);
-            }
-        }
-        if (winners.size() == 1) {
-            return winner;
-        } else {
-            return winners.get(rand.nextInt(winners.size()));
-        }
-
+        // Ties are broken at random in the same pass
+        int winner = WinnerSelection.argMax(neuronList.size(),
+                i -> useActivations ? neuronList.get(i).getActivation()
+                        : neuronList.get(i).getWeightedInputs(),
+                rand);
+        return neuronList.get(winner);
     }
 
     /**
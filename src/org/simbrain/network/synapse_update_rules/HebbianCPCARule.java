@@ -18,6 +18,8 @@
  */
 package org.simbrain.network.synapse_update_rules;
 
+import org.simbrain.network.core.FanInStatistics;
+import org.simbrain.network.core.RowKernelRule;
 import org.simbrain.network.core.Synapse;
 import org.simbrain.network.core.SynapseUpdateRule;
 import org.simbrain.util.math.SimbrainMath;
@@ -25,7 +27,8 @@ import org.simbrain.util.math.SimbrainMath;
 /**
  * <b>HebbianCPCA</b>. TODO: No Doc.
  */
-public class HebbianCPCARule extends SynapseUpdateRule {
+public class HebbianCPCARule extends SynapseUpdateRule
+        implements RowKernelRule {
 
     /** Default Learning rate. */
     public static final double DEFAULT_LEARNING_RATE = .005;
@@ -101,6 +104,16 @@ public class HebbianCPCARule extends SynapseUpdateRule {
         return 1 / (1 + Math.pow(theta * (arg / (1 - arg)), -lambda));
     }
 
+    @Override
+    public void updateRow(double[] pre, int[] sources, double post,
+            FanInStatistics stats, double[] weights, int from, int to) {
+        // Equation 4.12, as in update()
+        double rate = learningRate * post;
+        for (int i = from; i < to; i++) {
+            weights[i] += rate * (pre[sources[i]] - weights[i]);
+        }
+    }
+
     /**
      * @return Returns the momentum.
      */
@@ -18,13 +18,15 @@
  */
 package org.simbrain.network.synapse_update_rules;
 
+import org.simbrain.network.core.FanInStatistics;
+import org.simbrain.network.core.RowKernelRule;
 import org.simbrain.network.core.Synapse;
 import org.simbrain.network.core.SynapseUpdateRule;
 
 /**
  * <b>Hebbian</b> implements a standard Hebbian learning rule.
  */
-public class HebbianRule extends SynapseUpdateRule {
+public class HebbianRule extends SynapseUpdateRule implements RowKernelRule {
 
     /** Default learning rate. */
     public static final double DEFAULT_LEARNING_RATE = .1;
@@ -57,6 +59,15 @@ public class HebbianRule extends SynapseUpdateRule {
         synapse.setStrength(strength);
     }
 
+    @Override
+    public void updateRow(double[] pre, int[] sources, double post,
+            FanInStatistics stats, double[] weights, int from, int to) {
+        double rate = learningRate * post;
+        for (int i = from; i < to; i++) {
+            weights[i] += rate * pre[sources[i]];
+        }
+    }
+
     /**
      * @return Returns the momentum.
      */
@@ -18,6 +18,8 @@
  */
 package org.simbrain.network.synapse_update_rules;
 
+import org.simbrain.network.core.FanInStatistics;
+import org.simbrain.network.core.RowKernelRule;
 import org.simbrain.network.core.Synapse;
 import org.simbrain.network.core.SynapseUpdateRule;
 
@@ -25,7 +27,7 @@ import org.simbrain.network.core.SynapseUpdateRule;
  * <b>OjaSynapse</b> is a synapse which asymptotically normalizes the sum of
  * squares of the weights attaching to a neuron to a user-defined value.
  */
-public class OjaRule extends SynapseUpdateRule {
+public class OjaRule extends SynapseUpdateRule implements RowKernelRule {
 
     /** Learning rate. */
     public static final double DEFAULT_LEARNING_RATE = .1;
@@ -67,6 +69,16 @@ public class OjaRule extends SynapseUpdateRule {
         synapse.setStrength(synapse.clip(strength));
     }
 
+    @Override
+    public void updateRow(double[] pre, int[] sources, double post,
+            FanInStatistics stats, double[] weights, int from, int to) {
+        double decay = post * post / normalizationFactor;
+        for (int i = from; i < to; i++) {
+            weights[i] += learningRate
+                    * ((pre[sources[i]] * post) - (decay * weights[i]));
+        }
+    }
+
     /**
      * @return Returns the momentum.
      */
@@ -18,13 +18,16 @@
  */
 package org.simbrain.network.synapse_update_rules;
 
+import org.simbrain.network.core.FanInStatistics;
+import org.simbrain.network.core.RowKernelRule;
 import org.simbrain.network.core.Synapse;
 import org.simbrain.network.core.SynapseUpdateRule;
 
 /**
  * <b>SubtractiveNormalizationSynapse</b>.
  */
-public class SubtractiveNormalizationRule extends SynapseUpdateRule {
+public class SubtractiveNormalizationRule extends SynapseUpdateRule
+        implements RowKernelRule {
 
     /** Default learning rate. */
     public static final double DEFAULT_LEARNING_RATE = 1;
@@ -50,15 +53,39 @@ public class SubtractiveNormalizationRule extends SynapseUpdateRule {
 
     @Override
     public void update(Synapse synapse) {
+        update(synapse, new FanInStatistics(synapse.getTarget()));
+    }
+
+    @Override
+    public void update(Synapse synapse, FanInStatistics stats) {
+        if (stats == null) {
+            update(synapse);
+            return;
+        }
         double input = synapse.getSource().getActivation();
         double output = synapse.getTarget().getActivation();
-        double averageInput = synapse.getTarget().getAverageInput();
+        double averageInput = stats.getAverageInput();
         double strength = synapse.getStrength()
                 + ((learningRate * output * input) - (learningRate * output * averageInput));
         synapse.setStrength(synapse.clip(strength));
 
     }
 
+    @Override
+    public boolean usesFanInStatistics() {
+        return true;
+    }
+
+    @Override
+    public void updateRow(double[] pre, int[] sources, double post,
+            FanInStatistics stats, double[] weights, int from, int to) {
+        double averageInput = stats.getAverageInput();
+        double rate = learningRate * post;
+        for (int i = from; i < to; i++) {
+            weights[i] += rate * (pre[sources[i]] - averageInput);
+        }
+    }
+
     /**
      * @return Returns the momentum.
      */
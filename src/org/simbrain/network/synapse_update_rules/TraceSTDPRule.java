@@ -0,0 +1,116 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.synapse_update_rules;
+
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.core.SynapseUpdateRule;
+
+/**
+ * <b>TraceSTDPRule</b> is spike time dependent plasticity computed from
+ * exponentially decaying traces of each neuron's last spike, rather than from
+ * pairs of spike times looked up on every synapse.
+ * <p>
+ * In a synapse group that uses group level settings, the group keeps one
+ * trace per source and per target neuron. Traces are decayed once per neuron
+ * per time step and reset to 1 when the neuron spikes, so a trace holds
+ * exp(-(t - t_spike) / tau) for the neuron's last spike. When a target neuron
+ * spikes, its fan-in within the group is changed in proportion to the source
+ * traces, and when a source neuron spikes its fan-out is changed in
+ * proportion to the target traces. Only synapses of neurons that spiked are
+ * visited, so the cost of plasticity grows with the number of spikes rather
+ * than the number of synapses. The weight changes are those of
+ * {@link STDPRule}.
+ * <p>
+ * Synapses that are not in such a group are updated as in {@link STDPRule}.
+ */
+public class TraceSTDPRule extends STDPRule {
+
+    @Override
+    public String getName() {
+        return "STDP (Traces)";
+    }
+
+    @Override
+    public SynapseUpdateRule deepCopy() {
+        TraceSTDPRule duplicateSynapse = new TraceSTDPRule();
+        duplicateSynapse.setTau_minus(this.getTau_minus());
+        duplicateSynapse.setTau_plus(this.getTau_plus());
+        duplicateSynapse.setW_minus(this.getW_minus());
+        duplicateSynapse.setW_plus(this.getW_plus());
+        duplicateSynapse.setLearningRate(this.getLearningRate());
+        duplicateSynapse.setHebbian(isHebbian());
+        return duplicateSynapse;
+    }
+
+    /**
+     * Returns the factor by which source traces decay in one time step. The
+     * source trace is read when the target spikes.
+     *
+     * @param timeStep the network time step
+     * @return the per step decay of source traces
+     */
+    public double getSourceTraceDecay(final double timeStep) {
+        return Math.exp(-timeStep / (isHebbian() ? tau_plus : tau_minus));
+    }
+
+    /**
+     * Returns the factor by which target traces decay in one time step. The
+     * target trace is read when the source spikes.
+     *
+     * @param timeStep the network time step
+     * @return the per step decay of target traces
+     */
+    public double getTargetTraceDecay(final double timeStep) {
+        return Math.exp(-timeStep / (isHebbian() ? tau_minus : tau_plus));
+    }
+
+    /**
+     * @return the weight change per unit of source trace when the target
+     *         spikes: potentiation for Hebbian STDP, depression otherwise
+     */
+    public double getTargetSpikeRate() {
+        return isHebbian() ? W_plus * learningRate : -W_minus * learningRate;
+    }
+
+    /**
+     * @return the weight change per unit of target trace when the source
+     *         spikes: depression for Hebbian STDP, potentiation otherwise
+     */
+    public double getSourceSpikeRate() {
+        return isHebbian() ? -W_minus * learningRate : W_plus * learningRate;
+    }
+
+    /**
+     * Change a synapse's strength by a trace-derived amount. As in
+     * {@link STDPRule}, changes to negative weights are applied to their
+     * magnitude.
+     *
+     * @param synapse the synapse to change
+     * @param delta the change
+     */
+    public static void applyChange(final Synapse synapse, final double delta) {
+        double str = synapse.getStrength();
+        if (str < 0) {
+            synapse.setStrength(str - delta);
+        } else {
+            synapse.setStrength(str + delta);
+        }
+    }
+
+}
@@ -0,0 +1,351 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.trainers;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.NeuronUpdateRule;
+import org.simbrain.network.neuron_update_rules.LinearRule;
+import org.simbrain.network.neuron_update_rules.SigmoidalRule;
+import org.simbrain.network.neuron_update_rules.interfaces.BiasedUpdateRule;
+import org.simbrain.util.math.SquashingFunction;
+
+/**
+ * The activation function and biases of a layer of neurons, held in arrays
+ * for the array based trainers. Neurons must use {@link SigmoidalRule} or
+ * {@link LinearRule}, with the same settings (other than bias) throughout the
+ * layer. Noise is not modeled.
+ */
+class ArrayLayer {
+
+    /** Squashing function, or null for a linear layer. */
+    private final SquashingFunction function;
+
+    /** Whether to use the approximate squashing function. */
+    private final boolean fastMath;
+
+    /** Upper bound of the activation. */
+    private final double upperBound;
+
+    /** Lower bound of the activation. */
+    private final double lowerBound;
+
+    /**
+     * Slope. The activation is f(slope * net + bias) for linear layers and
+     * f(net + bias) with a curve of this slope for sigmoidal layers.
+     */
+    private final double slope;
+
+    /** Whether a linear layer is clipped to its bounds. */
+    private final boolean clipped;
+
+    /** Bias of each neuron. */
+    private final double[] bias;
+
+    /** Accumulated bias gradient of each neuron. */
+    private final double[] gradient;
+
+    /**
+     * Distinct update rules of the layer. Neurons may share a rule (as in
+     * a simple recurrent network), and then share its bias.
+     */
+    private final BiasedUpdateRule[] rules;
+
+    /** Index in {@link #rules} of each neuron's rule. */
+    private final int[] ruleIndex;
+
+    /** Bias gradient of each rule. */
+    private final double[] ruleGradient;
+
+    /** Last bias change of each rule, for momentum. */
+    private final double[] lastDelta;
+
+    /**
+     * Read the activation function of a layer.
+     *
+     * @param neurons the neurons of the layer
+     */
+    ArrayLayer(final List<Neuron> neurons) {
+        NeuronUpdateRule rule = neurons.get(0).getUpdateRule();
+        if (rule instanceof SigmoidalRule) {
+            SigmoidalRule sigmoid = (SigmoidalRule) rule;
+            function = sigmoid.getSquashFunctionType();
+            fastMath = sigmoid.isFastMath();
+            upperBound = sigmoid.getUpperBound();
+            lowerBound = sigmoid.getLowerBound();
+            slope = sigmoid.getSlope();
+            clipped = false;
+        } else if (rule instanceof LinearRule) {
+            LinearRule linear = (LinearRule) rule;
+            function = null;
+            fastMath = false;
+            upperBound = linear.getUpperBound();
+            lowerBound = linear.getLowerBound();
+            slope = linear.getSlope();
+            clipped = linear.isClipped();
+        } else {
+            throw new IllegalArgumentException(
+                    "Array based training requires sigmoidal or "
+                    + "linear neurons");
+        }
+        for (Neuron neuron : neurons) {
+            if (!sameFunction(neuron.getUpdateRule())) {
+                throw new IllegalArgumentException("Neurons in a layer must"
+                        + " use the same activation function");
+            }
+        }
+        bias = new double[neurons.size()];
+        gradient = new double[bias.length];
+        ruleIndex = new int[bias.length];
+        List<BiasedUpdateRule> distinct = new ArrayList<BiasedUpdateRule>();
+        Map<BiasedUpdateRule, Integer> indices = new IdentityHashMap<BiasedUpdateRule, Integer>();
+        for (int i = 0; i < bias.length; i++) {
+            BiasedUpdateRule r = (BiasedUpdateRule) neurons.get(i)
+                    .getUpdateRule();
+            Integer index = indices.get(r);
+            if (index == null) {
+                index = distinct.size();
+                distinct.add(r);
+                indices.put(r, index);
+            }
+            ruleIndex[i] = index;
+        }
+        rules = distinct.toArray(new BiasedUpdateRule[distinct.size()]);
+        ruleGradient = new double[rules.length];
+        lastDelta = new double[rules.length];
+    }
+
+    /**
+     * Returns true if a neuron's rule computes the same function as this
+     * layer's (biases aside).
+     *
+     * @param rule the rule
+     * @return whether the rule matches
+     */
+    private boolean sameFunction(final NeuronUpdateRule rule) {
+        if (function != null) {
+            if (!(rule instanceof SigmoidalRule)) {
+                return false;
+            }
+            SigmoidalRule s = (SigmoidalRule) rule;
+            return s.getSquashFunctionType() == function
+                    && s.isFastMath() == fastMath
+                    && s.getUpperBound() == upperBound
+                    && s.getLowerBound() == lowerBound
+                    && s.getSlope() == slope;
+        }
+        if (!(rule instanceof LinearRule)) {
+            return false;
+        }
+        LinearRule l = (LinearRule) rule;
+        return l.getSlope() == slope && l.isClipped() == clipped
+                && (!clipped || (l.getUpperBound() == upperBound && l
+                        .getLowerBound() == lowerBound));
+    }
+
+    /**
+     * @return the number of neurons
+     */
+    int size() {
+        return bias.length;
+    }
+
+    /**
+     * @return whether some neurons share an update rule, and so a bias
+     */
+    boolean hasSharedRules() {
+        return rules.length < bias.length;
+    }
+
+    /**
+     * Read the biases.
+     */
+    void pull() {
+        for (int i = 0; i < bias.length; i++) {
+            bias[i] = rules[ruleIndex[i]].getBias();
+        }
+    }
+
+    /**
+     * Write the biases.
+     */
+    void push() {
+        for (int i = 0; i < bias.length; i++) {
+            rules[ruleIndex[i]].setBias(bias[i]);
+        }
+    }
+
+    /**
+     * @return the biases; changes are seen by {@link #push()}
+     */
+    double[] getBiases() {
+        return bias;
+    }
+
+    /**
+     * Compute activations and activation function derivatives from net
+     * inputs.
+     *
+     * @param net net inputs; overwritten
+     * @param act array receiving the activations
+     * @param deriv array receiving the derivatives with respect to the
+     *            biased input
+     */
+    void activate(final double[] net, final double[] act,
+            final double[] deriv) {
+        int n = bias.length;
+        if (function != null) {
+            for (int i = 0; i < n; i++) {
+                net[i] += bias[i];
+            }
+            if (fastMath) {
+                function.fastValueOf(net, act, upperBound, lowerBound,
+                        slope);
+                function.fastDerivVal(net, deriv, upperBound, lowerBound,
+                        slope);
+            } else {
+                function.valueOf(net, act, upperBound, lowerBound, slope);
+                function.derivVal(net, deriv, upperBound, lowerBound,
+                        slope);
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                double val = slope * net[i] + bias[i];
+                if (clipped && (val > upperBound || val < lowerBound)) {
+                    act[i] = val > upperBound ? upperBound : lowerBound;
+                    deriv[i] = 0;
+                } else {
+                    act[i] = val;
+                    deriv[i] = 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute one neuron's activation from its net input.
+     *
+     * @param i index of the neuron
+     * @param net net input
+     * @return the activation
+     */
+    double activate(final int i, final double net) {
+        if (function != null) {
+            if (fastMath) {
+                return function.fastValueOf(net + bias[i], upperBound,
+                        lowerBound, slope);
+            }
+            return function.valueOf(net + bias[i], upperBound, lowerBound,
+                    slope);
+        }
+        double val = slope * net + bias[i];
+        if (clipped) {
+            if (val > upperBound) {
+                return upperBound;
+            } else if (val < lowerBound) {
+                return lowerBound;
+            }
+        }
+        return val;
+    }
+
+    /**
+     * Change one neuron's bias, and the biases of neurons sharing its rule.
+     *
+     * @param i index of the neuron
+     * @param delta the change
+     */
+    void addToBias(final int i, final double delta) {
+        if (rules.length == bias.length) {
+            bias[i] += delta;
+            return;
+        }
+        int r = ruleIndex[i];
+        for (int j = 0; j < bias.length; j++) {
+            if (ruleIndex[j] == r) {
+                bias[j] += delta;
+            }
+        }
+    }
+
+    /**
+     * Add to one neuron's bias gradient.
+     *
+     * @param i index of the neuron
+     * @param delta the gradient of one step
+     */
+    void accumulate(final int i, final double delta) {
+        gradient[i] += delta;
+    }
+
+    /**
+     * Change one neuron's bias (and those sharing its rule) by its
+     * accumulated gradient and clear it. No momentum is applied.
+     *
+     * @param i index of the neuron
+     * @param rate learning rate, divided by the number of steps
+     */
+    void applyGradient(final int i, final double rate) {
+        addToBias(i, rate * gradient[i]);
+        gradient[i] = 0;
+    }
+
+    /**
+     * Turn errors at the activations into errors at the net inputs,
+     * accumulating the bias gradient on the way.
+     *
+     * @param delta errors at the activations; replaced by errors at the
+     *            net inputs
+     * @param deriv activation function derivatives for the step
+     */
+    void backward(final double[] delta, final double[] deriv) {
+        double gain = function == null ? slope : 1;
+        for (int i = 0; i < delta.length; i++) {
+            double d = delta[i] * deriv[i];
+            gradient[i] += d;
+            delta[i] = gain * d;
+        }
+    }
+
+    /**
+     * Change the biases by the accumulated gradient and clear it.
+     *
+     * @param rate learning rate, divided by the number of steps
+     * @param momentum momentum
+     */
+    void applyGradient(final double rate, final double momentum) {
+        for (int i = 0; i < bias.length; i++) {
+            ruleGradient[ruleIndex[i]] += gradient[i];
+            gradient[i] = 0;
+        }
+        for (int r = 0; r < rules.length; r++) {
+            lastDelta[r] = rate * ruleGradient[r] + momentum
+                    * lastDelta[r];
+            ruleGradient[r] = 0;
+        }
+        for (int i = 0; i < bias.length; i++) {
+            bias[i] += lastDelta[ruleIndex[i]];
+        }
+    }
+
+}
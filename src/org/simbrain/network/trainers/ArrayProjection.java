@@ -0,0 +1,284 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.trainers;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.Synapse;
+
+/**
+ * The weights from one layer to another, held in an array for the array based
+ * trainers. Weights are stored row major, with a row per target neuron. Each
+ * weight is kept within the bounds {@link Synapse#setStrength(double)} would
+ * apply (the synapse's bounds, the source's polarity, and frozen synapses),
+ * and pairs of neurons that are not connected have a weight of zero that is
+ * never changed.
+ */
+class ArrayProjection {
+
+    /** Number of source neurons. */
+    private final int numSources;
+
+    /** Number of target neurons. */
+    private final int numTargets;
+
+    /** Weights, by target then source. */
+    private final double[] weights;
+
+    /** Lowest value of each weight. */
+    private final double[] lower;
+
+    /** Highest value of each weight. */
+    private final double[] upper;
+
+    /** Accumulated gradients. */
+    private final double[] gradient;
+
+    /** Last weight changes, for momentum. */
+    private final double[] lastDelta;
+
+    /** The synapse of each weight, or null. */
+    private final Synapse[] synapses;
+
+    /**
+     * Find the synapses between two layers.
+     *
+     * @param sources source neurons
+     * @param targets target neurons
+     */
+    ArrayProjection(final List<Neuron> sources, final List<Neuron> targets) {
+        numSources = sources.size();
+        numTargets = targets.size();
+        weights = new double[numSources * numTargets];
+        lower = new double[weights.length];
+        upper = new double[weights.length];
+        gradient = new double[weights.length];
+        lastDelta = new double[weights.length];
+        synapses = new Synapse[weights.length];
+        Map<Neuron, Integer> columns = new HashMap<Neuron, Integer>();
+        for (int s = 0; s < numSources; s++) {
+            columns.put(sources.get(s), s);
+        }
+        for (int t = 0; t < numTargets; t++) {
+            for (Synapse synapse : targets.get(t).getFanIn()) {
+                Integer s = columns.get(synapse.getSource());
+                if (s != null) {
+                    synapses[t * numSources + s] = synapse;
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the weights, and the range each may take, from the synapses.
+     */
+    void pull() {
+        for (int k = 0; k < weights.length; k++) {
+            Synapse synapse = synapses[k];
+            if (synapse == null) {
+                weights[k] = 0;
+                lower[k] = 0;
+                upper[k] = 0;
+            } else if (synapse.isFrozen()) {
+                weights[k] = synapse.getStrength();
+                lower[k] = weights[k];
+                upper[k] = weights[k];
+            } else {
+                weights[k] = synapse.getStrength();
+                // Polarity and bounds are both monotone clips, so applying
+                // them to the extremes gives the range of their composition
+                lower[k] = synapse.clip(synapse.getSource().getPolarity()
+                        .clip(-Double.MAX_VALUE));
+                upper[k] = synapse.clip(synapse.getSource().getPolarity()
+                        .clip(Double.MAX_VALUE));
+            }
+        }
+    }
+
+    /**
+     * Write the weights to the synapses.
+     */
+    void push() {
+        for (int k = 0; k < weights.length; k++) {
+            if (synapses[k] != null) {
+                synapses[k].setStrength(weights[k]);
+            }
+        }
+    }
+
+    /**
+     * @return the number of source neurons
+     */
+    int getNumSources() {
+        return numSources;
+    }
+
+    /**
+     * @return the number of target neurons
+     */
+    int getNumTargets() {
+        return numTargets;
+    }
+
+    /**
+     * @return the weights, by target then source; changes are seen by
+     *         {@link #push()}
+     */
+    double[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * Add the weighted source activations to the targets' net inputs.
+     *
+     * @param source source activations
+     * @param net target net inputs, added to
+     */
+    void forward(final double[] source, final double[] net) {
+        for (int t = 0; t < numTargets; t++) {
+            net[t] += dot(t, source);
+        }
+    }
+
+    /**
+     * Returns one target's net input.
+     *
+     * @param target index of the target neuron
+     * @param source source activations
+     * @return the weighted sum of the source activations
+     */
+    double dot(final int target, final double[] source) {
+        double sum = 0;
+        for (int s = 0, k = target * numSources; s < numSources; s++, k++) {
+            sum += weights[k] * source[s];
+        }
+        return sum;
+    }
+
+    /**
+     * Add the weighted target errors to the sources' errors.
+     *
+     * @param delta errors at the targets' net inputs
+     * @param sourceDelta errors at the source activations, added to
+     */
+    void backward(final double[] delta, final double[] sourceDelta) {
+        for (int t = 0, k = 0; t < numTargets; t++) {
+            double d = delta[t];
+            if (d == 0) {
+                k += numSources;
+                continue;
+            }
+            for (int s = 0; s < numSources; s++, k++) {
+                sourceDelta[s] += weights[k] * d;
+            }
+        }
+    }
+
+    /**
+     * Add the gradient of one step.
+     *
+     * @param delta errors at the targets' net inputs
+     * @param source source activations
+     */
+    void accumulate(final double[] delta, final double[] source) {
+        for (int t = 0; t < numTargets; t++) {
+            accumulate(t, delta[t], source);
+        }
+    }
+
+    /**
+     * Add the gradient of one step for one target.
+     *
+     * @param target index of the target neuron
+     * @param delta error at the target's net input
+     * @param source source activations
+     */
+    void accumulate(final int target, final double delta,
+            final double[] source) {
+        if (delta == 0) {
+            return;
+        }
+        for (int s = 0, k = target * numSources; s < numSources; s++, k++) {
+            gradient[k] += delta * source[s];
+        }
+    }
+
+    /**
+     * Change one target's weights directly, without momentum.
+     *
+     * @param target index of the target neuron
+     * @param scale learning rate times error
+     * @param source source activations
+     */
+    void addToWeights(final int target, final double scale,
+            final double[] source) {
+        for (int s = 0, k = target * numSources; s < numSources; s++, k++) {
+            weights[k] = clip(k, weights[k] + scale * source[s]);
+        }
+    }
+
+    /**
+     * Change the weights by the accumulated gradient and clear it.
+     *
+     * @param rate learning rate, divided by the number of steps
+     * @param momentum momentum
+     */
+    void applyGradient(final double rate, final double momentum) {
+        applyGradient(rate, momentum, 0, numTargets);
+    }
+
+    /**
+     * Change the weights of some targets by their accumulated gradient and
+     * clear it.
+     *
+     * @param rate learning rate, divided by the number of steps
+     * @param momentum momentum
+     * @param from first target (inclusive)
+     * @param to last target (exclusive)
+     */
+    void applyGradient(final double rate, final double momentum,
+            final int from, final int to) {
+        for (int k = from * numSources, end = to * numSources; k < end; k++) {
+            double delta = rate * gradient[k] + momentum * lastDelta[k];
+            weights[k] = clip(k, weights[k] + delta);
+            lastDelta[k] = delta;
+            gradient[k] = 0;
+        }
+    }
+
+    /**
+     * Keep a weight within its range.
+     *
+     * @param k index of the weight
+     * @param value proposed value
+     * @return the value, clipped to the weight's range
+     */
+    private double clip(final int k, final double value) {
+        if (value > upper[k]) {
+            return upper[k];
+        } else if (value < lower[k]) {
+            return lower[k];
+        }
+        return value;
+    }
+
+}
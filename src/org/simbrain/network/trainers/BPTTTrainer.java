@@ -62,6 +62,9 @@ public class BPTTTrainer extends IterableTrainer {
     /** For storing bias deltas. */
     private HashMap<Neuron, Double> biasDeltaMap;
 
+    /** Buffer for the current row of target data. */
+    private double[] targetRow;
+
     /**
      * Construct the SRN trainer.
      *
@@ -91,13 +94,15 @@ public class BPTTTrainer extends IterableTrainer {
             return;
         }
 
+        double[] inputRow = new double[numInputs];
+        targetRow = new double[network.getOutputNeurons().size()];
         for (int row = 0; row < numRows; row++) {
             if (firstPatternInSet()) {
                 // System.out.println("First in set:" + iteration);
                 // For new patterns begin with a regular forward propagation
                 bptt.initNetwork();
                 bptt.getInputLayer().setActivations(
-                        network.getTrainingSet().getInputData()[row]);
+                        network.getTrainingSet().getInputRow(row, inputRow));
                 // bptt.getInputLayer().printActivations();
                 bptt.getHiddenLayer().update();
                 bptt.getOutputLayer().update();
@@ -169,9 +174,10 @@ public class BPTTTrainer extends IterableTrainer {
      */
     private void backpropagateStoreError(Trainable network, int row) {
 
+        network.getTrainingSet().getTargetRow(row, targetRow);
         int i = 0;
         for (Neuron outputNeuron : bptt.getOutputNeurons()) {
-            double targetValue = network.getTrainingSet().getTargetData()[row][i++];
+            double targetValue = targetRow[i++];
             double outputError = targetValue - outputNeuron.getActivation();
             storeErrorAndDeltas(outputNeuron, outputError);
             mse += Math.pow(outputError, 2);
@@ -63,6 +63,9 @@ public class BackpropTrainer extends IterableTrainer {
     /** Internal representation of network. */
     private List<List<Neuron>> layers;
 
+    /** Target values of the current row. */
+    private double[] targetRow;
+
     /**
      * Construct the backprop trainer.
      *
@@ -113,14 +116,18 @@ public class BackpropTrainer extends IterableTrainer {
         }
 
         network.initNetwork();
-        for (int row = 0; row < numRows; row++) {
+        TrainingSet trainingSet = network.getTrainingSet();
+        int[] rows = trainingSet.getTrainingIndices();
+        double[] inputRow = new double[numInputs];
+        targetRow = new double[network.getOutputNeurons().size()];
+        for (int row : rows) {
 
             // Set activations on input layer
+            trainingSet.getInputRow(row, inputRow);
+            trainingSet.getTargetRow(row, targetRow);
             for (int i = 0; i < numInputs; i++) {
-                network.getInputNeurons()
-                        .get(i)
-                        .forceSetActivation(
-                                network.getTrainingSet().getInputData()[row][i]);
+                network.getInputNeurons().get(i)
+                        .forceSetActivation(inputRow[i]);
             }
 
             // Update network
@@ -149,7 +156,7 @@ public class BackpropTrainer extends IterableTrainer {
         }
 
         // Update MSE
-        mse = mse / (numRows * network.getOutputNeurons().size());
+        mse = mse / (rows.length * network.getOutputNeurons().size());
         incrementIteration();
         fireErrorUpdated();
     }
@@ -173,8 +180,7 @@ public class BackpropTrainer extends IterableTrainer {
             if (i == layers.size() - 1) {
                 for (int j = 0; j < numOutputs; j++) {
                     Neuron outputNeuron = network.getOutputNeurons().get(j);
-                    double targetValue = network.getTrainingSet()
-                            .getTargetData()[row][j];
+                    double targetValue = targetRow[j];
                     double outputError = targetValue
                             - outputNeuron.getActivation();
                     storeErrorAndDeltas(outputNeuron, outputError);
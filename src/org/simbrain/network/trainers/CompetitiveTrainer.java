@@ -55,13 +55,14 @@ public class CompetitiveTrainer extends Trainer {
     @Override
     public void apply() throws DataNotInitializedException {
 
-        if (network.getTrainingSet().getInputData() == null) {
+        if (!network.getTrainingSet().hasInputData()) {
             throw new DataNotInitializedException("Input data not initalized");
         }
 
-        int numRows = network.getTrainingSet().getInputData().length;
+        int numRows = network.getTrainingSet().getNumInputRows();
+        double[] inputs = new double[network.getInputLayer().size()];
         for (int row = 0; row < numRows; row++) {
-            double[] inputs = network.getTrainingSet().getInputData()[row];
+            network.getTrainingSet().getInputRow(row, inputs);
             network.getInputLayer().forceSetActivations(inputs);
             network.getCompetitive().update(); // Call a function here to be overriden in subclasses?
         }
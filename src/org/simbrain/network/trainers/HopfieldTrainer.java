@@ -18,11 +18,8 @@
  */
 package org.simbrain.network.trainers;
 
-import org.simbrain.network.core.Neuron;
-import org.simbrain.network.core.Synapse;
 import org.simbrain.network.subnetworks.Hopfield;
-import org.simbrain.util.SimbrainConstants.Polarity;
-import org.simbrain.util.math.SimbrainMath;
+import org.simbrain.network.subnetworks.HopfieldMemory;
 
 /**
  * Trainer for a Hopfield network.
@@ -50,32 +47,15 @@ public class HopfieldTrainer extends Trainer {
     @Override
     public void apply() throws DataNotInitializedException {
 
-        if (getTrainableNetwork().getTrainingSet().getInputData() == null) {
+        if (!getTrainableNetwork().getTrainingSet().hasInputData()) {
             throw new DataNotInitializedException("Input data not initalized");
         }
 
-        hopfield.getSynapseGroup().setStrength(0, Polarity.BOTH);
-        int numRows = hopfield.getTrainingSet().getInputData().length;
-        int numInputs = hopfield.getInputNeurons().size();
-        float normConstant = 1 / (float) numRows;
-
-        double[] vals = new double[numInputs * numInputs - numInputs];
-        for (int row = 0; row < numRows; row++) {
-            double[] pattern = hopfield.getTrainingSet().getInputData()[row];
-            Neuron[] neurons = hopfield.getSynapseGroup().getSourceNeurons()
-                .toArray(new Neuron[pattern.length]);
-            for (int i = 0; i < pattern.length; i++) {
-                for (int j = 0; j < pattern.length; j++) {
-                    if (i != j) {
-                        Synapse s = neurons[i].getFanOut().get(neurons[j]);
-                        s.setStrength(s.getStrength()
-                                + Hopfield.bipolar(pattern[i])
-                                * Hopfield.bipolar(pattern[j]));
-                    }
-                }
-            }
-        }
-        vals = SimbrainMath.multVector(vals, normConstant);
+        // Accumulate all patterns at once in an array copy of the network
+        HopfieldMemory memory = new HopfieldMemory(hopfield);
+        memory.clearWeights();
+        memory.train(hopfield.getTrainingSet().getInputData());
+        memory.writeTo(hopfield);
 
         // Make sure excitatory/inhibitory are in proper lists
         revalidateSynapseGroups();
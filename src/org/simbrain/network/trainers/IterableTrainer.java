@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.log4j.Logger;
 import org.simbrain.network.groups.Subnetwork;
 import org.simbrain.network.groups.SynapseGroup;
 import org.simbrain.util.propertyeditor.ComboBoxWrapper;
@@ -29,6 +30,10 @@ import org.simbrain.util.propertyeditor.ComboBoxWrapper;
  */
 public abstract class IterableTrainer extends Trainer {
 
+    /** Logger. */
+    private static final Logger LOGGER = Logger
+            .getLogger(IterableTrainer.class);
+
     /** Flag used for iterative training methods. */
     private boolean updateCompleted = true;
 
@@ -43,7 +48,25 @@ public abstract class IterableTrainer extends Trainer {
     private boolean stochasticIteration = false;
 
     /** If used, stopped iterating if validation error is below this. */
-    //private double validationErrorThreshold = .2;
+    private double validationErrorThreshold = .2;
+
+    /**
+     * Number of iterations between validation runs, or 0 to not validate
+     * (unless the stopping condition uses the validation error).
+     */
+    private int validationInterval = 0;
+
+    /**
+     * Stop after this many validation runs without a new lowest validation
+     * error, or never if 0.
+     */
+    private int validationPatience = 10;
+
+    /** Whether to restore the weights of the lowest validation error. */
+    private boolean restoreBestWeights = true;
+
+    /** Evaluates held out data while training; null if not validating. */
+    private Validator validator;
 
     /** If used, stop iterating if error is below this value. */
     private double errorThreshold = .2;
@@ -105,50 +128,82 @@ public abstract class IterableTrainer extends Trainer {
     public abstract void randomize();
 
     /**
-     * Get the current MSE error.
+     * Returns the mean squared error on the validation rows from the last
+     * validation run. Runs happen on a background thread, so this may lag the
+     * training error by a few iterations.
      *
-     * @return the current MSE error
+     * @return the validation error, or NaN if there has been no validation run
      */
     public double getValidationError() {
-        return 0;
+        return validator == null ? Double.NaN : validator.getError();
+    }
+
+    /**
+     * @return the lowest validation error so far, or NaN if there has been no
+     *         validation run
+     */
+    public double getBestValidationError() {
+        return validator == null ? Double.NaN : validator.getBestError();
+    }
+
+    /**
+     * @return the iteration of the lowest validation error, or -1 if there has
+     *         been no validation run
+     */
+    public int getBestValidationIteration() {
+        return validator == null ? -1 : validator.getBestIteration();
     }
 
     /**
      * Iterate the training algorithm and stop iteration based on the selected
      * stopping condition.
      *
-     * @throws DataNotInitializedException if input or target data not set
+     * @throws DataNotInitializedException if input or target data not set, or
+     *             validation is on for a network that cannot be validated
      */
     public void iterate() throws DataNotInitializedException {
 
-        if (getTrainableNetwork().getTrainingSet().getInputData() == null) {
+        if (!getTrainableNetwork().getTrainingSet().hasInputData()) {
             throw new DataNotInitializedException("Input data not initalized");
         }
-        if (getTrainableNetwork().getTrainingSet().getTargetData() == null) {
+        if (!getTrainableNetwork().getTrainingSet().hasTargetData()) {
             throw new DataNotInitializedException("Target data not initalized");
         }
+        prepareValidation();
 
         fireTrainingBegin();
         switch (stoppingCondition) {
         case NONE:
-            apply();
+            step();
+            // A single step rather than part of a run, which flushes the
+            // error when it is stopped
+            if (updateCompleted) {
+                flushErrorUpdate();
+            }
             break;
         case NUM_ITERATIONS:
             for (int i = 0; i < iterationsBeforeStopping; i++) {
                 if (updateCompleted) {
                     break;
                 }
-                apply();
+                step();
             }
             setUpdateCompleted(true);
             break;
         case THERESHOLD_ERROR:
             do {
-                apply();
+                step();
             } while ((getError() > errorThreshold) && (!updateCompleted));
             setUpdateCompleted(true);
             break;
         case THRESHOLD_VALIDATION_ERROR:
+            // NaN until the first validation run completes
+            do {
+                step();
+            } while (validator != null
+                    && !(getValidationError() <= validationErrorThreshold)
+                    && (!updateCompleted));
+            setUpdateCompleted(true);
             break;
         default:
             break;
@@ -157,6 +212,99 @@ public abstract class IterableTrainer extends Trainer {
 
     }
 
+    /**
+     * Apply the trainer once, and validate if validation is due. If the
+     * validation error has not improved for {@link #getValidationPatience()}
+     * runs, training is stopped, after restoring the best weights if
+     * {@link #isRestoreBestWeights()}.
+     *
+     * @throws DataNotInitializedException if input or target data not set
+     */
+    private void step() throws DataNotInitializedException {
+        prepareValidation();
+        apply();
+        if (validator == null) {
+            return;
+        }
+        if (getIteration() % getEffectiveValidationInterval() == 0) {
+            validator.submit(getIteration());
+        }
+        if (validationPatience > 0
+                && validator.getEvaluationsSinceBest() >= validationPatience) {
+            if (restoreBestWeights) {
+                validator.restoreBest();
+                revalidateSynapseGroups();
+            } else {
+                validator.await();
+            }
+            // Let a later run go on from here
+            validator.resetPatience();
+            setUpdateCompleted(true);
+            fireErrorUpdated();
+        }
+    }
+
+    /**
+     * Split the training set and create the validator if validation is on,
+     * or remove them if it is off.
+     *
+     * @throws DataNotInitializedException if validation is on but the network
+     *             cannot be validated
+     */
+    private void prepareValidation() throws DataNotInitializedException {
+        TrainingSet trainingSet = network.getTrainingSet();
+        if (getEffectiveValidationInterval() == 0) {
+            if (validator != null) {
+                resetValidation();
+            }
+            return;
+        }
+        if (trainingSet.getValidationIndices() == null) {
+            trainingSet.setIndexSets();
+        }
+        if (validator != null && !validator.matches(network)) {
+            validator.shutdown();
+            validator = null;
+        }
+        if (validator == null) {
+            try {
+                validator = new Validator(network);
+            } catch (IllegalArgumentException e) {
+                trainingSet.clearIndexSets();
+                LOGGER.warn("Cannot validate: " + e.getMessage());
+                throw new DataNotInitializedException(e.getMessage()
+                        + ". Turn validation off to train this network.");
+            }
+        }
+    }
+
+    /**
+     * @return the number of iterations between validation runs, or 0 if
+     *         validation is off
+     */
+    private int getEffectiveValidationInterval() {
+        if (validationInterval == 0
+                && stoppingCondition == StoppingCondition.THRESHOLD_VALIDATION_ERROR) {
+            return 1;
+        }
+        return validationInterval;
+    }
+
+    /**
+     * Forget validation results and the validation split, so that all rows
+     * are used for training until validation runs again with a new split.
+     * Call when the network is reset, e.g. randomized.
+     */
+    public void resetValidation() {
+        if (validator != null) {
+            validator.shutdown();
+            validator = null;
+        }
+        if (network.getTrainingSet() != null) {
+            network.getTrainingSet().clearIndexSets();
+        }
+    }
+
     /**
      * Notify listeners that the error value has been updated. Only makes sense
      * for iterable methods.
@@ -167,6 +315,13 @@ public abstract class IterableTrainer extends Trainer {
         }
     }
 
+    /**
+     * Send an error notification that was held back, if any. Called after a
+     * single step; trainers that throttle error notifications override it.
+     */
+    protected void flushErrorUpdate() {
+    }
+
     /**
      * @return boolean updated completed.
      */
@@ -243,12 +398,12 @@ public abstract class IterableTrainer extends Trainer {
      * @return least number of rows
      */
     protected int getMinimumNumRows(Trainable network) {
-        if ((network.getTrainingSet().getInputData() == null)
-                || (network.getTrainingSet() == null)) {
+        if ((network.getTrainingSet() == null)
+                || !network.getTrainingSet().hasInputData()) {
             return 0;
         }
-        int inputRows = network.getTrainingSet().getInputData().length;
-        int targetRows = network.getTrainingSet().getTargetData().length;
+        int inputRows = network.getTrainingSet().getNumInputRows();
+        int targetRows = network.getTrainingSet().getNumTargetRows();
         if (inputRows < targetRows) {
             return inputRows;
         } else {
@@ -312,19 +467,86 @@ public abstract class IterableTrainer extends Trainer {
                 .getCurrentObject());
     }
 
-//    /**
-//     * @return the validationErrorThreshold
-//     */
-//    public double getValidationErrorThreshold() {
-//        return validationErrorThreshold;
-//    }
-//
-//    /**
-//     * @param validationErrorThreshold the validationErrorThreshold to set
-//     */
-//    public void setValidationErrorThreshold(double validationErrorThreshold) {
-//        this.validationErrorThreshold = validationErrorThreshold;
-//    }
+    /**
+     * @return the validationErrorThreshold
+     */
+    public double getValidationErrorThreshold() {
+        return validationErrorThreshold;
+    }
+
+    /**
+     * @param validationErrorThreshold the validationErrorThreshold to set
+     */
+    public void setValidationErrorThreshold(double validationErrorThreshold) {
+        this.validationErrorThreshold = validationErrorThreshold;
+    }
+
+    /**
+     * @return the number of iterations between validation runs, or 0 if
+     *         validation is off
+     */
+    public int getValidationInterval() {
+        return validationInterval;
+    }
+
+    /**
+     * Set how often to measure the error on held out rows. When validation is
+     * on, {@link TrainingSet#getPercentValidation()} of the rows are set aside
+     * and not trained on. Only feed-forward networks with sigmoidal or linear
+     * neurons can be validated.
+     *
+     * @param validationInterval the number of iterations between validation
+     *            runs, or 0 to turn validation off
+     */
+    public void setValidationInterval(int validationInterval) {
+        this.validationInterval = Math.max(0, validationInterval);
+    }
+
+    /**
+     * @return the number of validation runs without improvement before
+     *         training stops, or 0 for no early stopping
+     */
+    public int getValidationPatience() {
+        return validationPatience;
+    }
+
+    /**
+     * @param validationPatience the number of validation runs without
+     *            improvement before training stops, or 0 for no early stopping
+     */
+    public void setValidationPatience(int validationPatience) {
+        this.validationPatience = Math.max(0, validationPatience);
+    }
+
+    /**
+     * @return whether stopping early restores the weights of the lowest
+     *         validation error
+     */
+    public boolean isRestoreBestWeights() {
+        return restoreBestWeights;
+    }
+
+    /**
+     * @param restoreBestWeights whether stopping early restores the weights of
+     *            the lowest validation error
+     */
+    public void setRestoreBestWeights(boolean restoreBestWeights) {
+        this.restoreBestWeights = restoreBestWeights;
+    }
+
+    /**
+     * @return the fraction of rows held out for validation
+     */
+    public double getPercentValidation() {
+        return network.getTrainingSet().getPercentValidation();
+    }
+
+    /**
+     * @param percentValidation the fraction of rows held out for validation
+     */
+    public void setPercentValidation(double percentValidation) {
+        network.getTrainingSet().setPercentValidation(percentValidation);
+    }
 
     /**
      * @return the errorThreshold
@@ -18,6 +18,15 @@
  */
 package org.simbrain.network.trainers;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.simbrain.network.core.Network;
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.core.Synapse;
@@ -25,17 +34,60 @@ import org.simbrain.network.neuron_update_rules.interfaces.BiasedUpdateRule;
 
 /**
  * Train using least mean squares.
+ * <p>
+ * When the output neurons are sigmoidal or linear, the weights from the input
+ * neurons and the output biases are copied into arrays at the start of each
+ * epoch and written back at its end. Under LMS each output neuron's fan-in is
+ * changed only by that neuron's error, so output neurons are split into ranges
+ * trained on separate threads, each going through the rows in the same order.
+ * Rows can be visited in a shuffled order and weights changed once per
+ * mini-batch rather than once per row. Rows held out for validation are not
+ * trained on. Other output neurons are trained on the
+ * network itself, one row at a time.
+ * <p>
+ * Listeners are told of the error at most once every
+ * {@link #getErrorUpdateInterval()} milliseconds, and when training stops.
  *
  * @author jyoshimi
  */
 public class LMSIterative extends IterableTrainer {
 
-    /** Current error. */
-    private double rmsError;
+    /**
+     * Smallest amount of work (rows times weights) in an epoch for which it is
+     * worth using more than one thread.
+     */
+    private static final long MIN_PARALLEL_WORK = 1 << 16;
+
+    /** Current mean squared error. */
+    private double mse;
 
     /** Learning rate. */
     private double learningRate = .01;
 
+    /** Whether to visit rows in a new random order each epoch. */
+    private boolean shuffle = false;
+
+    /** Number of rows whose changes are added up before weights change. */
+    private int batchSize = 1;
+
+    /** Number of threads output neurons are split across. */
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+
+    /** Least time between error notifications, in milliseconds. */
+    private int errorUpdateInterval = 100;
+
+    /** Time of the last error notification, in milliseconds. */
+    private long lastErrorUpdate;
+
+    /** Whether the current error has not been sent to listeners. */
+    private boolean errorPending;
+
+    /** Source of row orders. */
+    private final Random random = new Random();
+
+    /** Threads for training ranges of output neurons; created when needed. */
+    private ExecutorService executor;
+
     /**
      * Construct a least mean squares iterative panel.
      *
@@ -49,28 +101,186 @@ public class LMSIterative extends IterableTrainer {
      * {@inheritDoc}
      */
     public double getError() {
-        return rmsError;
+        return mse;
     }
 
     @Override
     public void apply() {
+        ArrayLayer outputLayer;
+        try {
+            outputLayer = new ArrayLayer(network.getOutputNeurons());
+        } catch (IllegalArgumentException e) {
+            outputLayer = null;
+        }
+        if (outputLayer == null) {
+            applyToNeurons();
+        } else {
+            applyToArrays(outputLayer);
+        }
+        incrementIteration();
+        long now = System.currentTimeMillis();
+        if (now - lastErrorUpdate >= errorUpdateInterval) {
+            lastErrorUpdate = now;
+            errorPending = false;
+            fireErrorUpdated();
+        } else {
+            errorPending = true;
+        }
+    }
+
+    /**
+     * Train one epoch on arrays.
+     *
+     * @param outputLayer the output layer
+     */
+    private void applyToArrays(final ArrayLayer outputLayer) {
+        final TrainingSet trainingSet = network.getTrainingSet();
+        final int[] order = trainingSet.getTrainingIndices();
+        final int numRows = order.length;
+        final int numInputs = network.getInputNeurons().size();
+        final int numOutputs = outputLayer.size();
+        final ArrayProjection weights = new ArrayProjection(
+                network.getInputNeurons(), network.getOutputNeurons());
+        weights.pull();
+        outputLayer.pull();
+
+        if (shuffle) {
+            for (int i = numRows - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+        }
+
+        // Neurons sharing a bias cannot be trained separately
+        int threads = Math.min(numThreads, numOutputs);
+        if (outputLayer.hasSharedRules()
+                || (long) numRows * numInputs * numOutputs < MIN_PARALLEL_WORK) {
+            threads = 1;
+        }
+        double sse = 0;
+        if (threads <= 1) {
+            sse = trainRange(trainingSet, order, weights, outputLayer, 0,
+                    numOutputs);
+        } else {
+            List<Callable<Double>> tasks = new ArrayList<Callable<Double>>(
+                    threads);
+            for (int k = 0; k < threads; k++) {
+                final int from = (int) ((long) numOutputs * k / threads);
+                final int to = (int) ((long) numOutputs * (k + 1) / threads);
+                tasks.add(new Callable<Double>() {
+                    @Override
+                    public Double call() {
+                        return trainRange(trainingSet, order, weights,
+                                outputLayer, from, to);
+                    }
+                });
+            }
+            if (executor == null) {
+                executor = Executors.newFixedThreadPool(numThreads, r -> {
+                    Thread thread = new Thread(r);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            try {
+                for (Future<Double> future : executor.invokeAll(tasks)) {
+                    sse += future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        mse = sse / ((double) numRows * numOutputs);
 
-        rmsError = 0;
+        weights.push();
+        outputLayer.push();
+    }
+
+    /**
+     * Train a range of output neurons for one epoch. Ranges share no weights
+     * or biases, so they can be trained concurrently.
+     *
+     * @param trainingSet the training set
+     * @param order the order in which to visit rows
+     * @param weights weights from the input neurons to the output neurons
+     * @param outputLayer the output layer
+     * @param from first output neuron (inclusive)
+     * @param to last output neuron (exclusive)
+     * @return the sum of squared errors of the range over the epoch
+     */
+    private double trainRange(final TrainingSet trainingSet,
+            final int[] order, final ArrayProjection weights,
+            final ArrayLayer outputLayer, final int from, final int to) {
+        int numInputs = weights.getNumSources();
+        double[] inputRow = new double[numInputs];
+        double[] targetRow = new double[weights.getNumTargets()];
+        double[] error = new double[to - from];
+        double sse = 0;
+        for (int start = 0; start < order.length; start += batchSize) {
+            int end = Math.min(order.length, start + batchSize);
+            for (int k = start; k < end; k++) {
+                trainingSet.getInputRow(order[k], inputRow);
+                trainingSet.getTargetRow(order[k], targetRow);
+
+                // Compute all errors before changing any weights, since
+                // neurons in the range may share a bias
+                for (int i = from; i < to; i++) {
+                    double out = outputLayer.activate(i,
+                            weights.dot(i, inputRow));
+                    error[i - from] = targetRow[i] - out;
+                    sse += error[i - from] * error[i - from];
+                }
+                for (int i = from; i < to; i++) {
+                    double e = error[i - from];
+                    if (batchSize == 1) {
+                        weights.addToWeights(i, learningRate * e, inputRow);
+                        outputLayer.addToBias(i, learningRate * e);
+                    } else {
+                        weights.accumulate(i, e, inputRow);
+                        outputLayer.accumulate(i, e);
+                    }
+                }
+            }
+            if (batchSize > 1) {
+                double rate = learningRate / (end - start);
+                weights.applyGradient(rate, 0, from, to);
+                for (int i = from; i < to; i++) {
+                    outputLayer.applyGradient(i, rate);
+                }
+            }
+        }
+        return sse;
+    }
+
+    /**
+     * Train one epoch on the network's neurons and synapses, a row at a time.
+     * Used when the output neurons cannot be modeled on arrays.
+     */
+    private void applyToNeurons() {
+
+        mse = 0;
 
         // Set local variables
-        int numRows = network.getTrainingSet().getInputData().length;
+        TrainingSet trainingSet = network.getTrainingSet();
+        int[] rows = trainingSet.getTrainingIndices();
         int numInputs = network.getInputNeurons().size();
         int numOutputs = network.getOutputNeurons().size();
+        double[] inputRow = new double[numInputs];
+        double[] targetRow = new double[numOutputs];
 
         // Run through training data
-        for (int row = 0; row < numRows; row++) {
+        for (int row : rows) {
 
             // Set input layer values
+            trainingSet.getInputRow(row, inputRow);
+            trainingSet.getTargetRow(row, targetRow);
             for (int i = 0; i < numInputs; i++) {
-                network.getInputNeurons()
-                        .get(i)
-                        .forceSetActivation(
-                                network.getTrainingSet().getInputData()[row][i]);
+                network.getInputNeurons().get(i)
+                        .forceSetActivation(inputRow[i]);
             }
 
             // Update output node
@@ -81,35 +291,47 @@ public class LMSIterative extends IterableTrainer {
 
                 // Get target neuron and compute error
                 Neuron outputNeuron = network.getOutputNeurons().get(i);
-                double targetValue = network.getTrainingSet().getTargetData()[row][i];
+                double targetValue = targetRow[i];
                 double error = targetValue - outputNeuron.getActivation();
-                rmsError += (error * error); // TODO: Validate rmse
+                mse += (error * error);
 
                 // Update weights
                 for (Synapse synapse : outputNeuron.getFanIn()) {
                     double deltaW = (learningRate * error * synapse.getSource()
                             .getActivation());
-                    // System.out.println(Utils.round(deltaW,2) + "=" + error +
-                    // " * " + synapse.getSource()
-                    // .getActivation());
                     synapse.setStrength(synapse.getStrength() + deltaW);
                 }
 
-                // System.out.println("Row " + row + "," + outputNeuron.getId()
-                // + ":"
-                // + targetValue + " - " +
-                // Utils.round(outputNeuron.getActivation(),2) + " (" +
-                // Utils.round(error,2) + ")");
-
                 // Update bias of target neuron
-                BiasedUpdateRule bias = (BiasedUpdateRule) outputNeuron
-                        .getUpdateRule();
-                bias.setBias(bias.getBias() + (learningRate * error));
+                if (outputNeuron.getUpdateRule() instanceof BiasedUpdateRule) {
+                    BiasedUpdateRule bias = (BiasedUpdateRule) outputNeuron
+                            .getUpdateRule();
+                    bias.setBias(bias.getBias() + (learningRate * error));
+                }
             }
-            rmsError = rmsError / (numInputs * numOutputs);
         }
-        fireErrorUpdated();
-        incrementIteration();
+        mse = mse / ((double) rows.length * numOutputs);
+    }
+
+    /**
+     * Send an error that was held back by the update interval when training
+     * stops.
+     */
+    @Override
+    public void setUpdateCompleted(final boolean updateCompleted) {
+        super.setUpdateCompleted(updateCompleted);
+        if (updateCompleted) {
+            flushErrorUpdate();
+        }
+    }
+
+    @Override
+    protected void flushErrorUpdate() {
+        if (errorPending) {
+            errorPending = false;
+            lastErrorUpdate = System.currentTimeMillis();
+            fireErrorUpdated();
+        }
     }
 
     /**
@@ -128,6 +350,16 @@ public class LMSIterative extends IterableTrainer {
         revalidateSynapseGroups();
     }
 
+    /**
+     * Release the training threads. They are recreated if needed.
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
     /**
      * @return the learningRate
      */
@@ -143,6 +375,71 @@ public class LMSIterative extends IterableTrainer {
         this.learningRate = learningRate;
     }
 
+    /**
+     * @return whether rows are visited in a new random order each epoch
+     */
+    public boolean isShuffle() {
+        return shuffle;
+    }
+
+    /**
+     * @param shuffle whether to visit rows in a new random order each epoch
+     */
+    public void setShuffle(boolean shuffle) {
+        this.shuffle = shuffle;
+    }
+
+    /**
+     * @return the number of rows whose changes are averaged before weights
+     *         change
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the mini-batch size. With 1, weights change after every row as in
+     * the classic LMS rule. Only used with sigmoidal and linear outputs.
+     *
+     * @param batchSize the number of rows per batch
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @return the number of threads output neurons are split across
+     */
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Set the number of threads output neurons are split across. Defaults to
+     * the number of processors; small problems use one thread regardless.
+     *
+     * @param numThreads the number of threads
+     */
+    public void setNumThreads(int numThreads) {
+        shutdown();
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    /**
+     * @return the least time between error notifications, in milliseconds
+     */
+    public int getErrorUpdateInterval() {
+        return errorUpdateInterval;
+    }
+
+    /**
+     * @param errorUpdateInterval the least time between error notifications,
+     *            in milliseconds; 0 to send the error every iteration
+     */
+    public void setErrorUpdateInterval(int errorUpdateInterval) {
+        this.errorUpdateInterval = Math.max(0, errorUpdateInterval);
+    }
+
     // /**
     // * Test method.
     // *
@@ -114,17 +114,22 @@ public class LMSOffline extends Trainer {
     @Override
     public void apply() throws DataNotInitializedException {
 
-        if (getTrainableNetwork().getTrainingSet().getInputData() == null) {
+        TrainingSet trainingSet = getTrainableNetwork().getTrainingSet();
+        if (!trainingSet.hasInputData()) {
             throw new DataNotInitializedException(
                 "Input data not initalized");
         }
-        if (getTrainableNetwork().getTrainingSet().getTargetData() == null) {
+        if (!trainingSet.hasTargetData()) {
             throw new DataNotInitializedException(
                 "Target data not initalized");
         }
 
         fireTrainingBegin();
 
+        // Read mapped data once; the solutions below need it all in memory
+        double[][] inputMatrix = trainingSet.getInputData();
+        double[][] targetMatrix = trainingSet.getTargetData();
+
         int index = 0;
         for (Neuron n : network.getOutputNeurons()) {
 
@@ -133,12 +138,10 @@ public class LMSOffline extends Trainer {
             // the sigmoidal. Warning: problems can occur here if the bounds of
             // the sigmoidal are not set properly.
             if (n.getUpdateRule() instanceof SigmoidalRule) {
-                for (int i = 0; i < network.getTrainingSet()
-                    .getTargetData().length; i++) {
-                    network.getTrainingSet().getTargetData()[i][index] =
+                for (int i = 0; i < targetMatrix.length; i++) {
+                    targetMatrix[i][index] =
                         ((SigmoidalRule) n.getUpdateRule())
-                            .getInverse(network.getTrainingSet()
-                                .getTargetData()[i][index]);
+                            .getInverse(targetMatrix[i][index]);
                 }
             }
             index++;
@@ -146,19 +149,17 @@ public class LMSOffline extends Trainer {
 
         // Add noise to the input state matrix.
         if (noiseAdded) {
-            double[][] stateMat = network.getTrainingSet().getInputData();
-            for (int i = 0, n = stateMat.length; i < n; i++) {
-                for (int j = 0, m = stateMat[i].length; j < m; j++) {
-                    network.getTrainingSet().getInputData()[i][j] =
-                        stateMat[i][j] + noiseGen.getRandom();
+            for (int i = 0, n = inputMatrix.length; i < n; i++) {
+                for (int j = 0, m = inputMatrix[i].length; j < m; j++) {
+                    inputMatrix[i][j] += noiseGen.getRandom();
                 }
             }
         }
 
         if (solutionType == SolutionType.WIENER_HOPF) {
-            weinerHopfSolution(network);
+            weinerHopfSolution(network, inputMatrix, targetMatrix);
         } else if (solutionType == SolutionType.MOORE_PENROSE) {
-            moorePenroseSolution(network);
+            moorePenroseSolution(network, inputMatrix, targetMatrix);
         } else {
             throw new IllegalArgumentException("Solution type must be "
                 + "'MoorePenrose' or 'WeinerHopf'.");
@@ -189,10 +190,20 @@ public class LMSOffline extends Trainer {
      * @param network the trainable network being trained
      */
     public void weinerHopfSolution(Trainable network) {
+        weinerHopfSolution(network, network.getTrainingSet().getInputData(),
+            network.getTrainingSet().getTargetData());
+    }
+
+    /**
+     * Implements the Wiener-Hopf solution on data already read into memory.
+     *
+     * @param network the trainable network being trained
+     * @param inputMatrix the input data
+     * @param trainingMatrix the target data
+     */
+    private void weinerHopfSolution(Trainable network,
+        double[][] inputMatrix, double[][] trainingMatrix) {
         long start = System.nanoTime();
-        double[][] inputMatrix = network.getTrainingSet().getInputData();
-        double[][] trainingMatrix = network.getTrainingSet()
-            .getTargetData();
         try {
 
             Factory<?> mf = PrimitiveMatrix.FACTORY;
@@ -283,10 +294,21 @@ public class LMSOffline extends Trainer {
      * @param network the trainable network being trained
      */
     public void moorePenroseSolution(Trainable network) {
-        Matrix inputMatrix =
-            new Matrix(network.getTrainingSet().getInputData());
-        Matrix trainingMatrix =
-            new Matrix(network.getTrainingSet().getTargetData());
+        moorePenroseSolution(network, network.getTrainingSet().getInputData(),
+            network.getTrainingSet().getTargetData());
+    }
+
+    /**
+     * Moore penrose on data already read into memory.
+     *
+     * @param network the trainable network being trained
+     * @param inputData the input data
+     * @param targetData the target data
+     */
+    private void moorePenroseSolution(Trainable network,
+        double[][] inputData, double[][] targetData) {
+        Matrix inputMatrix = new Matrix(inputData);
+        Matrix trainingMatrix = new Matrix(targetData);
 
         fireProgressUpdate("Computing Moore-Penrose Pseudoinverse...", 0);
         // Computes Moore-Penrose Pseudoinverse
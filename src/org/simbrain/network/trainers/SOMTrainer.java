@@ -21,8 +21,11 @@ package org.simbrain.network.trainers;
 import org.simbrain.network.subnetworks.SOMNetwork;
 
 /**
- * A trainer for SOM Networks. Just goes through input data sets input node and
- * updates the SOM Group, which has the training code built in.
+ * A trainer for SOM Networks. Trains the SOM Group on the input data, either
+ * online (one pass through the data per iteration) or with the batch-SOM
+ * algorithm ({@link org.simbrain.network.subnetworks.SOMGroup#getBatchSize()}
+ * epochs per iteration). Both work on an array copy of the weights, which is
+ * written back to the synapses at the end of each iteration.
  *
  * TODO: Possibly refactor to an "unsupervised trainer" class for use by
  * competitive too, which is similar.
@@ -40,6 +43,9 @@ public class SOMTrainer extends Trainer {
     /** Iteration number. An epoch. */
     private int iteration = 0;
 
+    /** If true, use the batch-SOM algorithm rather than online training. */
+    private boolean batchMode;
+
     /**
      * Construct the UnsupervisedNeuronGroupTrainer trainer.
      *
@@ -55,17 +61,18 @@ public class SOMTrainer extends Trainer {
     @Override
     public void apply() throws DataNotInitializedException {
 
-        if (network.getTrainingSet().getInputData() == null) {
+        if (!network.getTrainingSet().hasInputData()) {
             throw new DataNotInitializedException("Input data not initalized");
         }
 
-        int numRows = network.getTrainingSet().getInputData().length;
-        for (int row = 0; row < numRows; row++) {
-            double[] inputs = network.getTrainingSet().getInputData()[row];
-            network.getInputLayer().forceSetActivations(inputs);
-            network.getSom().update(); // Call a function here to be overriden in subclasses?
+        double[][] data = network.getTrainingSet().getInputData();
+        if (batchMode) {
+            network.getSom().trainBatch(network.getInputNeurons(), data);
+            iteration += network.getSom().getBatchSize();
+        } else {
+            network.getSom().trainOnline(network.getInputNeurons(), data);
+            incrementIteration();
         }
-        incrementIteration();
 
         // Make sure excitatory/inhibitory are in proper lists
         revalidateSynapseGroups();
@@ -88,6 +95,20 @@ public class SOMTrainer extends Trainer {
         this.updateCompleted = updateCompleted;
     }
 
+    /**
+     * @return true if the batch-SOM algorithm is used
+     */
+    public boolean isBatchMode() {
+        return batchMode;
+    }
+
+    /**
+     * @param batchMode true to use the batch-SOM algorithm
+     */
+    public void setBatchMode(final boolean batchMode) {
+        this.batchMode = batchMode;
+    }
+
     /**
      * Increment the iteration number by 1.
      */
@@ -18,12 +18,14 @@
  */
 package org.simbrain.network.trainers;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.util.Random;
 
+import org.apache.log4j.Logger;
 import org.simbrain.util.Utils;
+import org.simbrain.util.math.MappedDataMatrix;
 import org.simbrain.util.math.NumericMatrix;
 
 /**
@@ -36,6 +38,9 @@ import org.simbrain.util.math.NumericMatrix;
  */
 public class TrainingSet {
 
+    /** Logger. */
+    private static final Logger LOGGER = Logger.getLogger(TrainingSet.class);
+
     /**
      * Input data.
      */
@@ -46,9 +51,31 @@ public class TrainingSet {
      */
     private double[][] targetData;
 
+    /**
+     * Memory mapped input data. When set it is used in place of
+     * {@link #inputData}, and rows are read with
+     * {@link #getInputRow(int, double[])} without loading the whole file.
+     */
+    private transient MappedDataMatrix inputSource;
+
+    /** Memory mapped target data, used in place of {@link #targetData}. */
+    private transient MappedDataMatrix targetSource;
+
+    /**
+     * File the mapped input data was read from, saved so that it can be
+     * mapped again when the training set is opened.
+     */
+    private File inputFile;
+
+    /** File the mapped target data was read from. */
+    private File targetFile;
+
     /** Percentage of data to use for validation. */
     private double percentValidation = .25;
 
+    /** Largest number of rows of mapped data shown in data tables. */
+    public static final int PREVIEW_ROWS = 100;
+
     /**
      * Construct training set object.
      */
@@ -67,31 +94,84 @@ public class TrainingSet {
         this.targetData = targetData;
     }
 
-    /** Indices for validation subset of training data. */
-    private List<Integer> validationIndices;
+    /**
+     * Rows held out for validation, in increasing order, or null if the data
+     * has not been split.
+     */
+    private transient int[] validationIndices;
 
-    /** Indices for validation subset of training data. */
-    private List<Integer> mainIndices;
+    /** Rows used for training when the data has been split. */
+    private transient int[] mainIndices;
 
     /**
-     * Populate the validation and main index sets. TODO: This is a first draft!
+     * Split the rows at random into a validation subset, holding
+     * {@link #getPercentValidation()} of the rows, and a training subset,
+     * which always keeps at least one row. The split is discarded when the
+     * data or the percentage changes.
      */
     public void setIndexSets() {
-        int numRows = (int) (inputData.length * percentValidation);
-        System.out.println("num rows:" + numRows);
-        validationIndices = new ArrayList<Integer>();
-        mainIndices = new ArrayList<Integer>();
-        List<Integer> temp = new ArrayList<Integer>();
-        for (int i = 0; i < inputData.length; i++) {
-            temp.add(new Integer(i));
+        int numRows = getNumRows();
+        int numValidation = Math.max(0, Math.min(
+                (int) (numRows * percentValidation), numRows - 1));
+        int[] order = new int[numRows];
+        for (int i = 0; i < numRows; i++) {
+            order[i] = i;
+        }
+        Random rand = new Random();
+        for (int i = numRows - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
         }
-        Collections.shuffle(temp);
-        validationIndices = new ArrayList<Integer>(temp.subList(0, numRows));
-        mainIndices = new ArrayList<Integer>(temp.subList(numRows, temp.size()));
+        validationIndices = Arrays.copyOfRange(order, 0, numValidation);
+        mainIndices = Arrays.copyOfRange(order, numValidation, numRows);
+        Arrays.sort(validationIndices);
+        Arrays.sort(mainIndices);
+    }
 
-        System.out.println(Arrays.asList(temp));
-        System.out.println(Arrays.asList(validationIndices));
-        System.out.println(Arrays.asList(mainIndices));
+    /**
+     * Discard the validation split, so that all rows are used for training.
+     */
+    public void clearIndexSets() {
+        validationIndices = null;
+        mainIndices = null;
+    }
+
+    /**
+     * @return the rows held out for validation, in increasing order, or null
+     *         if the data has not been split. The array must not be changed.
+     */
+    public int[] getValidationIndices() {
+        return validationIndices;
+    }
+
+    /**
+     * Returns the rows to train on: the training subset if the data has been
+     * split, and otherwise every row.
+     *
+     * @return a new array of row indices, in increasing order
+     */
+    public int[] getTrainingIndices() {
+        if (mainIndices != null) {
+            return mainIndices.clone();
+        }
+        int[] rows = new int[getNumRows()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        return rows;
+    }
+
+    /**
+     * @return the number of rows with both inputs and, if there are targets,
+     *         targets
+     */
+    private int getNumRows() {
+        if (hasTargetData()) {
+            return Math.min(getNumInputRows(), getNumTargetRows());
+        }
+        return getNumInputRows();
     }
 
     /**
@@ -101,6 +181,9 @@ public class TrainingSet {
      */
     public void setInputData(double[][] inputData) {
         this.inputData = inputData;
+        this.inputSource = null;
+        this.inputFile = null;
+        clearIndexSets();
     }
 
     /**
@@ -110,24 +193,191 @@ public class TrainingSet {
      */
     public void setTargetData(double[][] targetData) {
         this.targetData = targetData;
+        this.targetSource = null;
+        this.targetFile = null;
+        clearIndexSets();
     }
 
     /**
+     * Returns the input data. If the inputs come from a mapped file each call
+     * reads the whole file into a new array, which is not kept, so trainers
+     * meant for large data sets should use {@link #getInputRow(int, double[])}
+     * instead.
+     *
      * @return the inputData
      */
     public double[][] getInputData() {
+        if (inputSource != null) {
+            return inputSource.toArray();
+        }
         return inputData;
     }
 
     /**
+     * Returns the target data. If the targets come from a mapped file each
+     * call reads the whole file into a new array, which is not kept.
+     *
      * @return the targetData
      */
     public double[][] getTargetData() {
+        if (targetSource != null) {
+            return targetSource.toArray();
+        }
         return targetData;
     }
 
     /**
-     * Wrap input data in a DataMatrix Object.
+     * @return true if input data or an input file has been set
+     */
+    public boolean hasInputData() {
+        return inputData != null || inputSource != null;
+    }
+
+    /**
+     * @return true if target data or a target file has been set
+     */
+    public boolean hasTargetData() {
+        return targetData != null || targetSource != null;
+    }
+
+    /**
+     * @return the number of input rows, or 0 if there are none
+     */
+    public int getNumInputRows() {
+        if (inputSource != null) {
+            return inputSource.getNumRows();
+        }
+        return inputData == null ? 0 : inputData.length;
+    }
+
+    /**
+     * @return the number of target rows, or 0 if there are none
+     */
+    public int getNumTargetRows() {
+        if (targetSource != null) {
+            return targetSource.getNumRows();
+        }
+        return targetData == null ? 0 : targetData.length;
+    }
+
+    /**
+     * Copy a row of input data into an array, reading it from the mapped file
+     * if one is set. If the array is shorter than the row only the leading
+     * values are copied.
+     *
+     * @param row the row index
+     * @param out the array to copy into
+     * @return <code>out</code>
+     */
+    public double[] getInputRow(int row, double[] out) {
+        if (inputSource != null) {
+            return inputSource.getRow(row, out);
+        }
+        System.arraycopy(inputData[row], 0, out, 0,
+                Math.min(out.length, inputData[row].length));
+        return out;
+    }
+
+    /**
+     * Copy a row of target data into an array, reading it from the mapped
+     * file if one is set. If the array is shorter than the row only the
+     * leading values are copied.
+     *
+     * @param row the row index
+     * @param out the array to copy into
+     * @return <code>out</code>
+     */
+    public double[] getTargetRow(int row, double[] out) {
+        if (targetSource != null) {
+            return targetSource.getRow(row, out);
+        }
+        System.arraycopy(targetData[row], 0, out, 0,
+                Math.min(out.length, targetData[row].length));
+        return out;
+    }
+
+    /**
+     * @return the memory mapped input data, or null
+     */
+    public MappedDataMatrix getInputSource() {
+        return inputSource;
+    }
+
+    /**
+     * Read input data from a memory mapped file rather than from an array.
+     * Any input array previously set is discarded.
+     *
+     * @param inputSource the mapped input data, or null
+     */
+    public void setInputSource(MappedDataMatrix inputSource) {
+        this.inputSource = inputSource;
+        this.inputFile = inputSource == null ? null : inputSource.getFile();
+        this.inputData = null;
+        clearIndexSets();
+    }
+
+    /**
+     * @return the memory mapped target data, or null
+     */
+    public MappedDataMatrix getTargetSource() {
+        return targetSource;
+    }
+
+    /**
+     * Read target data from a memory mapped file rather than from an array.
+     * Any target array previously set is discarded.
+     *
+     * @param targetSource the mapped target data, or null
+     */
+    public void setTargetSource(MappedDataMatrix targetSource) {
+        this.targetSource = targetSource;
+        this.targetFile = targetSource == null ? null : targetSource.getFile();
+        this.targetData = null;
+        clearIndexSets();
+    }
+
+    /**
+     * Map the input and target files again after the training set is opened.
+     * Files that can no longer be read are dropped, with a warning.
+     *
+     * @return this training set
+     */
+    private Object readResolve() {
+        if (inputFile != null) {
+            inputSource = reopen(inputFile);
+            if (inputSource == null) {
+                inputFile = null;
+            }
+        }
+        if (targetFile != null) {
+            targetSource = reopen(targetFile);
+            if (targetSource == null) {
+                targetFile = null;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Map a data file, logging a warning if it can't be read.
+     *
+     * @param file the file
+     * @return the mapped data, or null
+     */
+    private static MappedDataMatrix reopen(File file) {
+        try {
+            return new MappedDataMatrix(file);
+        } catch (IOException e) {
+            LOGGER.warn("Could not reopen training data: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Wrap input data in a DataMatrix Object. If the inputs are streamed from
+     * a mapped file only the first {@link #PREVIEW_ROWS} rows are returned,
+     * so that tables do not read the whole file; setting data replaces the
+     * file.
      *
      * @return the data matrix containing this data.
      */
@@ -141,13 +391,17 @@ public class TrainingSet {
 
             @Override
             public double[][] getData() {
+                if (inputSource != null) {
+                    return preview(inputSource);
+                }
                 return getInputData();
             }
         };
     }
 
     /**
-     * Wrap target data in a DataMatrix Object.
+     * Wrap target data in a DataMatrix Object, previewing mapped data as
+     * {@link #getInputDataMatrix()} does.
      *
      * @return the data matrix containing this data.
      */
@@ -161,11 +415,29 @@ public class TrainingSet {
 
             @Override
             public double[][] getData() {
+                if (targetSource != null) {
+                    return preview(targetSource);
+                }
                 return getTargetData();
             }
         };
     }
 
+    /**
+     * Read the leading rows of mapped data.
+     *
+     * @param source the mapped data
+     * @return at most {@link #PREVIEW_ROWS} rows
+     */
+    private static double[][] preview(final MappedDataMatrix source) {
+        double[][] rows = new double[Math.min(PREVIEW_ROWS,
+                source.getNumRows())][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = source.getRow(i, new double[source.getNumColumns()]);
+        }
+        return rows;
+    }
+
     /**
      * @return the percentValidation
      */
@@ -178,6 +450,7 @@ public class TrainingSet {
      */
     public void setPercentValidation(double percentValidation) {
         this.percentValidation = percentValidation;
+        clearIndexSets();
     }
 
     /**
@@ -189,6 +462,11 @@ public class TrainingSet {
         double[][] matActivations = new double[1][newRow.length];
         matActivations[0] = newRow;
 
+        // Appending to mapped data turns it into an array
+        inputData = getInputData();
+        clearIndexSets();
+        inputSource = null;
+        inputFile = null;
         if (inputData == null) {
             inputData = new double[1][newRow.length];
             inputData = matActivations;
@@ -0,0 +1,569 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.trainers;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.neuron_update_rules.LinearRule;
+import org.simbrain.network.neuron_update_rules.SigmoidalRule;
+import org.simbrain.network.subnetworks.BPTTNetwork;
+import org.simbrain.network.subnetworks.SimpleRecurrentNetwork;
+
+/**
+ * Truncated backprop through time for simple recurrent networks and
+ * {@link BPTTNetwork}s, computed on arrays rather than on the network's neurons
+ * and synapses.
+ * <p>
+ * The weights and biases are copied into primitive arrays at the start of each
+ * iteration (an epoch) and written back to the synapses and neurons at its
+ * end. The rows of the training set are divided into sequences of
+ * {@link #getSequenceLength()} steps, and {@link #getBatchSize()} sequences are
+ * run side by side as a mini-batch. Each batch is run forward
+ * {@link #getTruncationLength()} steps at a time, keeping the activations of
+ * those steps in buffers that are reused for every window; the error is then
+ * propagated back through the window and the weights are changed. The
+ * recurrent state, but not the error, is carried over to the next window, so
+ * memory does not grow with the length of the sequences.
+ * <p>
+ * In a simple recurrent network the context layer holds the hidden layer of
+ * the previous step (0.5 at the start of a sequence, as in
+ * {@link SimpleRecurrentNetwork#initNetwork()}). In a BPTT network the output
+ * of each step is copied to the input of the next, and only the first row of
+ * each sequence is read from the input data. Hidden and output neurons must
+ * use {@link SigmoidalRule} or {@link LinearRule}, with the same settings
+ * (other than bias) within a layer.
+ */
+public class TruncatedBPTTTrainer extends IterableTrainer {
+
+    /** Default learning rate. */
+    private static final double DEFAULT_LEARNING_RATE = .25;
+
+    /** Learning rate. */
+    private double learningRate = DEFAULT_LEARNING_RATE;
+
+    /** Default momentum. */
+    private static final double DEFAULT_MOMENTUM = .9;
+
+    /** Momentum. Must be between 0 and 1. */
+    private double momentum = DEFAULT_MOMENTUM;
+
+    /** Default number of steps errors are propagated back through. */
+    private static final int DEFAULT_TRUNCATION_LENGTH = 20;
+
+    /** Number of steps errors are propagated back through. */
+    private int truncationLength = DEFAULT_TRUNCATION_LENGTH;
+
+    /** Number of sequences trained side by side. */
+    private int batchSize = 1;
+
+    /**
+     * Number of rows in each sequence, or 0 to treat the whole training set as
+     * one sequence.
+     */
+    private int sequenceLength;
+
+    /** Current error. */
+    private double mse;
+
+    /** Input layer. */
+    private final NeuronGroup inputLayer;
+
+    /** Hidden layer. */
+    private final NeuronGroup hiddenLayer;
+
+    /** Output layer. */
+    private final NeuronGroup outputLayer;
+
+    /** Context layer, or null if outputs are fed back to the inputs instead. */
+    private final NeuronGroup contextLayer;
+
+    /** Hidden layer activation used as context at the start of a sequence. */
+    private final double initialContext;
+
+    /** Input to hidden weights. */
+    private ArrayProjection inputToHidden;
+
+    /** Context to hidden weights, or null. */
+    private ArrayProjection contextToHidden;
+
+    /** Hidden to output weights. */
+    private ArrayProjection hiddenToOutput;
+
+    /** Hidden layer activation function and biases. */
+    private ArrayLayer hidden;
+
+    /** Output layer activation function and biases. */
+    private ArrayLayer output;
+
+    /** Inputs of each step of the window, by step and sequence. */
+    private double[][][] inputBuffer;
+
+    /** Hidden activations of each step of the window. */
+    private double[][][] hiddenBuffer;
+
+    /** Hidden activation function derivatives of each step of the window. */
+    private double[][][] hiddenDerivBuffer;
+
+    /** Output activation function derivatives of each step of the window. */
+    private double[][][] outputDerivBuffer;
+
+    /** Output errors (target minus output) of each step of the window. */
+    private double[][][] errorBuffer;
+
+    /** Output activations of the current step. */
+    private double[][] outputs;
+
+    /** Hidden activations before the window, by sequence. */
+    private double[][] hiddenState;
+
+    /** Inputs of the step before the window, by sequence. */
+    private double[][] inputState;
+
+    /** Outputs of the step before the window, by sequence. */
+    private double[][] outputState;
+
+    /** Error reaching the hidden layer from the next step, by sequence. */
+    private double[][] hiddenCarry;
+
+    /** Error reaching the inputs from the next step, by sequence. */
+    private double[][] inputCarry;
+
+    /** Scratch arrays, one per layer size. */
+    private double[] hiddenScratch, outputScratch, targetRow;
+
+    /**
+     * Construct a trainer for a simple recurrent network. The whole training
+     * set is trained as one sequence unless a sequence length is set.
+     *
+     * @param srn the network to train
+     */
+    public TruncatedBPTTTrainer(final SimpleRecurrentNetwork srn) {
+        super(srn);
+        inputLayer = srn.getInputLayer();
+        hiddenLayer = srn.getHiddenLayer();
+        outputLayer = srn.getOutputLayer();
+        contextLayer = srn.getContextLayer();
+        initialContext = .5;
+    }
+
+    /**
+     * Construct a trainer for a BPTT network. Sequences are the network's
+     * steps per sequence long.
+     *
+     * @param bptt the network to train
+     */
+    public TruncatedBPTTTrainer(final BPTTNetwork bptt) {
+        super(bptt);
+        inputLayer = bptt.getInputLayer();
+        hiddenLayer = bptt.getHiddenLayer();
+        outputLayer = bptt.getOutputLayer();
+        contextLayer = null;
+        initialContext = 0;
+        sequenceLength = bptt.getStepsPerSequences();
+    }
+
+    @Override
+    public void apply() {
+        mse = 0;
+
+        int numRows = getMinimumNumRows(network);
+        int numInputs = inputLayer.size();
+        if ((numRows == 0) || (numInputs == 0)) {
+            return;
+        }
+
+        pull();
+        int seqLength = sequenceLength > 0 ? Math.min(sequenceLength,
+                numRows) : numRows;
+        int numSequences = (numRows + seqLength - 1) / seqLength;
+        int window = Math.max(1, Math.min(truncationLength, seqLength));
+        int batch = Math.max(1, Math.min(batchSize, numSequences));
+        allocateBuffers(window, batch);
+
+        for (int first = 0; first < numSequences; first += batch) {
+            int numInBatch = Math.min(batch, numSequences - first);
+            for (int b = 0; b < numInBatch; b++) {
+                Arrays.fill(hiddenState[b], initialContext);
+            }
+            for (int start = 0; start < seqLength; start += window) {
+                int steps = Math.min(window, seqLength - start);
+                int count = forward(first, numInBatch, seqLength, start,
+                        steps, numRows);
+                if (count == 0) {
+                    break;
+                }
+                backward(first, numInBatch, seqLength, start, steps,
+                        numRows);
+                double rate = learningRate / count;
+                inputToHidden.applyGradient(rate, momentum);
+                if (contextToHidden != null) {
+                    contextToHidden.applyGradient(rate, momentum);
+                }
+                hiddenToOutput.applyGradient(rate, momentum);
+                hidden.applyGradient(rate, momentum);
+                output.applyGradient(rate, momentum);
+                saveState(first, numInBatch, seqLength, start, steps, numRows);
+            }
+        }
+        push();
+
+        mse = mse / (numRows * outputLayer.size());
+        incrementIteration();
+        fireErrorUpdated();
+    }
+
+    /**
+     * Run a window of steps forward for each sequence of a batch, storing
+     * activations and errors in the buffers.
+     *
+     * @param first index of the first sequence of the batch
+     * @param numInBatch number of sequences in the batch
+     * @param seqLength number of rows per sequence
+     * @param start step within the sequences at which the window starts
+     * @param steps number of steps in the window
+     * @param numRows number of rows of training data
+     * @return the number of steps run (summed over sequences)
+     */
+    private int forward(final int first, final int numInBatch,
+            final int seqLength, final int start, final int steps,
+            final int numRows) {
+        TrainingSet trainingSet = network.getTrainingSet();
+        int numIn = inputLayer.size();
+        int numOut = outputLayer.size();
+        int count = 0;
+        for (int j = 0; j < steps; j++) {
+            for (int b = 0; b < numInBatch; b++) {
+                int row = (first + b) * seqLength + start + j;
+                if (row >= numRows || start + j >= seqLength) {
+                    continue;
+                }
+                double[] in = inputBuffer[j][b];
+                double[] prevOut = j == 0 ? outputState[b] : outputs[b];
+                double[] prevIn = j == 0 ? inputState[b]
+                        : inputBuffer[j - 1][b];
+                if (contextLayer == null && start + j > 0) {
+                    // Outputs of the last step are copied to the inputs
+                    System.arraycopy(prevIn, 0, in, 0, numIn);
+                    System.arraycopy(prevOut, 0, in, 0,
+                            Math.min(numIn, numOut));
+                } else {
+                    trainingSet.getInputRow(row, in);
+                }
+
+                // Hidden layer
+                double[] net = hiddenScratch;
+                Arrays.fill(net, 0);
+                inputToHidden.forward(in, net);
+                if (contextToHidden != null) {
+                    contextToHidden.forward(j == 0 ? hiddenState[b]
+                            : hiddenBuffer[j - 1][b], net);
+                }
+                hidden.activate(net, hiddenBuffer[j][b],
+                        hiddenDerivBuffer[j][b]);
+
+                // Output layer
+                net = outputScratch;
+                Arrays.fill(net, 0);
+                hiddenToOutput.forward(hiddenBuffer[j][b], net);
+                double[] out = outputs[b];
+                output.activate(net, out, outputDerivBuffer[j][b]);
+
+                trainingSet.getTargetRow(row, targetRow);
+                double[] err = errorBuffer[j][b];
+                for (int i = 0; i < numOut; i++) {
+                    err[i] = targetRow[i] - out[i];
+                    mse += err[i] * err[i];
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Propagate the errors of a window back through its steps, accumulating
+     * weight and bias gradients. Errors are not propagated past the first step
+     * of the window.
+     *
+     * @param first index of the first sequence of the batch
+     * @param numInBatch number of sequences in the batch
+     * @param seqLength number of rows per sequence
+     * @param start step within the sequences at which the window starts
+     * @param steps number of steps in the window
+     * @param numRows number of rows of training data
+     */
+    private void backward(final int first, final int numInBatch,
+            final int seqLength, final int start, final int steps,
+            final int numRows) {
+        int numOut = outputLayer.size();
+        for (int b = 0; b < numInBatch; b++) {
+            Arrays.fill(hiddenCarry[b], 0);
+            Arrays.fill(inputCarry[b], 0);
+        }
+        for (int j = steps - 1; j >= 0; j--) {
+            for (int b = 0; b < numInBatch; b++) {
+                int row = (first + b) * seqLength + start + j;
+                if (row >= numRows || start + j >= seqLength) {
+                    continue;
+                }
+
+                // Output layer. In a BPTT network the output also reaches the
+                // error through the next step's input
+                double[] delta = outputScratch;
+                double[] err = errorBuffer[j][b];
+                System.arraycopy(err, 0, delta, 0, numOut);
+                if (contextLayer == null) {
+                    double[] carry = inputCarry[b];
+                    for (int i = 0, n = Math.min(numOut, carry.length); i < n; i++) {
+                        delta[i] += carry[i];
+                    }
+                }
+                output.backward(delta, outputDerivBuffer[j][b]);
+                hiddenToOutput.accumulate(delta, hiddenBuffer[j][b]);
+
+                // Hidden layer
+                double[] hiddenDelta = hiddenScratch;
+                System.arraycopy(hiddenCarry[b], 0, hiddenDelta, 0,
+                        hiddenDelta.length);
+                hiddenToOutput.backward(delta, hiddenDelta);
+                hidden.backward(hiddenDelta, hiddenDerivBuffer[j][b]);
+                double[] in = inputBuffer[j][b];
+                inputToHidden.accumulate(hiddenDelta, in);
+
+                // Error passed to the previous step
+                if (contextToHidden != null) {
+                    double[] context = j == 0 ? hiddenState[b]
+                            : hiddenBuffer[j - 1][b];
+                    contextToHidden.accumulate(hiddenDelta, context);
+                    Arrays.fill(hiddenCarry[b], 0);
+                    contextToHidden.backward(hiddenDelta, hiddenCarry[b]);
+                } else {
+                    Arrays.fill(inputCarry[b], 0);
+                    if (start + j > 0) {
+                        inputToHidden.backward(hiddenDelta, inputCarry[b]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Keep the last activations of a window as the state at the start of the
+     * next.
+     *
+     * @param first index of the first sequence of the batch
+     * @param numInBatch number of sequences in the batch
+     * @param seqLength number of rows per sequence
+     * @param start step within the sequences at which the window starts
+     * @param steps number of steps in the window
+     * @param numRows number of rows of training data
+     */
+    private void saveState(final int first, final int numInBatch,
+            final int seqLength, final int start, final int steps,
+            final int numRows) {
+        for (int b = 0; b < numInBatch; b++) {
+            int last = Math.min(steps, numRows - (first + b) * seqLength
+                    - start) - 1;
+            if (last < 0) {
+                continue;
+            }
+            System.arraycopy(hiddenBuffer[last][b], 0, hiddenState[b], 0,
+                    hiddenState[b].length);
+            System.arraycopy(inputBuffer[last][b], 0, inputState[b], 0,
+                    inputState[b].length);
+            System.arraycopy(outputs[b], 0, outputState[b], 0,
+                    outputState[b].length);
+        }
+    }
+
+    /**
+     * Make sure the buffers fit a window and batch size.
+     *
+     * @param window number of steps per window
+     * @param batch number of sequences per batch
+     */
+    private void allocateBuffers(final int window, final int batch) {
+        int numIn = inputLayer.size();
+        int numHidden = hiddenLayer.size();
+        int numOut = outputLayer.size();
+        if (inputBuffer != null && inputBuffer.length == window
+                && inputBuffer[0].length == batch
+                && inputBuffer[0][0].length == numIn
+                && hiddenState[0].length == numHidden
+                && outputs[0].length == numOut) {
+            return;
+        }
+        inputBuffer = new double[window][batch][numIn];
+        hiddenBuffer = new double[window][batch][numHidden];
+        hiddenDerivBuffer = new double[window][batch][numHidden];
+        outputDerivBuffer = new double[window][batch][numOut];
+        errorBuffer = new double[window][batch][numOut];
+        outputs = new double[batch][numOut];
+        hiddenState = new double[batch][numHidden];
+        inputState = new double[batch][numIn];
+        outputState = new double[batch][numOut];
+        hiddenCarry = new double[batch][numHidden];
+        inputCarry = new double[batch][numIn];
+        hiddenScratch = new double[numHidden];
+        outputScratch = new double[numOut];
+        targetRow = new double[numOut];
+    }
+
+    /**
+     * Read the weights and biases from the network, creating the arrays if the
+     * layers have changed size.
+     */
+    private void pull() {
+        if (hidden == null || hidden.size() != hiddenLayer.size()
+                || output.size() != outputLayer.size()
+                || inputToHidden.getNumSources() != inputLayer.size()) {
+            hidden = new ArrayLayer(hiddenLayer.getNeuronList());
+            output = new ArrayLayer(outputLayer.getNeuronList());
+            inputToHidden = new ArrayProjection(inputLayer.getNeuronList(),
+                    hiddenLayer.getNeuronList());
+            contextToHidden = contextLayer == null ? null : new ArrayProjection(
+                    contextLayer.getNeuronList(), hiddenLayer.getNeuronList());
+            hiddenToOutput = new ArrayProjection(hiddenLayer.getNeuronList(),
+                    outputLayer.getNeuronList());
+            inputBuffer = null;
+        }
+        hidden.pull();
+        output.pull();
+        inputToHidden.pull();
+        if (contextToHidden != null) {
+            contextToHidden.pull();
+        }
+        hiddenToOutput.pull();
+    }
+
+    /**
+     * Write the weights and biases back to the network.
+     */
+    private void push() {
+        hidden.push();
+        output.push();
+        inputToHidden.push();
+        if (contextToHidden != null) {
+            contextToHidden.push();
+        }
+        hiddenToOutput.push();
+    }
+
+    @Override
+    public double getError() {
+        return mse;
+    }
+
+    @Override
+    public void randomize() {
+        randomize(hiddenLayer.getNeuronList());
+        randomize(outputLayer.getNeuronList());
+        revalidateSynapseGroups();
+    }
+
+    /**
+     * Randomize the specified layer.
+     *
+     * @param layer the layer to randomize
+     */
+    private void randomize(List<Neuron> layer) {
+        for (Neuron neuron : layer) {
+            neuron.clear(); // Looks nicer in the GUI
+            neuron.randomizeFanIn();
+            neuron.randomizeBias(-.5, .5);
+        }
+    }
+
+    /**
+     * @return the learningRate
+     */
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    /**
+     * @param learningRate the learningRate to set
+     */
+    public void setLearningRate(double learningRate) {
+        this.learningRate = learningRate;
+    }
+
+    /**
+     * @return the momentum
+     */
+    public double getMomentum() {
+        return momentum;
+    }
+
+    /**
+     * @param momentum the momentum to set
+     */
+    public void setMomentum(double momentum) {
+        this.momentum = momentum;
+    }
+
+    /**
+     * @return the number of steps errors are propagated back through
+     */
+    public int getTruncationLength() {
+        return truncationLength;
+    }
+
+    /**
+     * @param truncationLength the number of steps errors are propagated back
+     *            through (and the number of steps between weight changes)
+     */
+    public void setTruncationLength(int truncationLength) {
+        this.truncationLength = Math.max(1, truncationLength);
+    }
+
+    /**
+     * @return the number of sequences trained side by side
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize the number of sequences trained side by side
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @return the number of rows in each sequence, or 0 if the whole training
+     *         set is one sequence
+     */
+    public int getSequenceLength() {
+        return sequenceLength;
+    }
+
+    /**
+     * @param sequenceLength the number of rows in each sequence, or 0 to treat
+     *            the whole training set as one sequence
+     */
+    public void setSequenceLength(int sequenceLength) {
+        this.sequenceLength = Math.max(0, sequenceLength);
+    }
+
+}
@@ -0,0 +1,297 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.trainers;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.groups.Subnetwork;
+import org.simbrain.network.subnetworks.BPTTNetwork;
+import org.simbrain.network.subnetworks.FeedForward;
+
+/**
+ * Measures the error of a feed-forward network on the validation rows of its
+ * training set, on a background thread, and keeps the weights that gave the
+ * lowest error.
+ * <p>
+ * Each evaluation copies the weights and biases into arrays on the training
+ * thread, then computes the error from the copy while training goes on. An
+ * evaluation requested while another is running is skipped, so training never
+ * waits. Layers after the first must use sigmoidal or linear neurons.
+ */
+class Validator {
+
+    /** The network's layers, input layer first. */
+    private final List<List<Neuron>> neuronLayers;
+
+    /** Activation functions and biases of the layers after the input layer. */
+    private final ArrayLayer[] layers;
+
+    /** Weights from each layer to the next. */
+    private final ArrayProjection[] projections;
+
+    /** Weights of the best evaluation. */
+    private final double[][] bestWeights;
+
+    /** Biases of the best evaluation. */
+    private final double[][] bestBiases;
+
+    /** The training set. */
+    private final TrainingSet trainingSet;
+
+    /** The validation rows. */
+    private final int[] rows;
+
+    /** Runs evaluations. */
+    private final ExecutorService executor;
+
+    /** The evaluation in progress, or the last one. */
+    private Future<?> pending;
+
+    /** Error of the last evaluation. */
+    private volatile double error = Double.NaN;
+
+    /** Lowest error so far. */
+    private volatile double bestError = Double.NaN;
+
+    /** Iteration of the lowest error, or -1. */
+    private volatile int bestIteration = -1;
+
+    /** Number of evaluations since the lowest error. */
+    private volatile int evaluationsSinceBest;
+
+    /**
+     * Prepare to validate a network against the current validation split of
+     * its training set.
+     *
+     * @param network the network
+     * @throws IllegalArgumentException if the network cannot be evaluated on
+     *             arrays
+     */
+    Validator(final Trainable network) {
+        if (!(network.getNetwork() instanceof FeedForward)
+                || network.getNetwork() instanceof BPTTNetwork) {
+            throw new IllegalArgumentException(
+                    "Validation requires a feed-forward network");
+        }
+        neuronLayers = ((Subnetwork) network.getNetwork())
+                .getNeuronGroupsAsList();
+        int n = neuronLayers.size() - 1;
+        layers = new ArrayLayer[n];
+        projections = new ArrayProjection[n];
+        bestWeights = new double[n][];
+        bestBiases = new double[n][];
+        for (int l = 0; l < n; l++) {
+            layers[l] = new ArrayLayer(neuronLayers.get(l + 1));
+            projections[l] = new ArrayProjection(neuronLayers.get(l),
+                    neuronLayers.get(l + 1));
+        }
+        trainingSet = network.getTrainingSet();
+        rows = trainingSet.getValidationIndices();
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "Validation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns true if this validator still fits the network and its
+     * validation split.
+     *
+     * @param network the network
+     * @return whether the layers and validation rows are unchanged
+     */
+    boolean matches(final Trainable network) {
+        if (rows != network.getTrainingSet().getValidationIndices()) {
+            return false;
+        }
+        List<List<Neuron>> current = ((Subnetwork) network.getNetwork())
+                .getNeuronGroupsAsList();
+        if (current.size() != neuronLayers.size()) {
+            return false;
+        }
+        for (int l = 0; l < current.size(); l++) {
+            if (current.get(l).size() != neuronLayers.get(l).size()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Start evaluating the current weights, unless an evaluation is already
+     * running. Must be called on the training thread.
+     *
+     * @param iteration the training iteration the weights come from
+     * @return whether an evaluation was started
+     */
+    boolean submit(final int iteration) {
+        if (rows == null || rows.length == 0) {
+            return false;
+        }
+        if (pending != null) {
+            if (!pending.isDone()) {
+                return false;
+            }
+            await();
+        }
+        for (int l = 0; l < layers.length; l++) {
+            projections[l].pull();
+            layers[l].pull();
+        }
+        pending = executor.submit(() -> evaluate(iteration));
+        return true;
+    }
+
+    /**
+     * Compute the error of the copied weights on the validation rows.
+     *
+     * @param iteration the training iteration the weights come from
+     */
+    private void evaluate(final int iteration) {
+        int numOutputs = layers[layers.length - 1].size();
+        double[][] act = new double[neuronLayers.size()][];
+        double[][] net = new double[layers.length][];
+        double[][] deriv = new double[layers.length][];
+        act[0] = new double[neuronLayers.get(0).size()];
+        for (int l = 0; l < layers.length; l++) {
+            act[l + 1] = new double[layers[l].size()];
+            net[l] = new double[layers[l].size()];
+            deriv[l] = new double[layers[l].size()];
+        }
+        double[] target = new double[numOutputs];
+        double sse = 0;
+        for (int row : rows) {
+            trainingSet.getInputRow(row, act[0]);
+            trainingSet.getTargetRow(row, target);
+            for (int l = 0; l < layers.length; l++) {
+                Arrays.fill(net[l], 0);
+                projections[l].forward(act[l], net[l]);
+                layers[l].activate(net[l], act[l + 1], deriv[l]);
+            }
+            double[] output = act[layers.length];
+            for (int i = 0; i < numOutputs; i++) {
+                double e = target[i] - output[i];
+                sse += e * e;
+            }
+        }
+        double mse = sse / ((double) rows.length * numOutputs);
+        error = mse;
+        if (bestIteration < 0 || mse < bestError) {
+            for (int l = 0; l < layers.length; l++) {
+                bestWeights[l] = projections[l].getWeights().clone();
+                bestBiases[l] = layers[l].getBiases().clone();
+            }
+            bestError = mse;
+            bestIteration = iteration;
+            evaluationsSinceBest = 0;
+        } else {
+            evaluationsSinceBest++;
+        }
+    }
+
+    /**
+     * Wait for the evaluation in progress, if any.
+     */
+    void await() {
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Write the weights and biases with the lowest validation error to the
+     * network. Waits for the evaluation in progress, which may itself be the
+     * best. Must be called on the training thread.
+     *
+     * @return whether there were weights to restore
+     */
+    boolean restoreBest() {
+        await();
+        if (bestIteration < 0) {
+            return false;
+        }
+        for (int l = 0; l < layers.length; l++) {
+            System.arraycopy(bestWeights[l], 0, projections[l].getWeights(),
+                    0, bestWeights[l].length);
+            System.arraycopy(bestBiases[l], 0, layers[l].getBiases(), 0,
+                    bestBiases[l].length);
+            projections[l].push();
+            layers[l].push();
+        }
+        return true;
+    }
+
+    /**
+     * Start counting evaluations without improvement from zero. Must not be
+     * called while an evaluation is running.
+     */
+    void resetPatience() {
+        evaluationsSinceBest = 0;
+    }
+
+    /**
+     * Stop the background thread.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the error of the last evaluation, or NaN if there has been none
+     */
+    double getError() {
+        return error;
+    }
+
+    /**
+     * @return the lowest error so far, or NaN if there has been none
+     */
+    double getBestError() {
+        return bestError;
+    }
+
+    /**
+     * @return the iteration of the lowest error, or -1
+     */
+    int getBestIteration() {
+        return bestIteration;
+    }
+
+    /**
+     * @return the number of evaluations since the lowest error
+     */
+    int getEvaluationsSinceBest() {
+        return evaluationsSinceBest;
+    }
+
+}
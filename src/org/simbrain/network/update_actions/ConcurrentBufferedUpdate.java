@@ -157,7 +157,7 @@ public class ConcurrentBufferedUpdate implements NetworkUpdateAction,
                     }
                 }
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                // Interrupted by shutdown()
             }
         }
     });
@@ -266,6 +266,17 @@ public class ConcurrentBufferedUpdate implements NetworkUpdateAction,
         }
     }
 
+    /**
+     * Stop listening to the network and stop the worker threads. The updater
+     * cannot be invoked afterwards.
+     */
+    public void shutdown() {
+        network.removeGroupListener(this);
+        network.removeNeuronListener(this);
+        executors.shutdown();
+        collectorThread.interrupt();
+    }
+
     @Override
     public String getDescription() {
         return "Parallel Buffered Update";
@@ -21,8 +21,11 @@ package org.simbrain.network.update_actions;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
+import org.apache.log4j.Logger;
 import org.simbrain.network.core.Network;
 import org.simbrain.network.core.NetworkUpdateAction;
 
@@ -30,12 +33,18 @@ import bsh.EvalError;
 import bsh.Interpreter;
 
 /**
- * Update using a custom action saved as a beanshell script.
+ * Update using a custom action saved as a beanshell script. Scripts that are
+ * valid Java can instead be compiled (see {@link #setCompiled(boolean)}), in
+ * which case they run at the speed of compiled code; if no compiler is
+ * available or the script does not compile, it is run by BeanShell.
  *
  * @author jyoshimi
  */
 public class CustomUpdate implements NetworkUpdateAction {
 
+    /** Logger. */
+    private static final Logger LOGGER = Logger.getLogger(CustomUpdate.class);
+
     /** Reference to parent network. */
     private Network network;
 
@@ -51,6 +60,15 @@ public class CustomUpdate implements NetworkUpdateAction {
     /** Custom update action. */
     private NetworkUpdateAction theAction;
 
+    /** Whether to compile the script rather than interpret it. */
+    private boolean compiled;
+
+    /**
+     * Why the script could not be compiled the last time it was initialized,
+     * or null.
+     */
+    private transient String compileErrors;
+
     /**
      * Create a new custom update action.
      *
@@ -63,9 +81,24 @@ public class CustomUpdate implements NetworkUpdateAction {
         init();
     }
 
+    /**
+     * Create a new custom update action.
+     *
+     * @param network network to update
+     * @param script script to use in invoking the update action
+     * @param compiled whether to compile the script rather than interpret it
+     */
+    public CustomUpdate(final Network network, final String script,
+            final boolean compiled) {
+        this.network = network;
+        this.scriptString = script;
+        this.compiled = compiled;
+        init();
+    }
+
     /**
      * Create a new custom update action from a file containing the custom
-     * script.
+     * script. Files ending in ".java" are compiled.
      *
      * @param network network to update
      * @param file file containing custom code
@@ -86,13 +119,39 @@ public class CustomUpdate implements NetworkUpdateAction {
             scanner.close();
         }
         this.scriptString = scriptText.toString();
+        this.compiled = file.getName().endsWith(".java");
         init();
     }
 
     /**
-     * Initialize the interpreter.
+     * Initialize the interpreter, or compile the script.
      */
     public void init() {
+        compileErrors = null;
+        if (compiled) {
+            List<String> errors = new ArrayList<String>();
+            try {
+                NetworkUpdateAction action = UpdateScriptCompiler
+                        .createAction(scriptString, network, errors);
+                if (action != null) {
+                    theAction = action;
+                    return;
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Compiled update script failed", e);
+                compileErrors = e.getMessage()
+                        + (e.getCause() == null ? "" : ": " + e.getCause());
+                return;
+            }
+            StringBuilder message = new StringBuilder();
+            for (String error : errors) {
+                message.append(error).append('\n');
+            }
+            message.append("The script will be run by BeanShell instead.");
+            compileErrors = message.toString();
+            LOGGER.warn("Could not compile update script, running it with"
+                    + " BeanShell:\n" + compileErrors);
+        }
         if (interpreter == null) {
             interpreter = new Interpreter();
         }
@@ -133,4 +192,32 @@ public class CustomUpdate implements NetworkUpdateAction {
     public void setScriptString(String scriptString) {
         this.scriptString = scriptString;
     }
+
+    /**
+     * @return whether the script is compiled rather than interpreted
+     */
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Returns why the script could not be compiled the last time
+     * {@link #init()} was called, for display to the user.
+     *
+     * @return the compile errors, or null if the script was compiled or was
+     *         not meant to be
+     */
+    public String getCompileErrors() {
+        return compileErrors;
+    }
+
+    /**
+     * Set whether the script is compiled rather than interpreted. Takes
+     * effect the next time {@link #init()} is called.
+     *
+     * @param compiled whether to compile the script
+     */
+    public void setCompiled(boolean compiled) {
+        this.compiled = compiled;
+    }
 }
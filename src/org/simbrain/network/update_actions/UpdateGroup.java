@@ -19,10 +19,12 @@
 package org.simbrain.network.update_actions;
 
 import org.simbrain.network.core.NetworkUpdateAction;
+import org.simbrain.network.core.NetworkUpdateManager;
 import org.simbrain.network.groups.Group;
 import org.simbrain.network.groups.NeuronGroup;
 import org.simbrain.network.groups.Subnetwork;
 import org.simbrain.network.groups.SynapseGroup;
+import org.simbrain.util.propertyeditor.DisplayOrder;
 
 /**
  * Loose neurons (neurons not in groups) are updated in accordance with an
@@ -35,6 +37,15 @@ public class UpdateGroup implements NetworkUpdateAction {
     /** Reference to group. */
     private final Group group;
 
+    /** Number of network ticks between updates of the group. */
+    private int period = 1;
+
+    /** The tick within each period on which the group updates. */
+    private int offset = 0;
+
+    /** Factor applied to the network time step while the group updates. */
+    private double timeStepMultiplier = 1;
+
     /**
      * @param group group to update
      */
@@ -42,14 +53,56 @@ public class UpdateGroup implements NetworkUpdateAction {
         this.group = group;
     }
 
+    /**
+     * Initialize the schedule of actions saved before groups could update at
+     * different rates.
+     *
+     * @return Initialized object.
+     */
+    private Object readResolve() {
+        if (period < 1) {
+            period = 1;
+        }
+        if (timeStepMultiplier <= 0) {
+            timeStepMultiplier = 1;
+        }
+        return this;
+    }
+
     @Override
     public void invoke() {
-        group.update();
+        if (period <= 1 && timeStepMultiplier == 1) {
+            group.update();
+        } else if (isDue()) {
+            getUpdateManager().updateGroup(group, timeStepMultiplier);
+        }
+    }
+
+    /**
+     * Returns true if the group updates on the current tick.
+     *
+     * @return true if the group is due
+     */
+    public boolean isDue() {
+        return period <= 1 || getUpdateManager().isDue(period, offset);
+    }
+
+    /**
+     * @return the update manager of the group's network
+     */
+    private NetworkUpdateManager getUpdateManager() {
+        return group.getParentNetwork().getUpdateManager();
     }
 
     @Override
     public String getDescription() {
         String groupUpdateDescription = group.getUpdateMethodDesecription();
+        if (period > 1) {
+            groupUpdateDescription += ", every " + period + " ticks";
+        }
+        if (timeStepMultiplier != 1) {
+            groupUpdateDescription += ", dt x " + timeStepMultiplier;
+        }
         if (group instanceof Subnetwork) {
             return "Subnetwork:" + group.getLabel() + " ("
                     + groupUpdateDescription + ")";
@@ -77,4 +130,70 @@ public class UpdateGroup implements NetworkUpdateAction {
         return group;
     }
 
+    /**
+     * @return the number of network ticks between updates of the group
+     */
+    @DisplayOrder(val = 10)
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Set how often the group updates. A group with a period greater than 1
+     * holds its activations between updates.
+     *
+     * @param period the number of network ticks between updates
+     */
+    public void setPeriod(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("Period must be at least 1");
+        }
+        this.period = period;
+    }
+
+    /**
+     * @return the tick within each period on which the group updates
+     */
+    @DisplayOrder(val = 20)
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Set the tick within each period on which the group updates, so that
+     * several slow groups can be spread over different ticks. Offsets of a
+     * period or more wrap around.
+     *
+     * @param offset the offset, usually from 0 to period - 1
+     */
+    public void setOffset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative");
+        }
+        this.offset = offset;
+    }
+
+    /**
+     * @return the factor applied to the network time step while the group
+     *         updates
+     */
+    @DisplayOrder(val = 30)
+    public double getTimeStepMultiplier() {
+        return timeStepMultiplier;
+    }
+
+    /**
+     * Set the factor applied to the network time step while the group
+     * updates. To keep pace with network time this should equal the period.
+     *
+     * @param timeStepMultiplier the factor
+     */
+    public void setTimeStepMultiplier(double timeStepMultiplier) {
+        if (timeStepMultiplier <= 0) {
+            throw new IllegalArgumentException(
+                    "Time step multiplier must be positive");
+        }
+        this.timeStepMultiplier = timeStepMultiplier;
+    }
+
 }
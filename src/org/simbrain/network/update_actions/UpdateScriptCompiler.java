@@ -0,0 +1,359 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.update_actions;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.log4j.Logger;
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.NetworkUpdateAction;
+
+/**
+ * Compiles network update scripts to Java classes with the JDK's compiler, so
+ * that they run at the speed of compiled code rather than in the BeanShell
+ * interpreter.
+ * <p>
+ * Scripts have the same form as BeanShell update scripts: import statements,
+ * followed by field declarations and an initializer block that sets a field
+ * called <code>action</code> and may refer to the network as
+ * <code>network</code>. The imports are moved to the top of a generated class,
+ * and the rest of the script becomes the body of an anonymous class created
+ * for each network. The script must therefore be valid Java: BeanShell's loose
+ * typing is not accepted.
+ * <p>
+ * Compiled classes are named after a hash of their source (and of the Java and
+ * Simbrain versions they were compiled against), and are kept in memory and in
+ * a cache directory, so that a script is compiled once across sessions.
+ */
+final class UpdateScriptCompiler {
+
+    /** Logger. */
+    private static final Logger LOGGER = Logger
+            .getLogger(UpdateScriptCompiler.class);
+
+    /** Directory where compiled scripts are kept between sessions. */
+    private static final File CACHE_DIR = new File(
+            System.getProperty("user.home"), ".simbrain" + File.separator
+                    + "compiledScripts");
+
+    /** Prefix of the names of generated classes. */
+    private static final String CLASS_PREFIX = "UpdateScript_";
+
+    /** Classes compiled or loaded in this session, by class name. */
+    private static final Map<String, Class<?>> COMPILED = new HashMap<String, Class<?>>();
+
+    /** Loads classes from the cache directory. */
+    private static URLClassLoader cacheLoader;
+
+    /**
+     * No instances.
+     */
+    private UpdateScriptCompiler() {
+    }
+
+    /**
+     * Compile a script, or get it from the cache, and create its action for a
+     * network.
+     *
+     * @param script the script source
+     * @param network the network the action updates
+     * @param errors list the reasons the script could not be compiled are
+     *            added to
+     * @return the action, or null if the script could not be compiled
+     */
+    static NetworkUpdateAction createAction(final String script,
+            final Network network, final List<String> errors) {
+        Class<?> scriptClass = getScriptClass(script, errors);
+        if (scriptClass == null) {
+            return null;
+        }
+        try {
+            Object instance = scriptClass.getMethod("create", Network.class)
+                    .invoke(null, network);
+            Field action = instance.getClass().getDeclaredField("action");
+            action.setAccessible(true);
+            return (NetworkUpdateAction) action.get(instance);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Update script failed",
+                    e.getCause());
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException(
+                    "Update script does not declare a field named action", e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the compiled class for a script, compiling it if it is neither
+     * loaded nor in the cache directory.
+     *
+     * @param script the script source
+     * @param errors list the reasons the script could not be compiled are
+     *            added to
+     * @return the class, or null if it could not be compiled
+     */
+    private static synchronized Class<?> getScriptClass(final String script,
+            final List<String> errors) {
+        String[] lines = script.split("\r\n|\r|\n", -1);
+        StringBuilder imports = new StringBuilder();
+        StringBuilder body = new StringBuilder();
+        int headerLines = 0;
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("import ") && trimmed.endsWith(";")) {
+                imports.append(trimmed).append('\n');
+                headerLines++;
+                // Keep the line so line numbers in errors still match
+                body.append('\n');
+            } else {
+                body.append(line).append('\n');
+            }
+        }
+        String className = CLASS_PREFIX
+                + hash(imports.toString() + body.toString());
+        Class<?> scriptClass = COMPILED.get(className);
+        if (scriptClass != null) {
+            return scriptClass;
+        }
+        String source = imports + "public final class " + className
+                + " {\n" + "public static Object create(final "
+                + Network.class.getName() + " network) {\n"
+                + "return new Object() {\n" + body + "};\n}\n}\n";
+        headerLines += 3;
+        if (!new File(CACHE_DIR, className + ".class").exists()) {
+            if (!compile(className, source, headerLines, errors)) {
+                return null;
+            }
+        }
+        try {
+            scriptClass = Class.forName(className, true, getCacheLoader());
+        } catch (ClassNotFoundException e) {
+            LOGGER.warn("Could not load compiled update script", e);
+            errors.add("Could not load compiled script: " + e.getMessage());
+            return null;
+        }
+        COMPILED.put(className, scriptClass);
+        return scriptClass;
+    }
+
+    /**
+     * Compile a generated class into the cache directory. Class files are
+     * written to a temporary directory first and then moved, so other
+     * sessions never see a partly written script.
+     *
+     * @param className name of the generated class
+     * @param source source of the generated class
+     * @param headerLines number of lines added before the script's own lines
+     * @param errors list compile errors are added to
+     * @return whether compilation succeeded
+     */
+    private static boolean compile(final String className,
+            final String source, final int headerLines,
+            final List<String> errors) {
+        // Null if running on a JRE rather than a JDK
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            errors.add("No Java compiler is available; run Simbrain with a"
+                    + " JDK to compile scripts");
+            return false;
+        }
+        File tempDir = null;
+        try {
+            if (!CACHE_DIR.isDirectory() && !CACHE_DIR.mkdirs()) {
+                throw new IOException("Cannot create " + CACHE_DIR);
+            }
+            tempDir = Files.createTempDirectory(CACHE_DIR.toPath(), "tmp")
+                    .toFile();
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+            boolean success;
+            try (StandardJavaFileManager fileManager = compiler
+                    .getStandardFileManager(diagnostics, Locale.getDefault(),
+                            StandardCharsets.UTF_8)) {
+                success = compiler.getTask(
+                        null,
+                        fileManager,
+                        diagnostics,
+                        Arrays.asList("-classpath", getClassPath(), "-d",
+                                tempDir.getPath(), "-nowarn"),
+                        null,
+                        Arrays.asList(new SourceObject(className, source)))
+                        .call();
+            }
+            if (!success) {
+                for (Diagnostic<? extends JavaFileObject> d : diagnostics
+                        .getDiagnostics()) {
+                    if (d.getKind() == Diagnostic.Kind.ERROR) {
+                        errors.add("Line " + (d.getLineNumber() - headerLines)
+                                + ": " + d.getMessage(Locale.getDefault()));
+                    }
+                }
+                return false;
+            }
+            for (File classFile : tempDir.listFiles()) {
+                Files.move(classFile.toPath(),
+                        new File(CACHE_DIR, classFile.getName()).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Could not compile update script", e);
+            errors.add("Could not compile script: " + e.getMessage());
+            return false;
+        } finally {
+            if (tempDir != null) {
+                for (File file : tempDir.listFiles()) {
+                    file.delete();
+                }
+                tempDir.delete();
+            }
+        }
+    }
+
+    /**
+     * @return the class loader for the cache directory
+     */
+    private static URLClassLoader getCacheLoader() {
+        if (cacheLoader == null) {
+            try {
+                cacheLoader = new URLClassLoader(new URL[] {CACHE_DIR.toURI()
+                        .toURL() }, UpdateScriptCompiler.class.getClassLoader());
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return cacheLoader;
+    }
+
+    /**
+     * Returns the class path for compiling scripts: the application's class
+     * path, and the location Simbrain's classes were loaded from, in case they
+     * are not on it.
+     *
+     * @return the class path
+     */
+    private static String getClassPath() {
+        String classPath = System.getProperty("java.class.path");
+        File simbrain = getSimbrainLocation();
+        if (simbrain != null) {
+            classPath = simbrain.getPath() + File.pathSeparator + classPath;
+        }
+        return classPath;
+    }
+
+    /**
+     * @return the jar or directory Simbrain's classes were loaded from, or null
+     *         if it is not known
+     */
+    private static File getSimbrainLocation() {
+        CodeSource codeSource = Network.class.getProtectionDomain()
+                .getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null) {
+            return null;
+        }
+        try {
+            return new File(codeSource.getLocation().toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a hash of a script, which also covers the Java version and the
+     * Simbrain build, so that cached classes are recompiled when either
+     * changes.
+     *
+     * @param script the script source
+     * @return the hash, as hexadecimal digits
+     */
+    private static String hash(final String script) {
+        File simbrain = getSimbrainLocation();
+        String versions = System.getProperty("java.specification.version")
+                + "|"
+                + (simbrain == null ? "" : simbrain.getPath() + "|"
+                        + simbrain.lastModified());
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(versions.getBytes(StandardCharsets.UTF_8));
+            byte[] bytes = digest.digest(script
+                    .getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", bytes[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Source of a generated class, held in memory.
+     */
+    private static class SourceObject extends SimpleJavaFileObject {
+
+        /** The source. */
+        private final String source;
+
+        /**
+         * Construct the source object.
+         *
+         * @param className name of the class
+         * @param source the source
+         */
+        SourceObject(final String className, final String source) {
+            super(URI.create("string:///" + className
+                    + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+}
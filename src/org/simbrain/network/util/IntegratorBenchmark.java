@@ -0,0 +1,305 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.util;
+
+import java.util.List;
+import java.util.Locale;
+
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.NeuronUpdateRule;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.neuron_update_rules.HodgkinHuxleyRule;
+import org.simbrain.network.neuron_update_rules.IzhikevichRule;
+import org.simbrain.network.neuron_update_rules.interfaces.IntegratedUpdateRule;
+import org.simbrain.util.math.ODEIntegrator;
+
+/**
+ * Compares the accuracy and throughput of the {@link ODEIntegrator}s on two
+ * standard populations, run headless:
+ * <ul>
+ * <li>Izhikevich neurons driven by constant currents spread over the tonic
+ * spiking range. Accuracy is the mean absolute difference in spike counts from
+ * a fine-step RK4 reference, relative to the mean reference count.</li>
+ * <li>Hodgkin-Huxley neurons driven by slowly oscillating voltages. Accuracy is
+ * the root mean square difference in the sodium activation m, the fastest
+ * gating variable, from a fine-step reference, sampled every millisecond.</li>
+ * </ul>
+ * Inputs change only on whole milliseconds, so every time step sees the same
+ * input. Throughput is reported as milliseconds of neuron time simulated per
+ * second, i.e. neurons * duration / elapsed time.
+ * <p>
+ * Usage: IntegratorBenchmark [number of neurons] [duration in ms]
+ */
+public class IntegratorBenchmark {
+
+    /** Time steps compared (ms). Each divides 1 ms. */
+    private static final double[] TIME_STEPS = { 0.01, 0.05, 0.1, 0.25, 0.5 };
+
+    /** Tolerance used for the adaptive integrator. */
+    private static final double TOLERANCE = ODEIntegrator.DEFAULT_TOLERANCE;
+
+    /** Time step of the reference runs (ms). */
+    private static final double REFERENCE_TIME_STEP = 0.002;
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args optional number of neurons and duration in ms
+     */
+    public static void main(String[] args) {
+        int numNeurons = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int duration = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        System.out.println(numNeurons + " neurons, " + duration + " ms");
+        for (Model model : Model.values()) {
+            System.out.println();
+            System.out.println(model + " (error: " + model.errorName + ")");
+            System.out.println(String.format(Locale.US,
+                    "%-28s %6s %12s %16s", "Integrator", "dt", "Error",
+                    "Neuron ms/s"));
+            Result reference = run(model, ODEIntegrator.RK4,
+                    REFERENCE_TIME_STEP, numNeurons, duration);
+            for (ODEIntegrator integrator : ODEIntegrator.values()) {
+                for (double dt : TIME_STEPS) {
+                    Result result = run(model, integrator, dt, numNeurons,
+                            duration);
+                    double error = model.error(result, reference);
+                    double throughput = (double) numNeurons * duration
+                            / (result.nanos / 1e9);
+                    System.out.println(String.format(Locale.US,
+                            "%-28s %6.2f %12.3e %16.0f", integrator, dt,
+                            error, throughput));
+                }
+            }
+        }
+    }
+
+    /**
+     * Simulate a population.
+     *
+     * @param model the population to simulate
+     * @param integrator the integrator to use
+     * @param dt the time step
+     * @param numNeurons the number of neurons
+     * @param duration the duration in ms
+     * @return the samples, spike counts and elapsed time
+     */
+    private static Result run(final Model model,
+            final ODEIntegrator integrator, final double dt,
+            final int numNeurons, final int duration) {
+        Network net = new Network();
+        net.setFireUpdates(false);
+        net.setTimeStep(dt);
+        NeuronGroup ng = new NeuronGroup(net, numNeurons);
+        NeuronUpdateRule rule = model.createRule();
+        ((IntegratedUpdateRule) rule).setIntegrator(integrator);
+        ((IntegratedUpdateRule) rule).setIntegrationTolerance(TOLERANCE);
+        ng.setNeuronType(rule);
+        net.addGroup(ng);
+        List<Neuron> neurons = ng.getNeuronList();
+        model.initialize(neurons);
+
+        Result result = new Result(numNeurons, duration);
+        int stepsPerMs = (int) Math.round(1 / dt);
+        long start = System.nanoTime();
+        for (int ms = 0; ms < duration; ms++) {
+            for (int step = 0; step < stepsPerMs; step++) {
+                for (int i = 0; i < numNeurons; i++) {
+                    neurons.get(i).setInputValue(
+                            model.input(i, numNeurons, ms));
+                }
+                net.update();
+                for (int i = 0; i < numNeurons; i++) {
+                    if (neurons.get(i).isSpike()) {
+                        result.spikes[i]++;
+                    }
+                }
+            }
+            for (int i = 0; i < numNeurons; i++) {
+                result.samples[i][ms] = model.sample(neurons.get(i));
+            }
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * The populations compared.
+     */
+    private enum Model {
+
+        /** Tonically spiking Izhikevich neurons. */
+        IZHIKEVICH("relative spike count difference") {
+
+            @Override
+            NeuronUpdateRule createRule() {
+                IzhikevichRule rule = new IzhikevichRule();
+                rule.setiBg(0);
+                return rule;
+            }
+
+            @Override
+            void initialize(List<Neuron> neurons) {
+                for (Neuron neuron : neurons) {
+                    neuron.forceSetActivation(-65);
+                }
+            }
+
+            @Override
+            double input(int i, int n, int ms) {
+                return 4 + 16.0 * i / n;
+            }
+
+            @Override
+            double sample(Neuron neuron) {
+                return neuron.getActivation();
+            }
+
+            @Override
+            double error(Result result, Result reference) {
+                double diff = 0;
+                double total = 0;
+                for (int i = 0; i < result.spikes.length; i++) {
+                    diff += Math.abs(result.spikes[i] - reference.spikes[i]);
+                    total += reference.spikes[i];
+                }
+                return total == 0 ? diff : diff / total;
+            }
+        },
+
+        /** Hodgkin-Huxley neurons under oscillating voltages. */
+        HODGKIN_HUXLEY("rms difference in m") {
+
+            @Override
+            NeuronUpdateRule createRule() {
+                return new HodgkinHuxleyRule();
+            }
+
+            @Override
+            void initialize(List<Neuron> neurons) {
+            }
+
+            @Override
+            double input(int i, int n, int ms) {
+                // Offsets chosen to stay clear of the removable
+                // singularities of the rate functions at -10 and -25
+                return -20 + 20.0 * (i + 0.5) / n
+                        + 7.3 * Math.sin(2 * Math.PI * (ms + 0.5) / 50);
+            }
+
+            @Override
+            double sample(Neuron neuron) {
+                return ((HodgkinHuxleyRule) neuron.getUpdateRule()).getM();
+            }
+
+            @Override
+            double error(Result result, Result reference) {
+                double sum = 0;
+                int count = 0;
+                for (int i = 0; i < result.samples.length; i++) {
+                    for (int t = 0; t < result.samples[i].length; t++) {
+                        double d = result.samples[i][t]
+                                - reference.samples[i][t];
+                        sum += d * d;
+                        count++;
+                    }
+                }
+                return Math.sqrt(sum / count);
+            }
+        };
+
+        /** Description of the error measure. */
+        private final String errorName;
+
+        /**
+         * Construct a model.
+         *
+         * @param errorName description of the error measure
+         */
+        Model(final String errorName) {
+            this.errorName = errorName;
+        }
+
+        /**
+         * @return a rule for the population
+         */
+        abstract NeuronUpdateRule createRule();
+
+        /**
+         * Set initial conditions.
+         *
+         * @param neurons the population
+         */
+        abstract void initialize(List<Neuron> neurons);
+
+        /**
+         * Returns the input to a neuron.
+         *
+         * @param i index of the neuron
+         * @param n number of neurons
+         * @param ms whole milliseconds elapsed
+         * @return the input
+         */
+        abstract double input(int i, int n, int ms);
+
+        /**
+         * Returns the value of a neuron recorded each millisecond.
+         *
+         * @param neuron the neuron
+         * @return the value
+         */
+        abstract double sample(Neuron neuron);
+
+        /**
+         * Compare a run with the reference run.
+         *
+         * @param result the run
+         * @param reference the reference run
+         * @return the error
+         */
+        abstract double error(Result result, Result reference);
+    }
+
+    /**
+     * Outcome of one run.
+     */
+    private static class Result {
+
+        /** Sampled value of each neuron at the end of each millisecond. */
+        private final double[][] samples;
+
+        /** Number of spikes of each neuron. */
+        private final int[] spikes;
+
+        /** Elapsed time. */
+        private long nanos;
+
+        /**
+         * Construct an empty result.
+         *
+         * @param numNeurons number of neurons
+         * @param duration duration in ms
+         */
+        Result(final int numNeurons, final int duration) {
+            samples = new double[numNeurons][duration];
+            spikes = new int[numNeurons];
+        }
+    }
+
+}
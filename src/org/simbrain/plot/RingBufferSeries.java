@@ -0,0 +1,289 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.plot;
+
+/**
+ * <b>RingBufferSeries</b> holds the most recent (x, y) points of one data
+ * source in primitive arrays of fixed capacity. Once full, each new point
+ * overwrites the oldest, so memory use does not grow with the length of a
+ * run.
+ * <p>
+ * Points are added by the thread that produces them (usually the workspace
+ * update thread) and read by the chart's renderer without locking: readers
+ * copy the live range with {@link #snapshot(Snapshot)} and discard any points
+ * that were overwritten while they were copying. Writers are serialized with
+ * each other but never wait for readers.
+ */
+public class RingBufferSeries {
+
+    /** Maximum number of points held. */
+    private final int capacity;
+
+    /**
+     * Number of slots in the arrays. One more than the capacity, so that the
+     * slot a writer is filling never holds a point that readers can see.
+     */
+    private transient int slots;
+
+    /** X values, indexed by point number modulo the number of slots. */
+    private transient double[] xs;
+
+    /** Y values, indexed by point number modulo the number of slots. */
+    private transient double[] ys;
+
+    /**
+     * Number of points ever added. Written after the point itself, so that
+     * readers that see a count also see the points before it.
+     */
+    private transient volatile long count;
+
+    /** Number of the first point not cleared. */
+    private transient volatile long start;
+
+    /**
+     * The points held as text ("x,y" pairs separated by spaces), set only
+     * while saving and loading. Text keeps large series quick to read back.
+     */
+    private String savedPoints;
+
+    /**
+     * Construct an empty series.
+     *
+     * @param capacity maximum number of points held
+     */
+    public RingBufferSeries(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        allocate();
+    }
+
+    /**
+     * Create the arrays.
+     */
+    private void allocate() {
+        slots = capacity + 1;
+        xs = new double[slots];
+        ys = new double[slots];
+    }
+
+    /**
+     * Add a point, overwriting the oldest point if the series is full.
+     *
+     * @param x the x value
+     * @param y the y value
+     */
+    public synchronized void add(final double x, final double y) {
+        long n = count;
+        int i = (int) (n % slots);
+        xs[i] = x;
+        ys[i] = y;
+        count = n + 1;
+    }
+
+    /**
+     * Add several points with the same x value, as a raster plot does for
+     * each neuron that spiked on one time step.
+     *
+     * @param x the x value
+     * @param values the y values
+     */
+    public synchronized void addAll(final double x, final double[] values) {
+        long n = count;
+        for (double y : values) {
+            int i = (int) (n % slots);
+            xs[i] = x;
+            ys[i] = y;
+            n++;
+            // Publish every point so readers never see a batch larger than
+            // the buffer as live
+            count = n;
+        }
+    }
+
+    /**
+     * Remove all points.
+     */
+    public synchronized void clear() {
+        start = count;
+    }
+
+    /**
+     * @return the number of points currently held
+     */
+    public int size() {
+        long n = count;
+        return (int) (n - Math.max(start, n - capacity));
+    }
+
+    /**
+     * Returns a number that changes whenever points are added or cleared, so
+     * readers can tell cheaply whether a new snapshot is needed.
+     *
+     * @return the modification stamp
+     */
+    public long getModificationStamp() {
+        return count + start;
+    }
+
+    /**
+     * @return the maximum number of points held
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Copy the points currently held, oldest first, into a snapshot. The
+     * snapshot's arrays are reused when large enough.
+     *
+     * @param snapshot the snapshot to fill
+     * @return the snapshot
+     */
+    public Snapshot snapshot(final Snapshot snapshot) {
+        long end = count;
+        long begin = Math.max(start, end - capacity);
+        int n = (int) (end - begin);
+        snapshot.ensureCapacity(n);
+        int from = (int) (begin % slots);
+        int firstPart = Math.min(n, slots - from);
+        System.arraycopy(xs, from, snapshot.xs, 0, firstPart);
+        System.arraycopy(ys, from, snapshot.ys, 0, firstPart);
+        System.arraycopy(xs, 0, snapshot.xs, firstPart, n - firstPart);
+        System.arraycopy(ys, 0, snapshot.ys, firstPart, n - firstPart);
+
+        // Points before this may have been overwritten during the copy; the
+        // writer may be part way through writing point number count
+        long firstIntact = count + 1 - slots;
+        int dropped = (int) Math.max(0, Math.min(n, firstIntact - begin));
+        if (dropped > 0) {
+            n -= dropped;
+            System.arraycopy(snapshot.xs, dropped, snapshot.xs, 0, n);
+            System.arraycopy(snapshot.ys, dropped, snapshot.ys, 0, n);
+        }
+        snapshot.size = n;
+        return snapshot;
+    }
+
+    /**
+     * Returns a copy of this series with a different capacity, holding as
+     * many of the most recent points as fit.
+     *
+     * @param newCapacity the capacity of the copy
+     * @return the copy
+     */
+    public RingBufferSeries resize(final int newCapacity) {
+        Snapshot points = snapshot(new Snapshot());
+        RingBufferSeries ret = new RingBufferSeries(newCapacity);
+        for (int i = Math.max(0, points.size - newCapacity); i < points.size;
+                i++) {
+            ret.add(points.xs[i], points.ys[i]);
+        }
+        return ret;
+    }
+
+    /**
+     * Save only the points held, not the whole buffer.
+     *
+     * @return a copy of this series holding its points as text
+     */
+    private Object writeReplace() {
+        Snapshot points = snapshot(new Snapshot());
+        StringBuilder text = new StringBuilder(points.size * 16);
+        for (int i = 0; i < points.size; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(points.xs[i]).append(',').append(points.ys[i]);
+        }
+        RingBufferSeries ret = new RingBufferSeries(capacity);
+        ret.savedPoints = text.toString();
+        return ret;
+    }
+
+    /**
+     * Restore the buffer from the saved points.
+     *
+     * @return this series
+     */
+    private Object readResolve() {
+        allocate();
+        if (savedPoints != null && !savedPoints.isEmpty()) {
+            for (String point : savedPoints.split(" ")) {
+                int comma = point.indexOf(',');
+                add(Double.parseDouble(point.substring(0, comma)),
+                        Double.parseDouble(point.substring(comma + 1)));
+            }
+        }
+        savedPoints = null;
+        return this;
+    }
+
+    /**
+     * A copy of the points of a series at one moment, oldest first.
+     */
+    public static class Snapshot {
+
+        /** X values; only the first {@link #size} are valid. */
+        private double[] xs = new double[0];
+
+        /** Y values; only the first {@link #size} are valid. */
+        private double[] ys = new double[0];
+
+        /** Number of points. */
+        private int size;
+
+        /**
+         * Grow the arrays if needed.
+         *
+         * @param n number of points to hold
+         */
+        private void ensureCapacity(final int n) {
+            if (xs.length < n) {
+                xs = new double[n];
+                ys = new double[n];
+            }
+        }
+
+        /**
+         * @return the number of points
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param i point index
+         * @return the x value of a point
+         */
+        public double getX(final int i) {
+            return xs[i];
+        }
+
+        /**
+         * @param i point index
+         * @return the y value of a point
+         */
+        public double getY(final int i) {
+            return ys[i];
+        }
+    }
+
+}
@@ -0,0 +1,376 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.plot;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import org.jfree.data.xy.AbstractXYDataset;
+
+/**
+ * <b>RingXYDataset</b> presents a set of {@link RingBufferSeries} to
+ * JFreeChart, decimated to about one point per pixel column so that the cost
+ * of drawing a chart does not depend on how much data it holds.
+ * <p>
+ * The renderer reads the dataset many times while painting, so it sees
+ * copies of the series taken by {@link #refresh(int, double)} rather than the
+ * live buffers. Refresh is meant to be called on the Swing thread at a fixed
+ * rate; it does nothing when no series has changed since the previous call.
+ */
+public class RingXYDataset extends AbstractXYDataset {
+
+    /** For serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * How points that fall in the same pixel column are reduced.
+     */
+    public enum Decimation {
+
+        /**
+         * Keep the first, lowest, highest and last points of each column, so
+         * that a line chart looks the same as the full data.
+         */
+        MIN_MAX,
+
+        /**
+         * Keep one point for each distinct y value in each column, as for a
+         * raster plot.
+         */
+        DISTINCT
+    }
+
+    /** Series are only decimated when they have more points than this. */
+    private static final int POINTS_PER_COLUMN = 4;
+
+    /** Source of the live series. */
+    private final transient Supplier<RingBufferSeries[]> source;
+
+    /** How points are reduced. */
+    private final Decimation decimation;
+
+    /** Copies of the live series, reused between refreshes. */
+    private transient RingBufferSeries.Snapshot[] snapshots =
+            new RingBufferSeries.Snapshot[0];
+
+    /** Modification stamps of the series at the last refresh. */
+    private long[] stamps = new long[0];
+
+    /** Decimated x values of each series. */
+    private double[][] xValues = new double[0][];
+
+    /** Decimated y values of each series. */
+    private double[][] yValues = new double[0][];
+
+    /** Number of decimated points in each series. */
+    private int[] itemCounts = new int[0];
+
+    /** Number of series at the last refresh. */
+    private int seriesCount;
+
+    /** Number of columns used at the last refresh. */
+    private int lastColumns;
+
+    /** Window used at the last refresh. */
+    private double lastWindow;
+
+    /** Distinct y values of one column; used by {@link Decimation#DISTINCT}. */
+    private double[] columnValues = new double[16];
+
+    /**
+     * Construct a dataset.
+     *
+     * @param source supplies the live series; read on each refresh
+     * @param decimation how points in the same pixel column are reduced
+     */
+    public RingXYDataset(final Supplier<RingBufferSeries[]> source,
+            final Decimation decimation) {
+        this.source = source;
+        this.decimation = decimation;
+    }
+
+    /**
+     * Copy and decimate the live series if any has changed, and notify the
+     * chart. Must be called on the Swing thread.
+     *
+     * @param columns number of pixel columns the data is drawn in
+     * @param window if positive, only points within this distance of the
+     *            largest x value are kept, as when the chart shows a window
+     *            of fixed width
+     * @return true if the dataset changed
+     */
+    public boolean refresh(final int columns, final double window) {
+        RingBufferSeries[] series = source.get();
+        int n = series.length;
+        boolean changed = n != seriesCount || columns != lastColumns
+                || window != lastWindow;
+        if (!changed) {
+            for (int s = 0; s < n; s++) {
+                if (series[s].getModificationStamp() != stamps[s]) {
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        if (!changed) {
+            return false;
+        }
+        if (snapshots.length != n) {
+            snapshots = Arrays.copyOf(snapshots, n);
+            stamps = Arrays.copyOf(stamps, n);
+            xValues = Arrays.copyOf(xValues, n);
+            yValues = Arrays.copyOf(yValues, n);
+            itemCounts = Arrays.copyOf(itemCounts, n);
+        }
+
+        // Copy the series and find the range of x values to show
+        double maxX = Double.NEGATIVE_INFINITY;
+        double minX = Double.POSITIVE_INFINITY;
+        for (int s = 0; s < n; s++) {
+            if (snapshots[s] == null) {
+                snapshots[s] = new RingBufferSeries.Snapshot();
+            }
+            stamps[s] = series[s].getModificationStamp();
+            RingBufferSeries.Snapshot snapshot = series[s]
+                    .snapshot(snapshots[s]);
+            if (snapshot.size() > 0) {
+                minX = Math.min(minX, snapshot.getX(0));
+                maxX = Math.max(maxX, snapshot.getX(snapshot.size() - 1));
+            }
+        }
+        double lower = window > 0 ? Math.max(minX, maxX - window) : minX;
+
+        int numColumns = Math.max(1, columns);
+        for (int s = 0; s < n; s++) {
+            decimate(s, lower, maxX, numColumns);
+        }
+        seriesCount = n;
+        lastColumns = columns;
+        lastWindow = window;
+        fireDatasetChanged();
+        return true;
+    }
+
+    /**
+     * Decimate one snapshot into the output arrays of a series.
+     *
+     * @param s series index
+     * @param lower smallest x value shown
+     * @param upper largest x value shown
+     * @param columns number of pixel columns
+     */
+    private void decimate(final int s, final double lower, final double upper,
+            final int columns) {
+        RingBufferSeries.Snapshot points = snapshots[s];
+        int first = 0;
+        while (first < points.size() && !(points.getX(first) >= lower)) {
+            first++;
+        }
+        int size = points.size() - first;
+        int maxItems = Math.min(size, columns * POINTS_PER_COLUMN);
+        if (xValues[s] == null || xValues[s].length < maxItems) {
+            xValues[s] = new double[maxItems];
+            yValues[s] = new double[maxItems];
+        }
+        if (size <= columns * POINTS_PER_COLUMN) {
+            for (int i = 0; i < size; i++) {
+                xValues[s][i] = points.getX(first + i);
+                yValues[s][i] = points.getY(first + i);
+            }
+            itemCounts[s] = size;
+            return;
+        }
+        double scale = upper > lower ? columns / (upper - lower) : 0;
+        int count = 0;
+        int i = first;
+        while (i < points.size()) {
+            int column = column(points.getX(i), lower, scale, columns);
+            int end = i + 1;
+            while (end < points.size()
+                    && column(points.getX(end), lower, scale,
+                            columns) == column) {
+                end++;
+            }
+            if (decimation == Decimation.MIN_MAX) {
+                count = addMinMax(s, points, i, end, count);
+            } else {
+                count = addDistinct(s, points, i, end, count);
+            }
+            i = end;
+        }
+        itemCounts[s] = count;
+    }
+
+    /**
+     * Returns the pixel column of an x value.
+     *
+     * @param x the x value
+     * @param lower smallest x value shown
+     * @param scale columns per unit of x
+     * @param columns number of columns
+     * @return the column
+     */
+    private static int column(final double x, final double lower,
+            final double scale, final int columns) {
+        int column = (int) ((x - lower) * scale);
+        return Math.max(0, Math.min(columns - 1, column));
+    }
+
+    /**
+     * Add the first, lowest, highest and last points of a run of points, in
+     * their original order.
+     *
+     * @param s series index
+     * @param points the points
+     * @param from first point of the run
+     * @param to end of the run (exclusive)
+     * @param count number of points already in the series
+     * @return the new number of points in the series
+     */
+    private int addMinMax(final int s, final RingBufferSeries.Snapshot points,
+            final int from, final int to, int count) {
+        int min = from;
+        int max = from;
+        for (int i = from + 1; i < to; i++) {
+            if (points.getY(i) < points.getY(min)) {
+                min = i;
+            } else if (points.getY(i) > points.getY(max)) {
+                max = i;
+            }
+        }
+        int last = to - 1;
+        count = addPoint(s, points, from, count);
+        int lo = Math.min(min, max);
+        int hi = Math.max(min, max);
+        if (lo != from && lo != last) {
+            count = addPoint(s, points, lo, count);
+        }
+        if (hi != lo && hi != last) {
+            count = addPoint(s, points, hi, count);
+        }
+        if (last != from) {
+            count = addPoint(s, points, last, count);
+        }
+        return count;
+    }
+
+    /**
+     * Add one point for each distinct y value in a run of points, placed at
+     * the x value of the first point of the run.
+     *
+     * @param s series index
+     * @param points the points
+     * @param from first point of the run
+     * @param to end of the run (exclusive)
+     * @param count number of points already in the series
+     * @return the new number of points in the series
+     */
+    private int addDistinct(final int s,
+            final RingBufferSeries.Snapshot points, final int from,
+            final int to, int count) {
+        int n = to - from;
+        if (columnValues.length < n) {
+            columnValues = new double[Math.max(n, columnValues.length * 2)];
+        }
+        for (int i = 0; i < n; i++) {
+            columnValues[i] = points.getY(from + i);
+        }
+        Arrays.sort(columnValues, 0, n);
+        double x = points.getX(from);
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && columnValues[i] == columnValues[i - 1]) {
+                continue;
+            }
+            count = ensureItemCapacity(s, count);
+            xValues[s][count] = x;
+            yValues[s][count] = columnValues[i];
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Add one point of a snapshot to the output of a series.
+     *
+     * @param s series index
+     * @param points the points
+     * @param i the point to add
+     * @param count number of points already in the series
+     * @return the new number of points in the series
+     */
+    private int addPoint(final int s, final RingBufferSeries.Snapshot points,
+            final int i, final int count) {
+        ensureItemCapacity(s, count);
+        xValues[s][count] = points.getX(i);
+        yValues[s][count] = points.getY(i);
+        return count + 1;
+    }
+
+    /**
+     * Make room for one more point in the output of a series.
+     *
+     * @param s series index
+     * @param count number of points already in the series
+     * @return <code>count</code>
+     */
+    private int ensureItemCapacity(final int s, final int count) {
+        if (count == xValues[s].length) {
+            int length = Math.max(16, count * 2);
+            xValues[s] = Arrays.copyOf(xValues[s], length);
+            yValues[s] = Arrays.copyOf(yValues[s], length);
+        }
+        return count;
+    }
+
+    @Override
+    public int getSeriesCount() {
+        return seriesCount;
+    }
+
+    @Override
+    public Comparable<Integer> getSeriesKey(final int series) {
+        return series + 1;
+    }
+
+    @Override
+    public int getItemCount(final int series) {
+        return itemCounts[series];
+    }
+
+    @Override
+    public double getXValue(final int series, final int item) {
+        return xValues[series][item];
+    }
+
+    @Override
+    public double getYValue(final int series, final int item) {
+        return yValues[series][item];
+    }
+
+    @Override
+    public Number getX(final int series, final int item) {
+        return getXValue(series, item);
+    }
+
+    @Override
+    public Number getY(final int series, final int item) {
+        return getYValue(series, item);
+    }
+
+}
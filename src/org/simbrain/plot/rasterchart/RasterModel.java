@@ -18,9 +18,13 @@
  */
 package org.simbrain.plot.rasterchart;
 
+import java.util.Arrays;
+
 import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
 import org.simbrain.plot.ChartModel;
+import org.simbrain.plot.RingBufferSeries;
+import org.simbrain.plot.RingXYDataset;
 
 import com.thoughtworks.xstream.XStream;
 
@@ -29,8 +33,26 @@ import com.thoughtworks.xstream.XStream;
  */
 public class RasterModel extends ChartModel {
 
-    /** Raster Data. */
-    private XYSeriesCollection dataset = new XYSeriesCollection();
+    /**
+     * Raster Data, one ring buffer per data source. The array is replaced,
+     * never modified, when sources are added or removed, so it can be read
+     * without locking.
+     */
+    private volatile RingBufferSeries[] series = new RingBufferSeries[0];
+
+    /**
+     * Data saved by earlier versions, converted to ring buffers when read.
+     */
+    private XYSeriesCollection dataset;
+
+    /** Decimated view of the data drawn by the chart. */
+    private transient RingXYDataset chartDataset;
+
+    /** Default number of points kept for each data source. */
+    private static final int DEFAULT_HISTORY_SIZE = 100000;
+
+    /** Number of points kept for each data source. */
+    private int historySize = DEFAULT_HISTORY_SIZE;
 
     /** Default number of data sources for plot initialization. */
     private static final int INITIAL_DATA_SOURCES = 1;
@@ -89,9 +111,8 @@ public class RasterModel extends ChartModel {
      * Clears the plot.
      */
     public void clearData() {
-        int seriesCount = dataset.getSeriesCount();
-        for (int i = 0; seriesCount > i; ++i) {
-            dataset.getSeries(i).clear();
+        for (RingBufferSeries data : series) {
+            data.clear();
         }
     }
 
@@ -99,11 +120,13 @@ public class RasterModel extends ChartModel {
      * Removes a data source from the chart.
      */
     public void removeDataSource() {
-        Integer lastSeriesIndex = dataset.getSeriesCount() - 1;
+        Integer lastSeriesIndex = series.length - 1;
 
         if (lastSeriesIndex >= 0) {
             this.fireDataSourceRemoved(lastSeriesIndex);
-            dataset.removeSeries(lastSeriesIndex);
+            synchronized (this) {
+                series = Arrays.copyOf(series, series.length - 1);
+            }
         }
     }
 
@@ -111,16 +134,36 @@ public class RasterModel extends ChartModel {
      * Adds a data source to the chart.
      */
     public void addDataSource() {
-        Integer currentSize = dataset.getSeriesCount();
-        dataset.addSeries(new XYSeries(currentSize + 1));
+        Integer currentSize;
+        synchronized (this) {
+            currentSize = series.length;
+            RingBufferSeries[] newSeries = Arrays.copyOf(series,
+                    currentSize + 1);
+            newSeries[currentSize] = new RingBufferSeries(historySize);
+            series = newSeries;
+        }
         this.fireDataSourceAdded(currentSize);
     }
 
     /**
+     * @return the number of data sources
+     */
+    public int getSeriesCount() {
+        return series.length;
+    }
+
+    /**
+     * Returns the data set drawn by the chart. It is a decimated copy of the
+     * data, updated by {@link RingXYDataset#refresh(int, double)}.
+     *
      * @return JFreeChart data set.
      */
-    public XYSeriesCollection getDataset() {
-        return dataset;
+    public RingXYDataset getDataset() {
+        if (chartDataset == null) {
+            chartDataset = new RingXYDataset(() -> series,
+                    RingXYDataset.Decimation.DISTINCT);
+        }
+        return chartDataset;
     }
 
     /**
@@ -141,6 +184,27 @@ public class RasterModel extends ChartModel {
      * @return Initialized object.
      */
     private Object readResolve() {
+        if (historySize <= 0) {
+            historySize = DEFAULT_HISTORY_SIZE;
+        }
+        if (series == null) {
+            series = new RingBufferSeries[0];
+        }
+        if (dataset != null) {
+            RingBufferSeries[] converted = new RingBufferSeries[dataset
+                    .getSeriesCount()];
+            for (int i = 0; i < converted.length; i++) {
+                XYSeries old = dataset.getSeries(i);
+                converted[i] = new RingBufferSeries(historySize);
+                for (int j = Math.max(0, old.getItemCount() - historySize);
+                        j < old.getItemCount(); j++) {
+                    converted[i].add(old.getX(j).doubleValue(),
+                            old.getY(j).doubleValue());
+                }
+            }
+            series = converted;
+            dataset = null;
+        }
         return this;
     }
 
@@ -174,6 +238,36 @@ public class RasterModel extends ChartModel {
         fireSettingsChanged();
     }
 
+    /**
+     * @return the number of points kept for each data source
+     */
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    /**
+     * Set the number of points kept for each data source. Older points are
+     * discarded as new ones are added, whether or not the chart has a fixed
+     * width.
+     *
+     * @param historySize the number of points to keep
+     */
+    public void setHistorySize(final int historySize) {
+        if (historySize < 1) {
+            throw new IllegalArgumentException(
+                    "History size must be positive");
+        }
+        synchronized (this) {
+            this.historySize = historySize;
+            RingBufferSeries[] resized = new RingBufferSeries[series.length];
+            for (int i = 0; i < resized.length; i++) {
+                resized[i] = series[i].resize(historySize);
+            }
+            series = resized;
+        }
+        fireSettingsChanged();
+    }
+
     /**
      * @return the autoRange
      */
@@ -228,12 +322,24 @@ public class RasterModel extends ChartModel {
      */
     public void addData(final int dataSourceIndex, final double time,
             final double value) {
-        getDataset().getSeries(dataSourceIndex).add(time, value);
+        series[dataSourceIndex].add(time, value);
+    }
+
+    /**
+     * Add several points with the same time to this model.
+     *
+     * @param dataSourceIndex index of data source to use
+     * @param time data for x axis
+     * @param values data for y axis
+     */
+    public void addData(final int dataSourceIndex, final double time,
+            final double[] values) {
+        series[dataSourceIndex].addAll(time, values);
     }
 
     /**
-     * Update the model; currently used to remove unused data when in
-     * "fixed width" mode.
+     * Update the model. Nothing needs to be done: old data is discarded as
+     * new data is added, and the chart copies the data at its own rate.
      */
     public void update() {
     }
@@ -93,7 +93,7 @@ public class RasterPlotComponent extends WorkspaceComponent {
     public List<PotentialConsumer> getPotentialConsumers() {
         List<PotentialConsumer> returnList = new ArrayList<PotentialConsumer>();
         if (rasterPlotConsumerType.isVisible()) {
-            for (int i = 0; i < model.getDataset().getSeriesCount(); i++) {
+            for (int i = 0; i < model.getSeriesCount(); i++) {
                 String description = rasterPlotConsumerType
                         .getSimpleDescription("Raster Series " + (i + 1));
                 PotentialConsumer consumer = getAttributeManager()
@@ -214,10 +214,8 @@ public class RasterPlotComponent extends WorkspaceComponent {
      */
     public void setValues(final double[] values, final Integer index) {
         // TODO: Throw exception if index out of current bounds
-        for (int i = 0, n = values.length; i < n; i++) {
-            model.addData(index, RasterPlotComponent.this.getWorkspace()
-                .getTime(), values[i]);
-        }
+        model.addData(index, RasterPlotComponent.this.getWorkspace()
+                .getTime(), values);
     }
 
 }
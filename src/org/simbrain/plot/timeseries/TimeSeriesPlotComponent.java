@@ -93,7 +93,7 @@ public class TimeSeriesPlotComponent extends WorkspaceComponent {
     public List<PotentialConsumer> getPotentialConsumers() {
         List<PotentialConsumer> returnList = new ArrayList<PotentialConsumer>();
         if (timeSeriesConsumerType.isVisible()) {
-            for (int i = 0; i < model.getDataset().getSeriesCount(); i++) {
+            for (int i = 0; i < model.getSeriesCount(); i++) {
                 String description = timeSeriesConsumerType
                         .getSimpleDescription("Time Series " + (i + 1));
                 PotentialConsumer consumer = getAttributeManager()
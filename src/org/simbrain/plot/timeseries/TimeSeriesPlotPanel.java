@@ -24,6 +24,7 @@ import java.awt.Dimension;
 import javax.swing.JButton;
 import javax.swing.JDialog;
 import javax.swing.JPanel;
+import javax.swing.Timer;
 
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
@@ -56,6 +57,13 @@ public class TimeSeriesPlotPanel extends JPanel {
     /** Button panel. */
     private JPanel buttonPanel = new JPanel();
 
+    /** Milliseconds between copies of new data to the chart. */
+    private static final int REFRESH_INTERVAL = 40;
+
+    /** Copies new data to the chart while the panel is showing. */
+    private final Timer refreshTimer = new Timer(REFRESH_INTERVAL,
+            e -> refreshChart());
+
     /**
      * Construct a time series panel.
      *
@@ -125,6 +133,26 @@ public class TimeSeriesPlotPanel extends JPanel {
         model.fireSettingsChanged();
     }
 
+    /**
+     * Copy any new data to the chart, decimated to the width of the panel.
+     */
+    public void refreshChart() {
+        model.getDataset().refresh(chartPanel.getWidth(),
+                model.isFixedWidth() ? model.getWindowSize() : 0);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refreshTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        refreshTimer.stop();
+        super.removeNotify();
+    }
+
     /**
      * Remove all buttons from the button panel; used when customzing the
      * buttons on this panel.
@@ -0,0 +1,164 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.util.benchmark;
+
+import java.util.Locale;
+
+/**
+ * <b>BenchmarkResult</b> is the measured cost of one benchmark with one set
+ * of parameters, in nanoseconds per operation. Results are written one per
+ * line in csv format (see {@link #toCsv()}) so that runs can be compared
+ * across releases.
+ */
+public class BenchmarkResult {
+
+    /** Header of the csv format. */
+    public static final String CSV_HEADER = "benchmark,params,ns_per_op,"
+            + "error_ns_per_op,iterations,operations";
+
+    /** Name of the benchmark. */
+    private final String name;
+
+    /**
+     * Parameters, as semicolon separated key=value pairs, e.g.
+     * "neurons=1000;rule=Linear".
+     */
+    private final String params;
+
+    /** Mean time per operation over the measured iterations. */
+    private final double nsPerOp;
+
+    /** Standard deviation of the time per operation between iterations. */
+    private final double error;
+
+    /** Number of measured iterations. */
+    private final int iterations;
+
+    /** Total number of measured operations. */
+    private final long operations;
+
+    /**
+     * Construct a result.
+     *
+     * @param name name of the benchmark
+     * @param params the parameters
+     * @param nsPerOp mean time per operation
+     * @param error standard deviation between iterations
+     * @param iterations number of measured iterations
+     * @param operations total number of measured operations
+     */
+    public BenchmarkResult(final String name, final String params,
+            final double nsPerOp, final double error, final int iterations,
+            final long operations) {
+        this.name = name;
+        this.params = params;
+        this.nsPerOp = nsPerOp;
+        this.error = error;
+        this.iterations = iterations;
+        this.operations = operations;
+    }
+
+    /**
+     * Parse a line written by {@link #toCsv()}.
+     *
+     * @param line the line
+     * @return the result
+     * @throws IllegalArgumentException if the line is not a result
+     */
+    public static BenchmarkResult fromCsv(final String line) {
+        String[] values = line.split(",");
+        if (values.length != 6) {
+            throw new IllegalArgumentException("Not a benchmark result: "
+                    + line);
+        }
+        try {
+            return new BenchmarkResult(values[0], values[1],
+                    Double.parseDouble(values[2]),
+                    Double.parseDouble(values[3]),
+                    Integer.parseInt(values[4]), Long.parseLong(values[5]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a benchmark result: "
+                    + line);
+        }
+    }
+
+    /**
+     * @return the result as a line of csv, without a line terminator
+     */
+    public String toCsv() {
+        return String.format(Locale.US, "%s,%s,%.1f,%.1f,%d,%d", name,
+                params, nsPerOp, error, iterations, operations);
+    }
+
+    /**
+     * @return the benchmark name and parameters, which identify a result
+     *         across runs
+     */
+    public String getKey() {
+        return params.isEmpty() ? name : name + "[" + params + "]";
+    }
+
+    /**
+     * @return the name of the benchmark
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the parameters
+     */
+    public String getParams() {
+        return params;
+    }
+
+    /**
+     * @return the mean time per operation in nanoseconds
+     */
+    public double getNsPerOp() {
+        return nsPerOp;
+    }
+
+    /**
+     * @return the standard deviation of the time per operation
+     */
+    public double getError() {
+        return error;
+    }
+
+    /**
+     * @return the number of measured iterations
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the total number of measured operations
+     */
+    public long getOperations() {
+        return operations;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%-60s %16.1f +- %-12.1f ns/op",
+                getKey(), nsPerOp, error);
+    }
+}
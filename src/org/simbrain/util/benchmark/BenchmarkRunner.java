@@ -0,0 +1,291 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.util.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+
+/**
+ * <b>BenchmarkRunner</b> times operations in the manner of a
+ * micro-benchmark harness: each benchmark is run for a number of warmup
+ * iterations, whose timings are discarded, and then for a number of measured
+ * iterations. An iteration repeats the operation until a fixed amount of time
+ * has passed, so cheap and expensive operations are both measured over a
+ * useful interval. Values returned by the operation are folded into a field
+ * so that the compiler cannot remove the work.
+ * <p>
+ * Results can be written to and read from csv files and compared, so that
+ * runs on different releases can be checked for regressions.
+ */
+public class BenchmarkRunner {
+
+    /** Number of discarded iterations before measuring. */
+    private int warmupIterations = 3;
+
+    /** Number of measured iterations. */
+    private int measurementIterations = 5;
+
+    /** Minimum length of an iteration in milliseconds. */
+    private long iterationMillis = 1000;
+
+    /** If not null, only benchmarks whose key matches are run. */
+    private Pattern filter;
+
+    /** Results so far, in the order run. */
+    private final List<BenchmarkResult> results = new ArrayList<>();
+
+    /** Receives values returned by operations. */
+    private volatile int sink;
+
+    /**
+     * Returns true if a benchmark would be run with the current filter. Suites
+     * should check this before doing expensive setup.
+     *
+     * @param name the benchmark name
+     * @param params the parameters
+     * @return whether to run the benchmark
+     */
+    public boolean isSelected(final String name, final String params) {
+        return filter == null || filter.matcher(
+                new BenchmarkResult(name, params, 0, 0, 0, 0).getKey())
+                .find();
+    }
+
+    /**
+     * Time an operation and add its result to the list of results.
+     *
+     * @param name name of the benchmark
+     * @param params parameters as semicolon separated key=value pairs
+     * @param operation the operation; its return value is consumed
+     * @return the result, or null if the benchmark is not selected
+     * @throws Exception if the operation throws
+     */
+    public BenchmarkResult run(final String name, final String params,
+            final Callable<?> operation) throws Exception {
+        if (!isSelected(name, params)) {
+            return null;
+        }
+        for (int i = 0; i < warmupIterations; i++) {
+            iterate(operation, new long[1]);
+        }
+        double[] nsPerOp = new double[measurementIterations];
+        long totalOps = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            long[] ops = new long[1];
+            nsPerOp[i] = iterate(operation, ops);
+            totalOps += ops[0];
+        }
+        double mean = 0;
+        for (double value : nsPerOp) {
+            mean += value;
+        }
+        mean /= nsPerOp.length;
+        double variance = 0;
+        for (double value : nsPerOp) {
+            variance += (value - mean) * (value - mean);
+        }
+        double error = nsPerOp.length > 1
+                ? Math.sqrt(variance / (nsPerOp.length - 1)) : 0;
+        BenchmarkResult result = new BenchmarkResult(name, params, mean,
+                error, measurementIterations, totalOps);
+        results.add(result);
+        System.out.println(result);
+        return result;
+    }
+
+    /**
+     * Run one iteration.
+     *
+     * @param operation the operation
+     * @param ops receives the number of operations run
+     * @return the mean time per operation in nanoseconds
+     * @throws Exception if the operation throws
+     */
+    private double iterate(final Callable<?> operation, final long[] ops)
+            throws Exception {
+        long budget = iterationMillis * 1000000L;
+        long count = 0;
+        int hash = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            Object value = operation.call();
+            hash += value == null ? 0 : System.identityHashCode(value);
+            count++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < budget);
+        sink += hash;
+        ops[0] = count;
+        return (double) elapsed / count;
+    }
+
+    /**
+     * Write the results to a csv file.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeCsv(final File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(
+                file.toPath(), StandardCharsets.UTF_8))) {
+            out.println(BenchmarkResult.CSV_HEADER);
+            for (BenchmarkResult result : results) {
+                out.println(result.toCsv());
+            }
+        }
+    }
+
+    /**
+     * Read results written by {@link #writeCsv(File)}.
+     *
+     * @param file the file to read
+     * @return the results
+     * @throws IOException if the file cannot be read or is not a results file
+     */
+    public static List<BenchmarkResult> readCsv(final File file)
+            throws IOException {
+        List<BenchmarkResult> ret = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(),
+                StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            if (!BenchmarkResult.CSV_HEADER.equals(line)) {
+                throw new IOException(file + " is not a benchmark file");
+            }
+            while ((line = in.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    try {
+                        ret.add(BenchmarkResult.fromCsv(line));
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException(e.getMessage());
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Compare results with a baseline. A benchmark has regressed if it is
+     * slower than the baseline by more than the given fraction and by more
+     * than the combined error of the two measurements.
+     *
+     * @param baseline earlier results
+     * @param current current results
+     * @param tolerance allowed slowdown as a fraction, e.g. 0.1
+     * @return one line per regressed benchmark
+     */
+    public static List<String> findRegressions(
+            final List<BenchmarkResult> baseline,
+            final List<BenchmarkResult> current, final double tolerance) {
+        Map<String, BenchmarkResult> byKey = new HashMap<>();
+        for (BenchmarkResult result : baseline) {
+            byKey.put(result.getKey(), result);
+        }
+        List<String> ret = new ArrayList<>();
+        for (BenchmarkResult result : current) {
+            BenchmarkResult old = byKey.get(result.getKey());
+            if (old == null) {
+                continue;
+            }
+            double slowdown = result.getNsPerOp() - old.getNsPerOp();
+            if (slowdown > tolerance * old.getNsPerOp()
+                    && slowdown > result.getError() + old.getError()) {
+                ret.add(String.format(Locale.US,
+                        "%s: %.1f -> %.1f ns/op (%+.0f%%)", result.getKey(),
+                        old.getNsPerOp(), result.getNsPerOp(),
+                        100 * slowdown / old.getNsPerOp()));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return the results so far
+     */
+    public List<BenchmarkResult> getResults() {
+        return results;
+    }
+
+    /**
+     * @return the number of warmup iterations
+     */
+    public int getWarmupIterations() {
+        return warmupIterations;
+    }
+
+    /**
+     * @param warmupIterations the number of warmup iterations
+     */
+    public void setWarmupIterations(final int warmupIterations) {
+        this.warmupIterations = warmupIterations;
+    }
+
+    /**
+     * @return the number of measured iterations
+     */
+    public int getMeasurementIterations() {
+        return measurementIterations;
+    }
+
+    /**
+     * @param measurementIterations the number of measured iterations, at
+     *            least one
+     */
+    public void setMeasurementIterations(final int measurementIterations) {
+        if (measurementIterations < 1) {
+            throw new IllegalArgumentException(
+                    "At least one measured iteration is needed");
+        }
+        this.measurementIterations = measurementIterations;
+    }
+
+    /**
+     * @return the minimum length of an iteration in milliseconds
+     */
+    public long getIterationMillis() {
+        return iterationMillis;
+    }
+
+    /**
+     * @param iterationMillis the minimum length of an iteration in
+     *            milliseconds
+     */
+    public void setIterationMillis(final long iterationMillis) {
+        this.iterationMillis = iterationMillis;
+    }
+
+    /**
+     * @param regex if not null, only benchmarks whose name or parameters
+     *            contain a match are run
+     */
+    public void setFilter(final String regex) {
+        filter = regex == null ? null : Pattern.compile(regex);
+    }
+}
@@ -283,48 +283,61 @@ public class SmellSource {
      * @return proximal stimulus to creature caused by this object
      */
     public double[] getStimulus(final double distance) {
-        double[] ret = new double[getStimulusDimension()];
         if (returnVector == null) {
             returnVector = stimulusVector;
         }
-        if (distance < stimulusDispersion) {
-            if (decayFunction == DecayFunction.STEP) {
-                if (distance >= peak) {
-                    ret = (returnVector.clone());
-                }
-            } else if (decayFunction == DecayFunction.LINEAR) {
-                if (distance < peak) {
-                    double scalingFactor = (stimulusDispersion - (2 * peak) + distance)
-                            / (stimulusDispersion - peak);
-
-                    if (scalingFactor < 0) {
-                        scalingFactor = 0;
-                    }
+        double scalingFactor = getScalingFactor(distance);
+        if (scalingFactor == 0) {
+            return new double[getStimulusDimension()];
+        }
+        if (decayFunction == DecayFunction.STEP) {
+            return returnVector.clone();
+        }
+        return SimbrainMath.multVector(returnVector, scalingFactor);
+    }
 
-                    ret = SimbrainMath.multVector(returnVector, scalingFactor);
-                } else {
-                    double scalingFactor = (stimulusDispersion - distance)
-                            / (stimulusDispersion - peak);
-                    ret = SimbrainMath.multVector(returnVector, scalingFactor);
-                }
-            } else if (decayFunction == DecayFunction.GAUSSIAN) {
-                double temp = distance;
-                temp -= peak;
-                double sigma = .5 * (stimulusDispersion - peak);
-                double scalingFactor = Math.exp(-(temp * temp)
-                        / (2 * sigma * sigma));
-                ret = SimbrainMath.multVector(returnVector, scalingFactor);
-            } else if (decayFunction == DecayFunction.QUADRATIC) {
-                double scalingFactor = 1 - Math.pow((distance - peak)
-                        / (stimulusDispersion - peak), 2);
+    /**
+     * Returns the factor by which the stimulus vector is scaled at a given
+     * distance from this source, according to the current decay function.
+     * Allows callers that accumulate many stimuli (e.g. batched worlds) to
+     * avoid allocating a proximal stimulus vector per source.
+     *
+     * @param distance distance of creature from object
+     * @return the scaling factor, which is 0 outside the dispersion radius
+     */
+    public double getScalingFactor(final double distance) {
+        if (distance >= stimulusDispersion) {
+            return 0;
+        }
+        double scalingFactor = 0;
+        if (decayFunction == DecayFunction.STEP) {
+            if (distance >= peak) {
+                scalingFactor = 1;
+            }
+        } else if (decayFunction == DecayFunction.LINEAR) {
+            if (distance < peak) {
+                scalingFactor = (stimulusDispersion - (2 * peak) + distance)
+                        / (stimulusDispersion - peak);
                 if (scalingFactor < 0) {
                     scalingFactor = 0;
                 }
-                ret = SimbrainMath.multVector(returnVector, scalingFactor);
+            } else {
+                scalingFactor = (stimulusDispersion - distance)
+                        / (stimulusDispersion - peak);
+            }
+        } else if (decayFunction == DecayFunction.GAUSSIAN) {
+            double temp = distance;
+            temp -= peak;
+            double sigma = .5 * (stimulusDispersion - peak);
+            scalingFactor = Math.exp(-(temp * temp) / (2 * sigma * sigma));
+        } else if (decayFunction == DecayFunction.QUADRATIC) {
+            scalingFactor = 1 - Math.pow((distance - peak)
+                    / (stimulusDispersion - peak), 2);
+            if (scalingFactor < 0) {
+                scalingFactor = 0;
             }
         }
-
-        return ret;
+        return scalingFactor;
     }
 
     /**
@@ -0,0 +1,390 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.util.math;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * <b>MappedDataMatrix</b> is a read-only table of doubles stored row-major in a
+ * binary file and memory mapped, so that data sets larger than the heap can be
+ * used for training and as neuron group inputs. Rows are read on demand from
+ * the operating system's page cache; nothing but the row order used for
+ * shuffling is held in memory.
+ * <p>
+ * The file format is a 16 byte header (a magic number, the number of columns
+ * as an int and the number of rows as a long) followed by the values as big
+ * endian doubles. Files are written with {@link #convertCsv(File, File)} or
+ * {@link #write(double[][], File)}.
+ */
+public class MappedDataMatrix implements Closeable {
+
+    /** Identifies the file format ("SBMD"). */
+    private static final int MAGIC = 0x53424D44;
+
+    /** Size of the header in bytes. */
+    private static final int HEADER_SIZE = 16;
+
+    /** Largest number of bytes in one mapped segment. */
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    /** The file. */
+    private final File file;
+
+    /** Open channel, kept until {@link #close()}. */
+    private final RandomAccessFile raf;
+
+    /** Number of rows. */
+    private final int numRows;
+
+    /** Number of columns. */
+    private final int numColumns;
+
+    /** Number of rows in each mapped segment (the last may have fewer). */
+    private final int rowsPerSegment;
+
+    /** Mapped segments, each holding whole rows. */
+    private final DoubleBuffer[] segments;
+
+    /**
+     * Open and map a binary data file.
+     *
+     * @param file the file to open
+     * @throws IOException if the file cannot be read or is not a data file
+     */
+    public MappedDataMatrix(final File file) throws IOException {
+        this.file = file;
+        raf = new RandomAccessFile(file, "r");
+        try {
+            if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC) {
+                throw new IOException(file + " is not a binary data file");
+            }
+            numColumns = raf.readInt();
+            long rows = raf.readLong();
+            if (numColumns <= 0 || rows < 0 || rows > Integer.MAX_VALUE) {
+                throw new IOException("Bad dimensions in " + file);
+            }
+            numRows = (int) rows;
+            long rowBytes = 8L * numColumns;
+            if (raf.length() < HEADER_SIZE + rowBytes * numRows) {
+                throw new IOException(file + " is truncated");
+            }
+            rowsPerSegment = (int) Math.max(1,
+                    Math.min(numRows, MAX_SEGMENT_SIZE / rowBytes));
+            int numSegments = numRows == 0 ? 0
+                    : (numRows + rowsPerSegment - 1) / rowsPerSegment;
+            segments = new DoubleBuffer[numSegments];
+            FileChannel channel = raf.getChannel();
+            for (int s = 0; s < numSegments; s++) {
+                long firstRow = (long) s * rowsPerSegment;
+                long rowsInSegment = Math.min(rowsPerSegment,
+                        numRows - firstRow);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + firstRow * rowBytes,
+                        rowsInSegment * rowBytes).asDoubleBuffer();
+            }
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Convert a csv file to the binary format, one line at a time, so the
+     * whole file is never held in memory. Blank lines and lines starting with
+     * # are skipped.
+     *
+     * @param csvFile the csv file to read
+     * @param binaryFile the binary file to write
+     * @return the number of rows written
+     * @throws IOException if a file cannot be read or written, or the rows do
+     *             not all have the same number of numeric values
+     */
+    public static int convertCsv(final File csvFile, final File binaryFile)
+            throws IOException {
+        int numColumns = -1;
+        int rows = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(csvFile),
+                        StandardCharsets.UTF_8));
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(
+                                new FileOutputStream(binaryFile), 1 << 16))) {
+            writeHeader(out, 0, 0);
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] values = line.split(",");
+                if (numColumns == -1) {
+                    numColumns = values.length;
+                } else if (values.length != numColumns) {
+                    throw new IOException("Line " + lineNumber + " of "
+                            + csvFile + " has " + values.length
+                            + " values, expected " + numColumns);
+                }
+                for (String value : values) {
+                    try {
+                        out.writeDouble(Double.parseDouble(value.trim()));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Line " + lineNumber + " of "
+                                + csvFile + ": " + e.getMessage());
+                    }
+                }
+                rows++;
+            }
+        }
+        if (rows == 0) {
+            throw new IOException(csvFile + " contains no data");
+        }
+        try (RandomAccessFile header = new RandomAccessFile(binaryFile,
+                "rw")) {
+            header.writeInt(MAGIC);
+            header.writeInt(numColumns);
+            header.writeLong(rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Open a binary data file, or a csv file after converting it to a binary
+     * file next to the original (same name, with the extension sbmd).
+     *
+     * @param file the binary or csv file
+     * @return the mapped data
+     * @throws IOException if a file cannot be read, written or converted
+     */
+    public static MappedDataMatrix open(final File file) throws IOException {
+        if (!file.getName().endsWith(".csv")) {
+            return new MappedDataMatrix(file);
+        }
+        File binary = new File(file.getPath().replaceAll("\\.csv$", ".sbmd"));
+        convertCsv(file, binary);
+        return new MappedDataMatrix(binary);
+    }
+
+    /**
+     * Write an array of rows to the binary format.
+     *
+     * @param data the rows, all of the same length
+     * @param binaryFile the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(final double[][] data, final File binaryFile)
+            throws IOException {
+        if (data.length == 0 || data[0].length == 0) {
+            throw new IllegalArgumentException("No data to write");
+        }
+        int numColumns = data[0].length;
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(binaryFile),
+                        1 << 16))) {
+            writeHeader(out, numColumns, data.length);
+            for (double[] row : data) {
+                if (row.length != numColumns) {
+                    throw new IllegalArgumentException(
+                            "Rows do not all have the same length");
+                }
+                for (double value : row) {
+                    out.writeDouble(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the file header.
+     *
+     * @param out the stream
+     * @param numColumns number of columns
+     * @param numRows number of rows
+     * @throws IOException if writing fails
+     */
+    private static void writeHeader(final DataOutputStream out,
+            final int numColumns, final long numRows) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(numColumns);
+        out.writeLong(numRows);
+    }
+
+    /**
+     * Copy a row into an array. If the array is shorter than the row only
+     * the leading values are copied.
+     *
+     * @param row the row index
+     * @param out the array to copy into
+     * @return <code>out</code>
+     */
+    public double[] getRow(final int row, final double[] out) {
+        if (row < 0 || row >= numRows) {
+            throw new IndexOutOfBoundsException("Row " + row + " of "
+                    + numRows);
+        }
+        DoubleBuffer segment = segments[row / rowsPerSegment];
+        int offset = (row % rowsPerSegment) * numColumns;
+        for (int j = 0, n = Math.min(numColumns, out.length); j < n; j++) {
+            out[j] = segment.get(offset + j);
+        }
+        return out;
+    }
+
+    /**
+     * Returns one value.
+     *
+     * @param row the row index
+     * @param column the column index
+     * @return the value
+     */
+    public double get(final int row, final int column) {
+        return segments[row / rowsPerSegment]
+                .get((row % rowsPerSegment) * numColumns + column);
+    }
+
+    /**
+     * Read the whole table into memory. Only suitable for data that fits in
+     * the heap.
+     *
+     * @return the rows
+     */
+    public double[][] toArray() {
+        double[][] ret = new double[numRows][numColumns];
+        for (int i = 0; i < numRows; i++) {
+            getRow(i, ret[i]);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns a random permutation of the row indices.
+     *
+     * @param rand the random number generator
+     * @return the shuffled row indices
+     */
+    public int[] getShuffledRowOrder(final Random rand) {
+        int[] order = new int[numRows];
+        for (int i = 0; i < numRows; i++) {
+            order[i] = i;
+        }
+        for (int i = numRows - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+
+    /**
+     * Iterate over the rows in shuffled mini-batches. Each batch is copied
+     * into an array that is reused for the next batch, so callers that keep a
+     * batch must copy it. The last batch is shorter if the number of rows is
+     * not a multiple of the batch size.
+     *
+     * @param batchSize number of rows per batch
+     * @param rand random number generator used to shuffle the rows
+     * @return an iterator over the batches
+     */
+    public Iterator<double[][]> miniBatches(final int batchSize,
+            final Random rand) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        final int[] order = getShuffledRowOrder(rand);
+        return new Iterator<double[][]>() {
+
+            /** Position in the shuffled order. */
+            private int next = 0;
+
+            /** Reused batch. */
+            private double[][] batch = new double[Math.min(batchSize,
+                    numRows)][numColumns];
+
+            @Override
+            public boolean hasNext() {
+                return next < numRows;
+            }
+
+            @Override
+            public double[][] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int size = Math.min(batchSize, numRows - next);
+                if (size != batch.length) {
+                    batch = new double[size][numColumns];
+                }
+                for (int i = 0; i < size; i++) {
+                    getRow(order[next++], batch[i]);
+                }
+                return batch;
+            }
+        };
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * @return the number of columns
+     */
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    /**
+     * @return the mapped file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Close the file. The mapping itself is released when this object is
+     * garbage collected.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+
+}
@@ -0,0 +1,398 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.util.math;
+
+/**
+ * Numerical methods for advancing an {@link ODESystem} over one network time
+ * step. Neuron update rules based on differential equations use these so that
+ * the method can be chosen per rule: forward Euler is cheapest, exponential
+ * Euler is exact for gating variables whose rates are constant over a step,
+ * the Runge-Kutta methods are more accurate at a given step size, and the
+ * adaptive method takes as many sub-steps as its error tolerance requires.
+ * <p>
+ * Scratch arrays and the adaptive step size are kept in a {@link Workspace},
+ * one per integrated system.
+ */
+public enum ODEIntegrator {
+
+    /** Forward Euler, one derivative evaluation per step. */
+    EULER {
+
+        @Override
+        public String toString() {
+            return "Euler";
+        }
+
+        @Override
+        public void integrate(final ODESystem system, final double[] y,
+                final double dt, final double tolerance,
+                final Workspace ws) {
+            ws.ensureCapacity(y.length);
+            ws.evaluate(system, y, ws.k1);
+            for (int i = 0; i < y.length; i++) {
+                y[i] += dt * ws.k1[i];
+            }
+        }
+    },
+
+    /**
+     * Exponential Euler. Variables that relax toward a steady state (see
+     * {@link ODESystem#computeRelaxation(double[], double[], double[])}) are
+     * integrated exactly given the other variables at the start of the step;
+     * the rest use forward Euler.
+     */
+    EXPONENTIAL_EULER {
+
+        @Override
+        public String toString() {
+            return "Exponential Euler";
+        }
+
+        @Override
+        public void integrate(final ODESystem system, final double[] y,
+                final double dt, final double tolerance,
+                final Workspace ws) {
+            ws.ensureCapacity(y.length);
+            ws.evaluate(system, y, ws.k1);
+            system.computeRelaxation(y, ws.k2, ws.k3);
+            for (int i = 0; i < y.length; i++) {
+                double tau = ws.k3[i];
+                if (tau > 0) {
+                    y[i] = ws.k2[i] + (y[i] - ws.k2[i]) * Math.exp(-dt / tau);
+                } else {
+                    y[i] += dt * ws.k1[i];
+                }
+            }
+        }
+    },
+
+    /** Second order Runge-Kutta (Heun's method). */
+    RK2 {
+
+        @Override
+        public String toString() {
+            return "Runge-Kutta 2";
+        }
+
+        @Override
+        public void integrate(final ODESystem system, final double[] y,
+                final double dt, final double tolerance,
+                final Workspace ws) {
+            int n = y.length;
+            ws.ensureCapacity(n);
+            ws.evaluate(system, y, ws.k1);
+            for (int i = 0; i < n; i++) {
+                ws.stage[i] = y[i] + dt * ws.k1[i];
+            }
+            ws.evaluate(system, ws.stage, ws.k2);
+            for (int i = 0; i < n; i++) {
+                y[i] += dt / 2 * (ws.k1[i] + ws.k2[i]);
+            }
+        }
+    },
+
+    /** Classical fourth order Runge-Kutta. */
+    RK4 {
+
+        @Override
+        public String toString() {
+            return "Runge-Kutta 4";
+        }
+
+        @Override
+        public void integrate(final ODESystem system, final double[] y,
+                final double dt, final double tolerance,
+                final Workspace ws) {
+            int n = y.length;
+            ws.ensureCapacity(n);
+            ws.evaluate(system, y, ws.k1);
+            for (int i = 0; i < n; i++) {
+                ws.stage[i] = y[i] + dt / 2 * ws.k1[i];
+            }
+            ws.evaluate(system, ws.stage, ws.k2);
+            for (int i = 0; i < n; i++) {
+                ws.stage[i] = y[i] + dt / 2 * ws.k2[i];
+            }
+            ws.evaluate(system, ws.stage, ws.k3);
+            for (int i = 0; i < n; i++) {
+                ws.stage[i] = y[i] + dt * ws.k3[i];
+            }
+            ws.evaluate(system, ws.stage, ws.k4);
+            for (int i = 0; i < n; i++) {
+                y[i] += dt / 6
+                        * (ws.k1[i] + 2 * ws.k2[i] + 2 * ws.k3[i] + ws.k4[i]);
+            }
+        }
+    },
+
+    /**
+     * Adaptive sub-stepping with the Dormand-Prince 5(4) pair. Each sub-step
+     * is accepted if the estimated local error of every variable is below
+     * tolerance * (1 + |y|), and the step size is then adjusted for the next
+     * sub-step. The last accepted step size is kept in the workspace, so
+     * quiescent neurons take one sub-step per time step while neurons in the
+     * upstroke of a spike take as many as they need. Integration stops early
+     * if the system signals an event.
+     */
+    ADAPTIVE {
+
+        @Override
+        public String toString() {
+            return "Adaptive (Dormand-Prince)";
+        }
+
+        @Override
+        public void integrate(final ODESystem system, final double[] y,
+                final double dt, final double tolerance,
+                final Workspace ws) {
+            ws.ensureCapacity(y.length);
+            DormandPrince.integrate(system, y, dt, tolerance, ws);
+        }
+    };
+
+    /** Default error tolerance for {@link #ADAPTIVE}. */
+    public static final double DEFAULT_TOLERANCE = 1e-4;
+
+    /**
+     * Advance a system by one time step.
+     *
+     * @param system the system to integrate
+     * @param y the state, updated in place
+     * @param dt the time step
+     * @param tolerance the error tolerance, used by adaptive methods only
+     * @param ws scratch space for this system
+     */
+    public abstract void integrate(ODESystem system, double[] y, double dt,
+            double tolerance, Workspace ws);
+
+    /**
+     * Scratch arrays and step size control state for integrating one system.
+     * Not thread safe; each system being integrated needs its own.
+     */
+    public static class Workspace {
+
+        /** Stage derivatives. */
+        private double[] k1, k2, k3, k4, k5, k6, k7;
+
+        /** Stage state. */
+        private double[] stage;
+
+        /** Candidate state of an adaptive sub-step. */
+        private double[] next;
+
+        /** Step size to try first on the next adaptive integration. */
+        private double step;
+
+        /** Number of derivative evaluations so far. */
+        private long evaluations;
+
+        /** Number of rejected adaptive sub-steps so far. */
+        private long rejectedSteps;
+
+        /**
+         * Allocate arrays for a system of the given dimension, if needed.
+         *
+         * @param n the dimension
+         */
+        private void ensureCapacity(final int n) {
+            if (stage == null || stage.length != n) {
+                k1 = new double[n];
+                k2 = new double[n];
+                k3 = new double[n];
+                k4 = new double[n];
+                k5 = new double[n];
+                k6 = new double[n];
+                k7 = new double[n];
+                stage = new double[n];
+                next = new double[n];
+            }
+        }
+
+        /**
+         * Evaluate and count the derivatives.
+         *
+         * @param system the system
+         * @param y the state
+         * @param dydt array to write the derivatives into
+         */
+        private void evaluate(final ODESystem system, final double[] y,
+                final double[] dydt) {
+            system.computeDerivatives(y, dydt);
+            evaluations++;
+        }
+
+        /**
+         * @return the number of derivative evaluations so far
+         */
+        public long getEvaluations() {
+            return evaluations;
+        }
+
+        /**
+         * @return the number of rejected adaptive sub-steps so far
+         */
+        public long getRejectedSteps() {
+            return rejectedSteps;
+        }
+
+        /**
+         * @return the step size the adaptive method will try first, or 0 if
+         *         it has not run yet
+         */
+        public double getStepSize() {
+            return step;
+        }
+
+        /**
+         * Reset the counters and the adaptive step size.
+         */
+        public void reset() {
+            step = 0;
+            evaluations = 0;
+            rejectedSteps = 0;
+        }
+    }
+
+    /**
+     * Coefficients and step control of the Dormand-Prince 5(4) method.
+     */
+    private static final class DormandPrince {
+
+        /** Butcher tableau. */
+        private static final double A21 = 1.0 / 5, A31 = 3.0 / 40,
+                A32 = 9.0 / 40, A41 = 44.0 / 45, A42 = -56.0 / 15,
+                A43 = 32.0 / 9, A51 = 19372.0 / 6561, A52 = -25360.0 / 2187,
+                A53 = 64448.0 / 6561, A54 = -212.0 / 729,
+                A61 = 9017.0 / 3168, A62 = -355.0 / 33, A63 = 46732.0 / 5247,
+                A64 = 49.0 / 176, A65 = -5103.0 / 18656, B1 = 35.0 / 384,
+                B3 = 500.0 / 1113, B4 = 125.0 / 192, B5 = -2187.0 / 6784,
+                B6 = 11.0 / 84;
+
+        /** Difference between the fifth and fourth order weights. */
+        private static final double E1 = 71.0 / 57600, E3 = -71.0 / 16695,
+                E4 = 71.0 / 1920, E5 = -17253.0 / 339200, E6 = 22.0 / 525,
+                E7 = -1.0 / 40;
+
+        /** Safety factor applied to the optimal step size. */
+        private static final double SAFETY = 0.9;
+
+        /** Largest factor by which the step size grows after a sub-step. */
+        private static final double MAX_GROWTH = 5;
+
+        /** Smallest factor by which the step size shrinks on rejection. */
+        private static final double MAX_SHRINK = 0.2;
+
+        /**
+         * Smallest sub-step as a fraction of the time step. Sub-steps this
+         * small are accepted whatever their error, which bounds the work per
+         * time step.
+         */
+        private static final double MIN_STEP_FRACTION = 1e-4;
+
+        /**
+         * Integrate over one time step with adaptive sub-steps.
+         *
+         * @param system the system
+         * @param y the state, updated in place
+         * @param dt the time step
+         * @param tolerance the error tolerance
+         * @param ws the workspace, with arrays allocated
+         */
+        static void integrate(final ODESystem system, final double[] y,
+                final double dt, final double tolerance, final Workspace ws) {
+            final int n = y.length;
+            final double minStep = dt * MIN_STEP_FRACTION;
+            double h = ws.step > 0 ? Math.min(ws.step, dt) : dt;
+            double t = 0;
+            ws.evaluate(system, y, ws.k1);
+            while (t < dt) {
+                boolean last = h >= dt - t;
+                if (last) {
+                    h = dt - t;
+                }
+                for (int i = 0; i < n; i++) {
+                    ws.stage[i] = y[i] + h * A21 * ws.k1[i];
+                }
+                ws.evaluate(system, ws.stage, ws.k2);
+                for (int i = 0; i < n; i++) {
+                    ws.stage[i] = y[i] + h * (A31 * ws.k1[i] + A32 * ws.k2[i]);
+                }
+                ws.evaluate(system, ws.stage, ws.k3);
+                for (int i = 0; i < n; i++) {
+                    ws.stage[i] = y[i] + h * (A41 * ws.k1[i] + A42 * ws.k2[i]
+                            + A43 * ws.k3[i]);
+                }
+                ws.evaluate(system, ws.stage, ws.k4);
+                for (int i = 0; i < n; i++) {
+                    ws.stage[i] = y[i] + h * (A51 * ws.k1[i] + A52 * ws.k2[i]
+                            + A53 * ws.k3[i] + A54 * ws.k4[i]);
+                }
+                ws.evaluate(system, ws.stage, ws.k5);
+                for (int i = 0; i < n; i++) {
+                    ws.stage[i] = y[i] + h * (A61 * ws.k1[i] + A62 * ws.k2[i]
+                            + A63 * ws.k3[i] + A64 * ws.k4[i]
+                            + A65 * ws.k5[i]);
+                }
+                ws.evaluate(system, ws.stage, ws.k6);
+                for (int i = 0; i < n; i++) {
+                    ws.next[i] = y[i] + h * (B1 * ws.k1[i] + B3 * ws.k3[i]
+                            + B4 * ws.k4[i] + B5 * ws.k5[i] + B6 * ws.k6[i]);
+                }
+                ws.evaluate(system, ws.next, ws.k7);
+
+                double err = 0;
+                for (int i = 0; i < n; i++) {
+                    double e = h * (E1 * ws.k1[i] + E3 * ws.k3[i]
+                            + E4 * ws.k4[i] + E5 * ws.k5[i] + E6 * ws.k6[i]
+                            + E7 * ws.k7[i]);
+                    double scale = tolerance * (1 + Math.max(Math.abs(y[i]),
+                            Math.abs(ws.next[i])));
+                    err = Math.max(err, Math.abs(e) / scale);
+                }
+                if (Double.isNaN(err)) {
+                    err = Double.POSITIVE_INFINITY;
+                }
+
+                if (err <= 1 || h <= minStep) {
+                    t = last ? dt : t + h;
+                    System.arraycopy(ws.next, 0, y, 0, n);
+                    // The last stage is the derivative at the new state
+                    double[] swap = ws.k1;
+                    ws.k1 = ws.k7;
+                    ws.k7 = swap;
+                    double growth = err == 0 ? MAX_GROWTH : Math.min(
+                            MAX_GROWTH, SAFETY * Math.pow(err, -0.2));
+                    if (!last || growth < 1) {
+                        ws.step = Math.max(minStep, h * growth);
+                    }
+                    h = ws.step;
+                    if (system.isEventTriggered(y)) {
+                        return;
+                    }
+                } else {
+                    ws.rejectedSteps++;
+                    h = Math.max(minStep,
+                            h * Math.max(MAX_SHRINK, SAFETY
+                                    * Math.pow(err, -0.25)));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.util.math;
+
+/**
+ * <b>ODESystem</b> is an autonomous system of ordinary differential equations
+ * dy/dt = f(y), advanced in time by an {@link ODEIntegrator}. Anything that
+ * varies over the interval being integrated (e.g. synaptic input) is assumed
+ * to be held constant by the implementation.
+ */
+public interface ODESystem {
+
+    /**
+     * @return the number of state variables
+     */
+    int getDimension();
+
+    /**
+     * Compute the derivatives of the state variables.
+     *
+     * @param y the current state
+     * @param dydt array to write the derivatives into
+     */
+    void computeDerivatives(double[] y, double[] dydt);
+
+    /**
+     * Write each state variable that relaxes linearly toward a steady state,
+     * dy/dt = (yInf - y) / tau with yInf and tau depending only on the other
+     * variables (such as a gating variable), in that form. Used by
+     * {@link ODEIntegrator#EXPONENTIAL_EULER}, which integrates those
+     * variables exactly over a step. Variables that are not of this form are
+     * given a time constant of 0 and are advanced with forward Euler.
+     *
+     * @param y the current state
+     * @param steadyState array to write yInf into
+     * @param timeConstant array to write tau into, or 0 for variables without
+     *            this form
+     */
+    void computeRelaxation(double[] y, double[] steadyState,
+            double[] timeConstant);
+
+    /**
+     * Returns true if the state has reached an event (typically a spike) at
+     * which integration should stop, so that the caller can apply a reset.
+     * Integrators that take several sub-steps stop at the first sub-step
+     * after which this is true.
+     *
+     * @param y the current state
+     * @return true if integration should stop
+     */
+    boolean isEventTriggered(double[] y);
+
+}
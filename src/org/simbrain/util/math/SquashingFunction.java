@@ -18,6 +18,8 @@
  */
 package org.simbrain.util.math;
 
+import java.util.Arrays;
+
 /**
  * An enumerated type containing methods for calculating values of different
  * squashing functions, their inverses, and their derivatives.
@@ -60,6 +62,22 @@ public enum SquashingFunction {
             return derivAtan(val, ceil, floor, slope);
         }
 
+        @Override
+        public double fastValueOf(double val, double ceil, double floor,
+                                  double slope) {
+            double diff = ceil - floor;
+            double a = (Math.PI * slope) / diff;
+            return (diff / Math.PI) * Approximations.atan(a * val)
+                + ((ceil + floor) / 2);
+        }
+
+        @Override
+        public double fastDerivVal(double val, double ceil, double floor,
+                                   double slope) {
+            // No transcendental functions to approximate
+            return derivAtan(val, ceil, floor, slope);
+        }
+
         @Override
         public double getDefaultUpperBound() {
             return DEFAULT_ARCTAN_CEIL;
@@ -104,6 +122,20 @@ public enum SquashingFunction {
             return derivLogistic(val, ceil, floor, slope);
         }
 
+        @Override
+        public double fastValueOf(double val, double ceil, double floor,
+                                  double slope) {
+            double diff = ceil - floor;
+            return diff * Approximations.logistic(slope * val / diff) + floor;
+        }
+
+        @Override
+        public double fastDerivVal(double val, double ceil, double floor,
+                                   double slope) {
+            double l = Approximations.logistic(slope * val / (ceil - floor));
+            return slope * l * (1 - l);
+        }
+
         @Override
         public double getDefaultUpperBound() {
             return DEFAULT_LOGISTIC_CEIL;
@@ -148,6 +180,24 @@ public enum SquashingFunction {
             return derivTanh(val, ceil, floor, slope);
         }
 
+        @Override
+        public double fastValueOf(double val, double ceil, double floor,
+                                  double slope) {
+            double diff = ceil - floor;
+            double a = (2 * slope) / diff;
+            return (diff / 2) * Approximations.tanh(a * val)
+                + ((ceil + floor) / 2);
+        }
+
+        @Override
+        public double fastDerivVal(double val, double ceil, double floor,
+                                   double slope) {
+            double diff = ceil - floor;
+            double a = (2 * slope) / diff;
+            double t = Approximations.tanh(a * val);
+            return diff / 2 * a * (1 - t * t);
+        }
+
         @Override
         public double getDefaultUpperBound() {
             return DEFAULT_TANH_CEIL;
@@ -188,6 +238,18 @@ public enum SquashingFunction {
             return 0;
         }
 
+        @Override
+        public double fastValueOf(double val, double ceil, double floor,
+                                  double slope) {
+            return 0;
+        }
+
+        @Override
+        public double fastDerivVal(double val, double ceil, double floor,
+                                   double slope) {
+            return 0;
+        }
+
         @Override
         public double getDefaultUpperBound() {
             return 0;
@@ -247,6 +309,38 @@ public enum SquashingFunction {
     public abstract double derivVal(double val, double ceil, double floor,
                                     double slope);
 
+    /**
+     * Gives an approximation of {@link #valueOf(double, double, double,
+     * double)} computed without calls to {@link Math#exp(double)},
+     * {@link Math#tanh(double)} or {@link Math#atan(double)}. The absolute
+     * error of the approximated standard function is at most
+     * {@link #FAST_TANH_MAX_ERROR} for tanh and logistic and
+     * {@link #FAST_ATAN_MAX_ERROR} for arctan, scaled by
+     * (ceil - floor) / 2 and (ceil - floor) / pi respectively.
+     *
+     * @param val the base value to pass the function
+     * @param ceil the upper limit of the curve
+     * @param floor the lower limit of the curve
+     * @param slope the slope of the curve at zero
+     * @return the approximate output of the given squashing function
+     */
+    public abstract double fastValueOf(double val, double ceil, double floor,
+                                       double slope);
+
+    /**
+     * Gives an approximation of {@link #derivVal(double, double, double,
+     * double)} computed from the same approximations as
+     * {@link #fastValueOf(double, double, double, double)}.
+     *
+     * @param val the base value to pass the function
+     * @param ceil the upper limit of the curve
+     * @param floor the lower limit of the curve
+     * @param slope the slope of the curve at zero
+     * @return the approximate output of the squashing function's derivative
+     */
+    public abstract double fastDerivVal(double val, double ceil, double floor,
+                                        double slope);
+
     /**
      * @return the default upper boundary (ceiling) of this particular
      * squashing function.
@@ -259,6 +353,141 @@ public enum SquashingFunction {
      */
     public abstract double getDefaultLowerBound();
 
+    /*
+     * ****************************************************************
+     * _____________________Array Methods_____________________________*
+     * ****************************************************************
+     */
+
+    /**
+     * Apply the squashing function to an array of values. The loops are
+     * specialized per function with the constants hoisted, so that the JIT
+     * compiler can unroll them.
+     *
+     * @param in the base values
+     * @param out array receiving the outputs; may be <code>in</code>
+     * @param ceil the upper limit of the curve
+     * @param floor the lower limit of the curve
+     * @param slope the slope of the curve at zero
+     */
+    public void valueOf(double[] in, double[] out, double ceil, double floor,
+                        double slope) {
+        apply(in, out, ceil, floor, slope, false);
+    }
+
+    /**
+     * Apply the approximate squashing function of
+     * {@link #fastValueOf(double, double, double, double)} to an array of
+     * values.
+     *
+     * @param in the base values
+     * @param out array receiving the outputs; may be <code>in</code>
+     * @param ceil the upper limit of the curve
+     * @param floor the lower limit of the curve
+     * @param slope the slope of the curve at zero
+     */
+    public void fastValueOf(double[] in, double[] out, double ceil,
+                            double floor, double slope) {
+        apply(in, out, ceil, floor, slope, true);
+    }
+
+    /**
+     * Apply the derivative of the squashing function to an array of values.
+     *
+     * @param in the base values
+     * @param out array receiving the derivatives; may be <code>in</code>
+     * @param ceil the upper limit of the curve
+     * @param floor the lower limit of the curve
+     * @param slope the slope of the curve at zero
+     */
+    public void derivVal(double[] in, double[] out, double ceil, double floor,
+                         double slope) {
+        for (int i = 0, n = in.length; i < n; i++) {
+            out[i] = derivVal(in[i], ceil, floor, slope);
+        }
+    }
+
+    /**
+     * Apply the approximate derivative of
+     * {@link #fastDerivVal(double, double, double, double)} to an array of
+     * values.
+     *
+     * @param in the base values
+     * @param out array receiving the derivatives; may be <code>in</code>
+     * @param ceil the upper limit of the curve
+     * @param floor the lower limit of the curve
+     * @param slope the slope of the curve at zero
+     */
+    public void fastDerivVal(double[] in, double[] out, double ceil,
+                             double floor, double slope) {
+        for (int i = 0, n = in.length; i < n; i++) {
+            out[i] = fastDerivVal(in[i], ceil, floor, slope);
+        }
+    }
+
+    /**
+     * Shared implementation of the array versions of the squashing functions.
+     *
+     * @param in the base values
+     * @param out array receiving the outputs
+     * @param ceil the upper limit of the curve
+     * @param floor the lower limit of the curve
+     * @param slope the slope of the curve at zero
+     * @param fast whether to use the approximations
+     */
+    private void apply(double[] in, double[] out, double ceil, double floor,
+                       double slope, boolean fast) {
+        int n = in.length;
+        double diff = ceil - floor;
+        double mid = (ceil + floor) / 2;
+        switch (this) {
+        case ARCTAN: {
+            double a = (Math.PI * slope) / diff;
+            double scale = diff / Math.PI;
+            if (fast) {
+                for (int i = 0; i < n; i++) {
+                    out[i] = scale * Approximations.atan(a * in[i]) + mid;
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    out[i] = scale * Math.atan(a * in[i]) + mid;
+                }
+            }
+            break;
+        }
+        case LOGISTIC: {
+            double a = slope / diff;
+            if (fast) {
+                for (int i = 0; i < n; i++) {
+                    out[i] = diff * Approximations.logistic(a * in[i])
+                        + floor;
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    out[i] = diff / (1 + Math.exp(-a * in[i])) + floor;
+                }
+            }
+            break;
+        }
+        case TANH: {
+            double a = (2 * slope) / diff;
+            double scale = diff / 2;
+            if (fast) {
+                for (int i = 0; i < n; i++) {
+                    out[i] = scale * Approximations.tanh(a * in[i]) + mid;
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    out[i] = scale * Math.tanh(a * in[i]) + mid;
+                }
+            }
+            break;
+        }
+        default:
+            Arrays.fill(out, 0, n, 0);
+        }
+    }
+
     /*
      * ****************************************************************
      * _____________________Function Methods__________________________*
@@ -465,6 +694,141 @@ public enum SquashingFunction {
         return a * (diff / Math.PI) * (1 / (1 + Math.pow(a * val, 2)));
     }
 
+    /**
+     * Largest absolute error of the tanh approximation used by the fast
+     * methods, over all inputs. The logistic approximation is derived from it
+     * and has half this error.
+     */
+    public static final double FAST_TANH_MAX_ERROR = 1e-8;
+
+    /** Largest absolute error of the arctan approximation, over all inputs. */
+    public static final double FAST_ATAN_MAX_ERROR = 1e-9;
+
+    /**
+     * Piecewise cubic approximations of the standard squashing functions.
+     * Each function is tabulated as cubic Hermite interpolants between evenly
+     * spaced knots, using exact values and derivatives at the knots, so one
+     * evaluation is an index computation and a cubic polynomial.
+     */
+    private static final class Approximations {
+
+        /** Tanh is tabulated on [-TANH_RANGE, TANH_RANGE]. */
+        private static final double TANH_RANGE = 20;
+
+        /** Knots per unit for tanh. */
+        private static final int TANH_RESOLUTION = 40;
+
+        /** Number of tanh intervals. */
+        private static final int TANH_INTERVALS = (int) (2 * TANH_RANGE
+            * TANH_RESOLUTION);
+
+        /** Cubic coefficients of each tanh interval, four per interval. */
+        private static final double[] TANH_COEFFICIENTS = tabulate(
+            TANH_INTERVALS, -TANH_RANGE, 1.0 / TANH_RESOLUTION, true);
+
+        /** Knots per unit for arctan, which is tabulated on [0, 1]. */
+        private static final int ATAN_RESOLUTION = 64;
+
+        /** Cubic coefficients of each arctan interval. */
+        private static final double[] ATAN_COEFFICIENTS = tabulate(
+            ATAN_RESOLUTION, 0, 1.0 / ATAN_RESOLUTION, false);
+
+        /**
+         * Build the cubic coefficients of a function's Hermite interpolants,
+         * in terms of the offset within an interval scaled to [0, 1].
+         *
+         * @param intervals number of intervals
+         * @param start first knot
+         * @param h knot spacing
+         * @param tanh true to tabulate tanh, false for arctan
+         * @return the coefficients, four per interval
+         */
+        private static double[] tabulate(int intervals, double start,
+                                         double h, boolean tanh) {
+            double[] c = new double[4 * intervals];
+            for (int i = 0; i < intervals; i++) {
+                double x0 = start + i * h;
+                double x1 = start + (i + 1) * h;
+                double y0 = tanh ? Math.tanh(x0) : Math.atan(x0);
+                double y1 = tanh ? Math.tanh(x1) : Math.atan(x1);
+                double m0 = h * (tanh ? 1 - y0 * y0 : 1 / (1 + x0 * x0));
+                double m1 = h * (tanh ? 1 - y1 * y1 : 1 / (1 + x1 * x1));
+                c[4 * i] = y0;
+                c[4 * i + 1] = m0;
+                c[4 * i + 2] = 3 * (y1 - y0) - 2 * m0 - m1;
+                c[4 * i + 3] = 2 * (y0 - y1) + m0 + m1;
+            }
+            return c;
+        }
+
+        /**
+         * Approximate hyperbolic tangent.
+         *
+         * @param x the argument
+         * @return tanh(x), to within {@link #FAST_TANH_MAX_ERROR}
+         */
+        static double tanh(double x) {
+            if (x >= TANH_RANGE) {
+                return 1;
+            } else if (x <= -TANH_RANGE) {
+                return -1;
+            } else if (x != x) {
+                return x;
+            }
+            double pos = (x + TANH_RANGE) * TANH_RESOLUTION;
+            int i = (int) pos;
+            if (i >= TANH_INTERVALS) {
+                i = TANH_INTERVALS - 1;
+            }
+            double t = pos - i;
+            int j = 4 * i;
+            double[] c = TANH_COEFFICIENTS;
+            return c[j] + t * (c[j + 1] + t * (c[j + 2] + t * c[j + 3]));
+        }
+
+        /**
+         * Approximate standard logistic, from 1 / (1 + e^-x) = (1 +
+         * tanh(x / 2)) / 2.
+         *
+         * @param x the argument
+         * @return the logistic of x
+         */
+        static double logistic(double x) {
+            return 0.5 + 0.5 * tanh(0.5 * x);
+        }
+
+        /**
+         * Approximate arctangent, reduced to [0, 1] by symmetry and by
+         * atan(x) = pi / 2 - atan(1 / x).
+         *
+         * @param x the argument
+         * @return atan(x), to within {@link #FAST_ATAN_MAX_ERROR}
+         */
+        static double atan(double x) {
+            if (x != x) {
+                return x;
+            }
+            double ax = Math.abs(x);
+            boolean invert = ax > 1;
+            if (invert) {
+                ax = 1 / ax;
+            }
+            double pos = ax * ATAN_RESOLUTION;
+            int i = (int) pos;
+            if (i >= ATAN_RESOLUTION) {
+                i = ATAN_RESOLUTION - 1;
+            }
+            double t = pos - i;
+            int j = 4 * i;
+            double[] c = ATAN_COEFFICIENTS;
+            double y = c[j] + t * (c[j + 1] + t * (c[j + 2] + t * c[j + 3]));
+            if (invert) {
+                y = Math.PI / 2 - y;
+            }
+            return x < 0 ? -y : y;
+        }
+    }
+
     public static String[] names() {
         SquashingFunction[] states = values();
         String[] names = new String[states.length - 1];
@@ -0,0 +1,271 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.util.math;
+
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * <b>WinnerSelection</b> contains allocation free, linear time routines for
+ * picking winners in competitive networks: arg max / arg min with optional
+ * random tie breaking, and quickselect for k-winners-take-all thresholds.
+ * Values can be read from a primitive array or from an indexed accessor, so
+ * that groups can select among their neurons without first copying
+ * activations into a new array.
+ */
+public class WinnerSelection {
+
+    /**
+     * Returns the index of the first largest of the first n values.
+     *
+     * @param vals the values
+     * @param n number of values to consider
+     * @return index of the largest value, or -1 if n is 0
+     */
+    public static int argMax(final double[] vals, final int n) {
+        if (n == 0) {
+            return -1;
+        }
+        int best = 0;
+        for (int i = 1; i < n; i++) {
+            if (vals[i] > vals[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the index of the first smallest of the first n values.
+     *
+     * @param vals the values
+     * @param n number of values to consider
+     * @return index of the smallest value, or -1 if n is 0
+     */
+    public static int argMin(final double[] vals, final int n) {
+        if (n == 0) {
+            return -1;
+        }
+        int best = 0;
+        for (int i = 1; i < n; i++) {
+            if (vals[i] < vals[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the index of the first largest of n values, read through an
+     * accessor.
+     *
+     * @param n number of values
+     * @param value returns the value at an index
+     * @return index of the largest value, or -1 if n is 0
+     */
+    public static int argMax(final int n, final IntToDoubleFunction value) {
+        if (n == 0) {
+            return -1;
+        }
+        int best = 0;
+        double bestVal = value.applyAsDouble(0);
+        for (int i = 1; i < n; i++) {
+            double val = value.applyAsDouble(i);
+            if (val > bestVal) {
+                best = i;
+                bestVal = val;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the index of the largest of n values, read through an accessor.
+     * If several values tie for largest, one of them is chosen uniformly at
+     * random in the same pass (reservoir sampling), so no list of tied
+     * winners is built.
+     *
+     * @param n number of values
+     * @param value returns the value at an index
+     * @param rand random number generator used to break ties
+     * @return index of a largest value, or -1 if n is 0
+     */
+    public static int argMax(final int n, final IntToDoubleFunction value,
+            final Random rand) {
+        if (n == 0) {
+            return -1;
+        }
+        int best = 0;
+        double bestVal = value.applyAsDouble(0);
+        int ties = 1;
+        for (int i = 1; i < n; i++) {
+            double val = value.applyAsDouble(i);
+            if (val > bestVal) {
+                best = i;
+                bestVal = val;
+                ties = 1;
+            } else if (val == bestVal) {
+                ties++;
+                if (rand.nextInt(ties) == 0) {
+                    best = i;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the index of the first smallest of n values, read through an
+     * accessor.
+     *
+     * @param n number of values
+     * @param value returns the value at an index
+     * @return index of the smallest value, or -1 if n is 0
+     */
+    public static int argMin(final int n, final IntToDoubleFunction value) {
+        if (n == 0) {
+            return -1;
+        }
+        int best = 0;
+        double bestVal = value.applyAsDouble(0);
+        for (int i = 1; i < n; i++) {
+            double val = value.applyAsDouble(i);
+            if (val < bestVal) {
+                best = i;
+                bestVal = val;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds the k-th largest of the first n values using quickselect, in
+     * expected linear time. The array is partially reordered in place: on
+     * return, <code>vals[k - 1]</code> holds the k-th largest value, the
+     * entries before it are all greater than or equal to it, and the entries
+     * from index k to n - 1 are all less than or equal to it. So the (k+1)-th
+     * largest value is the {@link #max(double[], int, int)} of that tail, and
+     * averages of the top k and the rest can be taken directly.
+     *
+     * @param vals the values; reordered in place
+     * @param n number of values to consider
+     * @param k rank to select, from 1 (largest) to n
+     * @return the k-th largest value
+     */
+    public static double selectKthLargest(final double[] vals, final int n,
+            final int k) {
+        if (k < 1 || k > n) {
+            throw new IllegalArgumentException("k must be between 1 and " + n);
+        }
+        int target = k - 1;
+        int lo = 0;
+        int hi = n - 1;
+        while (lo < hi) {
+            // Median of three, ordered so vals[lo] >= vals[mid] >= vals[hi]
+            int mid = (lo + hi) >>> 1;
+            if (vals[mid] > vals[lo]) {
+                swap(vals, lo, mid);
+            }
+            if (vals[hi] > vals[lo]) {
+                swap(vals, lo, hi);
+            }
+            if (vals[hi] > vals[mid]) {
+                swap(vals, mid, hi);
+            }
+            double pivot = vals[mid];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (vals[i] > pivot) {
+                    i++;
+                }
+                while (vals[j] < pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(vals, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            // [lo, j] >= pivot, (j, i) == pivot, [i, hi] <= pivot
+            if (target <= j) {
+                hi = j;
+            } else if (target >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+        return vals[target];
+    }
+
+    /**
+     * Returns the largest value in a range.
+     *
+     * @param vals the values
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return the maximum, or negative infinity for an empty range
+     */
+    public static double max(final double[] vals, final int from,
+            final int to) {
+        double ret = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            if (vals[i] > ret) {
+                ret = vals[i];
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the mean value in a range.
+     *
+     * @param vals the values
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return the mean, or 0 for an empty range
+     */
+    public static double mean(final double[] vals, final int from,
+            final int to) {
+        if (to <= from) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += vals[i];
+        }
+        return sum / (to - from);
+    }
+
+    /**
+     * Swap two array entries.
+     *
+     * @param vals the array
+     * @param i first index
+     * @param j second index
+     */
+    private static void swap(final double[] vals, final int i, final int j) {
+        double tmp = vals[i];
+        vals[i] = vals[j];
+        vals[j] = tmp;
+    }
+
+}
@@ -0,0 +1,223 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.util.profiling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <b>ProfileSection</b> accumulates the timings of one named piece of work,
+ * for example one network update action or one listener class. Durations are
+ * kept in a histogram with power of two buckets, so recording is a handful of
+ * atomic increments with no locking, and percentiles are accurate to within a
+ * factor of two.
+ */
+public class ProfileSection {
+
+    /** Number of buckets; bucket i holds durations in [2^i, 2^(i+1)) ns. */
+    public static final int NUM_BUCKETS = 48;
+
+    /** The category, e.g. {@link Profiler#NETWORK_ACTIONS}. */
+    private final String category;
+
+    /** Name of the profiled work within the category. */
+    private final String name;
+
+    /** Histogram of durations. */
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+    /** Number of recorded calls. */
+    private final LongAdder count = new LongAdder();
+
+    /** Summed duration in nanoseconds. */
+    private final LongAdder totalNanos = new LongAdder();
+
+    /** Summed bytes allocated by the calling thread. */
+    private final LongAdder totalBytes = new LongAdder();
+
+    /** Longest recorded duration in nanoseconds. */
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Construct an empty section.
+     *
+     * @param category the category
+     * @param name the name within the category
+     */
+    ProfileSection(final String category, final String name) {
+        this.category = category;
+        this.name = name;
+    }
+
+    /**
+     * Record one call.
+     *
+     * @param nanos duration of the call
+     * @param bytes bytes allocated during the call, or a negative number if
+     *            allocation is not measured
+     */
+    void record(final long nanos, final long bytes) {
+        buckets.incrementAndGet(bucketOf(nanos));
+        count.increment();
+        totalNanos.add(nanos);
+        if (bytes > 0) {
+            totalBytes.add(bytes);
+        }
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Returns the histogram bucket for a duration.
+     *
+     * @param nanos the duration
+     * @return the bucket index
+     */
+    private static int bucketOf(final long nanos) {
+        int bucket = 63 - Long.numberOfLeadingZeros(Math.max(nanos, 1));
+        return Math.min(bucket, NUM_BUCKETS - 1);
+    }
+
+    /**
+     * Returns an estimate of a percentile of the recorded durations: the upper
+     * edge of the bucket in which the percentile falls.
+     *
+     * @param fraction the percentile as a fraction, e.g. 0.99
+     * @return the estimated duration in nanoseconds, or 0 if nothing has been
+     *         recorded
+     */
+    public long getPercentileNanos(final double fraction) {
+        long[] counts = new long[NUM_BUCKETS];
+        long total = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min((1L << (i + 1)) - 1, getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    /**
+     * Returns a copy of the histogram.
+     *
+     * @return the number of calls in each bucket
+     */
+    public long[] getHistogram() {
+        long[] ret = new long[NUM_BUCKETS];
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            ret[i] = buckets.get(i);
+        }
+        return ret;
+    }
+
+    /**
+     * Clear all recorded values.
+     */
+    void reset() {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+        totalBytes.reset();
+        maxNanos.set(0);
+    }
+
+    /**
+     * @return the category
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * @return the name within the category
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of recorded calls
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the summed duration in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * @return the mean duration in nanoseconds
+     */
+    public double getMeanNanos() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) getTotalNanos() / n;
+    }
+
+    /**
+     * @return the longest recorded duration in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @return the summed bytes allocated during the recorded calls
+     */
+    public long getTotalAllocatedBytes() {
+        return totalBytes.sum();
+    }
+
+    /**
+     * @return the mean bytes allocated per call
+     */
+    public double getMeanAllocatedBytes() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) getTotalAllocatedBytes() / n;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s / %s: %d calls, mean %.1f us, p50 %.1f us, p99 %.1f us,"
+                        + " max %.1f us, total %.1f ms, %.0f bytes/call",
+                category, name, getCount(), getMeanNanos() / 1e3,
+                getPercentileNanos(.5) / 1e3, getPercentileNanos(.99) / 1e3,
+                getMaxNanos() / 1e3, getTotalNanos() / 1e6,
+                getMeanAllocatedBytes());
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.util.profiling;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import javax.management.ObjectName;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * <b>Profiler</b> records the wall time and allocation of network update
+ * actions, workspace update actions, workspace component updates, coupling
+ * batches and listeners. Each piece of work is recorded in a
+ * {@link ProfileSection} identified by a category and a name.
+ * <p>
+ * Profiling is off by default. Call sites check {@link #isEnabled()} (one
+ * volatile read) and only then wrap work in
+ * {@link #time(String, Supplier, Runnable)}, so that with profiling off the
+ * update path does not even allocate the lambdas that name and run the work:
+ *
+ * <pre>
+ * if (Profiler.isEnabled()) {
+ *     Profiler.time(Profiler.NETWORK_ACTIONS, action::getDescription,
+ *             action::invoke);
+ * } else {
+ *     action.invoke();
+ * }
+ * </pre>
+ *
+ * Allocation is measured with the per thread allocation counter of HotSpot
+ * based virtual machines and is reported as zero where it is not available.
+ * Work done on other threads (e.g. by buffered component updates) is
+ * attributed to the thread that does it. The profiler is also exposed through
+ * JMX; see {@link ProfilerMXBean}.
+ */
+public final class Profiler {
+
+    /** Category of network update actions. */
+    public static final String NETWORK_ACTIONS = "Network action";
+
+    /** Category of workspace update actions. */
+    public static final String WORKSPACE_ACTIONS = "Workspace action";
+
+    /** Category of workspace component updates. */
+    public static final String COMPONENTS = "Component";
+
+    /** Category of coupling batches. */
+    public static final String COUPLINGS = "Couplings";
+
+    /** Category of listener notifications, named by listener class. */
+    public static final String LISTENERS = "Listener";
+
+    /** Name under which the profiler is registered with JMX. */
+    public static final String OBJECT_NAME = "org.simbrain:type=Profiler";
+
+    /** Whether timings are recorded. */
+    private static volatile boolean enabled;
+
+    /** Sections by category, then by name. */
+    private static final ConcurrentMap<String, ConcurrentMap<String, ProfileSection>> sections = new ConcurrentHashMap<>();
+
+    /** Source of per thread allocation counts, or null if unavailable. */
+    private static final ThreadMXBean threadBean = initThreadBean();
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new ProfilerMXBean() {
+                        @Override
+                        public boolean isEnabled() {
+                            return Profiler.isEnabled();
+                        }
+
+                        @Override
+                        public void setEnabled(final boolean enabled) {
+                            Profiler.setEnabled(enabled);
+                        }
+
+                        @Override
+                        public boolean isAllocationMeasured() {
+                            return Profiler.isAllocationMeasured();
+                        }
+
+                        @Override
+                        public String[] getSections() {
+                            List<ProfileSection> list = Profiler.getSections();
+                            String[] ret = new String[list.size()];
+                            for (int i = 0; i < ret.length; i++) {
+                                ret[i] = list.get(i).toString();
+                            }
+                            return ret;
+                        }
+
+                        @Override
+                        public void reset() {
+                            Profiler.reset();
+                        }
+                    }, new ObjectName(OBJECT_NAME));
+        } catch (Exception | LinkageError e) {
+            // Already registered by another class loader, or no JMX. The
+            // profiler still works without it.
+        }
+    }
+
+    /**
+     * Not instantiated.
+     */
+    private Profiler() {
+    }
+
+    /**
+     * Returns the thread bean if it can count allocated bytes.
+     *
+     * @return the bean, or null
+     */
+    private static ThreadMXBean initThreadBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory
+                    .getThreadMXBean();
+            if (bean instanceof ThreadMXBean) {
+                ThreadMXBean sunBean = (ThreadMXBean) bean;
+                if (sunBean.isThreadAllocatedMemorySupported()) {
+                    sunBean.setThreadAllocatedMemoryEnabled(true);
+                    return sunBean;
+                }
+            }
+        } catch (LinkageError | RuntimeException e) {
+            // Not a HotSpot virtual machine
+        }
+        return null;
+    }
+
+    /**
+     * @return true if timings are being recorded
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turn recording on or off. Recorded timings are kept when recording is
+     * turned off.
+     *
+     * @param enabled whether to record timings
+     */
+    public static void setEnabled(final boolean enabled) {
+        Profiler.enabled = enabled;
+    }
+
+    /**
+     * @return whether allocation is measured along with time
+     */
+    public static boolean isAllocationMeasured() {
+        return threadBean != null;
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread, to
+     * be passed to {@link #record(String, String, long, long)}.
+     *
+     * @return the allocated bytes, or -1 if allocation is not measured
+     */
+    public static long allocatedBytes() {
+        if (threadBean == null) {
+            return -1;
+        }
+        return threadBean
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Run a piece of work, recording its time and allocation if profiling is
+     * enabled.
+     *
+     * @param category the category, e.g. {@link #NETWORK_ACTIONS}
+     * @param name supplies the name of the work within the category, only
+     *            called if profiling is enabled
+     * @param work the work
+     */
+    public static void time(final String category,
+            final Supplier<String> name, final Runnable work) {
+        if (!enabled) {
+            work.run();
+            return;
+        }
+        long start = System.nanoTime();
+        long bytes = allocatedBytes();
+        work.run();
+        record(category, name.get(), start, bytes);
+    }
+
+    /**
+     * Record the end of a piece of work.
+     *
+     * @param category the category, e.g. {@link #NETWORK_ACTIONS}
+     * @param name the name of the work within the category
+     * @param startNanos the value of {@link System#nanoTime()} when the work
+     *            started
+     * @param startBytes the value of {@link #allocatedBytes()} when the work
+     *            started
+     */
+    public static void record(final String category, final String name,
+            final long startNanos, final long startBytes) {
+        long nanos = System.nanoTime() - startNanos;
+        long bytes = startBytes < 0 ? -1 : allocatedBytes() - startBytes;
+        getSection(category, name).record(nanos, bytes);
+    }
+
+    /**
+     * Returns the section for a category and name, creating it if needed.
+     *
+     * @param category the category
+     * @param name the name within the category
+     * @return the section
+     */
+    public static ProfileSection getSection(final String category,
+            final String name) {
+        ConcurrentMap<String, ProfileSection> byName = sections.get(category);
+        if (byName == null) {
+            byName = sections.computeIfAbsent(category,
+                    c -> new ConcurrentHashMap<>());
+        }
+        String key = String.valueOf(name);
+        ProfileSection section = byName.get(key);
+        if (section == null) {
+            section = byName.computeIfAbsent(key,
+                    n -> new ProfileSection(category, n));
+        }
+        return section;
+    }
+
+    /**
+     * Returns all sections, the one with the largest total time first.
+     *
+     * @return the sections
+     */
+    public static List<ProfileSection> getSections() {
+        List<ProfileSection> ret = new ArrayList<>();
+        for (ConcurrentMap<String, ProfileSection> byName : sections
+                .values()) {
+            ret.addAll(byName.values());
+        }
+        ret.sort((a, b) -> Long.compare(b.getTotalNanos(),
+                a.getTotalNanos()));
+        return ret;
+    }
+
+    /**
+     * Clear all recorded timings.
+     */
+    public static void reset() {
+        for (ConcurrentMap<String, ProfileSection> byName : sections
+                .values()) {
+            for (ProfileSection section : byName.values()) {
+                section.reset();
+            }
+        }
+    }
+
+    /**
+     * Returns a report with one line per section, slowest first.
+     *
+     * @return the report
+     */
+    public static String getReport() {
+        StringBuilder sb = new StringBuilder();
+        for (ProfileSection section : getSections()) {
+            sb.append(section).append('\n');
+        }
+        return sb.toString();
+    }
+}
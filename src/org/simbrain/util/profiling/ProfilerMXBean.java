@@ -0,0 +1,52 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.util.profiling;
+
+/**
+ * Management interface of the {@link Profiler}, registered with the platform
+ * MBean server as <code>org.simbrain:type=Profiler</code> so that timings can
+ * be watched and profiling switched on from JConsole or VisualVM.
+ */
+public interface ProfilerMXBean {
+
+    /**
+     * @return true if timings are being recorded
+     */
+    boolean isEnabled();
+
+    /**
+     * @param enabled whether to record timings
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return whether allocation is measured along with time
+     */
+    boolean isAllocationMeasured();
+
+    /**
+     * @return one line per profiled section, slowest first
+     */
+    String[] getSections();
+
+    /**
+     * Clear all recorded timings.
+     */
+    void reset();
+}
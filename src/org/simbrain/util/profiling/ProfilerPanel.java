@@ -0,0 +1,187 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.util.profiling;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Window;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * <b>ProfilerPanel</b> shows the {@link Profiler}'s sections in a table that
+ * is refreshed twice a second while the panel is showing, with controls to
+ * turn profiling on and off and to clear the timings.
+ */
+public class ProfilerPanel extends JPanel {
+
+    /** Default serial id. */
+    private static final long serialVersionUID = 1L;
+
+    /** Refresh interval in milliseconds. */
+    private static final int REFRESH_INTERVAL = 500;
+
+    /** Column names. */
+    private static final String[] COLUMNS = { "Category", "Name", "Calls",
+            "Mean (us)", "p50 (us)", "p99 (us)", "Max (us)", "Total (ms)",
+            "Bytes / call" };
+
+    /** Sections currently shown. */
+    private List<ProfileSection> rows = new ArrayList<>();
+
+    /** The table model. */
+    private final AbstractTableModel model = new AbstractTableModel() {
+
+        /** Default serial id. */
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(final int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(final int column) {
+            return column < 2 ? String.class : Number.class;
+        }
+
+        @Override
+        public Object getValueAt(final int row, final int column) {
+            ProfileSection section = rows.get(row);
+            switch (column) {
+            case 0:
+                return section.getCategory();
+            case 1:
+                return section.getName();
+            case 2:
+                return section.getCount();
+            case 3:
+                return round(section.getMeanNanos() / 1e3);
+            case 4:
+                return round(section.getPercentileNanos(.5) / 1e3);
+            case 5:
+                return round(section.getPercentileNanos(.99) / 1e3);
+            case 6:
+                return round(section.getMaxNanos() / 1e3);
+            case 7:
+                return round(section.getTotalNanos() / 1e6);
+            default:
+                return Math.round(section.getMeanAllocatedBytes());
+            }
+        }
+    };
+
+    /** Refreshes the table. */
+    private final Timer timer = new Timer(REFRESH_INTERVAL, e -> refresh());
+
+    /**
+     * Construct the panel.
+     */
+    public ProfilerPanel() {
+        super(new BorderLayout());
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JPanel controls = new JPanel();
+        JCheckBox enabled = new JCheckBox("Profiling on",
+                Profiler.isEnabled());
+        enabled.addActionListener(e -> Profiler.setEnabled(enabled
+                .isSelected()));
+        controls.add(enabled);
+        JButton reset = new JButton("Reset");
+        reset.addActionListener(e -> {
+            Profiler.reset();
+            refresh();
+        });
+        controls.add(reset);
+        if (!Profiler.isAllocationMeasured()) {
+            controls.add(new JLabel("(allocation not measured)"));
+        }
+        add(controls, BorderLayout.SOUTH);
+        refresh();
+    }
+
+    /**
+     * Reload the sections from the profiler.
+     */
+    public void refresh() {
+        rows = Profiler.getSections();
+        model.fireTableDataChanged();
+    }
+
+    /**
+     * Round to one decimal place.
+     *
+     * @param value the value
+     * @return the rounded value
+     */
+    private static double round(final double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        timer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        timer.stop();
+        super.removeNotify();
+    }
+
+    /**
+     * Show a profiler panel in a non-modal dialog.
+     *
+     * @param parent component over which to show the dialog
+     */
+    public static void showDialog(final Component parent) {
+        Window owner = parent == null ? null
+                : SwingUtilities.getWindowAncestor(parent);
+        JDialog dialog = new JDialog(owner, "Profiler");
+        dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        dialog.setContentPane(new ProfilerPanel());
+        dialog.pack();
+        dialog.setLocationRelativeTo(parent);
+        dialog.setVisible(true);
+    }
+}
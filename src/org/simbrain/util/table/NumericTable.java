@@ -19,6 +19,9 @@
 package org.simbrain.util.table;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
@@ -26,13 +29,23 @@ import org.simbrain.util.Utils;
 import org.simbrain.util.table.SimbrainJTable.CellIndex;
 
 /**
- * Default implementation of a table of numerical data. The table is mutable,
- * and the data is saved as a list of lists of Doubles.
+ * Default implementation of a table of numerical data. The table is mutable.
+ * <p>
+ * Unlike other tables, the data are not kept in the list of lists inherited
+ * from {@link SimbrainDataTable} but in one row-major array of primitive
+ * doubles (or floats, see {@link #setSinglePrecision(boolean)}), which grows
+ * as rows are added. Rows are copied with array copies, and whole-table
+ * operations (fill, shuffle, normalize, randomize) work directly on the array,
+ * so large tables can be edited and fed to networks without boxing each value.
+ * The boxed methods inherited from the superclasses still work, and
+ * {@link #getLogicalDoubleAt(int, int)} and
+ * {@link #setLogicalDouble(int, int, double, boolean)} are their primitive
+ * counterparts.
  *
  * @author jyoshimi
  */
 public class NumericTable extends MutableTable<Double> implements
-        IterableRowsTable {
+        IterableRowsTable, Cloneable {
 
     /** Default initial number of rows. */
     private static final int DEFAULT_ROW_COUNT = 30;
@@ -52,6 +65,27 @@ public class NumericTable extends MutableTable<Double> implements
     /** Randomization lower bound. */
     private int lowerBound = -1;
 
+    /** Number of rows. */
+    private int numRows;
+
+    /** Number of (logical) columns. */
+    private int numColumns;
+
+    /** Whether values are stored as floats rather than doubles. */
+    private boolean singlePrecision;
+
+    /**
+     * The values, row-major, when stored as doubles. The array may be longer
+     * than numRows * numColumns.
+     */
+    private transient double[] data;
+
+    /** The values, row-major, when stored as floats. */
+    private transient float[] floatData;
+
+    /** The values as text, only set in saved copies of the table. */
+    private String savedValues;
+
     /**
      * Construct a table with a specified number of rows and columns.
      *
@@ -62,6 +96,20 @@ public class NumericTable extends MutableTable<Double> implements
         init(numRows, numColumns);
     }
 
+    /**
+     * Construct a table with a specified number of rows and columns, whose
+     * values are stored as floats or doubles.
+     *
+     * @param numRows number of rows.
+     * @param numColumns number of columns.
+     * @param singlePrecision whether to store values as floats
+     */
+    public NumericTable(final int numRows, final int numColumns,
+            final boolean singlePrecision) {
+        this.singlePrecision = singlePrecision;
+        init(numRows, numColumns);
+    }
+
     /**
      * Construct a table from an 2-d array of doubles.
      *
@@ -85,13 +133,78 @@ public class NumericTable extends MutableTable<Double> implements
      * @param cols num cols
      */
     protected void init(int rows, int cols) {
-        rowData.clear();
-        for (int i = 0; i < rows; i++) {
-            rowData.add(createNewRow(new Double(0), cols));
-        }
+        allocate(rows, cols);
         fireTableStructureChanged();
     }
 
+    /**
+     * Replace the values with zeros, in a table of the given size.
+     *
+     * @param rows number of rows
+     * @param cols number of columns
+     */
+    private void allocate(final int rows, final int cols) {
+        numRows = rows;
+        numColumns = cols;
+        if (singlePrecision) {
+            data = null;
+            floatData = new float[rows * cols];
+        } else {
+            floatData = null;
+            data = new double[rows * cols];
+        }
+    }
+
+    /**
+     * Make sure the arrays can hold a number of values, growing them by half
+     * again if they cannot, so rows can be added one at a time in amortized
+     * constant time.
+     *
+     * @param size number of values needed
+     */
+    private void ensureCapacity(final int size) {
+        int capacity = singlePrecision ? floatData.length : data.length;
+        if (size <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(size, capacity + (capacity >> 1));
+        if (singlePrecision) {
+            floatData = Arrays.copyOf(floatData, newCapacity);
+        } else {
+            data = Arrays.copyOf(data, newCapacity);
+        }
+    }
+
+    /**
+     * Move a block of values within the arrays.
+     *
+     * @param from index of the first value to move
+     * @param to index to move it to
+     * @param length number of values to move
+     */
+    private void move(final int from, final int to, final int length) {
+        if (singlePrecision) {
+            System.arraycopy(floatData, from, floatData, to, length);
+        } else {
+            System.arraycopy(data, from, data, to, length);
+        }
+    }
+
+    /**
+     * Set a block of values to one value.
+     *
+     * @param from index of the first value
+     * @param to index after the last value
+     * @param value the value
+     */
+    private void fillRange(final int from, final int to, final double value) {
+        if (singlePrecision) {
+            Arrays.fill(floatData, from, to, (float) value);
+        } else {
+            Arrays.fill(data, from, to, value);
+        }
+    }
+
     @Override
     public Class<?> getDataType() {
         return Double.class;
@@ -102,19 +215,139 @@ public class NumericTable extends MutableTable<Double> implements
         return new Double(0);
     }
 
+    /**
+     * Returns a value as a primitive double.
+     *
+     * @param row row index in the "logical" data
+     * @param column column index in the "logical" data
+     * @return the value
+     */
+    public double getLogicalDoubleAt(final int row, final int column) {
+        checkIndex(row, column);
+        int i = row * numColumns + column;
+        return singlePrecision ? floatData[i] : data[i];
+    }
+
+    /**
+     * Set a value from a primitive double.
+     *
+     * @param row row index in the "logical" data
+     * @param column column index in the "logical" data
+     * @param value value to set
+     * @param fireEvent true if an event should be fired, false otherwise.
+     */
+    public void setLogicalDouble(final int row, final int column,
+            final double value, final boolean fireEvent) {
+        checkIndex(row, column);
+        int i = row * numColumns + column;
+        if (singlePrecision) {
+            floatData[i] = (float) value;
+        } else {
+            data[i] = value;
+        }
+        if (fireEvent) {
+            this.fireTableCellUpdated(row, column);
+        }
+    }
+
+    /**
+     * Check that a cell is in the table.
+     *
+     * @param row row index
+     * @param column column index
+     */
+    private void checkIndex(final int row, final int column) {
+        if (row < 0 || row >= numRows || column < 0 || column >= numColumns) {
+            throw new IndexOutOfBoundsException("Cell (" + row + ", "
+                    + column + ") of a " + numRows + " x " + numColumns
+                    + " table");
+        }
+    }
+
+    @Override
+    public Double getLogicalValueAt(final int row, final int col) {
+        return getLogicalDoubleAt(row, col);
+    }
+
+    @Override
+    public void setLogicalValue(final int row, final int column,
+            final Double value, final boolean fireEvent) {
+        setLogicalDouble(row, column, value, fireEvent);
+    }
+
+    @Override
+    public int getLogicalColumnCount() {
+        return numRows > 0 ? numColumns : 0;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return numRows > 0 ? numColumns + 1 : 0;
+    }
+
+    @Override
+    public int getRowCount() {
+        return numRows;
+    }
+
+    /**
+     * Copy a row into an array. If the array is shorter than the row only the
+     * leading values are copied.
+     *
+     * @param row the row index
+     * @param out the array to copy into
+     * @return <code>out</code>
+     */
+    public double[] getRow(final int row, final double[] out) {
+        checkIndex(row, 0);
+        int offset = row * numColumns;
+        int n = Math.min(numColumns, out.length);
+        if (singlePrecision) {
+            for (int j = 0; j < n; j++) {
+                out[j] = floatData[offset + j];
+            }
+        } else {
+            System.arraycopy(data, offset, out, 0, n);
+        }
+        return out;
+    }
+
+    /**
+     * Copy an array into a row, without firing an event. If the array is
+     * shorter than the row only the leading values are set, and values past
+     * the end of the row are ignored.
+     *
+     * @param row the row index
+     * @param values the values
+     */
+    private void setRow(final int row, final double[] values) {
+        checkIndex(row, 0);
+        int offset = row * numColumns;
+        int n = Math.min(numColumns, values.length);
+        if (singlePrecision) {
+            for (int j = 0; j < n; j++) {
+                floatData[offset + j] = (float) values[j];
+            }
+        } else {
+            System.arraycopy(values, 0, data, offset, n);
+        }
+    }
+
     /**
      * Reset data using a 2-d array of doubles.
      *
      * @param data the new data
      */
     public void setData(double[][] data) {
-        reset(data.length, data[0].length);
+        allocate(data.length, data[0].length);
         for (int i = 0; i < data.length; i++) {
-            for (int j = 0; j < data[0].length; j++) {
-                this.setLogicalValue(i, j, data[i][j], false);
+            if (data[i].length != numColumns) {
+                throw new IllegalArgumentException(
+                        "Rows do not all have the same length");
             }
+            setRow(i, data[i]);
         }
-        fireTableDataChanged();
+        fireTableStructureChanged();
     }
 
     /**
@@ -123,12 +356,7 @@ public class NumericTable extends MutableTable<Double> implements
      * @param data the values to use in setting the current row
      */
     public void setVectorCurrentRow(double[] data) {
-        int i = getCurrentRow();
-        for (int j = 0; j < data.length; j++) {
-            if (j < this.getLogicalColumnCount()) {
-                this.setLogicalValue(i, j, data[j], false);
-            }
-        }
+        setRow(getCurrentRow(), data);
         fireTableDataChanged();
     }
 
@@ -138,12 +366,7 @@ public class NumericTable extends MutableTable<Double> implements
      * @return the values of the current row
      */
     public double[] getVectorCurrentRow() {
-        double[] retVec = new double[this.getColumnCount()];
-        int currRow = getCurrentRow();
-        for (int i = 0; i < this.getLogicalColumnCount(); i++) {
-            retVec[i] = this.getLogicalValueAt(currRow, i);
-        }
-        return retVec;
+        return getRow(getCurrentRow(), new double[numColumns]);
     }
 
     /**
@@ -153,7 +376,7 @@ public class NumericTable extends MutableTable<Double> implements
      * @param value value to set
      */
     public void setValueCurrentRow(final int column, final double value) {
-        setLogicalValue(currentRow, column, value, true);
+        setLogicalDouble(currentRow, column, value, true);
     }
 
     /**
@@ -163,7 +386,7 @@ public class NumericTable extends MutableTable<Double> implements
      * @return value of this column in current row
      */
     public double getValueCurrentRow(final int column) {
-        return getLogicalValueAt(currentRow, column);
+        return getLogicalDoubleAt(currentRow, column);
     }
 
     @Override
@@ -187,17 +410,309 @@ public class NumericTable extends MutableTable<Double> implements
         }
     }
 
+    @Override
+    public void addRow(final Double value) {
+        insertRow(numRows, value, false);
+        this.fireTableRowsInserted(numRows - 1, numRows - 1);
+    }
+
+    @Override
+    public void addRows(final int rowsToAdd, final Double value) {
+        modifyRowsColumns(numRows + rowsToAdd, numColumns, value);
+    }
+
+    @Override
+    public void insertRow(final int at, final Double value) {
+        insertRow(at, value, false);
+        this.fireTableRowsInserted(at, at);
+    }
+
+    /**
+     * Insert a row, shifting the rows below it down.
+     *
+     * @param at index of the new row
+     * @param value value for the cells of the new row
+     * @param fireEvent whether to fire an event
+     */
+    private void insertRow(final int at, final double value,
+            final boolean fireEvent) {
+        if (at < 0 || at > numRows) {
+            throw new IndexOutOfBoundsException("Row " + at + " of "
+                    + numRows);
+        }
+        ensureCapacity((numRows + 1) * numColumns);
+        move(at * numColumns, (at + 1) * numColumns, (numRows - at)
+                * numColumns);
+        fillRange(at * numColumns, (at + 1) * numColumns, value);
+        numRows++;
+        if (fireEvent) {
+            this.fireTableRowsInserted(at, at);
+        }
+    }
+
+    @Override
+    public void removeRow(final int rowToRemoveIndex, boolean fireEvent) {
+        // Don't allow getRowCount() to go to 0
+        if (numRows <= 1) {
+            return;
+        }
+        checkIndex(rowToRemoveIndex, 0);
+        move((rowToRemoveIndex + 1) * numColumns, rowToRemoveIndex
+                * numColumns, (numRows - rowToRemoveIndex - 1) * numColumns);
+        numRows--;
+        if (fireEvent) {
+            this.fireTableRowsDeleted(rowToRemoveIndex, rowToRemoveIndex);
+        }
+    }
+
+    @Override
+    public void addColumn(final Double value) {
+        insertColumn(numColumns, value);
+    }
+
+    @Override
+    public void addColumns(final int colsToAdd, final Double value) {
+        modifyRowsColumns(numRows, numColumns + colsToAdd, value);
+    }
+
+    @Override
+    public void insertColumn(final int at, final Double value) {
+        insertColumns(at, 1, value);
+        this.fireTableStructureChanged();
+    }
+
+    /**
+     * Insert columns, shifting the columns to their right over. Rows are moved
+     * from the last to the first, so the array is rearranged in place.
+     *
+     * @param at index of the first new column
+     * @param count number of columns to insert
+     * @param value value for the cells of the new columns
+     */
+    private void insertColumns(final int at, final int count,
+            final double value) {
+        if (at < 0 || at > numColumns) {
+            throw new IndexOutOfBoundsException("Column " + at + " of "
+                    + numColumns);
+        }
+        int newColumns = numColumns + count;
+        ensureCapacity(numRows * newColumns);
+        for (int i = numRows - 1; i >= 0; i--) {
+            int from = i * numColumns;
+            int to = i * newColumns;
+            move(from + at, to + at + count, numColumns - at);
+            move(from, to, at);
+            fillRange(to + at, to + at + count, value);
+        }
+        numColumns = newColumns;
+    }
+
+    @Override
+    public void removeColumn(final int columnToRemoveIndex, boolean fireEvent) {
+        // Don't allow no columns
+        if (numColumns <= 1) {
+            return;
+        }
+        checkIndex(0, columnToRemoveIndex);
+        removeColumns(columnToRemoveIndex, 1);
+        if (fireEvent) {
+            this.fireTableStructureChanged();
+        }
+    }
+
+    /**
+     * Remove columns, shifting the columns to their right over. Rows are
+     * moved from the first to the last, so the array is rearranged in place.
+     *
+     * @param at index of the first column to remove
+     * @param count number of columns to remove
+     */
+    private void removeColumns(final int at, final int count) {
+        int newColumns = numColumns - count;
+        for (int i = 0; i < numRows; i++) {
+            int from = i * numColumns;
+            int to = i * newColumns;
+            move(from, to, at);
+            move(from + at + count, to + at, newColumns - at);
+        }
+        numColumns = newColumns;
+    }
+
+    @Override
+    public void modifyRowsColumns(int newNumRows, int newNumCols, Double value) {
+        if (newNumCols > numColumns) {
+            insertColumns(numColumns, newNumCols - numColumns, value);
+        } else if (newNumCols < numColumns) {
+            // Keep at least one column
+            int count = numColumns - Math.max(newNumCols, 1);
+            removeColumns(numColumns - count, count);
+        }
+        if (newNumRows > numRows) {
+            ensureCapacity(newNumRows * numColumns);
+            fillRange(numRows * numColumns, newNumRows * numColumns, value);
+            numRows = newNumRows;
+        } else if (newNumRows < numRows) {
+            // Keep at least one row
+            numRows = Math.max(newNumRows, 1);
+        }
+        fireTableStructureChanged();
+    }
+
+    @Override
+    public void reset(int rows, int cols) {
+        init(rows, cols);
+    }
+
+    @Override
+    public void fill(final Double value) {
+        fillRange(0, numRows * numColumns, value);
+        this.fireTableDataChanged();
+    }
+
+    /**
+     * Shuffle the rows of the dataset.
+     */
+    @Override
+    public void shuffle() {
+        Random rand = new Random();
+        double[] row = new double[numColumns];
+        double[] other = new double[numColumns];
+        for (int i = numRows - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            if (i != j) {
+                getRow(i, row);
+                getRow(j, other);
+                setRow(i, other);
+                setRow(j, row);
+            }
+        }
+        fireTableDataChanged();
+    }
+
+    @Override
+    public List<Double> asFlatList() {
+        List<Double> list = new ArrayList<Double>(numRows * numColumns);
+        for (int i = 0; i < numRows * numColumns; i++) {
+            list.add(singlePrecision ? floatData[i] : data[i]);
+        }
+        return list;
+    }
+
+    /**
+     * Returns a copy of the table to be saved. The values are saved as text,
+     * since XStream writes arrays one element at a time.
+     *
+     * @return a copy of this table holding its values as text
+     */
+    private Object writeReplace() {
+        StringBuilder text = new StringBuilder(numRows * numColumns * 8);
+        for (int i = 0; i < numRows * numColumns; i++) {
+            if (i > 0) {
+                text.append(i % numColumns == 0 ? '\n' : ' ');
+            }
+            if (singlePrecision) {
+                text.append(floatData[i]);
+            } else {
+                text.append(data[i]);
+            }
+        }
+        try {
+            NumericTable copy = (NumericTable) clone();
+            copy.data = null;
+            copy.floatData = null;
+            copy.savedValues = text.toString();
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Standard method call made to objects after they are deserialized. See:
      * http://java.sun.com/developer/JDCTechTips/2002/tt0205.html#tip2
      * http://xstream.codehaus.org/faq.html
      *
+     * Restores the values from the saved text, or from the list of rows that
+     * older versions saved.
+     *
      * @return Initialized object.
      */
     private Object readResolve() {
+        if (savedValues != null) {
+            allocate(numRows, numColumns);
+            int i = 0;
+            int start = 0;
+            int length = savedValues.length();
+            while (start < length && i < numRows * numColumns) {
+                int end = start;
+                while (end < length && savedValues.charAt(end) != ' '
+                        && savedValues.charAt(end) != '\n') {
+                    end++;
+                }
+                if (end > start) {
+                    double value = Double.parseDouble(savedValues.substring(
+                            start, end));
+                    if (singlePrecision) {
+                        floatData[i++] = (float) value;
+                    } else {
+                        data[i++] = value;
+                    }
+                }
+                start = end + 1;
+            }
+            savedValues = null;
+        } else if (rowData != null && !rowData.isEmpty()) {
+            allocate(rowData.size(), rowData.get(0).size());
+            for (int i = 0; i < numRows; i++) {
+                for (int j = 0; j < numColumns; j++) {
+                    Double value = rowData.get(i).get(j);
+                    if (value != null) {
+                        setLogicalDouble(i, j, value, false);
+                    }
+                }
+            }
+            rowData.clear();
+        } else {
+            allocate(numRows, numColumns);
+        }
         return this;
     }
 
+    /**
+     * @return whether values are stored as floats rather than doubles
+     */
+    public boolean isSinglePrecision() {
+        return singlePrecision;
+    }
+
+    /**
+     * Set whether values are stored as floats, which halves the memory used by
+     * the table at the cost of precision. Existing values are converted.
+     *
+     * @param singlePrecision whether to store values as floats
+     */
+    public void setSinglePrecision(final boolean singlePrecision) {
+        if (singlePrecision == this.singlePrecision) {
+            return;
+        }
+        int size = numRows * numColumns;
+        if (singlePrecision) {
+            floatData = new float[size];
+            for (int i = 0; i < size; i++) {
+                floatData[i] = (float) data[i];
+            }
+            data = null;
+        } else {
+            data = new double[size];
+            for (int i = 0; i < size; i++) {
+                data[i] = floatData[i];
+            }
+            floatData = null;
+        }
+        this.singlePrecision = singlePrecision;
+        fireTableDataChanged();
+    }
+
     /**
      * @return the iterationMode
      */
@@ -261,26 +776,20 @@ public class NumericTable extends MutableTable<Double> implements
     public void readData(final File file, final boolean allowRowChanges,
             final boolean allowColumnChanges) throws TableDataException {
         String[][] values = Utils.getStringMatrix(file);
-        try {
-            checkData(allowRowChanges, allowColumnChanges, values);
-            reset(values.length, values[0].length);
-            for (int i = 0; i < values.length; i++) {
-                for (int j = 0; j < values[0].length; j++) {
-                    if ((values[i][j]).length() > 0) {
-                        Double num = new Double(0);
-                        try {
-                            num = Double.valueOf(values[i][j]);
-                        } catch (NumberFormatException exception) {
-                        } finally {
-                            setLogicalValue(i, j, num, false);
-                        }
+        checkData(allowRowChanges, allowColumnChanges, values);
+        allocate(values.length, values[0].length);
+        for (int i = 0; i < values.length; i++) {
+            for (int j = 0; j < Math.min(numColumns, values[i].length); j++) {
+                if ((values[i][j]).length() > 0) {
+                    try {
+                        setLogicalDouble(i, j, Double.parseDouble(values[i][j]),
+                                false);
+                    } catch (NumberFormatException exception) {
                     }
                 }
             }
-            fireTableStructureChanged();
-        } catch (TableDataException tde) {
-            throw tde;
         }
+        fireTableStructureChanged();
     }
 
     /**
@@ -289,12 +798,9 @@ public class NumericTable extends MutableTable<Double> implements
      * @return representation of table as double array
      */
     public double[][] asDoubleArray() {
-
-        double returnList[][] = new double[getRowCount()][getLogicalColumnCount()];
-        for (int i = 0; i < getRowCount(); i++) {
-            for (int j = 0; j < getLogicalColumnCount(); j++) {
-                returnList[i][j] = this.getLogicalValueAt(i, j);
-            }
+        double returnList[][] = new double[numRows][numColumns];
+        for (int i = 0; i < numRows; i++) {
+            getRow(i, returnList[i]);
         }
         return returnList;
     }
@@ -309,7 +815,7 @@ public class NumericTable extends MutableTable<Double> implements
         for (CellIndex cellIndex : cellIndices) {
             int row = cellIndex.row;
             int col = cellIndex.col;
-            this.setLogicalValue(row, col, val, false);
+            this.setLogicalDouble(row, col, val, false);
         }
         this.fireTableDataChanged();
     }
@@ -326,18 +832,57 @@ public class NumericTable extends MutableTable<Double> implements
             int row = cellIndex.row;
             int col = cellIndex.col;
             double value = (rand.nextDouble() * range) + getLowerBound();
-            setLogicalValue(row, col, value, false);
+            setLogicalDouble(row, col, value, false);
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Randomize the whole table within the table's bounds.
+     */
+    public void randomize() {
+        Random rand = new Random();
+        int range = getUpperBound() - getLowerBound();
+        for (int i = 0; i < numRows * numColumns; i++) {
+            double value = (rand.nextDouble() * range) + getLowerBound();
+            if (singlePrecision) {
+                floatData[i] = (float) value;
+            } else {
+                data[i] = value;
+            }
         }
         fireTableDataChanged();
     }
 
     /**
-     * Normalize the whole table.
+     * Normalize the whole table, each column separately, in two passes over
+     * the rows.
      */
     public void normalizeTable() {
-        for (int i = 0; i < this.getLogicalColumnCount(); i++) {
-            normalizeColumn(i);
+        double[] min = new double[numColumns];
+        double[] max = new double[numColumns];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < numRows * numColumns; i++) {
+            int j = i % numColumns;
+            double val = singlePrecision ? floatData[i] : data[i];
+            if (val > max[j]) {
+                max[j] = val;
+            }
+            if (val < min[j]) {
+                min[j] = val;
+            }
+        }
+        for (int i = 0; i < numRows * numColumns; i++) {
+            int j = i % numColumns;
+            if (singlePrecision) {
+                floatData[i] = (float) ((floatData[i] - min[j])
+                        / (max[j] - min[j]));
+            } else {
+                data[i] = (data[i] - min[j]) / (max[j] - min[j]);
+            }
         }
+        this.fireTableDataChanged();
     }
 
     /**
@@ -349,7 +894,7 @@ public class NumericTable extends MutableTable<Double> implements
         double max = Double.NEGATIVE_INFINITY;
         double min = Double.POSITIVE_INFINITY;
         for (int i = 0; i < this.getRowCount(); i++) {
-            double val = getLogicalValueAt(i, columnIndex);
+            double val = getLogicalDoubleAt(i, columnIndex);
             if (val > max) {
                 max = val;
             }
@@ -358,12 +903,11 @@ public class NumericTable extends MutableTable<Double> implements
             }
         }
         for (int i = 0; i < this.getRowCount(); i++) {
-            setLogicalValue(i, columnIndex, (getLogicalValueAt(i, columnIndex) - min)
-                    / (max - min), false);
+            setLogicalDouble(i, columnIndex,
+                    (getLogicalDoubleAt(i, columnIndex) - min) / (max - min),
+                    false);
         }
         this.fireTableDataChanged();
     }
 
-
-
 }
@@ -29,6 +29,7 @@ import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.log4j.Logger;
+import org.simbrain.util.profiling.Profiler;
 
 /**
  * Manages all the couplings for a Workspace instance.
@@ -201,11 +202,31 @@ public class CouplingManager {
      */
     public void updateAllCouplings() {
         LOGGER.debug("updating all couplings");
+        if (Profiler.isEnabled()) {
+            Profiler.time(Profiler.COUPLINGS, () -> "Read producers",
+                    this::setAllBuffers);
+            Profiler.time(Profiler.COUPLINGS, () -> "Write consumers",
+                    this::updateAllConsumers);
+        } else {
+            setAllBuffers();
+            updateAllConsumers();
+        }
+    }
+
+    /**
+     * Buffer the producer values of all couplings.
+     */
+    private void setAllBuffers() {
         for (Coupling<?> coupling : getCouplings()) {
             LOGGER.trace(coupling.getClass());
             coupling.setBuffer();
         }
+    }
 
+    /**
+     * Send the buffered values of all couplings to their consumers.
+     */
+    private void updateAllConsumers() {
         for (Coupling<?> coupling : getCouplings()) {
             coupling.update();
         }
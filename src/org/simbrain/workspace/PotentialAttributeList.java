@@ -0,0 +1,326 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.workspace;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.RandomAccess;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * <b>PotentialAttributeList</b> is a list of potential attributes that
+ * creates each attribute only when it is asked for. Components with very many
+ * attributes (e.g. a network with a million synapses) return one from
+ * {@link WorkspaceComponent#getPotentialProducers()} and
+ * {@link WorkspaceComponent#getPotentialConsumers()}, so that the coupling
+ * manager can show the list, and couplings can be made from ranges of it,
+ * without creating an attribute and a description for every element.
+ * <p>
+ * The list is divided into named sections, e.g. the activations of the
+ * neurons of one group. A section holds the objects that have the attribute,
+ * obtained from a supplier the first time one of them is needed, and a
+ * factory that turns an object into an attribute. Sections can be searched by
+ * keys such as ids and labels; the search index is built on the first search.
+ * <p>
+ * The list is a snapshot: it does not change when the component does.
+ * Components fire
+ * {@link WorkspaceComponent#firePotentialAttributesChanged()} and a new list
+ * is fetched instead.
+ *
+ * @param <T> the type of potential attribute
+ */
+public class PotentialAttributeList<T extends PotentialAttribute> extends
+        AbstractList<T> implements RandomAccess {
+
+    /** The sections, in order. */
+    private final List<Section<T>> sections = new ArrayList<Section<T>>();
+
+    /** Index in this list of the first attribute of each section. */
+    private int[] starts = new int[0];
+
+    /** Total number of attributes. */
+    private int size;
+
+    /** Lower case search keys, sorted; built on the first search. */
+    private String[] indexKeys;
+
+    /** The list index of the attribute each search key belongs to. */
+    private int[] indexPositions;
+
+    /**
+     * Add a section whose objects are obtained when first needed.
+     *
+     * @param name name of the section, e.g. "Neuron Activation (Group 1)"
+     * @param size number of objects the supplier will return
+     * @param objects supplies the objects that have the attribute
+     * @param factory creates the attribute of an object
+     * @param keys functions giving the search keys of an object (e.g. its id
+     *            and label); null or empty keys are ignored
+     */
+    public void addSection(final String name, final int size,
+            final Supplier<? extends List<?>> objects,
+            final Function<Object, ? extends T> factory,
+            final List<Function<Object, String>> keys) {
+        if (size == 0) {
+            return;
+        }
+        sections.add(new Section<T>(name, size, objects, factory, keys));
+        starts = Arrays.copyOf(starts, sections.size());
+        starts[sections.size() - 1] = this.size;
+        this.size += size;
+        indexKeys = null;
+    }
+
+    /**
+     * Add a section of attributes that have already been created. Suitable
+     * for short lists, e.g. one attribute per group. The attributes are
+     * searched by description.
+     *
+     * @param name name of the section
+     * @param attributes the attributes
+     */
+    @SuppressWarnings("unchecked")
+    public void addSection(final String name,
+            final List<? extends T> attributes) {
+        addSection(name, attributes.size(), () -> attributes,
+                object -> (T) object, Collections.singletonList(
+                        object -> ((PotentialAttribute) object)
+                                .getDescription()));
+    }
+
+    @Override
+    public T get(final int index) {
+        int s = sectionOf(index);
+        Section<T> section = sections.get(s);
+        return section.factory.apply(section.getObject(index - starts[s]));
+    }
+
+    /**
+     * Returns the object that has the attribute at an index, without creating
+     * the attribute.
+     *
+     * @param index index in this list
+     * @return the object
+     */
+    public Object getObject(final int index) {
+        int s = sectionOf(index);
+        return sections.get(s).getObject(index - starts[s]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of sections
+     */
+    public int getSectionCount() {
+        return sections.size();
+    }
+
+    /**
+     * @param section section index
+     * @return the name of a section
+     */
+    public String getSectionName(final int section) {
+        return sections.get(section).name;
+    }
+
+    /**
+     * @param section section index
+     * @return the index in this list of the first attribute of a section
+     */
+    public int getSectionStart(final int section) {
+        return starts[section];
+    }
+
+    /**
+     * @param section section index
+     * @return the number of attributes in a section
+     */
+    public int getSectionSize(final int section) {
+        return sections.get(section).size;
+    }
+
+    /**
+     * Returns the section an index falls in.
+     *
+     * @param index index in this list
+     * @return the section index
+     */
+    public int sectionOf(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of "
+                    + size);
+        }
+        int s = Arrays.binarySearch(starts, index);
+        return s >= 0 ? s : -s - 2;
+    }
+
+    /**
+     * Find the attributes with a search key that starts with some text,
+     * ignoring case.
+     *
+     * @param text the text to search for
+     * @return the indices of matching attributes, in ascending order
+     */
+    public int[] search(final String text) {
+        buildIndex();
+        String prefix = text.toLowerCase(Locale.ROOT);
+        int i = Arrays.binarySearch(indexKeys, prefix);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        BitSet matches = new BitSet(size);
+        for (; i < indexKeys.length && indexKeys[i].startsWith(prefix); i++) {
+            matches.set(indexPositions[i]);
+        }
+        return matches.stream().toArray();
+    }
+
+    /**
+     * Build the search index if it has not been built.
+     */
+    private void buildIndex() {
+        if (indexKeys != null) {
+            return;
+        }
+        List<IndexEntry> entries = new ArrayList<IndexEntry>();
+        for (int s = 0; s < sections.size(); s++) {
+            Section<T> section = sections.get(s);
+            for (int i = 0; i < section.size; i++) {
+                Object object = section.getObject(i);
+                for (Function<Object, String> key : section.keys) {
+                    String value = key.apply(object);
+                    if (value != null && !value.isEmpty()) {
+                        entries.add(new IndexEntry(
+                                value.toLowerCase(Locale.ROOT),
+                                starts[s] + i));
+                    }
+                }
+            }
+        }
+        IndexEntry[] sorted = entries.toArray(new IndexEntry[entries.size()]);
+        Arrays.parallelSort(sorted, (a, b) -> a.key.compareTo(b.key));
+        String[] sortedKeys = new String[sorted.length];
+        int[] sortedPositions = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sortedKeys[i] = sorted[i].key;
+            sortedPositions[i] = sorted[i].position;
+        }
+        indexPositions = sortedPositions;
+        indexKeys = sortedKeys;
+    }
+
+    /**
+     * A search key and the list index it belongs to.
+     */
+    private static class IndexEntry {
+
+        /** Lower case key. */
+        private final String key;
+
+        /** Index in the list. */
+        private final int position;
+
+        /**
+         * Construct an entry.
+         *
+         * @param key lower case key
+         * @param position index in the list
+         */
+        IndexEntry(final String key, final int position) {
+            this.key = key;
+            this.position = position;
+        }
+    }
+
+    /**
+     * A named run of attributes of the same kind.
+     *
+     * @param <T> the type of potential attribute
+     */
+    private static class Section<T> {
+
+        /** Name of the section. */
+        private final String name;
+
+        /** Number of objects. */
+        private final int size;
+
+        /** Supplies the objects. */
+        private final Supplier<? extends List<?>> supplier;
+
+        /** Creates the attribute of an object. */
+        private final Function<Object, ? extends T> factory;
+
+        /** Search keys of an object. */
+        private final List<Function<Object, String>> keys;
+
+        /** The objects, once supplied. */
+        private List<?> objects;
+
+        /**
+         * Construct a section.
+         *
+         * @param name name
+         * @param size number of objects
+         * @param supplier supplies the objects
+         * @param factory creates attributes
+         * @param keys search keys
+         */
+        Section(final String name, final int size,
+                final Supplier<? extends List<?>> supplier,
+                final Function<Object, ? extends T> factory,
+                final List<Function<Object, String>> keys) {
+            this.name = name;
+            this.size = size;
+            this.supplier = supplier;
+            this.factory = factory;
+            this.keys = keys;
+        }
+
+        /**
+         * Returns one of the objects, obtaining them all from the supplier
+         * the first time.
+         *
+         * @param i index in the section
+         * @return the object
+         */
+        private synchronized Object getObject(final int i) {
+            if (objects == null) {
+                objects = supplier.get();
+                if (objects.size() < size) {
+                    throw new IllegalStateException("Section " + name
+                            + " has " + objects.size() + " objects, expected "
+                            + size);
+                }
+            }
+            return objects.get(i);
+        }
+    }
+
+}
@@ -19,7 +19,6 @@
 package org.simbrain.workspace;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -653,7 +652,7 @@ public class Workspace {
         try {
             if (theFile != null) {
                 clearWorkspace();
-                serializer.deserialize(new FileInputStream(theFile));
+                serializer.deserialize(theFile);
                 setCurrentFile(theFile);
                 setWorkspaceChanged(false);
                 fireNewWorkspaceOpened();
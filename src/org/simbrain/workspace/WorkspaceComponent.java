@@ -25,6 +25,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.function.Function;
 
 import org.apache.log4j.Logger;
 import org.simbrain.workspace.gui.ComponentPanel;
@@ -263,6 +264,18 @@ public abstract class WorkspaceComponent {
         return null;
     }
 
+    /**
+     * Returns a function that finds objects based on keys, for looking up many
+     * keys at once (e.g. when the couplings of a workspace are restored). By
+     * default this is {@link #getObjectFromKey(String)}; components whose
+     * lookups are slow should override this to build an index first.
+     *
+     * @return function from object keys to objects
+     */
+    public Function<String, Object> createKeyIndex() {
+        return this::getObjectFromKey;
+    }
+
     /**
      * Returns a unique key associated with an object. Used in serializing
      * attributes. Any class that produces attributes should override this for
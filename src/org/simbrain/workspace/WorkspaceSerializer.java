@@ -23,16 +23,27 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
@@ -148,6 +159,43 @@ public class WorkspaceSerializer {
         }
     }
 
+    /**
+     * Deserializes a workspace from a zip file. Entries are read directly from
+     * the file as they are needed, rather than copied into memory first.
+     *
+     * @param file The zip file to read.
+     * @throws IOException If an IO error occurs.
+     */
+    public void deserialize(final File file) throws IOException {
+        Collection<? extends String> empty = Collections.emptySet();
+        deserialize(file, empty);
+    }
+
+    /**
+     * Deserializes a workspace from a zip file. Entries are read directly from
+     * the file as they are needed, rather than copied into memory first.
+     *
+     * @param file The zip file to read.
+     * @param exclude The list of uris to ignore on import.
+     * @throws IOException If an IO error occurs.
+     */
+    public void deserialize(final File file,
+            final Collection<? extends String> exclude) throws IOException {
+        try (final ZipFile zip = new ZipFile(file)) {
+            deserialize(new ArchiveEntries() {
+                @Override
+                public InputStream open(final String uri) throws IOException {
+                    ZipEntry entry = zip.getEntry(uri);
+                    if (entry == null) {
+                        throw new FileNotFoundException(uri + " not found in "
+                                + file);
+                    }
+                    return zip.getInputStream(entry);
+                }
+            }, exclude);
+        }
+    }
+
     /**
      * Deserializes all the entries in the provided stream.
      *
@@ -160,85 +208,110 @@ public class WorkspaceSerializer {
     }
 
     /**
-     * Creates a workspace from a zip compressed input stream.
+     * Creates a workspace from a zip compressed input stream. The stream can
+     * only be read in order, so each entry is read into memory once; prefer
+     * {@link #deserialize(File, Collection)} when the archive is a file.
      *
      * @param stream The stream to read from. This is expected to be zip
      *            compressed.
      * @param exclude The list of uris to ignore on import.
      * @throws IOException if an IO error occurs.
      */
-    @SuppressWarnings("unchecked")
     public void deserialize(final InputStream stream,
             final Collection<? extends String> exclude) throws IOException {
-        Map<String, byte[]> entries = new HashMap<String, byte[]>();
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-
-        byte[] buffer = new byte[BUFFER_SIZE];
-
-        for (int read; (read = stream.read(buffer)) >= 0;) {
-            bytes.write(buffer, 0, read);
-        }
-
-        ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(
-                bytes.toByteArray()));
-        ArchiveContents contents = null;
-        WorkspaceComponentDeserializer componentDeserializer = new WorkspaceComponentDeserializer();
-
-        ZipEntry entry = zip.getNextEntry();
-
-        for (ZipEntry next; entry != null; entry = next) {
-            next = zip.getNextEntry();
-            entries.put(entry.getName(), new byte[(int) entry.getSize()]);
+        final Map<String, byte[]> entries = new HashMap<String, byte[]>();
+        ZipInputStream zip = new ZipInputStream(stream);
+        for (ZipEntry entry; (entry = zip.getNextEntry()) != null;) {
+            entries.put(entry.getName(), readEntry(zip, entry.getSize()));
         }
+        deserialize(uri -> {
+            byte[] data = entries.get(uri);
+            if (data == null) {
+                throw new FileNotFoundException(uri + " not found in archive");
+            }
+            return new ByteArrayInputStream(data);
+        }, exclude);
+    }
 
-        zip = new ZipInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    /**
+     * Source of the entries of a workspace archive.
+     */
+    private interface ArchiveEntries {
+
+        /**
+         * Opens an entry for reading. The entry may be opened from any thread.
+         *
+         * @param uri the name of the entry
+         * @return a stream of the entry's contents, closed by the caller
+         * @throws IOException if the entry is missing or cannot be read
+         */
+        InputStream open(String uri) throws IOException;
+    }
 
-        while ((entry = zip.getNextEntry()) != null) {
-            byte[] data = entries.get(entry.getName());
-            read(zip, data);
-        }
+    /**
+     * Creates a workspace from the entries of an archive. Components are
+     * decoded in parallel, then added to the workspace in archive order on the
+     * calling thread. Couplings are restored last, with each component's
+     * objects looked up through an index built once per component.
+     *
+     * @param entries The entries of the archive.
+     * @param exclude The list of uris to ignore on import.
+     * @throws IOException if an IO error occurs.
+     */
+    @SuppressWarnings("unchecked")
+    private void deserialize(final ArchiveEntries entries,
+            final Collection<? extends String> exclude) throws IOException {
+        WorkspaceComponentDeserializer componentDeserializer = new WorkspaceComponentDeserializer();
 
         // Get the archived contents file.
-        contents = (ArchiveContents) ArchiveContents.xstream().fromXML(
-                new ByteArrayInputStream(entries.get("contents.xml")));
+        ArchiveContents contents;
+        try (InputStream input = entries.open("contents.xml")) {
+            contents = (ArchiveContents) ArchiveContents.xstream().fromXML(
+                    input);
+        }
 
         // Add Components
+        List<ArchiveContents.ArchivedComponent> archivedComponents = new ArrayList<ArchiveContents.ArchivedComponent>();
         if (contents.getArchivedComponents() != null) {
             for (ArchiveContents.ArchivedComponent archivedComponent : contents
                     .getArchivedComponents()) {
-                if (exclude.contains(archivedComponent.getUri())) {
-                    continue;
+                if (!exclude.contains(archivedComponent.getUri())) {
+                    archivedComponents.add(archivedComponent);
                 }
-
-                WorkspaceComponent wc = componentDeserializer
-                        .deserializeWorkspaceComponent(
-                                archivedComponent,
-                                new ByteArrayInputStream(entries
-                                        .get(archivedComponent.getUri())));
-
-                // This will cause a desktop component (GuiComponent) to be
-                // created
-                workspace.addWorkspaceComponent(wc);
-
-                if (archivedComponent.getDesktopComponent() != null) {
-                    Rectangle bounds = (Rectangle) new XStream(new DomDriver())
-                            .fromXML(new ByteArrayInputStream(entries
-                                    .get(archivedComponent
-                                            .getDesktopComponent().getUri())));
-                    GuiComponent<?> desktopComponent = desktop
-                            .getDesktopComponent(wc);
-                    desktopComponent.getParentFrame().setBounds(bounds);
+            }
+        }
+        List<WorkspaceComponent> components = deserializeComponents(entries,
+                componentDeserializer, archivedComponents);
+        for (int i = 0; i < components.size(); i++) {
+            ArchiveContents.ArchivedComponent archivedComponent = archivedComponents
+                    .get(i);
+            WorkspaceComponent wc = components.get(i);
+
+            // This will cause a desktop component (GuiComponent) to be
+            // created
+            workspace.addWorkspaceComponent(wc);
+
+            if (archivedComponent.getDesktopComponent() != null) {
+                Rectangle bounds;
+                try (InputStream input = entries.open(archivedComponent
+                        .getDesktopComponent().getUri())) {
+                    bounds = (Rectangle) new XStream(new DomDriver())
+                            .fromXML(input);
                 }
+                GuiComponent<?> desktopComponent = desktop
+                        .getDesktopComponent(wc);
+                desktopComponent.getParentFrame().setBounds(bounds);
             }
         }
 
         // Add Couplings
         if (contents.getArchivedCouplings() != null) {
+            Map<WorkspaceComponent, Function<String, Object>> keyIndices = new HashMap<WorkspaceComponent, Function<String, Object>>();
             for (ArchiveContents.ArchivedCoupling couplingRef : contents
                     .getArchivedCouplings()) {
                 if (exclude.contains(couplingRef.getArchivedProducer()
                         .getParentRef())
-                        || exclude.contains(couplingRef.getArchivedProducer()
+                        || exclude.contains(couplingRef.getArchivedConsumer()
                                 .getParentRef())) {
                     continue;
                 }
@@ -250,12 +323,18 @@ public class WorkspaceSerializer {
                 WorkspaceComponent targetComponent = componentDeserializer
                         .getComponent(couplingRef.getArchivedConsumer()
                                 .getParentRef());
+                Function<String, Object> sourceKeys = keyIndices
+                        .computeIfAbsent(sourceComponent,
+                                WorkspaceComponent::createKeyIndex);
+                Function<String, Object> targetKeys = keyIndices
+                        .computeIfAbsent(targetComponent,
+                                WorkspaceComponent::createKeyIndex);
 
                 // Get attributes from references
                 Producer<?> producer = sourceComponent
                         .getAttributeManager()
                         .createProducer(
-                                sourceComponent.getObjectFromKey(couplingRef
+                                sourceKeys.apply(couplingRef
                                         .getArchivedProducer()
                                         .getBaseObjectKey()),
                                 couplingRef.getArchivedProducer()
@@ -272,7 +351,7 @@ public class WorkspaceSerializer {
                         .getArgumentDataTypes();
                 Consumer<?> consumer = targetComponent.getAttributeManager()
                         .createConsumer(
-                                targetComponent.getObjectFromKey(couplingRef
+                                targetKeys.apply(couplingRef
                                         .getArchivedConsumer()
                                         .getBaseObjectKey()),
                                 couplingRef.getArchivedConsumer()
@@ -311,6 +390,86 @@ public class WorkspaceSerializer {
         }
     }
 
+    /**
+     * Decodes archived components in parallel, one task per component. Each
+     * task streams its own entry to the component's deserializer.
+     *
+     * @param entries The entries of the archive.
+     * @param componentDeserializer The deserializer, which records the uri of
+     *            each component.
+     * @param archivedComponents The components to decode.
+     * @return the components, in the same order as
+     *         <code>archivedComponents</code>
+     * @throws IOException if an entry cannot be read
+     */
+    private static List<WorkspaceComponent> deserializeComponents(
+            final ArchiveEntries entries,
+            final WorkspaceComponentDeserializer componentDeserializer,
+            final List<ArchiveContents.ArchivedComponent> archivedComponents)
+            throws IOException {
+        List<WorkspaceComponent> components = new ArrayList<WorkspaceComponent>();
+        if (archivedComponents.isEmpty()) {
+            return components;
+        }
+        List<Callable<WorkspaceComponent>> tasks = new ArrayList<Callable<WorkspaceComponent>>();
+        for (final ArchiveContents.ArchivedComponent archivedComponent : archivedComponents) {
+            tasks.add(() -> {
+                try (InputStream input = entries.open(archivedComponent
+                        .getUri())) {
+                    return componentDeserializer.deserializeWorkspaceComponent(
+                            archivedComponent, input);
+                }
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(
+                tasks.size(), Runtime.getRuntime().availableProcessors()));
+        try {
+            for (Future<WorkspaceComponent> future : executor.invokeAll(tasks)) {
+                components.add(future.get());
+            }
+            return components;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(
+                    "Interrupted while opening workspace components");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the rest of the current zip entry.
+     *
+     * @param zip the stream, positioned at the start of an entry
+     * @param size the size of the entry, or -1 if it is not known
+     * @return the contents of the entry
+     * @throws IOException if there is an IO error
+     */
+    private static byte[] readEntry(final ZipInputStream zip, final long size)
+            throws IOException {
+        if (size >= 0) {
+            byte[] bytes = new byte[(int) size];
+            read(zip, bytes);
+            return bytes;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (int read; (read = zip.read(buffer)) >= 0;) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
     /**
      * Helper method that will read the InputStream repeatedly until the given
      * array is filled.
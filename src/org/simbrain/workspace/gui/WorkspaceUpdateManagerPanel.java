@@ -42,6 +42,7 @@ import javax.swing.TransferHandler;
 import org.simbrain.resource.ResourceManager;
 import org.simbrain.util.StandardDialog;
 import org.simbrain.util.Utils;
+import org.simbrain.util.profiling.ProfilerPanel;
 import org.simbrain.util.scripteditor.ScriptEditor;
 import org.simbrain.util.widgets.ShowHelpAction;
 import org.simbrain.workspace.Workspace;
@@ -170,6 +171,12 @@ public class WorkspaceUpdateManagerPanel extends JPanel {
             }
         });
         buttonPanel.add(downFullButton);
+        JButton profileButton = new JButton("Profile...");
+        profileButton.setToolTipText(
+                "Show the time spent in each update action and listener");
+        profileButton.addActionListener(
+                e -> ProfilerPanel.showDialog(profileButton));
+        buttonPanel.add(profileButton);
 
         add(buttonPanel, BorderLayout.SOUTH);
 
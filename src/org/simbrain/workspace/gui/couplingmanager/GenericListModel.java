@@ -31,8 +31,8 @@ import javax.swing.ComboBoxModel;
  *
  * @param <E> The type of the items in the model.
  */
-public class GenericListModel<E> extends AbstractListModel implements
-        ComboBoxModel, Iterable<E> {
+public class GenericListModel<E> extends AbstractListModel<E> implements
+        ComboBoxModel<E>, Iterable<E> {
     /** The default serial version id. */
     private static final long serialVersionUID = 1L;
     /** List of consumers. */
@@ -23,22 +23,31 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 
 import javax.swing.DefaultListCellRenderer;
-import javax.swing.DefaultListModel;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JDialog;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.ListCellRenderer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import org.simbrain.workspace.AttributeListener;
 import org.simbrain.workspace.AttributeType;
 import org.simbrain.workspace.CouplingManager;
 import org.simbrain.workspace.PotentialAttribute;
+import org.simbrain.workspace.PotentialAttributeList;
 import org.simbrain.workspace.Workspace;
 import org.simbrain.workspace.WorkspaceComponent;
 import org.simbrain.workspace.WorkspaceListener;
@@ -46,6 +55,12 @@ import org.simbrain.workspace.WorkspaceListener;
 /**
  * Displays a panel with a JComboBox, which the user uses to select a component,
  * and a JList of attributes for that component.
+ * <p>
+ * Components with many attributes return a {@link PotentialAttributeList},
+ * whose attributes are only created as the list is scrolled to them. The list
+ * can then be narrowed to one section (e.g. the neurons of one group) and
+ * searched by id or label, and a contiguous selection is coupled without
+ * creating the attributes in advance.
  */
 public class PotentialAttributePanel extends JPanel implements ActionListener,
         MouseListener {
@@ -57,10 +72,24 @@ public class PotentialAttributePanel extends JPanel implements ActionListener,
     private ComponentDropDownBox componentList;
 
     /** List of Attributes in a specified Component. */
-    private JList attributeList;
+    private JList<PotentialAttribute> attributeList;
 
-    /** List model. */
-    private DefaultListModel model;
+    /** Number of attributes measured to set the width of the list cells. */
+    private static final int MEASURED_CELLS = 100;
+
+    /** All the attributes of the selected component. */
+    private List<? extends PotentialAttribute> attributes = Collections
+            .emptyList();
+
+    /** The attributes shown, after choosing a section and searching. */
+    private List<? extends PotentialAttribute> shownAttributes = Collections
+            .emptyList();
+
+    /** Drop down box for choosing a section of the attributes. */
+    private JComboBox<String> sectionBox = new JComboBox<String>();
+
+    /** Text field for searching attributes. */
+    private JTextField searchField = new JTextField(10);
 
     // TODO: Get rid of this...
     public enum ProducerOrConsumer {
@@ -85,18 +114,45 @@ public class PotentialAttributePanel extends JPanel implements ActionListener,
         super(new BorderLayout());
         this.producerOrConsumer = attributeType;
 
-        // Set up attribute lists
-        model = new DefaultListModel();
-        attributeList = new JList(model);
+        // Set up attribute lists. Fixing the cell size means only the
+        // visible attributes are rendered, however long the list.
+        attributeList = new JList<PotentialAttribute>(
+                new GenericListModel<PotentialAttribute>(shownAttributes));
         attributeList.setCellRenderer(new AttributeCellRenderer());
+        attributeList.setFixedCellHeight(new DefaultListCellRenderer()
+                .getListCellRendererComponent(attributeList, " ", 0, false,
+                        false).getPreferredSize().height);
         attributeList.addMouseListener(this);
 
+        // Section and search controls
+        sectionBox.addActionListener(e -> updateShownAttributes());
+        searchField.setToolTipText("Show attributes whose id or label starts"
+                + " with this text");
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                updateShownAttributes();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                updateShownAttributes();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                updateShownAttributes();
+            }
+        });
+        JPanel filterPanel = new JPanel();
+        filterPanel.add(sectionBox);
+        filterPanel.add(new JLabel("Search:"));
+        filterPanel.add(searchField);
+
         // Component list box
         componentList = new ComponentDropDownBox(workspace);
         componentList.addActionListener(this);
         JPanel componentPanel = new JPanel();
         componentPanel.setLayout(new BorderLayout());
         componentPanel.add(componentList, BorderLayout.WEST);
+        componentPanel.add(filterPanel, BorderLayout.SOUTH);
         add(componentPanel, BorderLayout.NORTH);
 
         // Scroll pane
@@ -205,50 +261,120 @@ public class PotentialAttributePanel extends JPanel implements ActionListener,
 
         // Set Attribute list
         if (component != null) {
-            model.clear();
             if (producerOrConsumer == ProducerOrConsumer.Producing) {
-                for (PotentialAttribute potentialProducer : component
-                        .getPotentialProducers()) {
-                    model.addElement(potentialProducer);
-                }
+                attributes = component.getPotentialProducers();
             } else if (producerOrConsumer == ProducerOrConsumer.Consuming) {
-                for (PotentialAttribute potentialConsumer : component
-                        .getPotentialConsumers()) {
-                    model.addElement(potentialConsumer);
+                attributes = component.getPotentialConsumers();
+            }
+            setSections();
+        }
+    }
+
+    /**
+     * Fill the section box from the current attributes, keeping the
+     * selected section if it still exists.
+     */
+    private void setSections() {
+        Object selected = sectionBox.getSelectedItem();
+        sectionBox.removeAllItems();
+        sectionBox.addItem("All");
+        if (attributes instanceof PotentialAttributeList) {
+            PotentialAttributeList<?> list =
+                    (PotentialAttributeList<?>) attributes;
+            for (int s = 0; s < list.getSectionCount(); s++) {
+                sectionBox.addItem(list.getSectionName(s));
+            }
+        }
+        if (selected != null) {
+            sectionBox.setSelectedItem(selected);
+        }
+        updateShownAttributes();
+    }
+
+    /**
+     * Show the attributes of the selected section that match the search
+     * text.
+     */
+    private void updateShownAttributes() {
+        int from = 0;
+        int to = attributes.size();
+        PotentialAttributeList<?> sectioned = null;
+        if (attributes instanceof PotentialAttributeList) {
+            sectioned = (PotentialAttributeList<?>) attributes;
+            int section = sectionBox.getSelectedIndex() - 1;
+            if (section >= 0) {
+                from = sectioned.getSectionStart(section);
+                to = from + sectioned.getSectionSize(section);
+            }
+        }
+        String text = searchField.getText().trim();
+        if (text.isEmpty()) {
+            shownAttributes = attributes.subList(from, to);
+        } else if (sectioned != null) {
+            shownAttributes = new IndexedList(attributes,
+                    sectioned.search(text), from, to);
+        } else {
+            List<PotentialAttribute> matches =
+                    new ArrayList<PotentialAttribute>();
+            String lowerText = text.toLowerCase(Locale.ROOT);
+            for (PotentialAttribute attribute : attributes) {
+                if (attribute.getDescription().toLowerCase(Locale.ROOT)
+                        .contains(lowerText)) {
+                    matches.add(attribute);
                 }
             }
+            shownAttributes = matches;
+        }
+        attributeList.setModel(new GenericListModel<PotentialAttribute>(
+                shownAttributes));
+
+        // Size the cells to the widest of the first few attributes
+        ListCellRenderer<? super PotentialAttribute> renderer = attributeList
+                .getCellRenderer();
+        int width = 0;
+        for (int i = 0; i < Math.min(MEASURED_CELLS, shownAttributes.size());
+                i++) {
+            width = Math.max(width, renderer
+                    .getListCellRendererComponent(attributeList,
+                            shownAttributes.get(i), i, false, false)
+                    .getPreferredSize().width);
         }
+        attributeList.setFixedCellWidth(width > 0 ? width : -1);
     }
 
     /**
      * Clear attribute list.
      */
     private void clearList() {
-        model.clear();
+        attributes = Collections.emptyList();
+        setSections();
     }
 
     /**
-     * Returns selected attributes.
+     * Returns selected attributes. A contiguous selection is returned as a
+     * view of the list, so attributes of a lazily built list are only created
+     * as the couplings are made.
      *
      * @return list of selected attributes.
      */
-    public ArrayList<?> getSelectedAttributes() {
-
-        // TODO: Redo
-        if (producerOrConsumer == ProducerOrConsumer.Producing) {
-            ArrayList<PotentialAttribute> ret = new ArrayList<PotentialAttribute>();
-            for (Object object : attributeList.getSelectedValues()) {
-                ret.add((PotentialAttribute) object);
-            }
-            return ret;
-        } else if (producerOrConsumer == ProducerOrConsumer.Consuming) {
-            ArrayList<PotentialAttribute> ret = new ArrayList<PotentialAttribute>();
-            for (Object object : attributeList.getSelectedValues()) {
-                ret.add((PotentialAttribute) object);
-            }
-            return ret;
+    public List<? extends PotentialAttribute> getSelectedAttributes() {
+        int first = attributeList.getMinSelectionIndex();
+        int last = attributeList.getMaxSelectionIndex();
+        if (first < 0) {
+            return Collections.emptyList();
+        }
+        boolean contiguous = true;
+        for (int i = first; i <= last && contiguous; i++) {
+            contiguous = attributeList.isSelectedIndex(i);
+        }
+        if (contiguous) {
+            return shownAttributes.subList(first, last + 1);
         }
-        return null;
+        List<PotentialAttribute> ret = new ArrayList<PotentialAttribute>();
+        for (int i : attributeList.getSelectedIndices()) {
+            ret.add(shownAttributes.get(i));
+        }
+        return ret;
     }
 
     public void mouseClicked(MouseEvent e) {
@@ -266,6 +392,59 @@ public class PotentialAttributePanel extends JPanel implements ActionListener,
     public void mouseReleased(MouseEvent e) {
     }
 
+    /**
+     * A view of the attributes at some indices of a list, restricted to a
+     * range of indices.
+     */
+    private static class IndexedList extends AbstractList<PotentialAttribute> {
+
+        /** The full list. */
+        private final List<? extends PotentialAttribute> list;
+
+        /** Indices in the full list of the attributes in this view. */
+        private final int[] indices;
+
+        /** Index in the index array of the first attribute in this view. */
+        private final int offset;
+
+        /** Number of attributes in this view. */
+        private final int size;
+
+        /**
+         * Construct the view.
+         *
+         * @param list the full list
+         * @param indices indices in the full list, in ascending order
+         * @param from smallest index to include
+         * @param to end of the range of indices to include (exclusive)
+         */
+        IndexedList(final List<? extends PotentialAttribute> list,
+                final int[] indices, final int from, final int to) {
+            this.list = list;
+            this.indices = indices;
+            int i = 0;
+            while (i < indices.length && indices[i] < from) {
+                i++;
+            }
+            int j = i;
+            while (j < indices.length && indices[j] < to) {
+                j++;
+            }
+            offset = i;
+            size = j - i;
+        }
+
+        @Override
+        public PotentialAttribute get(final int index) {
+            return list.get(indices[offset + index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
     /**
      * Custom attribute renderer for JList.
      */
@@ -281,7 +460,7 @@ public class PotentialAttributePanel extends JPanel implements ActionListener,
          * @return
          */
         public java.awt.Component getListCellRendererComponent(
-                final JList list, final Object object, final int index,
+                final JList<?> list, final Object object, final int index,
                 final boolean isSelected, final boolean cellHasFocus) {
             DefaultListCellRenderer renderer = (DefaultListCellRenderer) super
                     .getListCellRendererComponent(list, object, index,
@@ -301,8 +480,8 @@ public class PotentialAttributePanel extends JPanel implements ActionListener,
     /**
      * A JComboBox which listens to the workspace and updates accordingly.
      */
-    private class ComponentDropDownBox extends JComboBox implements
-            WorkspaceListener {
+    private class ComponentDropDownBox extends
+            JComboBox<WorkspaceComponent> implements WorkspaceListener {
 
         /** Reference to workspace. */
         private Workspace workspace;
@@ -317,8 +496,7 @@ public class PotentialAttributePanel extends JPanel implements ActionListener,
             }
             if (this.getModel().getSize() > 0) {
                 this.setSelectedIndex(0);
-                PotentialAttributePanel.this.refresh((WorkspaceComponent) this
-                        .getItemAt(0));
+                PotentialAttributePanel.this.refresh(this.getItemAt(0));
             }
             workspace.addListener(this);
         }
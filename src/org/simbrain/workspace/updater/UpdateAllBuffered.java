@@ -24,6 +24,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 
 import org.apache.log4j.Logger;
+import org.simbrain.util.profiling.Profiler;
 import org.simbrain.workspace.WorkspaceComponent;
 
 /**
@@ -116,7 +117,12 @@ public class UpdateAllBuffered implements UpdateAction {
         componentUpdateExecutor.submit(() -> {
             UpdateThread thread = (UpdateThread) Thread.currentThread();
             thread.setCurrentTask(component);
-            component.update();
+            if (Profiler.isEnabled()) {
+                Profiler.time(Profiler.COMPONENTS, component::getName,
+                        component::update);
+            } else {
+                component.update();
+            }
             thread.clearCurrentTask(component);
             signal.done();
         });
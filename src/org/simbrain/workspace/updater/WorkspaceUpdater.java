@@ -26,6 +26,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import org.apache.log4j.Logger;
+import org.simbrain.util.profiling.Profiler;
 import org.simbrain.workspace.Workspace;
 import org.simbrain.workspace.WorkspaceComponent;
 
@@ -261,7 +262,12 @@ public class WorkspaceUpdater {
 
         // TODO: Test to make sure these actions occur in the proper order
         for (UpdateAction action : updateActionManager.getActionList()) {
-            action.invoke();
+            if (Profiler.isEnabled()) {
+                Profiler.time(Profiler.WORKSPACE_ACTIONS,
+                        action::getDescription, action::invoke);
+            } else {
+                action.invoke();
+            }
         }
 
         synchManager.runTasks();
@@ -413,7 +419,13 @@ public class WorkspaceUpdater {
         notificationEvents.submit(new Runnable() {
             public void run() {
                 for (WorkspaceUpdaterListener listener : updaterListeners) {
-                    listener.workspaceUpdated();
+                    if (Profiler.isEnabled()) {
+                        Profiler.time(Profiler.LISTENERS, () -> listener
+                                .getClass().getName() + ".workspaceUpdated",
+                                listener::workspaceUpdated);
+                    } else {
+                        listener.workspaceUpdated();
+                    }
                 }
             }
         });
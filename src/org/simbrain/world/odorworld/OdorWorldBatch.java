@@ -0,0 +1,644 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.world.odorworld;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.simbrain.util.environment.SmellSource;
+import org.simbrain.world.odorworld.effectors.Effector;
+import org.simbrain.world.odorworld.effectors.StraightMovement;
+import org.simbrain.world.odorworld.effectors.Turning;
+import org.simbrain.world.odorworld.entities.OdorWorldEntity;
+import org.simbrain.world.odorworld.entities.RotatingEntity;
+import org.simbrain.world.odorworld.sensors.Sensor;
+import org.simbrain.world.odorworld.sensors.SmellSensor;
+
+/**
+ * A headless batch of independent odor worlds, intended for reinforcement
+ * learning and evolutionary runs where many agents must be evaluated quickly.
+ * <p>
+ * The batch is created from a template {@link OdorWorld} containing a single
+ * {@link RotatingEntity} agent. Every environment in the batch starts as a copy
+ * of the template, but all state is held in flat primitive arrays (agent
+ * positions and headings, smell source positions, collisions and sensor
+ * values) rather than in entity objects, and no events are fired. Networks
+ * exchange data with the batch through {@link #getObservations()} and
+ * {@link #step(double[][])} rather than through couplings.
+ * <p>
+ * Simplifications relative to {@link OdorWorld}: smell sources are treated as
+ * stationary (their behaviors are ignored), smell source noise is not
+ * applied, and only {@link SmellSensor}s, {@link StraightMovement} and
+ * {@link Turning} are supported. Other sensors and effectors on the template
+ * agent are ignored.
+ */
+public class OdorWorldBatch implements AutoCloseable {
+
+    /** Number of independent environments. */
+    private final int numEnvironments;
+
+    /** Number of smell sources per environment. */
+    private final int numSources;
+
+    /** Number of smell sensors on the agent. */
+    private final int numSensors;
+
+    /** Number of effectors on the agent (length of each action vector). */
+    private final int numEffectors;
+
+    /** Length of each smell vector; the maximum over all sources. */
+    private final int stimulusDimension;
+
+    /** Template smell sources, shared by all environments. */
+    private final SmellSource[] sources;
+
+    /** Width and height of each smell source entity. */
+    private final int[] sourceWidth, sourceHeight;
+
+    /** Polar offsets of each sensor relative to agent heading, in radians. */
+    private final double[] sensorTheta;
+
+    /** Polar distance of each sensor from the agent center. */
+    private final double[] sensorRadius;
+
+    /**
+     * For each effector, the heading change in degrees per unit of action, or
+     * 0 if it is not a turning effector.
+     */
+    private final double[] turnScale;
+
+    /**
+     * For each effector, the distance moved per unit of action, or 0 if it is
+     * not a straight movement effector.
+     */
+    private final double[] moveScale;
+
+    /** Size of the agent. */
+    private final int agentWidth, agentHeight;
+
+    /** World dimensions. */
+    private final int worldWidth, worldHeight;
+
+    /** Whether agents wrap around world borders. */
+    private final boolean wrapAround;
+
+    /** Whether collisions block agent movement. */
+    private final boolean objectsBlockMovement;
+
+    /** Initial agent state, used by {@link #reset()}. */
+    private final double initialX, initialY, initialHeading;
+
+    /** Initial source positions, used by {@link #reset()}. */
+    private final double[] initialSourceX, initialSourceY;
+
+    /** Agent x position (upper left corner), one per environment. */
+    private final double[] agentX;
+
+    /** Agent y position (upper left corner), one per environment. */
+    private final double[] agentY;
+
+    /** Agent heading in degrees, one per environment. */
+    private final double[] heading;
+
+    /**
+     * Source x positions (upper left corner), indexed by
+     * <code>env * numSources + source</code>.
+     */
+    private final double[] sourceX;
+
+    /** Source y positions, indexed like {@link #sourceX}. */
+    private final double[] sourceY;
+
+    /**
+     * Whether the agent overlaps a source, indexed like {@link #sourceX}.
+     * Updated on each step.
+     */
+    private final boolean[] collisions;
+
+    /**
+     * Current sensor values, one row per environment. Each row holds the smell
+     * vector of each sensor in turn, so its length is
+     * <code>numSensors * stimulusDimension</code>.
+     */
+    private final double[][] observations;
+
+    /** Number of threads to split environments across. */
+    private int numThreads = 1;
+
+    /** Executor used when more than one thread is requested. */
+    private ExecutorService executor;
+
+    /** Tasks that each step a contiguous block of environments. */
+    private List<Callable<Void>> stepTasks;
+
+    /** Actions for the step currently being executed by the tasks. */
+    private double[][] pendingActions;
+
+    /**
+     * Construct a batch of environments from a template world.
+     *
+     * @param template the world to copy
+     * @param agent the agent in the template world to replicate. All other
+     *            entities with a smell source become smell sources.
+     * @param numEnvironments the number of environments to create
+     */
+    public OdorWorldBatch(final OdorWorld template, final RotatingEntity agent,
+            final int numEnvironments) {
+        if (numEnvironments < 1) {
+            throw new IllegalArgumentException(
+                    "Number of environments must be positive");
+        }
+        this.numEnvironments = numEnvironments;
+
+        worldWidth = template.getWidth();
+        worldHeight = template.getHeight();
+        wrapAround = template.getWrapAround();
+        objectsBlockMovement = template.isObjectsBlockMovement();
+
+        // Smell sources
+        List<OdorWorldEntity> sourceEntities = new ArrayList<OdorWorldEntity>();
+        for (OdorWorldEntity entity : template.getObjectList()) {
+            if (entity != agent && entity.getSmellSource() != null) {
+                sourceEntities.add(entity);
+            }
+        }
+        numSources = sourceEntities.size();
+        sources = new SmellSource[numSources];
+        sourceWidth = new int[numSources];
+        sourceHeight = new int[numSources];
+        initialSourceX = new double[numSources];
+        initialSourceY = new double[numSources];
+        int maxDimension = 0;
+        for (int s = 0; s < numSources; s++) {
+            OdorWorldEntity entity = sourceEntities.get(s);
+            sources[s] = entity.getSmellSource();
+            sourceWidth[s] = entity.getWidth();
+            sourceHeight[s] = entity.getHeight();
+            initialSourceX[s] = entity.getX();
+            initialSourceY[s] = entity.getY();
+            maxDimension = Math.max(maxDimension,
+                    sources[s].getStimulusDimension());
+        }
+        stimulusDimension = maxDimension;
+
+        // Sensors
+        List<SmellSensor> smellSensors = new ArrayList<SmellSensor>();
+        for (Sensor sensor : agent.getSensors()) {
+            if (sensor instanceof SmellSensor) {
+                smellSensors.add((SmellSensor) sensor);
+            }
+        }
+        numSensors = smellSensors.size();
+        sensorTheta = new double[numSensors];
+        sensorRadius = new double[numSensors];
+        for (int i = 0; i < numSensors; i++) {
+            sensorTheta[i] = smellSensors.get(i).getTheta();
+            sensorRadius[i] = smellSensors.get(i).getRadius();
+        }
+
+        // Effectors
+        List<Effector> effectors = agent.getEffectors();
+        numEffectors = effectors.size();
+        turnScale = new double[numEffectors];
+        moveScale = new double[numEffectors];
+        for (int i = 0; i < numEffectors; i++) {
+            Effector effector = effectors.get(i);
+            if (effector instanceof Turning) {
+                turnScale[i] = ((Turning) effector).getDirection();
+            } else if (effector instanceof StraightMovement) {
+                moveScale[i] = ((StraightMovement) effector)
+                        .getScalingFactor();
+            }
+        }
+
+        // Agent
+        agentWidth = agent.getWidth();
+        agentHeight = agent.getHeight();
+        initialX = agent.getX();
+        initialY = agent.getY();
+        initialHeading = agent.getHeading();
+
+        agentX = new double[numEnvironments];
+        agentY = new double[numEnvironments];
+        heading = new double[numEnvironments];
+        sourceX = new double[numEnvironments * numSources];
+        sourceY = new double[numEnvironments * numSources];
+        collisions = new boolean[numEnvironments * numSources];
+        observations = new double[numEnvironments][numSensors
+                * stimulusDimension];
+        reset();
+    }
+
+    /**
+     * Return every environment to the state of the template world and
+     * recompute observations.
+     */
+    public void reset() {
+        for (int env = 0; env < numEnvironments; env++) {
+            reset(env);
+        }
+    }
+
+    /**
+     * Return one environment to the state of the template world and recompute
+     * its observation.
+     *
+     * @param env index of the environment to reset
+     */
+    public void reset(final int env) {
+        agentX[env] = initialX;
+        agentY[env] = initialY;
+        heading[env] = initialHeading;
+        int offset = env * numSources;
+        for (int s = 0; s < numSources; s++) {
+            sourceX[offset + s] = initialSourceX[s];
+            sourceY[offset + s] = initialSourceY[s];
+            collisions[offset + s] = false;
+        }
+        updateObservation(env);
+    }
+
+    /**
+     * Advance every environment by one time step. The action row for an
+     * environment is interpreted like the agent's effector list in the
+     * template: entry i is the amount sent to effector i.
+     *
+     * @param actions one action vector per environment
+     */
+    public void step(final double[][] actions) {
+        if (actions.length != numEnvironments) {
+            throw new IllegalArgumentException("Expected " + numEnvironments
+                    + " action vectors but got " + actions.length);
+        }
+        if (numThreads <= 1) {
+            step(actions, 0, numEnvironments);
+            return;
+        }
+        pendingActions = actions;
+        try {
+            for (Future<Void> future : executor.invokeAll(stepTasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pendingActions = null;
+        }
+    }
+
+    /**
+     * Step a contiguous block of environments. Blocks that do not overlap may
+     * be stepped concurrently, which lets callers that also update networks
+     * per environment do both in a single pass on each worker thread.
+     *
+     * @param actions one action vector per environment
+     * @param start first environment (inclusive)
+     * @param end last environment (exclusive)
+     */
+    public void step(final double[][] actions, final int start,
+            final int end) {
+        for (int env = start; env < end; env++) {
+            applyActions(env, actions[env]);
+            updateCollisions(env);
+            updateObservation(env);
+        }
+    }
+
+    /**
+     * Move and turn the agent in one environment, mirroring
+     * {@link RotatingEntity#goStraight(double)} and
+     * {@link RotatingEntity#turn(double)}. Effectors are applied in order.
+     *
+     * @param env the environment
+     * @param action the action vector
+     */
+    private void applyActions(final int env, final double[] action) {
+        if (objectsBlockMovement && isCollided(env)) {
+            return;
+        }
+        int n = Math.min(numEffectors, action.length);
+        for (int i = 0; i < n; i++) {
+            double amount = action[i];
+            if (amount == 0) {
+                continue;
+            }
+            if (turnScale[i] != 0) {
+                heading[env] += turnScale[i] * amount;
+            } else if (moveScale[i] != 0) {
+                double radians = Math.toRadians(heading[env]);
+                double distance = moveScale[i] * amount;
+                agentX[env] = constrain(
+                        agentX[env] + (float) (distance * Math.cos(radians)),
+                        agentX[env], agentWidth, worldWidth);
+                agentY[env] = constrain(
+                        agentY[env] - (float) (distance * Math.sin(radians)),
+                        agentY[env], agentHeight, worldHeight);
+            }
+        }
+        heading[env] = heading[env] % 360;
+        if (heading[env] < 0) {
+            heading[env] += 360;
+        }
+    }
+
+    /**
+     * Apply wrap around or border blocking to a new coordinate, as in
+     * {@link OdorWorldEntity#setX(float)}.
+     *
+     * @param newPos the proposed coordinate
+     * @param oldPos the current coordinate
+     * @param size the agent extent along this axis
+     * @param limit the world extent along this axis
+     * @return the resulting coordinate
+     */
+    private double constrain(final double newPos, final double oldPos,
+            final int size, final int limit) {
+        if (wrapAround) {
+            if (newPos <= 0) {
+                return limit - (Math.abs(newPos) % limit);
+            } else if (newPos > limit) {
+                return newPos % limit;
+            }
+            return newPos;
+        }
+        if ((newPos < 0) || ((newPos + size) > limit)) {
+            return oldPos;
+        }
+        return newPos;
+    }
+
+    /**
+     * Recompute collisions between the agent and each source using the
+     * reduced bounds of {@link OdorWorldEntity#getReducedBounds()}.
+     *
+     * @param env the environment
+     */
+    private void updateCollisions(final int env) {
+        int ax = (int) agentX[env] + agentHeight / 5;
+        int ay = (int) agentY[env] + agentWidth / 5;
+        int aw = agentWidth - 2 * (agentHeight / 5);
+        int ah = agentHeight - 2 * (agentWidth / 5);
+        int offset = env * numSources;
+        for (int s = 0; s < numSources; s++) {
+            int sx = (int) sourceX[offset + s] + sourceHeight[s] / 5;
+            int sy = (int) sourceY[offset + s] + sourceWidth[s] / 5;
+            int sw = sourceWidth[s] - 2 * (sourceHeight[s] / 5);
+            int sh = sourceHeight[s] - 2 * (sourceWidth[s] / 5);
+            collisions[offset + s] = aw > 0 && ah > 0 && sw > 0 && sh > 0
+                    && ax < sx + sw && sx < ax + aw && ay < sy + sh
+                    && sy < ay + ah;
+        }
+    }
+
+    /**
+     * Recompute the sensor values of one environment, as in
+     * {@link SmellSensor#update()}.
+     *
+     * @param env the environment
+     */
+    private void updateObservation(final int env) {
+        double[] obs = observations[env];
+        Arrays.fill(obs, 0);
+        double centerX = agentX[env] + agentWidth / 2;
+        double centerY = agentY[env] + agentHeight / 2;
+        double radians = Math.toRadians(heading[env]);
+        int offset = env * numSources;
+        for (int i = 0; i < numSensors; i++) {
+            double x = centerX
+                    + sensorRadius[i] * Math.cos(radians + sensorTheta[i]);
+            double y = centerY
+                    - sensorRadius[i] * Math.sin(radians + sensorTheta[i]);
+            int base = i * stimulusDimension;
+            for (int s = 0; s < numSources; s++) {
+                double dx = x - (sourceX[offset + s] + sourceWidth[s] / 2);
+                double dy = y - (sourceY[offset + s] + sourceHeight[s] / 2);
+                double scale = sources[s]
+                        .getScalingFactor(Math.sqrt(dx * dx + dy * dy));
+                if (scale == 0) {
+                    continue;
+                }
+                double[] stimulus = sources[s].getStimulusVector();
+                for (int k = 0; k < stimulus.length; k++) {
+                    obs[base + k] += stimulus[k] * scale;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true if the agent in the given environment overlaps any source.
+     *
+     * @param env the environment
+     * @return whether a collision occurred on the last step
+     */
+    public boolean isCollided(final int env) {
+        int offset = env * numSources;
+        for (int s = 0; s < numSources; s++) {
+            if (collisions[offset + s]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the agent in the given environment overlaps a specific
+     * source.
+     *
+     * @param env the environment
+     * @param source index of the source, in template order
+     * @return whether a collision occurred on the last step
+     */
+    public boolean isCollided(final int env, final int source) {
+        return collisions[env * numSources + source];
+    }
+
+    /**
+     * Returns the distance between the agent center and a source center.
+     *
+     * @param env the environment
+     * @param source index of the source, in template order
+     * @return the distance in pixels
+     */
+    public double getDistanceToSource(final int env, final int source) {
+        int i = env * numSources + source;
+        double dx = (agentX[env] + agentWidth / 2)
+                - (sourceX[i] + sourceWidth[source] / 2);
+        double dy = (agentY[env] + agentHeight / 2)
+                - (sourceY[i] + sourceHeight[source] / 2);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Move a source in one environment. Its observation is not recomputed
+     * until the next step or reset.
+     *
+     * @param env the environment
+     * @param source index of the source, in template order
+     * @param x new upper left x coordinate
+     * @param y new upper left y coordinate
+     */
+    public void setSourceLocation(final int env, final int source,
+            final double x, final double y) {
+        sourceX[env * numSources + source] = x;
+        sourceY[env * numSources + source] = y;
+    }
+
+    /**
+     * Set the agent location and heading in one environment.
+     *
+     * @param env the environment
+     * @param x new upper left x coordinate
+     * @param y new upper left y coordinate
+     * @param newHeading new heading in degrees
+     */
+    public void setAgentState(final int env, final double x, final double y,
+            final double newHeading) {
+        agentX[env] = x;
+        agentY[env] = y;
+        heading[env] = newHeading;
+    }
+
+    /**
+     * Set the number of threads environments are stepped on. With one thread
+     * (the default) stepping happens on the calling thread.
+     *
+     * @param threads number of threads to use
+     */
+    public void setNumThreads(final int threads) {
+        shutdown();
+        numThreads = Math.max(1, Math.min(threads, numEnvironments));
+        if (numThreads > 1) {
+            executor = Executors.newFixedThreadPool(numThreads, r -> {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                return thread;
+            });
+            stepTasks = new ArrayList<Callable<Void>>(numThreads);
+            int share = numEnvironments / numThreads;
+            int remainder = numEnvironments % numThreads;
+            int start = 0;
+            for (int t = 0; t < numThreads; t++) {
+                final int from = start;
+                final int to = from + share + (t < remainder ? 1 : 0);
+                stepTasks.add(() -> {
+                    step(pendingActions, from, to);
+                    return null;
+                });
+                start = to;
+            }
+        }
+    }
+
+    /**
+     * Release any threads used for parallel stepping.
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+            stepTasks = null;
+        }
+        numThreads = 1;
+    }
+
+    /**
+     * Same as {@link #shutdown()}, so that the batch can be used in a
+     * try-with-resources statement.
+     */
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    /**
+     * Returns the current sensor values, one row per environment. The
+     * returned array is live and is overwritten on each step.
+     *
+     * @return the observations
+     */
+    public double[][] getObservations() {
+        return observations;
+    }
+
+    /**
+     * @return the number of environments
+     */
+    public int getNumEnvironments() {
+        return numEnvironments;
+    }
+
+    /**
+     * @return the number of smell sources in each environment
+     */
+    public int getNumSources() {
+        return numSources;
+    }
+
+    /**
+     * @return length of each observation vector
+     */
+    public int getObservationSize() {
+        return numSensors * stimulusDimension;
+    }
+
+    /**
+     * @return length of each action vector
+     */
+    public int getActionSize() {
+        return numEffectors;
+    }
+
+    /**
+     * @return the number of threads used to step environments
+     */
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * @return agent x positions, one per environment (live array)
+     */
+    public double[] getAgentX() {
+        return agentX;
+    }
+
+    /**
+     * @return agent y positions, one per environment (live array)
+     */
+    public double[] getAgentY() {
+        return agentY;
+    }
+
+    /**
+     * @return agent headings in degrees, one per environment (live array)
+     */
+    public double[] getHeadings() {
+        return heading;
+    }
+
+}
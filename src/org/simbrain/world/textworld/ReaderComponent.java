@@ -142,7 +142,7 @@ public class ReaderComponent extends WorkspaceComponent {
 
     @Override
     public void closing() {
-        // TODO Auto-generated method stub
+        world.closeStream();
     }
 
     @Override
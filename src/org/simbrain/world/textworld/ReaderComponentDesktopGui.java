@@ -124,6 +124,7 @@ public class ReaderComponentDesktopGui extends GuiComponent<ReaderComponent> {
         file.add(new SaveAsAction(this));
         file.addSeparator();
         file.add(TextWorldActions.getTextAction(world));
+        file.add(TextWorldActions.getStreamTextAction(world));
         file.addSeparator();
         file.add(new CloseAction(this.getWorkspaceComponent()));
 
@@ -154,7 +154,6 @@ public class ReaderPanel extends JPanel {
             @Override
             public void mousePressed(MouseEvent e) {
                 world.setPosition(textArea.getCaretPosition(), false);
-                world.updateMatcher();
             }
 
         });
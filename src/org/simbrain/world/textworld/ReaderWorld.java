@@ -18,15 +18,23 @@
  */
 package org.simbrain.world.textworld;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.simbrain.util.Utils;
 import org.simbrain.util.propertyeditor.ComboBoxWrapper;
-import org.simbrain.world.textworld.TextListener.TextAdapter;
 
 import com.thoughtworks.xstream.XStream;
 
@@ -47,18 +55,26 @@ import com.thoughtworks.xstream.XStream;
  * associated consumers. These vectors are specified in the "vector dictionary".
  * </li>
  * </ul>
+ *
+ * The text is tokenized once, when it (or the parse style) changes, into a
+ * stream of integer token ids. Each distinct token is stored once, in a
+ * vocabulary, and the vectors of the dictionary are kept in a table indexed by
+ * token id, so that reading a token does not search the text, create strings,
+ * or look up the dictionary. Tokens with no vector share one zero vector.
+ * Large texts can be streamed from a file in chunks (see
+ * {@link #streamFromFile(File)}), so that they need not be held in memory.
  */
 public final class ReaderWorld extends TextWorld {
 
+    /** Default number of characters read at a time when streaming a file. */
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
     /**
      * The reader world "dictionary", which associates string tokens with arrays
      * of doubles.
      */
     private final LinkedHashMap<String, double[]> tokenToVectorDictionary = new LinkedHashMap<String, double[]>();
 
-    /** The current text item. */
-    private TextItem currentTextItem;
-
     /**
      * Length of vectors in the tokenToVector Dict. Assumes all vectors in the
      * dictionary have the same length. Currently reset whenever a new item is
@@ -76,14 +92,68 @@ public final class ReaderWorld extends TextWorld {
     private ParseStyle parseStyle = ParseStyle.WORD;
 
     /** Regular expression pattern. By default search for whole words */
-    private Pattern pattern;
+    private transient Pattern pattern;
 
     // TODO: Document other good choices in the pref dialog. e.g. (\\w+)
     /** Regular expression for matcher. */
     private String regularExpression = "(\\S+)";
 
-    /** Pattern matcher. */
-    private Matcher matcher;
+    /** Pattern matcher, reused each time the text is tokenized. */
+    private transient Matcher matcher;
+
+    /** File being streamed, or null if the text is not streamed. */
+    private String streamFileName;
+
+    /** Number of characters read at a time when streaming a file. */
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /** Reader for the file being streamed. */
+    private transient Reader streamReader;
+
+    /** Text read from the stream but not yet shown (a partial token). */
+    private transient String streamCarry;
+
+    /** Whether a chunk of the stream is being set as the text. */
+    private transient boolean readingChunk;
+
+    /** Token ids by token. */
+    private transient Map<String, Integer> tokenIds;
+
+    /** Tokens by id. */
+    private transient List<String> tokens;
+
+    /**
+     * Vectors by token id: the dictionary vector for the token, or the shared
+     * zero vector. Null when it must be rebuilt.
+     */
+    private transient double[][] vectors;
+
+    /** Zero vector returned for tokens not in the dictionary. */
+    private transient double[] zeroVector;
+
+    /** The text the token stream was made from (compared by identity). */
+    private transient String tokenizedText;
+
+    /** The parse style the token stream was made with. */
+    private transient ParseStyle tokenizedStyle;
+
+    /** Token ids of the text, in order. */
+    private transient int[] streamIds;
+
+    /**
+     * Start positions of the tokens in the text, in order; null when parsing
+     * by character, since token i is then character i.
+     */
+    private transient int[] streamStarts;
+
+    /** End positions of the tokens in the text; null when parsing by character. */
+    private transient int[] streamEnds;
+
+    /** Number of tokens in the text. */
+    private transient int streamLength;
+
+    /** Id of the current token, or -1 if there is none. */
+    private transient int currentTokenId = -1;
 
     // Initialize tokenToVectorDictionary
     {
@@ -99,26 +169,28 @@ public final class ReaderWorld extends TextWorld {
      * @return the constructed world.
      */
     public static ReaderWorld createReaderWorld() {
-        final ReaderWorld r = new ReaderWorld();
-        r.addListener(new TextAdapter() {
-
-            public void textChanged() {
-                r.updateMatcher();
-            }
-
-            public void positionChanged() {
-                r.updateMatcher();
-            }
-        });
-        return r;
+        return new ReaderWorld();
     }
 
     /**
      * Constructs an instance of TextWorld.
      */
     private ReaderWorld() {
+        initTokens();
+    }
+
+    /**
+     * Initialize the pattern and the (empty) vocabulary.
+     */
+    private void initTokens() {
         pattern = Pattern.compile(regularExpression);
-        matcher = pattern.matcher(getText());
+        matcher = pattern.matcher("");
+        tokenIds = new HashMap<String, Integer>();
+        tokens = new ArrayList<String>();
+        vectors = null;
+        zeroVector = new double[vectorLength];
+        tokenizedText = null;
+        currentTokenId = -1;
     }
 
     /**
@@ -141,18 +213,18 @@ public final class ReaderWorld extends TextWorld {
 
     /**
      * Return the vector associated with the currently parsed token, or a
-     * default zero vector.
+     * default zero vector. The zero vector is shared, and like the dictionary
+     * vectors should not be modified.
      *
      * @param token the token to associate with a vector
      * @return the associated vector
      */
     public double[] getMatchingVector(String token) {
         double[] vector = tokenToVectorDictionary.get(token);
-        //System.out.println(token + "-->" + Arrays.toString(vector));
         if (vector == null) {
             // Return zero vector if no matching string is found in the token
             // map.
-            return new double[vectorLength];
+            return zeroVector;
         } else {
             return vector;
         }
@@ -166,11 +238,153 @@ public final class ReaderWorld extends TextWorld {
      * @return the vector corresponding to the currently parsed token.
      */
     public double[] getCurrentVector() {
-        if (getCurrentItem() == null) {
-            return new double[vectorLength];
+        if (getCurrentItem() == null || currentTokenId < 0) {
+            return zeroVector;
         } else {
-            return this.getMatchingVector(this.getCurrentItem().getText());
+            return getVector(currentTokenId);
+        }
+    }
+
+    /**
+     * Returns the vector for a token id: the token's vector in the dictionary,
+     * or the shared zero vector if it has none. Neither should be modified.
+     *
+     * @param tokenId the token id
+     * @return the vector
+     */
+    public double[] getVector(final int tokenId) {
+        if (vectors == null || tokenId >= vectors.length) {
+            updateVectors();
+        }
+        return vectors[tokenId];
+    }
+
+    /**
+     * Rebuild the table of vectors by token id.
+     */
+    private void updateVectors() {
+        if (zeroVector.length != vectorLength) {
+            zeroVector = new double[vectorLength];
+        }
+        vectors = new double[tokens.size()][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = getMatchingVector(tokens.get(i));
+        }
+    }
+
+    /**
+     * Returns the id of a token, adding it to the vocabulary if it is new.
+     *
+     * @param token the token
+     * @return its id
+     */
+    private int intern(final String token) {
+        Integer id = tokenIds.get(token);
+        if (id == null) {
+            id = tokens.size();
+            tokens.add(token);
+            tokenIds.put(token, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of a token that has been read.
+     *
+     * @param token the token
+     * @return its id, or -1 if it is not in the vocabulary
+     */
+    public int getTokenId(final String token) {
+        Integer id = tokenIds.get(token);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the token with a given id.
+     *
+     * @param tokenId the id
+     * @return the token
+     */
+    public String getToken(final int tokenId) {
+        return tokens.get(tokenId);
+    }
+
+    /**
+     * @return the number of distinct tokens read so far
+     */
+    public int getVocabularySize() {
+        return tokens.size();
+    }
+
+    /**
+     * @return the id of the current token, or -1 if there is none
+     */
+    public int getCurrentTokenId() {
+        return getCurrentItem() == null ? -1 : currentTokenId;
+    }
+
+    /**
+     * Returns the ids of the tokens in the text (the current chunk, if a file
+     * is streamed), in order. Simulations can train on these directly, with
+     * {@link #getVector(int)}, rather than stepping the world.
+     *
+     * @return the token ids
+     */
+    public int[] getTokenIds() {
+        tokenize();
+        return Arrays.copyOf(streamIds, streamLength);
+    }
+
+    /**
+     * Tokenize the text, if it or the parse style has changed since it was
+     * last tokenized.
+     */
+    private void tokenize() {
+        String text = getText();
+        if (text == tokenizedText && parseStyle == tokenizedStyle) {
+            return;
+        }
+        if (parseStyle == ParseStyle.CHARACTER) {
+            streamLength = text.length();
+            streamIds = new int[streamLength];
+            streamStarts = null;
+            streamEnds = null;
+            for (int i = 0; i < streamLength; i++) {
+                streamIds[i] = intern(String.valueOf(text.charAt(i)));
+            }
+        } else {
+            IntArray ids = new IntArray();
+            IntArray starts = new IntArray();
+            IntArray ends = new IntArray();
+            matcher.reset(text);
+            while (matcher.find()) {
+                ids.add(intern(matcher.group()));
+                starts.add(matcher.start());
+                ends.add(matcher.end());
+            }
+            streamLength = ids.size;
+            streamIds = ids.values;
+            streamStarts = starts.values;
+            streamEnds = ends.values;
         }
+        tokenizedText = text;
+        tokenizedStyle = parseStyle;
+    }
+
+    /**
+     * Returns the index in the token stream of the first token starting at or
+     * after a position in the text.
+     *
+     * @param position the position
+     * @return the token index, equal to the number of tokens if there is none
+     */
+    private int tokenAt(final int position) {
+        if (streamStarts == null) {
+            return Math.min(position, streamLength);
+        }
+        int index = Arrays.binarySearch(streamStarts, 0, streamLength,
+                position);
+        return index >= 0 ? index : -index - 1;
     }
 
     /**
@@ -196,9 +410,18 @@ public final class ReaderWorld extends TextWorld {
     public void addTokenVectorPair(String token, double[] vector) {
         tokenToVectorDictionary.put(token, vector);
         vectorLength = vector.length;
+        if (zeroVector.length != vectorLength) {
+            zeroVector = new double[vectorLength];
+        }
+        vectors = null;
     }
 
     /**
+     * Returns the dictionary. Changes to it should be followed by
+     * {@link #loadTokenToVectorDict(String[][])} or
+     * {@link #addTokenVectorPair(String, double[])}, so that vectors read by
+     * token id are updated.
+     *
      * @return the tokenVectorMap
      */
     public LinkedHashMap<String, double[]> getTokenToVectorDict() {
@@ -209,105 +432,192 @@ public final class ReaderWorld extends TextWorld {
      * Advance the position in the text, and update the current item.
      */
     public void update() {
-        if (parseStyle == ParseStyle.CHARACTER) {
-            wrapText();
-            int begin = getPosition();
-            int end = getPosition() + 1;
-            setCurrentItem(new TextItem(begin, end, getText().substring(begin,
-                    end)));
-            setPosition(end);
-        } else if (parseStyle == ParseStyle.WORD) {
-            if (matcher == null) {
-                return;
-            }
-            wrapText();
-            boolean matchFound = findNextToken();
-            if (matchFound) {
-                selectCurrentToken();
-            } else {
-                // No match found. Go back to the beginning of the text area
-                // and select the first token found
-                setPosition(0);
-                updateMatcher();
-                // Having wrapped to the beginning select the next token, if
-                // there is one.
-                if (findNextToken()) {
-                    selectCurrentToken();
-                }
+        tokenize();
+        int index = atEnd() ? streamLength : tokenAt(getPosition());
+        if (index >= streamLength) {
+            // Past the last token. Go back to the beginning of the text (or
+            // read the next chunk of a streamed file) and select the first
+            // token found
+            if (streamReader != null) {
+                readChunk();
+                tokenize();
             }
+            setPosition(0);
+            index = 0;
+        }
+        if (index < streamLength) {
+            selectToken(index);
         }
+    }
+
+    /**
+     * Make a token the current item and move the position past it.
+     *
+     * @param index index of the token in the token stream
+     */
+    private void selectToken(final int index) {
+        int begin = streamStarts == null ? index : streamStarts[index];
+        int end = streamEnds == null ? index + 1 : streamEnds[index];
+        currentTokenId = streamIds[index];
+        setCurrentItem(new TextItem(begin, end, tokens.get(currentTokenId)));
+        setPosition(end);
+    }
 
+    /**
+     * @return true if the current position is past the end of the text area,
+     *         false otherwise.
+     */
+    private boolean atEnd() {
+        return getPosition() >= getText().length();
     }
 
     /**
-     * Reset the parser and specify the region focused on by it, to go from the
-     * current cursor position to the end of the text.
+     * Utility method to "preview" the next token after the current one. Used in
+     * some scripts.
+     *
+     * @return the next token in the text area.
      */
-    void updateMatcher() {
-        int begin = getPosition();
-        int end = getText().length();
-        // System.out.println(begin + "," + end);
-        matcher.reset(getText());
-        matcher.region(begin, end);
+    public String previewNextToken() {
+        tokenize();
+        if (streamLength == 0) {
+            return null;
+        }
+        int index = tokenAt(getPosition());
+        return tokens.get(streamIds[index < streamLength ? index : 0]);
     }
 
     /**
-     * Find the next token in the text area.
+     * Set the text. Unless the text is unchanged (e.g. the display echoing
+     * text it was sent), this stops streaming a file.
      *
-     * @return true if some token is found, false otherwise.
-     */
-    private boolean findNextToken() {
-        boolean foundToken = matcher.find();
-        if (foundToken) {
-            int begin = matcher.start();
-            int end = matcher.end();
-            String text = matcher.group();
-            // System.out.println("[" + text + "](" + begin + "," + end + ")");
-            currentTextItem = new TextItem(begin, end, text);
-        } else {
-            currentTextItem = null;
+     * @param text the text to set
+     * @param fireEvent whether or not to fire an event
+     */
+    @Override
+    public void setText(final String text, final boolean fireEvent) {
+        if (streamReader != null && !readingChunk) {
+            if (text.equals(getText())) {
+                return;
+            }
+            closeStream();
         }
-        return foundToken;
+        super.setText(text, fireEvent);
     }
 
     /**
-     * Select the current token.
+     * Read a text file in chunks instead of loading it all as the text. The
+     * text of the world is one chunk of the file at a time; when the last
+     * token of a chunk has been read the next chunk is read, and when the file
+     * has been read it is read again from the start.
+     *
+     * @param file the file to read
+     * @throws IOException if the file cannot be read
      */
-    private void selectCurrentToken() {
-        setCurrentItem(currentTextItem);
-        setPosition(currentTextItem.getEndPosition());
+    public void streamFromFile(final File file) throws IOException {
+        closeStream();
+        streamFileName = file.getPath();
+        openStream();
+        readChunk();
     }
 
     /**
-     * If the position is at the end of the text area, "reset" the position to
-     * 0.
+     * Open the stream file from its start.
+     *
+     * @throws IOException if the file cannot be opened
      */
-    private void wrapText() {
-        if (atEnd()) {
-            setPosition(0);
-            updateMatcher();
+    private void openStream() throws IOException {
+        streamReader = new InputStreamReader(new FileInputStream(
+                streamFileName), StandardCharsets.UTF_8);
+        streamCarry = "";
+    }
+
+    /**
+     * Read the next chunk of the stream file into the text. The chunk ends
+     * after the last whole token, and the rest is carried over to the next
+     * chunk.
+     */
+    private void readChunk() {
+        try {
+            StringBuilder chunk = new StringBuilder(streamCarry);
+            char[] buffer = new char[chunkSize];
+            int read = streamReader.read(buffer);
+            if (read < 0 && chunk.length() == 0) {
+                // Start the file again
+                streamReader.close();
+                openStream();
+                read = streamReader.read(buffer);
+            }
+            if (read > 0) {
+                chunk.append(buffer, 0, read);
+            }
+            int cut = chunk.length();
+            if (read > 0 && parseStyle == ParseStyle.WORD) {
+                // The last token may continue in the next chunk
+                matcher.reset(chunk);
+                int lastStart = -1;
+                int lastEnd = 0;
+                while (matcher.find()) {
+                    lastStart = matcher.start();
+                    lastEnd = matcher.end();
+                }
+                if (lastStart > 0 && lastEnd == chunk.length()) {
+                    cut = lastStart;
+                }
+            }
+            streamCarry = chunk.substring(cut);
+            String text = chunk.substring(0, cut);
+            readingChunk = true;
+            try {
+                super.setText(text, true);
+            } finally {
+                readingChunk = false;
+            }
+            // The display sets the text back as it is updated; keep this
+            // copy so it is not tokenized again
+            super.setText(text, false);
+            setPosition(0, false);
+        } catch (IOException e) {
+            e.printStackTrace();
+            closeStream();
         }
     }
 
     /**
-     * @return true if the current position is past the end of the text area,
-     *         false otherwise.
+     * Stop streaming a file. The current chunk remains as the text.
      */
-    private boolean atEnd() {
-        return getPosition() >= getText().length();
+    public void closeStream() {
+        if (streamReader != null) {
+            try {
+                streamReader.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        streamReader = null;
+        streamFileName = null;
+        streamCarry = null;
     }
 
     /**
-     * Utility method to "preview" the next token after the current one. Used in
-     * some scripts.
-     *
-     * @return the next token in the text area.
+     * @return the file being streamed, or null if the text is not streamed
      */
-    public String previewNextToken() {
-        matcher.find();
-        String nextOne = matcher.group();
-        updateMatcher(); // Return matcher to its previous state
-        return nextOne;
+    public String getStreamFileName() {
+        return streamFileName;
+    }
+
+    /**
+     * @return the number of characters read at a time when streaming a file
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @param chunkSize the number of characters to read at a time when
+     *            streaming a file
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
     }
 
     /**
@@ -374,6 +684,34 @@ public final class ReaderWorld extends TextWorld {
         return xstream;
     }
 
+    /**
+     * Standard method call made to objects after they are deserialized. See:
+     * http://java.sun.com/developer/JDCTechTips/2002/tt0205.html#tip2
+     * http://xstream.codehaus.org/faq.html
+     *
+     * Rebuilds the vocabulary, and reopens a streamed file from its start.
+     *
+     * @return Initialized object.
+     */
+    @Override
+    protected Object readResolve() {
+        super.readResolve();
+        if (chunkSize <= 0) {
+            chunkSize = DEFAULT_CHUNK_SIZE;
+        }
+        initTokens();
+        if (streamFileName != null) {
+            try {
+                openStream();
+            } catch (IOException e) {
+                e.printStackTrace();
+                streamReader = null;
+                streamFileName = null;
+            }
+        }
+        return this;
+    }
+
     /**
      * @return the regularExpression
      */
@@ -387,8 +725,32 @@ public final class ReaderWorld extends TextWorld {
     public void setRegularExpression(String regularExpression) {
         this.regularExpression = regularExpression;
         pattern = Pattern.compile(regularExpression);
-        matcher = pattern.matcher(getText());
-        updateMatcher();
+        matcher = pattern.matcher("");
+        tokenizedText = null;
+    }
+
+    /**
+     * Growable array of ints, used while tokenizing.
+     */
+    private static class IntArray {
+
+        /** The values; only the first {@link #size} are used. */
+        private int[] values = new int[64];
+
+        /** Number of values. */
+        private int size;
+
+        /**
+         * Add a value.
+         *
+         * @param value the value to add
+         */
+        void add(final int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
     }
 
 }
@@ -22,6 +22,7 @@ import java.awt.event.ActionEvent;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
@@ -199,6 +200,39 @@ public class TextWorldActions {
         };
     }
 
+    /**
+     * Action for streaming text from a file, for files too large to load.
+     *
+     * @param world the world which should read the file
+     * @return the action
+     */
+    public static Action getStreamTextAction(final ReaderWorld world) {
+        return new AbstractAction() {
+
+            // Initialize
+            {
+                putValue(NAME, "Stream text from file...");
+                putValue(SHORT_DESCRIPTION,
+                        "Read a large text file a chunk at a time.");
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            public void actionPerformed(ActionEvent arg0) {
+                SFileChooser chooser = new SFileChooser(".", "Text import");
+                File theFile = chooser.showOpenDialog();
+                if (theFile != null) {
+                    try {
+                        world.streamFromFile(theFile);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        };
+    }
+
     /**
      * Action for displaying a default preference dialog. (Not currently used).
      *
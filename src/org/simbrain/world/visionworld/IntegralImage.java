@@ -0,0 +1,303 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2006 Jeff Yoshimi <www.jeffyoshimi.net>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.world.visionworld;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Integral image.
+ *
+ * <p>
+ * Holds the pixels of an image decoded into an array of packed ARGB values,
+ * and summed-area tables counting the pixels that satisfy a predicate. A table
+ * is built the first time a predicate is asked for, and is then shared by
+ * every receptive field, each of which is counted in constant time.
+ * </p>
+ *
+ * <p>
+ * When a new image is decoded it is compared row by row with the previous
+ * one, and tables are only rebuilt from the first row that changed, so a
+ * still image costs one pass over its pixels per update.
+ * </p>
+ */
+public final class IntegralImage {
+
+    /** Image width. */
+    private int width;
+
+    /** Image height. */
+    private int height;
+
+    /** Packed ARGB pixels, row by row. */
+    private int[] pixels = new int[0];
+
+    /** One row of pixels, for images that are not stored as packed ints. */
+    private int[] rowBuffer = new int[0];
+
+    /** Summed-area tables by key. */
+    private final Map<Object, Table> tables = new HashMap<Object, Table>();
+
+    /**
+     * A summed-area table, (width + 1) x (height + 1), whose entry (x, y)
+     * counts the matching pixels above and to the left of pixel (x, y).
+     */
+    private static final class Table {
+
+        /** The sums. */
+        private final int[] sums;
+
+        /** Number of image rows the sums are up to date with. */
+        private int validRows;
+
+        /**
+         * Create an empty table.
+         *
+         * @param size number of entries
+         */
+        Table(final int size) {
+            sums = new int[size];
+        }
+    }
+
+    /**
+     * Decode the specified image, replacing the previous one.
+     *
+     * @param image image, must not be null
+     */
+    public void update(final Image image) {
+        if (image == null) {
+            throw new IllegalArgumentException("image must not be null");
+        }
+        BufferedImage bufferedImage = toBufferedImage(image);
+        int w = bufferedImage.getWidth();
+        int h = bufferedImage.getHeight();
+        int firstChanged;
+        if (w != width || h != height) {
+            width = w;
+            height = h;
+            pixels = new int[w * h];
+            rowBuffer = new int[w];
+            tables.clear();
+            firstChanged = 0;
+            copyPixels(bufferedImage);
+        } else {
+            firstChanged = copyPixels(bufferedImage);
+        }
+        for (Table table : tables.values()) {
+            table.validRows = Math.min(table.validRows, firstChanged);
+        }
+    }
+
+    /**
+     * Copy the pixels of an image into {@link #pixels}, reading straight from
+     * the raster of the ARGB and RGB images that pixel matrices hold.
+     *
+     * @param image the image
+     * @return the first row that differs from the previous image, or the
+     *         height if none does
+     */
+    private int copyPixels(final BufferedImage image) {
+        int type = image.getType();
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        int firstChanged = height;
+        if ((type == BufferedImage.TYPE_INT_ARGB
+                || type == BufferedImage.TYPE_INT_RGB)
+                && buffer instanceof DataBufferInt
+                && image.getRaster()
+                        .getSampleModel() instanceof SinglePixelPackedSampleModel
+                && image.getRaster().getParent() == null) {
+            int[] data = ((DataBufferInt) buffer).getData();
+            int stride = ((SinglePixelPackedSampleModel) image.getRaster()
+                    .getSampleModel()).getScanlineStride();
+            int offset = buffer.getOffset();
+            int alpha = type == BufferedImage.TYPE_INT_RGB ? 0xFF000000 : 0;
+            for (int y = 0; y < height; y++) {
+                if (copyRow(data, offset + y * stride, alpha, y * width)
+                        && firstChanged == height) {
+                    firstChanged = y;
+                }
+            }
+        } else {
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, rowBuffer, 0, width);
+                if (copyRow(rowBuffer, 0, 0, y * width)
+                        && firstChanged == height) {
+                    firstChanged = y;
+                }
+            }
+        }
+        return firstChanged;
+    }
+
+    /**
+     * Copy one row of pixels, noting whether it changed.
+     *
+     * @param source source array
+     * @param from index of the first pixel in the source
+     * @param alpha bits to set in each pixel
+     * @param to index of the first pixel in {@link #pixels}
+     * @return whether any pixel in the row changed
+     */
+    private boolean copyRow(final int[] source, final int from,
+            final int alpha, final int to) {
+        int x = 0;
+        while (x < width && pixels[to + x] == (source[from + x] | alpha)) {
+            x++;
+        }
+        if (x == width) {
+            return false;
+        }
+        if (alpha == 0) {
+            System.arraycopy(source, from + x, pixels, to + x, width - x);
+        } else {
+            for (; x < width; x++) {
+                pixels[to + x] = source[from + x] | alpha;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Convert the specified image to a BufferedImage, if necessary.
+     *
+     * @param image image to convert
+     * @return the specified image as a BufferedImage
+     */
+    private static BufferedImage toBufferedImage(final Image image) {
+        if (image instanceof BufferedImage) {
+            return (BufferedImage) image;
+        }
+        BufferedImage bufferedImage = new BufferedImage(image.getWidth(null),
+                image.getHeight(null), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = bufferedImage.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return bufferedImage;
+    }
+
+    /**
+     * Count the pixels in a rectangle that satisfy a predicate. The part of
+     * the rectangle outside the image is not counted.
+     *
+     * <p>
+     * Filters that test the same thing should use equal keys, so that they
+     * share one table.
+     * </p>
+     *
+     * @param key identifies the predicate
+     * @param predicate test applied to packed ARGB pixel values
+     * @param x left edge
+     * @param y top edge
+     * @param w width
+     * @param h height
+     * @return the number of pixels in the rectangle satisfying the predicate
+     */
+    public int count(final Object key, final IntPredicate predicate,
+            final int x, final int y, final int w, final int h) {
+        int[] table = getTable(key, predicate);
+        int x0 = clamp(x, width);
+        int y0 = clamp(y, height);
+        int x1 = clamp(x + w, width);
+        int y1 = clamp(y + h, height);
+        int stride = width + 1;
+        return table[y1 * stride + x1] - table[y0 * stride + x1]
+                - table[y1 * stride + x0] + table[y0 * stride + x0];
+    }
+
+    /**
+     * Returns the summed-area table for a predicate, bringing it up to date
+     * with the current image.
+     *
+     * @param key identifies the predicate
+     * @param predicate test applied to packed ARGB pixel values
+     * @return the sums
+     */
+    private int[] getTable(final Object key, final IntPredicate predicate) {
+        Table table = tables.get(key);
+        if (table == null) {
+            table = new Table((width + 1) * (height + 1));
+            tables.put(key, table);
+        }
+        if (table.validRows < height) {
+            int[] sums = table.sums;
+            int stride = width + 1;
+            for (int y = table.validRows; y < height; y++) {
+                int rowSum = 0;
+                int row = y * width;
+                int above = y * stride + 1;
+                int here = above + stride;
+                for (int x = 0; x < width; x++) {
+                    if (predicate.test(pixels[row + x])) {
+                        rowSum++;
+                    }
+                    sums[here + x] = sums[above + x] + rowSum;
+                }
+            }
+            table.validRows = height;
+        }
+        return table.sums;
+    }
+    /**
+     * Clamp a coordinate to [0, max].
+     *
+     * @param value coordinate
+     * @param max largest value
+     * @return the clamped coordinate
+     */
+    private static int clamp(final int value, final int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    /**
+     * Return the packed ARGB value of a pixel.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the pixel
+     */
+    public int getPixel(final int x, final int y) {
+        return pixels[y * width + x];
+    }
+
+    /**
+     * Return the width of the current image.
+     *
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Return the height of the current image.
+     *
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2006 Jeff Yoshimi <www.jeffyoshimi.net>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.world.visionworld;
+
+/**
+ * Region filter.
+ *
+ * <p>
+ * A filter that can reduce a receptive field using an {@link IntegralImage}
+ * of the whole pixel matrix, in time that does not depend on the size of the
+ * receptive field. Sensors with such a filter are sampled without copying
+ * the receptive field out of the image.
+ * </p>
+ */
+public interface RegionFilter extends Filter {
+
+    /**
+     * Reduce the pixels within the specified receptive field to a single
+     * value.
+     *
+     * @param image integral image of the pixel matrix, must not be null
+     * @param receptiveField receptive field, must not be null
+     * @return value for the receptive field
+     */
+    double filter(IntegralImage image, ReceptiveField receptiveField);
+}
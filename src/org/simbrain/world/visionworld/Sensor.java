@@ -55,12 +55,18 @@ public final class Sensor {
     private int col;
 
     /** No filter. */
-    private static final Filter NO_FILTER = new Filter() {
+    private static final Filter NO_FILTER = new RegionFilter() {
         /** {@inheritDoc} */
         public double filter(final BufferedImage image) {
             return 0.0d;
         }
 
+        /** {@inheritDoc} */
+        public double filter(final IntegralImage image,
+                final ReceptiveField receptiveField) {
+            return 0.0d;
+        }
+
         /** {@inheritDoc} */
         public String getDescription() {
             return "None";
@@ -125,6 +131,28 @@ public final class Sensor {
         return sample;
     }
 
+    /**
+     * Sample the specified pixel matrix using an integral image of it. If the
+     * filter for this sensor is a {@link RegionFilter} the receptive field is
+     * reduced from the integral image without copying it out of the pixel
+     * matrix; otherwise this is the same as {@link #sample(PixelMatrix)}.
+     *
+     * @param pixelMatrix pixel matrix, must not be null
+     * @param integralImage integral image of the current pixel matrix image,
+     *            must not be null
+     * @return a view of the specified pixel matrix through the receptive field
+     *         of this sensor reduced to a single numerical value
+     */
+    public double sample(final PixelMatrix pixelMatrix,
+            final IntegralImage integralImage) {
+        if (filter instanceof RegionFilter) {
+            sample = ((RegionFilter) filter).filter(integralImage,
+                    receptiveField);
+            return sample;
+        }
+        return sample(pixelMatrix);
+    }
+
     /**
      * Return the last sample value for this sensor.
      *
@@ -0,0 +1,80 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2006 Jeff Yoshimi <www.jeffyoshimi.net>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.world.visionworld;
+
+/**
+ * Sensor matrix sampler.
+ *
+ * <p>
+ * Samples every sensor in a sensor matrix in one pass. The pixel matrix is
+ * decoded once into an {@link IntegralImage}, so sensors whose filters are
+ * {@link RegionFilter}s are each sampled in constant time, however large
+ * their receptive fields. Arrays are reused from one sample to the next.
+ * </p>
+ */
+public final class SensorMatrixSampler {
+
+    /** Integral image of the pixel matrix. */
+    private final IntegralImage integralImage = new IntegralImage();
+
+    /** Samples, row by row. */
+    private double[] samples = new double[0];
+
+    /**
+     * Sample every sensor in the specified sensor matrix.
+     *
+     * @param pixelMatrix pixel matrix, must not be null
+     * @param sensorMatrix sensor matrix, must not be null
+     * @return the samples, row by row; the array is reused by the next call
+     */
+    public double[] sample(final PixelMatrix pixelMatrix,
+            final SensorMatrix sensorMatrix) {
+        if (pixelMatrix == null) {
+            throw new IllegalArgumentException("pixelMatrix must not be null");
+        }
+        if (sensorMatrix == null) {
+            throw new IllegalArgumentException(
+                    "sensorMatrix must not be null");
+        }
+        integralImage.update(pixelMatrix.getImage());
+        int rows = sensorMatrix.rows();
+        int columns = sensorMatrix.columns();
+        if (samples.length != rows * columns) {
+            samples = new double[rows * columns];
+        }
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                Sensor sensor = sensorMatrix.getSensor(row, column);
+                samples[row * columns + column] = sensor.sample(pixelMatrix,
+                        integralImage);
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Return the samples from the last call to
+     * {@link #sample(PixelMatrix, SensorMatrix)}, row by row.
+     *
+     * @return the last samples
+     */
+    public double[] getSamples() {
+        return samples;
+    }
+}
@@ -35,6 +35,9 @@ public final class VisionWorldComponent extends WorkspaceComponent {
     /** Vision world. */
     private final VisionWorld visionWorld;
 
+    /** Samples the sensor matrix on each update, created on first use. */
+    private transient SensorMatrixSampler sampler;
+
     /**
      * Create a new vision world frame with the specified name.
      *
@@ -149,14 +152,10 @@ public final class VisionWorldComponent extends WorkspaceComponent {
         // Possibly change this later so only sensors with couplings are
         // updated.
         VisionWorldModel model = visionWorld.getModel();
-        PixelMatrix pixelMatrix = model.getPixelMatrix();
-        SensorMatrix sensorMatrix = model.getSensorMatrix();
-        for (int column = 0, columns = sensorMatrix.columns(); column < columns; column++) {
-            for (int row = 0, rows = sensorMatrix.rows(); row < rows; row++) {
-                Sensor sensor = sensorMatrix.getSensor(row, column);
-                sensor.sample(pixelMatrix);
-            }
+        if (sampler == null) {
+            sampler = new SensorMatrixSampler();
         }
+        sampler.sample(model.getPixelMatrix(), model.getSensorMatrix());
     }
 
     /**
@@ -20,16 +20,29 @@ package org.simbrain.world.visionworld.filter;
 
 import java.awt.image.BufferedImage;
 
-import org.simbrain.world.visionworld.Filter;
+import org.simbrain.world.visionworld.IntegralImage;
+import org.simbrain.world.visionworld.ReceptiveField;
+import org.simbrain.world.visionworld.RegionFilter;
 
 /**
  * Pixel accumulator.
  */
-public final class PixelAccumulator implements Filter {
+public final class PixelAccumulator implements RegionFilter {
 
     /** Display name. */
     private static final String DISPLAY_NAME = "Pixel accumulator";
 
+    /** Packed value of the opaque black pixels that are counted. */
+    private static final int OPAQUE_BLACK = 0xFF000000;
+
+    /** {@inheritDoc} */
+    public double filter(final IntegralImage image,
+            final ReceptiveField receptiveField) {
+        return image.count(PixelAccumulator.class, rgb -> rgb == OPAQUE_BLACK,
+                receptiveField.getX(), receptiveField.getY(),
+                receptiveField.getWidth(), receptiveField.getHeight());
+    }
+
     /** {@inheritDoc} */
     public double filter(final BufferedImage image) {
         int pixels = 0;
@@ -37,7 +50,7 @@ public final class PixelAccumulator implements Filter {
             for (int y = 0; y < image.getHeight(); y++) {
                 int rgb = image.getRGB(x, y);
                 // hack!
-                if (rgb == -16777216) {
+                if (rgb == OPAQUE_BLACK) {
                     pixels++;
                 }
                 // ...because this isn't giving the right value
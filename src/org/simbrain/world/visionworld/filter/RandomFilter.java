@@ -21,12 +21,14 @@ package org.simbrain.world.visionworld.filter;
 import java.awt.image.BufferedImage;
 import java.util.Random;
 
-import org.simbrain.world.visionworld.Filter;
+import org.simbrain.world.visionworld.IntegralImage;
+import org.simbrain.world.visionworld.ReceptiveField;
+import org.simbrain.world.visionworld.RegionFilter;
 
 /**
  * Random filter.
  */
-public final class RandomFilter implements Filter {
+public final class RandomFilter implements RegionFilter {
 
     /** Display name. */
     private static final String DISPLAY_NAME = "Random filter";
@@ -80,6 +82,12 @@ public final class RandomFilter implements Filter {
         return maximumValue;
     }
 
+    /** {@inheritDoc} */
+    public double filter(final IntegralImage image,
+            final ReceptiveField receptiveField) {
+        return filter((BufferedImage) null);
+    }
+
     /** {@inheritDoc} */
     public double filter(final BufferedImage image) {
         double r = random.nextDouble();
@@ -2,8 +2,9 @@ package org.simbrain.world.visionworld.filter;
 
 import java.awt.image.BufferedImage;
 
-import org.apache.log4j.Logger;
-import org.simbrain.world.visionworld.Filter;
+import org.simbrain.world.visionworld.IntegralImage;
+import org.simbrain.world.visionworld.ReceptiveField;
+import org.simbrain.world.visionworld.RegionFilter;
 
 /**
  * Filters pixels against the provided thresholds and provides the fraction of
@@ -17,10 +18,7 @@ import org.simbrain.world.visionworld.Filter;
  *
  * @author Matt Watson
  */
-public class RgbFilter implements Filter {
-    /** static logger for this class. */
-    private static final Logger LOGGER = Logger.getLogger(RgbFilter.class);
-
+public class RgbFilter implements RegionFilter {
     /** The number of bits in a byte. */
     private static final int BITS_IN_A_BYTE = 8;
     /** Mask for extracting a byte from a larger type. */
@@ -36,6 +34,11 @@ public class RgbFilter implements Filter {
     private final int lower;
     /** The upper bound of the results. */
     private final int upper;
+    /**
+     * Identifies the thresholds, so that filters with equal thresholds share
+     * a summed-area table. Null in filters saved before it was added.
+     */
+    private final String key;
 
     /**
      * Creates a new filter.
@@ -53,6 +56,7 @@ public class RgbFilter implements Filter {
         this.blue = blue;
         this.lower = lower;
         this.upper = upper;
+        this.key = makeKey();
     }
 
     /**
@@ -70,31 +74,54 @@ public class RgbFilter implements Filter {
      * {@inheritDoc}
      */
     public double filter(final BufferedImage image) {
-        int pixels = 0;
         final int width = image.getWidth();
         final int height = image.getHeight();
-
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                int rgb = image.getRGB(x, y);
-                int b = rgb & BYTE_MASK;
-                rgb = rgb >>> BITS_IN_A_BYTE;
-                int g = rgb & BYTE_MASK;
-                rgb = rgb >>> BITS_IN_A_BYTE;
-                int r = rgb & BYTE_MASK;
-
-                LOGGER.debug("rgb(" + x + "," + y + "): " + r + ", " + g + ", "
-                        + b);
-
-                if (eval(r, red) && eval(g, green) && eval(b, blue)) {
-                    pixels++;
-                }
+        int[] rgbs = image.getRGB(0, 0, width, height, null, 0, width);
+        int pixels = 0;
+        for (int rgb : rgbs) {
+            if (matches(rgb)) {
+                pixels++;
             }
         }
+        return scale(pixels, width * height);
+    }
 
+    /**
+     * {@inheritDoc}
+     */
+    public double filter(final IntegralImage image,
+            final ReceptiveField receptiveField) {
+        int width = receptiveField.getWidth();
+        int height = receptiveField.getHeight();
+        int pixels = image.count(key == null ? makeKey() : key,
+                this::matches, receptiveField.getX(), receptiveField.getY(),
+                width, height);
         return scale(pixels, width * height);
     }
 
+    /**
+     * Returns the key under which summed-area tables for these thresholds
+     * are kept.
+     *
+     * @return The key.
+     */
+    private String makeKey() {
+        return "RGB " + red + " " + green + " " + blue;
+    }
+
+    /**
+     * Returns whether a pixel meets all three thresholds.
+     *
+     * @param rgb The packed pixel value.
+     * @return Whether the pixel meets the thresholds.
+     */
+    private boolean matches(final int rgb) {
+        int b = rgb & BYTE_MASK;
+        int g = (rgb >>> BITS_IN_A_BYTE) & BYTE_MASK;
+        int r = (rgb >>> (2 * BITS_IN_A_BYTE)) & BYTE_MASK;
+        return eval(r, red) && eval(g, green) && eval(b, blue);
+    }
+
     // private static final String getString(int x) {
     // StringBuffer buffer = new StringBuffer();
     // int mask = 0x00000001;
@@ -115,13 +142,9 @@ public class RgbFilter implements Filter {
      * @return Whether the given value meets the threshold.
      */
     private boolean eval(final int value, final int threshold) {
-        LOGGER.debug("eval: " + value + ", " + threshold);
-
         if (threshold < 0) {
-            LOGGER.debug(value < Math.abs(threshold));
             return value < Math.abs(threshold);
         } else {
-            LOGGER.debug(value >= Math.abs(threshold));
             return value >= threshold;
         }
     }
@@ -139,9 +162,6 @@ public class RgbFilter implements Filter {
 
         double fraction = ((double) pixels) / total;
 
-        LOGGER.debug("pixels: " + pixels + " total: " + total + " scaled: "
-                + fraction * distance);
-
         return fraction * distance;
     }
 
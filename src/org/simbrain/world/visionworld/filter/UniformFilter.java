@@ -20,12 +20,14 @@ package org.simbrain.world.visionworld.filter;
 
 import java.awt.image.BufferedImage;
 
-import org.simbrain.world.visionworld.Filter;
+import org.simbrain.world.visionworld.IntegralImage;
+import org.simbrain.world.visionworld.ReceptiveField;
+import org.simbrain.world.visionworld.RegionFilter;
 
 /**
  * Uniform filter.
  */
-public final class UniformFilter implements Filter {
+public final class UniformFilter implements RegionFilter {
 
     /** Display name. */
     private static final String DISPLAY_NAME = "Uniform filter";
@@ -51,6 +53,12 @@ public final class UniformFilter implements Filter {
         return value;
     }
 
+    /** {@inheritDoc} */
+    public double filter(final IntegralImage image,
+            final ReceptiveField receptiveField) {
+        return value;
+    }
+
     /** {@inheritDoc} */
     public double filter(final BufferedImage image) {
         return value;